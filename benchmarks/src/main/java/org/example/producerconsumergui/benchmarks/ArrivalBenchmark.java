@@ -0,0 +1,72 @@
+package org.example.producerconsumergui.benchmarks;
+
+import org.example.producerconsumergui.Model.ArrivalProcess;
+import org.example.producerconsumergui.Model.ArrivalStream;
+import org.example.producerconsumergui.Model.ArrivalType;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ArrivalStream.nextGapNanos for each arrival type, the generator's cost per product
+ * before it is injected. Has to stay far below the 10 us between arrivals at 100k/s.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ArrivalBenchmark {
+
+    // Timestamps in the trace, it is opened again when they run out
+    private static final int TRACE_ARRIVALS = 1_000_000;
+
+    @Param({"UNIFORM", "POISSON", "DETERMINISTIC", "MMPP", "TRACE"})
+    public ArrivalType type;
+
+    ArrivalProcess process;
+    ArrivalStream stream;
+    Path trace;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        process = switch (type) {
+            case UNIFORM -> ArrivalProcess.uniform(0.004, 0.016);
+            case POISSON -> ArrivalProcess.poisson(100_000);
+            case DETERMINISTIC -> ArrivalProcess.deterministic(100_000);
+            case MMPP -> ArrivalProcess.mmpp(new double[]{50_000, 500_000}, new double[]{50, 5});
+            case TRACE -> {
+                trace = Files.createTempFile("arrival-benchmark", ".csv");
+                StringBuilder lines = new StringBuilder("timestamp\n");
+                for (int i = 0; i < TRACE_ARRIVALS; i++) {
+                    lines.append(i / 100).append('.').append(String.format("%02d", i % 100)).append('\n');
+                }
+                Files.writeString(trace, lines);
+                yield ArrivalProcess.trace(trace);
+            }
+        };
+        stream = process.open(new SplittableRandom(1));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        stream.close();
+        if (trace != null) Files.deleteIfExists(trace);
+    }
+
+    @Benchmark
+    public long nextGap() throws IOException {
+        long gap = stream.nextGapNanos();
+        if (gap < 0) {
+            stream.close();
+            stream = process.open(new SplittableRandom(1));
+            gap = stream.nextGapNanos();
+        }
+        return gap;
+    }
+}
@@ -0,0 +1,40 @@
+package org.example.producerconsumergui.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * Runs the benchmarks once per thread count and writes one JSON result file per run.
+ * Thread counts come from -Dbench.threads (default 1,2,4,8); group benchmarks such as
+ * QueueBenchmark.mpmc round the count up to whole producer/consumer pairs.
+ * Every regular JMH option is still accepted and wins over these defaults.
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        String[] threadCounts = System.getProperty("bench.threads", "1,2,4,8").split(",");
+        new File("target").mkdirs();
+
+        for (String value : threadCounts) {
+            int threads = Integer.parseInt(value.trim());
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .parent(cli)
+                    .threads(threads);
+            if (!cli.getResultFormat().hasValue()) {
+                options.resultFormat(ResultFormatType.JSON);
+            }
+            if (!cli.getResult().hasValue()) {
+                options.result("target/jmh-result-t" + threads + ".json");
+            }
+            new Runner(options.build()).run();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package org.example.producerconsumergui.benchmarks;
+
+import org.example.producerconsumergui.Model.DistributionType;
+import org.example.producerconsumergui.Model.TimeDistribution;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TimeDistribution.sampleMillis for each distribution type, every thread with its
+ * own stream like the machines. Should be flat across types and allocation free.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DistributionBenchmark {
+
+    @Param({"UNIFORM", "EXPONENTIAL", "LOGNORMAL", "ERLANG", "CONSTANT", "EMPIRICAL"})
+    public DistributionType type;
+
+    TimeDistribution distribution;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        distribution = switch (type) {
+            case UNIFORM -> TimeDistribution.uniform(1500);
+            case EXPONENTIAL -> TimeDistribution.exponential(1500);
+            case LOGNORMAL -> TimeDistribution.lognormal(1500, 0.5);
+            case ERLANG -> TimeDistribution.erlang(4, 1500);
+            case CONSTANT -> TimeDistribution.constant(1500);
+            case EMPIRICAL -> {
+                // A thousand observations with a long tail
+                SplittableRandom random = new SplittableRandom(1);
+                double[] observed = new double[1000];
+                for (int i = 0; i < observed.length; i++) {
+                    observed[i] = Math.rint(-1500 * Math.log1p(-random.nextDouble()));
+                }
+                yield TimeDistribution.empirical(observed);
+            }
+        };
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadStream {
+        final SplittableRandom random = new SplittableRandom();
+    }
+
+    @Benchmark
+    public double sample(ThreadStream thread) {
+        return distribution.sampleMillis(thread.random);
+    }
+}
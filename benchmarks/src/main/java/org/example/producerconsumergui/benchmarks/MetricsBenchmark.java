@@ -0,0 +1,41 @@
+package org.example.producerconsumergui.benchmarks;
+
+import org.example.producerconsumergui.Metrics.Histogram;
+import org.example.producerconsumergui.Metrics.TimeWeightedGauge;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of recording into the shared metrics that queues update on every product.
+ * Run with -t to see how the striped counters hold up under contention.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+
+    final Histogram histogram = new Histogram();
+    final TimeWeightedGauge gauge = new TimeWeightedGauge();
+
+    @Benchmark
+    public void histogramRecord() {
+        histogram.record(ThreadLocalRandom.current().nextLong(1, 10_000_000_000L));
+    }
+
+    @Benchmark
+    public void gaugeChange() {
+        long now = System.nanoTime();
+        gauge.add(1, now);
+        gauge.add(-1, now);
+    }
+
+    @Benchmark
+    public long histogramPercentile() {
+        return histogram.getPercentile(99);
+    }
+}
@@ -0,0 +1,110 @@
+package org.example.producerconsumergui.benchmarks;
+
+import org.example.producerconsumergui.Memento.SimulationRecorder;
+import org.example.producerconsumergui.Model.Color;
+import org.example.producerconsumergui.Model.Product;
+import org.example.producerconsumergui.Model.QueueBackend;
+import org.example.producerconsumergui.Model.SimulationQueue;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SimulationQueue enqueue/dequeue under contention.
+ * The "mpmc" group pairs one producer with one consumer; -t 2n runs n pairs.
+ * All threads share the queues, spread over queueCount of them, so the
+ * contention level can be varied.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueueBenchmark {
+    // Producers back off above this backlog so the unbounded backend can't run out of memory
+    private static final int MAX_BACKLOG = 1024;
+
+    @Param({"SYNCHRONIZED", "LOCK_FREE"})
+    public QueueBackend backend;
+
+    @Param({"1", "4", "16"})
+    public int queueCount;
+
+    @Param({"false", "true"})
+    public boolean recording;
+
+    SimulationQueue[] queues;
+    SimulationRecorder recorder;
+    final AtomicInteger nextProducer = new AtomicInteger();
+    final AtomicInteger nextConsumer = new AtomicInteger();
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        nextProducer.set(0);
+        nextConsumer.set(0);
+        recorder = new SimulationRecorder();
+        if (recording) recorder.startRecording();
+        queues = new SimulationQueue[queueCount];
+        for (int i = 0; i < queueCount; i++) {
+            queues[i] = new SimulationQueue(i, backend.createBuffer());
+            queues[i].setRecorder(recorder);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Producer {
+        SimulationQueue queue;
+        Product product;
+
+        @Setup(Level.Iteration)
+        public void setUp(QueueBenchmark benchmark) {
+            int index = benchmark.nextProducer.getAndIncrement();
+            queue = benchmark.queues[index % benchmark.queueCount];
+            product = new Product(index, Color.values()[index % Color.values().length]);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Consumer {
+        SimulationQueue queue;
+
+        @Setup(Level.Iteration)
+        public void setUp(QueueBenchmark benchmark) {
+            // Consumer i drains the queue producer i fills
+            int index = benchmark.nextConsumer.getAndIncrement();
+            queue = benchmark.queues[index % benchmark.queueCount];
+        }
+    }
+
+    @Benchmark
+    @Group("mpmc")
+    @GroupThreads(1)
+    public boolean produce(Producer producer) {
+        if (producer.queue.size() >= MAX_BACKLOG) return false;
+        producer.queue.enqueue(producer.product);
+        return true;
+    }
+
+    @Benchmark
+    @Group("mpmc")
+    @GroupThreads(1)
+    public Product consume(Consumer consumer) {
+        return consumer.queue.dequeue();
+    }
+
+    /**
+     * Every thread enqueues and immediately dequeues, keeping the queues balanced
+     */
+    @Benchmark
+    public Product enqueueDequeue(Producer producer) {
+        producer.queue.enqueue(producer.product);
+        return producer.queue.dequeue();
+    }
+
+    @Benchmark
+    public int size(Producer producer) {
+        return producer.queue.size();
+    }
+}
@@ -0,0 +1,59 @@
+package org.example.producerconsumergui.benchmarks;
+
+import org.example.producerconsumergui.Memento.Event;
+import org.example.producerconsumergui.Memento.SimulationMemento;
+import org.example.producerconsumergui.Memento.SimulationRecorder;
+import org.example.producerconsumergui.Model.Color;
+import org.example.producerconsumergui.Model.Product;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SimulationRecorder.recordEvent with every benchmark thread writing to one recorder.
+ * Each invocation records eventVolume events per thread into a fresh recording,
+ * so memory stays bounded and the score is the time per batch.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = 1)
+@Measurement(iterations = 10, batchSize = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecorderBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int eventVolume;
+
+    SimulationRecorder recorder;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        recorder = new SimulationRecorder();
+        recorder.startRecording();
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadProduct {
+        Product product = new Product(1, Color.RED);
+    }
+
+    @Benchmark
+    public SimulationRecorder recordEvents(ThreadProduct thread) {
+        Product product = thread.product;
+        for (int i = 0; i < eventVolume; i++) {
+            recorder.recordEvent(Event.PRODUCT_ENQUEUED, i & 63, product, product.getProductColor());
+        }
+        return recorder;
+    }
+
+    /**
+     * Cost of snapshotting a recording of eventVolume events per thread
+     */
+    @Benchmark
+    @Threads(1)
+    public SimulationMemento createMemento(ThreadProduct thread) {
+        recordEvents(thread);
+        return recorder.createMemento();
+    }
+}
@@ -0,0 +1,83 @@
+package org.example.producerconsumergui.benchmarks;
+
+import org.example.producerconsumergui.Memento.Event;
+import org.example.producerconsumergui.Memento.SimulationEvent;
+import org.example.producerconsumergui.Memento.SimulationMemento;
+import org.example.producerconsumergui.Memento.SimulationRecorder;
+import org.example.producerconsumergui.Memento.SimulationReplayer;
+import org.example.producerconsumergui.Model.Color;
+import org.example.producerconsumergui.Model.Product;
+import org.example.producerconsumergui.Model.VirtualClock;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SimulationReplayer.getNextEvent and takeDueEvents over recordings of different sizes.
+ * The replay runs fast enough that every event is due, so this measures the
+ * per-event overhead of the replayer rather than the recording's timing.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = 1)
+@Measurement(iterations = 10, batchSize = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReplayerBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int eventVolume;
+
+    SimulationMemento memento;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        VirtualClock clock = new VirtualClock();
+        SimulationRecorder recorder = new SimulationRecorder();
+        recorder.setClock(clock);
+        recorder.startRecording();
+        Event[] events = Event.values();
+        Color[] colors = Color.values();
+        for (int i = 0; i < eventVolume; i++) {
+            clock.advanceTo(i * 1_000_000L);
+            Product product = new Product(i / 6, colors[i % colors.length]);
+            recorder.recordEvent(events[i % events.length], i & 63, product, product.getProductColor());
+        }
+        recorder.stopRecording();
+        memento = recorder.createMemento();
+    }
+
+    @Benchmark
+    public int drainReplay(Blackhole blackhole) {
+        SimulationReplayer replayer = new SimulationReplayer(memento);
+        replayer.setReplaySpeed(1e12);
+        replayer.startReplay();
+        int count = 0;
+        while (replayer.hasMoreEvents()) {
+            SimulationEvent event = replayer.getNextEvent();
+            if (event != null) {
+                blackhole.consume(event);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int drainReplayInBatches(Blackhole blackhole) {
+        SimulationReplayer replayer = new SimulationReplayer(memento);
+        replayer.setReplaySpeed(1e12);
+        replayer.startReplay();
+        int count = 0;
+        while (replayer.hasMoreEvents()) {
+            int from = replayer.getCurrentEventIndex();
+            int to = replayer.takeDueEvents();
+            for (int i = from; i < to; i++) {
+                blackhole.consume(replayer.getEvent(i));
+            }
+            count += to - from;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,68 @@
+package org.example.producerconsumergui.benchmarks;
+
+import org.example.producerconsumergui.Model.Color;
+import org.example.producerconsumergui.Model.Machine;
+import org.example.producerconsumergui.Model.Product;
+import org.example.producerconsumergui.Model.QueueBackend;
+import org.example.producerconsumergui.Model.RoutingPolicy;
+import org.example.producerconsumergui.Model.SimulationQueue;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Machine.getOutputQueue on machines that share a wide fan-out of output queues,
+ * for each routing policy. Run with -t to vary how many machines route at the same time.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RoutingBenchmark {
+
+    @Param({"SYNCHRONIZED", "LOCK_FREE"})
+    public QueueBackend backend;
+
+    @Param({"2", "8", "32"})
+    public int queueCount;
+
+    @Param({"ROUND_ROBIN", "WEIGHTED", "RANDOM", "POWER_OF_TWO", "SHORTEST_QUEUE"})
+    public RoutingPolicy policy;
+
+    SimulationQueue[] outputs;
+    final AtomicInteger nextMachine = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        outputs = new SimulationQueue[queueCount];
+        for (int i = 0; i < queueCount; i++) {
+            outputs[i] = new SimulationQueue(i, backend.createBuffer());
+            // Uneven backlogs so the shortest queue is not always the first one
+            for (int j = 0; j < (i * 7) % queueCount; j++) {
+                outputs[i].enqueueWithoutRecord(new Product(j, Color.BLUE));
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadMachine {
+        Machine machine;
+
+        @Setup(Level.Trial)
+        public void setUp(RoutingBenchmark benchmark) {
+            machine = new Machine(benchmark.nextMachine.getAndIncrement());
+            machine.setRoutingPolicy(benchmark.policy);
+            for (int i = 0; i < benchmark.outputs.length; i++) {
+                machine.addOutputQueue(benchmark.outputs[i], 1 + i % 3);
+            }
+        }
+    }
+
+    @Benchmark
+    public SimulationQueue route(ThreadMachine thread) {
+        return thread.machine.getOutputQueue();
+    }
+}
@@ -1,8 +1,12 @@
 module org.example.producerconsumergui {
     requires javafx.controls;
     requires javafx.fxml;
+    requires java.management;
 
 
     opens org.example.producerconsumergui to javafx.fxml;
     exports org.example.producerconsumergui;
+    exports org.example.producerconsumergui.Model;
+    exports org.example.producerconsumergui.Memento;
+    exports org.example.producerconsumergui.Metrics;
 }
\ No newline at end of file
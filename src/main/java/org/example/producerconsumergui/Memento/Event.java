@@ -6,5 +6,8 @@ public enum Event {
     PRODUCT_DEQUEUED,
     MACHINE_STARTED_PROCESSING,
     MACHINE_FINISHED_PROCESSING,
-    MACHINE_COLOR_CHANGED
+    MACHINE_COLOR_CHANGED,
+    QUEUE_BLOCKED,      // a producer started waiting for a slot in a full queue
+    QUEUE_UNBLOCKED,    // the waiting producer's product was taken in
+    PRODUCT_DROPPED     // a full queue discarded the product
 }
@@ -0,0 +1,34 @@
+package org.example.producerconsumergui.Memento;
+
+import org.example.producerconsumergui.Model.Color;
+
+/**
+ * Read access to a recording, one row per event in recorded order.
+ * Implemented by the in-memory EventTable and the file-backed MappedEventLog.
+ */
+public interface EventLog {
+
+    int size();
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    Event getEvent(int index);
+
+    int getEntityId(int index);
+
+    /**
+     * Product id, or EventTable.NO_PRODUCT for events without a product
+     */
+    int getProductId(int index);
+
+    /**
+     * Color, or null if the event had none
+     */
+    Color getColor(int index);
+
+    long getTimestamp(int index);
+
+    long getSequence(int index);
+}
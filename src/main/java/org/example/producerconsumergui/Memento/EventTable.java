@@ -0,0 +1,158 @@
+package org.example.producerconsumergui.Memento;
+
+import org.example.producerconsumergui.Model.Color;
+
+import java.util.Arrays;
+
+/**
+ * Recorded events stored as growable primitive columns, one row per event.
+ * Appending only writes primitives, so recording allocates nothing except
+ * when a column has to grow. Products are kept by id, never by reference.
+ * The sequence column holds the recorder's global order of the events.
+ */
+public class EventTable implements EventLog {
+    public static final int NO_PRODUCT = -1;
+    private static final byte NO_COLOR = -1;
+    private static final Event[] EVENTS = Event.values();
+    private static final Color[] COLORS = Color.values();
+
+    private byte[] events;
+    private int[] entityIds;
+    private int[] productIds;
+    private byte[] colors;
+    private long[] timestamps;
+    private long[] sequences;
+    private int size;
+
+    public EventTable() {
+        this(1024);
+    }
+
+    public EventTable(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 16);
+        events = new byte[capacity];
+        entityIds = new int[capacity];
+        productIds = new int[capacity];
+        colors = new byte[capacity];
+        timestamps = new long[capacity];
+        sequences = new long[capacity];
+    }
+
+    public void append(Event event, int entityId, int productId, Color color, long timestamp) {
+        append(event, entityId, productId, color, timestamp, size);
+    }
+
+    public void append(Event event, int entityId, int productId, Color color, long timestamp, long sequence) {
+        if (size == events.length) {
+            grow();
+        }
+        events[size] = (byte) event.ordinal();
+        entityIds[size] = entityId;
+        productIds[size] = productId;
+        colors[size] = color == null ? NO_COLOR : (byte) color.ordinal();
+        timestamps[size] = timestamp;
+        sequences[size] = sequence;
+        size++;
+    }
+
+    private void grow() {
+        int capacity = events.length * 2;
+        events = Arrays.copyOf(events, capacity);
+        entityIds = Arrays.copyOf(entityIds, capacity);
+        productIds = Arrays.copyOf(productIds, capacity);
+        colors = Arrays.copyOf(colors, capacity);
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        sequences = Arrays.copyOf(sequences, capacity);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    @Override
+    public Event getEvent(int index) {
+        return EVENTS[events[checkIndex(index)]];
+    }
+
+    public int getEventOrdinal(int index) {
+        return events[checkIndex(index)];
+    }
+
+    @Override
+    public int getEntityId(int index) {
+        return entityIds[checkIndex(index)];
+    }
+
+    @Override
+    public int getProductId(int index) {
+        return productIds[checkIndex(index)];
+    }
+
+    @Override
+    public Color getColor(int index) {
+        byte ordinal = colors[checkIndex(index)];
+        return ordinal == NO_COLOR ? null : COLORS[ordinal];
+    }
+
+    public int getColorOrdinal(int index) {
+        return colors[checkIndex(index)];
+    }
+
+    @Override
+    public long getTimestamp(int index) {
+        return timestamps[checkIndex(index)];
+    }
+
+    @Override
+    public long getSequence(int index) {
+        return sequences[checkIndex(index)];
+    }
+
+    /**
+     * Appends row index of another table
+     */
+    public void appendRow(EventTable source, int index) {
+        if (size == events.length) {
+            grow();
+        }
+        events[size] = source.events[index];
+        entityIds[size] = source.entityIds[index];
+        productIds[size] = source.productIds[index];
+        colors[size] = source.colors[index];
+        timestamps[size] = source.timestamps[index];
+        sequences[size] = source.sequences[index];
+        size++;
+    }
+
+    /**
+     * Copy trimmed to the current size
+     */
+    public EventTable copy() {
+        EventTable copy = new EventTable(0);
+        copy.events = Arrays.copyOf(events, size);
+        copy.entityIds = Arrays.copyOf(entityIds, size);
+        copy.productIds = Arrays.copyOf(productIds, size);
+        copy.colors = Arrays.copyOf(colors, size);
+        copy.timestamps = Arrays.copyOf(timestamps, size);
+        copy.sequences = Arrays.copyOf(sequences, size);
+        copy.size = size;
+        return copy;
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Event " + index + " out of " + size);
+        }
+        return index;
+    }
+}
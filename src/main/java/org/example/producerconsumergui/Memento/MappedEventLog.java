@@ -0,0 +1,348 @@
+package org.example.producerconsumergui.Memento;
+
+import org.example.producerconsumergui.Model.Color;
+import org.example.producerconsumergui.Model.SimulationClock;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Append-only event log in a memory-mapped file.
+ * Every event gets a global sequence number and is written to the fixed-size
+ * slot of that number, so writer threads never coordinate beyond the counter
+ * and the file is in recorded order without a merge. The file is mapped one
+ * segment at a time, which keeps the heap flat however long the recording is.
+ *
+ * File layout: a header (magic, version, record size, sealed flag, event count)
+ * followed by one RECORD_SIZE record per event:
+ * event ordinal + 1 (0 = never written), color ordinal or -1, entity id, product id, timestamp.
+ */
+public class MappedEventLog implements EventLog {
+    public static final int MAGIC = 0x50434556; // "PCEV"
+    public static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    static final int RECORD_SIZE = 24;
+    static final int RECORDS_PER_SEGMENT = 1 << 21; // 48MB per mapping
+
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int RECORD_SIZE_OFFSET = 8;
+    private static final int SEALED_OFFSET = 12;
+    private static final int COUNT_OFFSET = 16;
+
+    private static final int EVENT_OFFSET = 0;
+    private static final int COLOR_OFFSET = 1;
+    private static final int ENTITY_OFFSET = 4;
+    private static final int PRODUCT_OFFSET = 8;
+    private static final int TIMESTAMP_OFFSET = 16;
+
+    private static final Event[] EVENTS = Event.values();
+    private static final Color[] COLORS = Color.values();
+    private static final long SEAL_TIMEOUT_NANOS = 1_000_000_000L;
+    // Sequence counter after sealing, far past any slot so late appenders see the log is closed
+    private static final long SEALED_SEQUENCE = Long.MAX_VALUE / 2;
+
+    private final Path file;
+
+    // Writing, only used until the log is sealed
+    private FileChannel writeChannel;
+    private final AtomicReferenceArray<MappedByteBuffer> writeSegments =
+            new AtomicReferenceArray<>(Integer.MAX_VALUE / RECORDS_PER_SEGMENT + 1);
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private volatile boolean sealed;
+
+    // Reading, the segment the reader is in
+    private volatile ReadSegment readSegment;
+    private volatile int count;
+
+    private static final class ReadSegment {
+        final int index;
+        final ByteBuffer buffer;
+
+        ReadSegment(int index, ByteBuffer buffer) {
+            this.index = index;
+            this.buffer = buffer;
+        }
+    }
+
+    private MappedEventLog(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Creates a new log file for writing; fails if the file already exists
+     */
+    public static MappedEventLog create(Path file) throws IOException {
+        MappedEventLog log = new MappedEventLog(file);
+        log.writeChannel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            log.writeHeader(false, 0);
+        } catch (IOException e) {
+            log.writeChannel.close();
+            throw e;
+        }
+        return log;
+    }
+
+    /**
+     * Opens a sealed log file for reading
+     */
+    public static MappedEventLog open(Path file) throws IOException {
+        MappedEventLog log = new MappedEventLog(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Not an event log: " + file);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt(MAGIC_OFFSET) != MAGIC) {
+                throw new IOException("Not an event log: " + file);
+            }
+            if (header.getInt(VERSION_OFFSET) != VERSION || header.getInt(RECORD_SIZE_OFFSET) != RECORD_SIZE) {
+                throw new IOException("Unsupported event log version " + header.getInt(VERSION_OFFSET) + ": " + file);
+            }
+            if (header.getInt(SEALED_OFFSET) == 0) {
+                throw new IOException("Event log was not closed properly: " + file);
+            }
+            long recorded = header.getLong(COUNT_OFFSET);
+            if (recorded > Integer.MAX_VALUE || channel.size() < HEADER_SIZE + recorded * RECORD_SIZE) {
+                throw new IOException("Event log is truncated: " + file);
+            }
+            log.count = (int) recorded;
+        }
+        log.sealed = true;
+        return log;
+    }
+
+    private void writeHeader(boolean isSealed, long eventCount) throws IOException {
+        MappedByteBuffer header = writeChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        header.putInt(MAGIC_OFFSET, MAGIC);
+        header.putInt(VERSION_OFFSET, VERSION);
+        header.putInt(RECORD_SIZE_OFFSET, RECORD_SIZE);
+        header.putInt(SEALED_OFFSET, isSealed ? 1 : 0);
+        header.putLong(COUNT_OFFSET, eventCount);
+        header.force();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    // ============================================
+    // WRITING
+    // ============================================
+
+    /**
+     * Appends an event and returns its sequence number, or -1 if the log is already sealed.
+     * Safe to call from any number of threads.
+     */
+    public long append(Event event, int entityId, int productId, Color color, long timestamp) {
+        long sequence = claim();
+        if (sequence < 0) return -1;
+        return write(sequence, event, entityId, productId, color, timestamp);
+    }
+
+    /**
+     * Appends an event stamped with the clock once its slot is claimed, so timestamps
+     * follow the order of the slots as closely as the clock allows
+     */
+    public long append(Event event, int entityId, int productId, Color color, SimulationClock clock) {
+        long sequence = claim();
+        if (sequence < 0) return -1;
+        return write(sequence, event, entityId, productId, color, clock.currentTimeMillis());
+    }
+
+    /**
+     * Claims the next slot, -1 if the log is sealed
+     */
+    private long claim() {
+        if (sealed) return -1;
+        long sequence = nextSequence.getAndIncrement();
+        if (sequence >= Integer.MAX_VALUE) {
+            if (sequence >= SEALED_SEQUENCE) return -1;
+            throw new IllegalStateException("Event log is full: " + file);
+        }
+        return sequence;
+    }
+
+    private long write(long sequence, Event event, int entityId, int productId, Color color, long timestamp) {
+        ByteBuffer segment = writeSegment((int) (sequence / RECORDS_PER_SEGMENT));
+        if (segment == null) return -1; // sealed while this event was being appended
+        int offset = (int) (sequence % RECORDS_PER_SEGMENT) * RECORD_SIZE;
+        segment.putInt(offset + ENTITY_OFFSET, entityId);
+        segment.putInt(offset + PRODUCT_OFFSET, productId);
+        segment.putLong(offset + TIMESTAMP_OFFSET, timestamp);
+        segment.put(offset + COLOR_OFFSET, color == null ? -1 : (byte) color.ordinal());
+        segment.put(offset + EVENT_OFFSET, (byte) (event.ordinal() + 1));
+        written.incrementAndGet();
+        return sequence;
+    }
+
+    private ByteBuffer writeSegment(int index) {
+        MappedByteBuffer segment = writeSegments.get(index);
+        if (segment != null) return segment;
+        synchronized (this) {
+            if (writeChannel == null) return null;
+            segment = writeSegments.get(index);
+            if (segment == null) {
+                try {
+                    long position = HEADER_SIZE + (long) index * RECORDS_PER_SEGMENT * RECORD_SIZE;
+                    segment = writeChannel.map(FileChannel.MapMode.READ_WRITE, position,
+                            (long) RECORDS_PER_SEGMENT * RECORD_SIZE);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Can't map event log " + file, e);
+                }
+                writeSegments.set(index, segment);
+                // Writers only trail the newest segment by a few events, let old mappings go
+                if (index >= 2) writeSegments.set(index - 2, null);
+            }
+            return segment;
+        }
+    }
+
+    /**
+     * Stops accepting events, waits for writes in flight and records the event count.
+     * A write still missing after the wait ends the log there, so every event read back
+     * was written. The file is cut down to the events it holds.
+     * The log can only be read after it is sealed.
+     */
+    public synchronized void seal() throws IOException {
+        if (sealed) return;
+        sealed = true;
+        // No slot is handed out after this, so every write still to come is below claimed
+        long claimed = Math.min(nextSequence.getAndSet(SEALED_SEQUENCE), Integer.MAX_VALUE);
+        long deadline = System.nanoTime() + SEAL_TIMEOUT_NANOS;
+        while (written.get() < claimed && System.nanoTime() < deadline) {
+            Thread.yield();
+        }
+        for (int i = 0; i < writeSegments.length(); i++) {
+            MappedByteBuffer segment = writeSegments.get(i);
+            if (segment != null) {
+                segment.force();
+                writeSegments.set(i, null);
+            }
+        }
+        count = (int) (written.get() >= claimed ? claimed : writtenPrefix(claimed));
+        writeHeader(true, count);
+        try {
+            // Keeps the claimed slots, a writer we stopped waiting for may still have its slot mapped
+            writeChannel.truncate(HEADER_SIZE + claimed * RECORD_SIZE);
+        } catch (IOException e) {
+            // Some systems can't shrink a file that is still mapped, the extra space is never read
+            System.out.println("MappedEventLog.seal: Can't truncate " + file + ": " + e.getMessage());
+        }
+        writeChannel.close();
+        writeChannel = null;
+    }
+
+    /**
+     * Number of events written without a gap from the start, looking at the first claimed slots
+     */
+    private long writtenPrefix(long claimed) throws IOException {
+        for (long first = 0; first < claimed; first += RECORDS_PER_SEGMENT) {
+            long records = Math.min(RECORDS_PER_SEGMENT, claimed - first);
+            ByteBuffer segment = writeChannel.map(FileChannel.MapMode.READ_ONLY,
+                    HEADER_SIZE + first * RECORD_SIZE, records * RECORD_SIZE);
+            for (int i = 0; i < records; i++) {
+                if (segment.get(i * RECORD_SIZE + EVENT_OFFSET) == 0) return first + i;
+            }
+        }
+        return claimed;
+    }
+
+    public boolean isSealed() {
+        return sealed;
+    }
+
+    // ============================================
+    // READING
+    // ============================================
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public Event getEvent(int index) {
+        int ordinal = read(index).get(offsetOf(index) + EVENT_OFFSET) - 1;
+        if (ordinal < 0) {
+            throw new IllegalStateException("Event " + index + " was never written in " + file);
+        }
+        return EVENTS[ordinal];
+    }
+
+    @Override
+    public int getEntityId(int index) {
+        return read(index).getInt(offsetOf(index) + ENTITY_OFFSET);
+    }
+
+    @Override
+    public int getProductId(int index) {
+        return read(index).getInt(offsetOf(index) + PRODUCT_OFFSET);
+    }
+
+    @Override
+    public Color getColor(int index) {
+        byte ordinal = read(index).get(offsetOf(index) + COLOR_OFFSET);
+        return ordinal < 0 ? null : COLORS[ordinal];
+    }
+
+    @Override
+    public long getTimestamp(int index) {
+        return read(index).getLong(offsetOf(index) + TIMESTAMP_OFFSET);
+    }
+
+    /**
+     * Events are stored at their sequence number, so the row is the sequence
+     */
+    @Override
+    public long getSequence(int index) {
+        checkIndex(index);
+        return index;
+    }
+
+    private static int offsetOf(int index) {
+        return (index % RECORDS_PER_SEGMENT) * RECORD_SIZE;
+    }
+
+    /**
+     * Mapping of the segment holding the row. Only one segment is kept mapped,
+     * the channel is opened just long enough to map it.
+     */
+    private ByteBuffer read(int index) {
+        checkIndex(index);
+        int segmentIndex = index / RECORDS_PER_SEGMENT;
+        ReadSegment segment = readSegment;
+        if (segment == null || segment.index != segmentIndex) {
+            long first = (long) segmentIndex * RECORDS_PER_SEGMENT;
+            long records = Math.min(RECORDS_PER_SEGMENT, count - first);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_SIZE + first * RECORD_SIZE, records * RECORD_SIZE);
+                segment = new ReadSegment(segmentIndex, buffer);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Can't read event log " + file, e);
+            }
+            readSegment = segment;
+        }
+        return segment.buffer;
+    }
+
+    private void checkIndex(int index) {
+        if (!sealed) {
+            throw new IllegalStateException("Event log is still being written: " + file);
+        }
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Event " + index + " out of " + count);
+        }
+    }
+}
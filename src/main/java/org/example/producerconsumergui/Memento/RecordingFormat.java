@@ -0,0 +1,77 @@
+package org.example.producerconsumergui.Memento;
+
+import org.example.producerconsumergui.Model.ArrivalType;
+import org.example.producerconsumergui.Model.Color;
+import org.example.producerconsumergui.Model.DistributionType;
+import org.example.producerconsumergui.Model.OverflowPolicy;
+import org.example.producerconsumergui.Model.RoutingPolicy;
+
+/**
+ * Constants of the binary recording format shared by RecordingWriter and RecordingReader.
+ *
+ * A recording is a header followed by blocks of events:
+ * <pre>
+ * header: magic int, version byte, flags byte, memento timestamp long, topology
+ * topology: queues (id, input flag, capacity, overflow policy, overflow queue, arrival weight, arrivals, x, y),
+ *           machines (id, color, routing policy, service time, x, y),
+ *           connections (machine, input queue, output queue, weight), each list count-prefixed
+ * service time: distribution type byte, mean double, shape double,
+ *           empirical ones followed by a count-prefixed list of (value double, varint count)
+ * arrivals: byte 0 for a share of the session's, else arrival type + 1 followed by
+ *           uniform min and max doubles, a Poisson or deterministic rate double,
+ *           a count-prefixed list of MMPP (rate double, mean time double), or a trace's
+ *           length-prefixed UTF-8 path
+ * block:  varint event count (0 ends the recording), varint encoded length,
+ *         varint stored length, stored bytes (deflated if FLAG_COMPRESSED)
+ * event:  byte (event ordinal &lt;&lt; 4 | color ordinal + 1),
+ *         zigzag varint timestamp delta, zigzag varint entity id, zigzag varint product id delta
+ * </pre>
+ * Deltas are taken from the previous event of the recording, so blocks are read in order.
+ * Version 1 recordings have no routing policies or weights, version 2 no queue capacities,
+ * version 3 no service times, version 4 no input arrivals; all are still read.
+ */
+final class RecordingFormat {
+    static final int MAGIC = 0x50435243; // "PCRC"
+    static final int VERSION = 5;
+    static final int MIN_VERSION = 1;
+    static final int FLAG_COMPRESSED = 1;
+    static final int EVENTS_PER_BLOCK = 16 * 1024;
+
+    static final Event[] EVENTS = Event.values();
+    static final Color[] COLORS = Color.values();
+    static final RoutingPolicy[] ROUTING_POLICIES = RoutingPolicy.values();
+    static final OverflowPolicy[] OVERFLOW_POLICIES = OverflowPolicy.values();
+    static final DistributionType[] DISTRIBUTION_TYPES = DistributionType.values();
+    static final ArrivalType[] ARRIVAL_TYPES = ArrivalType.values();
+
+    static {
+        // Event and color have to fit in a nibble each
+        if (EVENTS.length > 16 || COLORS.length > 15) {
+            throw new ExceptionInInitializerError("Too many event types or colors for the recording format");
+        }
+    }
+
+    private RecordingFormat() {
+    }
+
+    static byte pack(Event event, Color color) {
+        return (byte) (event.ordinal() << 4 | (color == null ? 0 : color.ordinal() + 1));
+    }
+
+    static Event unpackEvent(int packed) {
+        return EVENTS[(packed & 0xFF) >>> 4];
+    }
+
+    static Color unpackColor(int packed) {
+        int color = packed & 0x0F;
+        return color == 0 ? null : COLORS[color - 1];
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,362 @@
+package org.example.producerconsumergui.Memento;
+
+import org.example.producerconsumergui.Model.ArrivalProcess;
+import org.example.producerconsumergui.Model.ArrivalType;
+import org.example.producerconsumergui.Model.Color;
+import org.example.producerconsumergui.Model.DistributionType;
+import org.example.producerconsumergui.Model.Machine;
+import org.example.producerconsumergui.Model.OverflowPolicy;
+import org.example.producerconsumergui.Model.RoutingPolicy;
+import org.example.producerconsumergui.Model.SimulationTopology;
+import org.example.producerconsumergui.Model.TimeDistribution;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Streams a recording written by RecordingWriter, one event at a time.
+ * Only the current block is held in memory.
+ */
+public class RecordingReader implements Closeable {
+    // Guards against allocating huge buffers for a corrupt block header
+    private static final int MAX_BLOCK_BYTES = RecordingFormat.EVENTS_PER_BLOCK * 32;
+
+    private final DataInputStream in;
+    private final int version;
+    private final boolean compressed;
+    private final long mementoTimestamp;
+    private final SimulationTopology topology;
+    private final Inflater inflater;
+
+    private byte[] stored = new byte[0];
+    private byte[] block = new byte[0];
+    private int blockLength = 0;
+    private int position = 0;
+    private int remainingInBlock = 0;
+    private boolean finished = false;
+
+    private Event event;
+    private Color color;
+    private int entityId;
+    private int productId = 0;
+    private long timestamp = 0;
+
+    /**
+     * Reads the header; the stream is closed with the reader
+     * Throws IOException if the stream isn't a recording of a supported version
+     */
+    public RecordingReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(in, 64 * 1024));
+        try {
+            if (this.in.readInt() != RecordingFormat.MAGIC) {
+                throw new IOException("Not a recording");
+            }
+            this.version = this.in.readUnsignedByte();
+            if (version < RecordingFormat.MIN_VERSION || version > RecordingFormat.VERSION) {
+                throw new IOException("Unsupported recording version " + version);
+            }
+            int flags = this.in.readUnsignedByte();
+            this.compressed = (flags & RecordingFormat.FLAG_COMPRESSED) != 0;
+            this.mementoTimestamp = this.in.readLong();
+            this.topology = readTopology();
+        } catch (EOFException e) {
+            throw new IOException("Recording is truncated", e);
+        }
+        this.inflater = compressed ? new Inflater() : null;
+    }
+
+    private SimulationTopology readTopology() throws IOException {
+        SimulationTopology result = new SimulationTopology();
+        int queueCount = readCount();
+        for (int i = 0; i < queueCount; i++) {
+            int id = readSignedInt();
+            boolean input = in.readUnsignedByte() != 0;
+            int capacity = 0;
+            OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+            int overflowQueueId = -1;
+            if (version >= 3) {
+                capacity = readCount();
+                int policyCode = in.readUnsignedByte();
+                if (policyCode >= RecordingFormat.OVERFLOW_POLICIES.length) {
+                    throw new IOException("Recording is corrupt: unknown overflow policy " + policyCode);
+                }
+                overflowPolicy = RecordingFormat.OVERFLOW_POLICIES[policyCode];
+                overflowQueueId = readSignedInt();
+            }
+            int arrivalWeight = 1;
+            ArrivalProcess arrivals = null;
+            if (version >= 5) {
+                arrivalWeight = readCount();
+                if (arrivalWeight <= 0) {
+                    throw new IOException("Recording is corrupt: arrival weight " + arrivalWeight);
+                }
+                arrivals = readArrivals();
+            }
+            result.addQueue(id, input, capacity, overflowPolicy, overflowQueueId, arrivalWeight, arrivals,
+                    in.readDouble(), in.readDouble());
+        }
+        int machineCount = readCount();
+        for (int i = 0; i < machineCount; i++) {
+            int id = readSignedInt();
+            int colorCode = in.readUnsignedByte();
+            if (colorCode > RecordingFormat.COLORS.length) {
+                throw new IOException("Recording is corrupt: unknown machine color " + colorCode);
+            }
+            Color machineColor = colorCode == 0 ? null : RecordingFormat.COLORS[colorCode - 1];
+            RoutingPolicy routingPolicy = RoutingPolicy.SHORTEST_QUEUE;
+            if (version >= 2) {
+                int policyCode = in.readUnsignedByte();
+                if (policyCode >= RecordingFormat.ROUTING_POLICIES.length) {
+                    throw new IOException("Recording is corrupt: unknown routing policy " + policyCode);
+                }
+                routingPolicy = RecordingFormat.ROUTING_POLICIES[policyCode];
+            }
+            TimeDistribution serviceTime = version >= 4 ? readServiceTime() : Machine.DEFAULT_SERVICE_TIME;
+            result.addMachine(id, machineColor, routingPolicy, serviceTime, in.readDouble(), in.readDouble());
+        }
+        int connectionCount = readCount();
+        for (int i = 0; i < connectionCount; i++) {
+            int machineId = readSignedInt();
+            int inputQueueId = readSignedInt();
+            int outputQueueId = readSignedInt();
+            int weight = version >= 2 ? readCount() : 1;
+            if (weight <= 0) {
+                throw new IOException("Recording is corrupt: connection weight " + weight);
+            }
+            result.addConnection(machineId, inputQueueId, outputQueueId, weight);
+        }
+        return result;
+    }
+
+    public SimulationTopology getTopology() {
+        return topology;
+    }
+
+    /**
+     * When the recorded simulation was saved
+     */
+    public long getMementoTimestamp() {
+        return mementoTimestamp;
+    }
+
+    /**
+     * Moves to the next event, returns false at the end of the recording
+     */
+    public boolean next() throws IOException {
+        if (remainingInBlock == 0 && !readBlock()) {
+            return false;
+        }
+        try {
+            int packed = block[position++];
+            int eventOrdinal = (packed & 0xFF) >>> 4;
+            int colorCode = packed & 0x0F;
+            if (eventOrdinal >= RecordingFormat.EVENTS.length || colorCode > RecordingFormat.COLORS.length) {
+                throw new IOException("Recording is corrupt: unknown event " + (packed & 0xFF));
+            }
+            event = RecordingFormat.unpackEvent(packed);
+            color = RecordingFormat.unpackColor(packed);
+            timestamp += RecordingFormat.unzigzag(blockVarint());
+            entityId = (int) RecordingFormat.unzigzag(blockVarint());
+            productId += (int) RecordingFormat.unzigzag(blockVarint());
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Recording is corrupt: block ends inside an event", e);
+        }
+        if (position > blockLength) {
+            throw new IOException("Recording is corrupt: block ends inside an event");
+        }
+        remainingInBlock--;
+        return true;
+    }
+
+    private boolean readBlock() throws IOException {
+        if (finished) return false;
+        try {
+            int events = readCount();
+            if (events == 0) {
+                finished = true;
+                return false;
+            }
+            int length = readCount();
+            int storedLength = readCount();
+            if (length > MAX_BLOCK_BYTES || storedLength > MAX_BLOCK_BYTES) {
+                throw new IOException("Recording is corrupt: block of " + length + " bytes");
+            }
+            if (block.length < length) block = new byte[length];
+            if (compressed) {
+                if (stored.length < storedLength) stored = new byte[storedLength];
+                in.readFully(stored, 0, storedLength);
+                inflate(storedLength, length);
+            } else {
+                if (storedLength != length) {
+                    throw new IOException("Recording is corrupt: block lengths don't match");
+                }
+                in.readFully(block, 0, length);
+            }
+            blockLength = length;
+            position = 0;
+            remainingInBlock = events;
+            return true;
+        } catch (EOFException e) {
+            throw new IOException("Recording is truncated", e);
+        }
+    }
+
+    private void inflate(int storedLength, int length) throws IOException {
+        inflater.reset();
+        inflater.setInput(stored, 0, storedLength);
+        try {
+            int inflated = 0;
+            while (inflated < length && !inflater.finished()) {
+                int n = inflater.inflate(block, inflated, length - inflated);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                inflated += n;
+            }
+            if (inflated != length) {
+                throw new IOException("Recording is corrupt: block inflates to " + inflated + " bytes, expected " + length);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Recording is corrupt: " + e.getMessage(), e);
+        }
+    }
+
+    private long blockVarint() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = block[position++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+        return value;
+    }
+
+    private ArrivalProcess readArrivals() throws IOException {
+        int typeCode = in.readUnsignedByte();
+        if (typeCode == 0) return null;
+        if (typeCode > RecordingFormat.ARRIVAL_TYPES.length) {
+            throw new IOException("Recording is corrupt: unknown arrival type " + typeCode);
+        }
+        ArrivalType type = RecordingFormat.ARRIVAL_TYPES[typeCode - 1];
+        try {
+            switch (type) {
+                case UNIFORM:
+                    return ArrivalProcess.uniform(in.readDouble(), in.readDouble());
+                case POISSON:
+                    return ArrivalProcess.poisson(in.readDouble());
+                case DETERMINISTIC:
+                    return ArrivalProcess.deterministic(in.readDouble());
+                case MMPP: {
+                    int count = readCount();
+                    double[] rates = new double[count];
+                    double[] stays = new double[count];
+                    for (int i = 0; i < count; i++) {
+                        rates[i] = in.readDouble();
+                        stays[i] = in.readDouble();
+                    }
+                    return ArrivalProcess.mmpp(rates, stays);
+                }
+                default: {
+                    byte[] path = new byte[readCount()];
+                    in.readFully(path);
+                    return ArrivalProcess.trace(Path.of(new String(path, StandardCharsets.UTF_8)));
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Recording is corrupt: " + e.getMessage(), e);
+        }
+    }
+
+    private TimeDistribution readServiceTime() throws IOException {
+        int typeCode = in.readUnsignedByte();
+        if (typeCode >= RecordingFormat.DISTRIBUTION_TYPES.length) {
+            throw new IOException("Recording is corrupt: unknown service time distribution " + typeCode);
+        }
+        DistributionType type = RecordingFormat.DISTRIBUTION_TYPES[typeCode];
+        double mean = in.readDouble();
+        double shape = in.readDouble();
+        try {
+            switch (type) {
+                case UNIFORM:
+                    return TimeDistribution.uniform(mean);
+                case EXPONENTIAL:
+                    return TimeDistribution.exponential(mean);
+                case LOGNORMAL:
+                    return TimeDistribution.lognormal(mean, shape);
+                case ERLANG:
+                    return TimeDistribution.erlang((int) shape, mean);
+                case CONSTANT:
+                    return TimeDistribution.constant(mean);
+                default: {
+                    int count = readCount();
+                    double[] values = new double[count];
+                    long[] counts = new long[count];
+                    for (int i = 0; i < count; i++) {
+                        values[i] = in.readDouble();
+                        counts[i] = readVarint();
+                    }
+                    return TimeDistribution.empirical(values, counts);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Recording is corrupt: " + e.getMessage(), e);
+        }
+    }
+
+    private long readVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Recording is corrupt: varint too long");
+    }
+
+    private int readCount() throws IOException {
+        long value = readVarint();
+        if (value > Integer.MAX_VALUE) {
+            throw new IOException("Recording is corrupt: count " + value);
+        }
+        return (int) value;
+    }
+
+    private int readSignedInt() throws IOException {
+        return (int) RecordingFormat.unzigzag(readVarint());
+    }
+
+    public Event getEvent() {
+        return event;
+    }
+
+    public Color getColor() {
+        return color;
+    }
+
+    public int getEntityId() {
+        return entityId;
+    }
+
+    /**
+     * Product id, or EventTable.NO_PRODUCT
+     */
+    public int getProductId() {
+        return productId;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (inflater != null) inflater.end();
+        in.close();
+    }
+}
@@ -0,0 +1,245 @@
+package org.example.producerconsumergui.Memento;
+
+import org.example.producerconsumergui.Model.ArrivalProcess;
+import org.example.producerconsumergui.Model.Color;
+import org.example.producerconsumergui.Model.DistributionType;
+import org.example.producerconsumergui.Model.SimulationTopology;
+import org.example.producerconsumergui.Model.TimeDistribution;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * Streams a recording to the binary format described in RecordingFormat.
+ * Events are encoded one block at a time, so only a block is held in memory.
+ */
+public class RecordingWriter implements Closeable {
+    private final DataOutputStream out;
+    private final Deflater deflater;
+    private final VarintBuffer block = new VarintBuffer();
+    private byte[] compressed = new byte[0];
+    private int blockEvents = 0;
+    private long previousTimestamp = 0;
+    private int previousProductId = 0;
+    private long eventCount = 0;
+    private boolean closed = false;
+
+    /**
+     * Writes the header; the stream is closed with the writer
+     */
+    public RecordingWriter(OutputStream out, SimulationTopology topology, long timestamp, boolean compress) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out, 64 * 1024));
+        this.deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+
+        this.out.writeInt(RecordingFormat.MAGIC);
+        this.out.writeByte(RecordingFormat.VERSION);
+        this.out.writeByte(compress ? RecordingFormat.FLAG_COMPRESSED : 0);
+        this.out.writeLong(timestamp);
+        writeTopology(topology);
+    }
+
+    /**
+     * Writes a whole memento
+     */
+    public static void write(SimulationMemento memento, SimulationTopology topology, OutputStream out,
+                             boolean compress) throws IOException {
+        try (RecordingWriter writer = new RecordingWriter(out, topology, memento.getTimestamp(), compress)) {
+            writer.writeAll(memento.getEventLog());
+        }
+    }
+
+    private void writeTopology(SimulationTopology topology) throws IOException {
+        VarintBuffer header = new VarintBuffer();
+        header.writeVarint(topology.getQueues().size());
+        for (SimulationTopology.QueueSpec queue : topology.getQueues()) {
+            header.writeSigned(queue.getId());
+            header.writeByte(queue.isInput() ? 1 : 0);
+            header.writeVarint(queue.getCapacity());
+            header.writeByte(queue.getOverflowPolicy().ordinal());
+            header.writeSigned(queue.getOverflowQueueId());
+            header.writeVarint(queue.getArrivalWeight());
+            writeArrivals(header, queue.getArrivals());
+            header.writeDouble(queue.getX());
+            header.writeDouble(queue.getY());
+        }
+        header.writeVarint(topology.getMachines().size());
+        for (SimulationTopology.MachineSpec machine : topology.getMachines()) {
+            header.writeSigned(machine.getId());
+            header.writeByte(machine.getColor() == null ? 0 : machine.getColor().ordinal() + 1);
+            header.writeByte(machine.getRoutingPolicy().ordinal());
+            writeServiceTime(header, machine.getServiceTime());
+            header.writeDouble(machine.getX());
+            header.writeDouble(machine.getY());
+        }
+        header.writeVarint(topology.getConnections().size());
+        for (SimulationTopology.ConnectionSpec connection : topology.getConnections()) {
+            header.writeSigned(connection.getMachineId());
+            header.writeSigned(connection.getInputQueueId());
+            header.writeSigned(connection.getOutputQueueId());
+            header.writeVarint(connection.getWeight());
+        }
+        header.writeTo(out);
+    }
+
+    private static void writeServiceTime(VarintBuffer header, TimeDistribution serviceTime) {
+        header.writeByte(serviceTime.getType().ordinal());
+        header.writeDouble(serviceTime.getMeanMillis());
+        header.writeDouble(serviceTime.getShape());
+        if (serviceTime.getType() == DistributionType.EMPIRICAL) {
+            double[] values = serviceTime.getValues();
+            long[] counts = serviceTime.getCounts();
+            header.writeVarint(values.length);
+            for (int i = 0; i < values.length; i++) {
+                header.writeDouble(values[i]);
+                header.writeVarint(counts[i]);
+            }
+        }
+    }
+
+    private static void writeArrivals(VarintBuffer header, ArrivalProcess arrivals) {
+        if (arrivals == null) {
+            header.writeByte(0);
+            return;
+        }
+        header.writeByte(arrivals.getType().ordinal() + 1);
+        switch (arrivals.getType()) {
+            case UNIFORM -> {
+                header.writeDouble(arrivals.getMinMillis());
+                header.writeDouble(arrivals.getMaxMillis());
+            }
+            case POISSON, DETERMINISTIC -> header.writeDouble(arrivals.getRatesPerSecond()[0]);
+            case MMPP -> {
+                double[] rates = arrivals.getRatesPerSecond();
+                double[] stays = arrivals.getMeanStateMillis();
+                header.writeVarint(rates.length);
+                for (int i = 0; i < rates.length; i++) {
+                    header.writeDouble(rates[i]);
+                    header.writeDouble(stays[i]);
+                }
+            }
+            case TRACE -> {
+                byte[] path = arrivals.getTraceFile().toString().getBytes(StandardCharsets.UTF_8);
+                header.writeVarint(path.length);
+                header.write(path, 0, path.length);
+            }
+        }
+    }
+
+    public void write(Event event, int entityId, int productId, Color color, long timestamp) throws IOException {
+        if (closed) throw new IOException("Recording writer is closed");
+        block.writeByte(RecordingFormat.pack(event, color));
+        block.writeSigned(timestamp - previousTimestamp);
+        block.writeSigned(entityId);
+        block.writeSigned((long) productId - previousProductId);
+        previousTimestamp = timestamp;
+        previousProductId = productId;
+        eventCount++;
+        if (++blockEvents == RecordingFormat.EVENTS_PER_BLOCK) {
+            flushBlock();
+        }
+    }
+
+    public void writeAll(EventLog events) throws IOException {
+        for (int i = 0; i < events.size(); i++) {
+            write(events.getEvent(i), events.getEntityId(i), events.getProductId(i),
+                    events.getColor(i), events.getTimestamp(i));
+        }
+    }
+
+    private void flushBlock() throws IOException {
+        if (blockEvents == 0) return;
+        byte[] stored = block.bytes();
+        int storedLength = block.size();
+        if (deflater != null) {
+            deflater.reset();
+            deflater.setInput(block.bytes(), 0, block.size());
+            deflater.finish();
+            storedLength = 0;
+            while (!deflater.finished()) {
+                if (storedLength == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, Math.max(4096, compressed.length * 2));
+                }
+                storedLength += deflater.deflate(compressed, storedLength, compressed.length - storedLength);
+            }
+            stored = compressed;
+        }
+        writeVarint(blockEvents);
+        writeVarint(block.size());
+        writeVarint(storedLength);
+        out.write(stored, 0, storedLength);
+        block.reset();
+        blockEvents = 0;
+    }
+
+    private void writeVarint(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    public long getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * Writes the last block and the end marker, then closes the stream
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        try {
+            flushBlock();
+            writeVarint(0);
+            out.flush();
+        } finally {
+            closed = true;
+            if (deflater != null) deflater.end();
+            out.close();
+        }
+    }
+
+    /**
+     * Growable byte buffer with varint writes
+     */
+    static final class VarintBuffer extends ByteArrayOutputStream {
+        VarintBuffer() {
+            super(64 * 1024);
+        }
+
+        void writeByte(int value) {
+            write(value);
+        }
+
+        void writeVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) (value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void writeSigned(long value) {
+            writeVarint(RecordingFormat.zigzag(value));
+        }
+
+        void writeDouble(double value) {
+            long bits = Double.doubleToRawLongBits(value);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                write((int) (bits >>> shift));
+            }
+        }
+
+        byte[] bytes() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package org.example.producerconsumergui.Memento;
+
+import org.example.producerconsumergui.Model.Color;
+import org.example.producerconsumergui.Model.Product;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * State of the simulation at a point of a recording, rebuilt from its events:
+ * the products in each queue, its overflow counts and the color and status of each machine.
+ * Queues and machines without events so far are not included.
+ */
+public class ReplayState {
+    private static final Color[] COLORS = Color.values();
+
+    // Queue id -> product id -> product color, in enqueue order
+    private final Map<Integer, LinkedHashMap<Integer, Color>> queues = new HashMap<>();
+    private final Map<Integer, Color> machineColors = new HashMap<>();
+    private final Map<Integer, String> machineStatuses = new HashMap<>();
+    private final Map<Integer, Long> droppedCounts = new HashMap<>();
+    private final Map<Integer, Integer> blockedCounts = new HashMap<>();
+
+    /**
+     * Applies one recorded event
+     */
+    void apply(EventLog log, int index) {
+        switch (log.getEvent(index)) {
+            case PRODUCT_ENQUEUED:
+                queues.computeIfAbsent(log.getEntityId(index), id -> new LinkedHashMap<>())
+                        .put(log.getProductId(index), log.getColor(index));
+                break;
+            case PRODUCT_DEQUEUED: {
+                LinkedHashMap<Integer, Color> queue = queues.get(log.getEntityId(index));
+                if (queue != null) queue.remove(log.getProductId(index));
+                break;
+            }
+            case MACHINE_STARTED_PROCESSING:
+                machineStatuses.put(log.getEntityId(index), "PROCESSING");
+                break;
+            case MACHINE_FINISHED_PROCESSING:
+                machineStatuses.put(log.getEntityId(index), "IDLE");
+                break;
+            case MACHINE_COLOR_CHANGED:
+                machineColors.put(log.getEntityId(index), log.getColor(index));
+                break;
+            case QUEUE_BLOCKED:
+                blockedCounts.merge(log.getEntityId(index), 1, Integer::sum);
+                break;
+            case QUEUE_UNBLOCKED:
+                blockedCounts.merge(log.getEntityId(index), -1, Integer::sum);
+                break;
+            case PRODUCT_DROPPED: {
+                droppedCounts.merge(log.getEntityId(index), 1L, Long::sum);
+                // Only there if the queue dropped its oldest product
+                LinkedHashMap<Integer, Color> queue = queues.get(log.getEntityId(index));
+                if (queue != null) queue.remove(log.getProductId(index));
+                break;
+            }
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Products in each queue, front first
+     */
+    public Map<Integer, List<Product>> getQueueContents() {
+        Map<Integer, List<Product>> contents = new HashMap<>();
+        queues.forEach((queueId, products) -> {
+            List<Product> list = new ArrayList<>(products.size());
+            products.forEach((productId, color) -> list.add(new Product(productId, color)));
+            contents.put(queueId, list);
+        });
+        return contents;
+    }
+
+    public Map<Integer, Color> getMachineColors() {
+        return Collections.unmodifiableMap(machineColors);
+    }
+
+    public Map<Integer, String> getMachineStatuses() {
+        return Collections.unmodifiableMap(machineStatuses);
+    }
+
+    /**
+     * Products each queue discarded so far
+     */
+    public Map<Integer, Long> getDroppedCounts() {
+        return Collections.unmodifiableMap(droppedCounts);
+    }
+
+    /**
+     * Producers waiting for a slot in each queue
+     */
+    public Map<Integer, Integer> getBlockedCounts() {
+        return Collections.unmodifiableMap(blockedCounts);
+    }
+
+    // ============================================
+    // CHECKPOINTS
+    // ============================================
+
+    /**
+     * Compact copy of the state in primitive arrays
+     */
+    static final class Checkpoint {
+        final int eventIndex;
+        final int[] queueIds;
+        final int[][] productIds;
+        final byte[][] productColors;
+        final int[] machineIds;
+        final byte[] machineColors;
+        final byte[] machineStatuses; // -1 unknown, 0 idle, 1 processing
+        final int[] overflowQueueIds;
+        final long[] droppedCounts;
+        final int[] blockedCounts;
+
+        Checkpoint(int eventIndex, int[] queueIds, int[][] productIds, byte[][] productColors,
+                   int[] machineIds, byte[] machineColors, byte[] machineStatuses,
+                   int[] overflowQueueIds, long[] droppedCounts, int[] blockedCounts) {
+            this.eventIndex = eventIndex;
+            this.queueIds = queueIds;
+            this.productIds = productIds;
+            this.productColors = productColors;
+            this.machineIds = machineIds;
+            this.machineColors = machineColors;
+            this.machineStatuses = machineStatuses;
+            this.overflowQueueIds = overflowQueueIds;
+            this.droppedCounts = droppedCounts;
+            this.blockedCounts = blockedCounts;
+        }
+    }
+
+    /**
+     * Checkpoint of the state after the events before eventIndex
+     */
+    Checkpoint checkpoint(int eventIndex) {
+        int[] queueIds = new int[queues.size()];
+        int[][] productIds = new int[queues.size()][];
+        byte[][] productColors = new byte[queues.size()][];
+        int q = 0;
+        for (Map.Entry<Integer, LinkedHashMap<Integer, Color>> queue : queues.entrySet()) {
+            queueIds[q] = queue.getKey();
+            int[] ids = new int[queue.getValue().size()];
+            byte[] colors = new byte[ids.length];
+            int p = 0;
+            for (Map.Entry<Integer, Color> product : queue.getValue().entrySet()) {
+                ids[p] = product.getKey();
+                colors[p] = toByte(product.getValue());
+                p++;
+            }
+            productIds[q] = ids;
+            productColors[q] = colors;
+            q++;
+        }
+
+        Set<Integer> seen = new HashSet<>(machineColors.keySet());
+        seen.addAll(machineStatuses.keySet());
+        int[] machineIds = new int[seen.size()];
+        byte[] colors = new byte[seen.size()];
+        byte[] statuses = new byte[seen.size()];
+        int m = 0;
+        for (Integer id : seen) {
+            machineIds[m] = id;
+            colors[m] = toByte(machineColors.get(id));
+            String status = machineStatuses.get(id);
+            statuses[m] = status == null ? -1 : (byte) ("PROCESSING".equals(status) ? 1 : 0);
+            m++;
+        }
+
+        Set<Integer> overflowing = new HashSet<>(droppedCounts.keySet());
+        overflowing.addAll(blockedCounts.keySet());
+        int[] overflowQueueIds = new int[overflowing.size()];
+        long[] dropped = new long[overflowing.size()];
+        int[] blocked = new int[overflowing.size()];
+        int o = 0;
+        for (Integer id : overflowing) {
+            overflowQueueIds[o] = id;
+            dropped[o] = droppedCounts.getOrDefault(id, 0L);
+            blocked[o] = blockedCounts.getOrDefault(id, 0);
+            o++;
+        }
+        return new Checkpoint(eventIndex, queueIds, productIds, productColors, machineIds, colors, statuses,
+                overflowQueueIds, dropped, blocked);
+    }
+
+    /**
+     * State as it was when the checkpoint was taken
+     */
+    static ReplayState restore(Checkpoint checkpoint) {
+        ReplayState state = new ReplayState();
+        for (int q = 0; q < checkpoint.queueIds.length; q++) {
+            int[] ids = checkpoint.productIds[q];
+            LinkedHashMap<Integer, Color> products = new LinkedHashMap<>(Math.max(16, ids.length * 2));
+            for (int p = 0; p < ids.length; p++) {
+                products.put(ids[p], toColor(checkpoint.productColors[q][p]));
+            }
+            state.queues.put(checkpoint.queueIds[q], products);
+        }
+        for (int m = 0; m < checkpoint.machineIds.length; m++) {
+            int id = checkpoint.machineIds[m];
+            Color color = toColor(checkpoint.machineColors[m]);
+            if (color != null) state.machineColors.put(id, color);
+            if (checkpoint.machineStatuses[m] >= 0) {
+                state.machineStatuses.put(id, checkpoint.machineStatuses[m] == 1 ? "PROCESSING" : "IDLE");
+            }
+        }
+        for (int o = 0; o < checkpoint.overflowQueueIds.length; o++) {
+            int id = checkpoint.overflowQueueIds[o];
+            if (checkpoint.droppedCounts[o] != 0) state.droppedCounts.put(id, checkpoint.droppedCounts[o]);
+            if (checkpoint.blockedCounts[o] != 0) state.blockedCounts.put(id, checkpoint.blockedCounts[o]);
+        }
+        return state;
+    }
+
+    private static byte toByte(Color color) {
+        return color == null ? -1 : (byte) color.ordinal();
+    }
+
+    private static Color toColor(byte value) {
+        return value < 0 ? null : COLORS[value];
+    }
+}
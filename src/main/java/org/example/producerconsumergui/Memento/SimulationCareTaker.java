@@ -14,8 +14,11 @@ public class SimulationCareTaker {
         return deque.pop();
     }
 
+    /**
+     * Most recently added memento
+     */
     public SimulationMemento getLastMemento(){
-        return deque.peekLast();
+        return deque.peekFirst();
     }
 
     public boolean isEmpty(){
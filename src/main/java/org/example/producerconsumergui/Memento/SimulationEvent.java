@@ -3,38 +3,59 @@ package org.example.producerconsumergui.Memento;
 import org.example.producerconsumergui.Model.Color;
 import org.example.producerconsumergui.Model.Product;
 
+/**
+ * Flyweight view of one row of a recording's EventLog.
+ * It only holds the log and the row index; every getter reads the recording.
+ */
 public class SimulationEvent {
-    private final Event event;
-    private final long timestamp;
-    private final int entityId;
-    private final Product product ;
-    private final Color color;
+    private final EventLog log;
+    private final int index;
 
-    public SimulationEvent(Event event, int entityId, Product product, Color color) {
-        this.event = event;
-        this.timestamp = System.currentTimeMillis();
-        this.entityId = entityId;
-        this.product = product;
-        this.color = color;
+    SimulationEvent(EventLog log, int index) {
+        this.log = log;
+        this.index = index;
     }
 
     public Event getEvent() {
-        return event;
+        return log.getEvent(index);
     }
 
     public long getTimestamp() {
-        return timestamp;
+        return log.getTimestamp(index);
     }
 
     public int getEntityId() {
-        return entityId;
+        return log.getEntityId(index);
     }
 
+    /**
+     * Id of the product, or EventTable.NO_PRODUCT
+     */
+    public int getProductId() {
+        return log.getProductId(index);
+    }
+
+    /**
+     * Rebuilds the product from its id and color, or returns null if the event has none.
+     * Products are equal by id, so the result can stand in for the recorded product.
+     */
     public Product getProduct() {
-        return product;
+        int productId = log.getProductId(index);
+        return productId == EventTable.NO_PRODUCT ? null : new Product(productId, log.getColor(index));
     }
 
     public Color getColor() {
-        return color;
+        return log.getColor(index);
+    }
+
+    /**
+     * Position of the event in the recorder's global order
+     */
+    public long getSequence() {
+        return log.getSequence(index);
+    }
+
+    public int getIndex() {
+        return index;
     }
 }
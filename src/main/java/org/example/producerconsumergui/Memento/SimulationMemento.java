@@ -1,34 +1,87 @@
 package org.example.producerconsumergui.Memento;
 
-import java.util.ArrayList;
+import org.example.producerconsumergui.Model.SimulationTopology;
+
+import java.nio.file.Path;
+import java.util.AbstractList;
 import java.util.List;
+import java.util.RandomAccess;
 
+/**
+ * A finished recording, either held in memory or a handle to a file log
+ */
 public class SimulationMemento {
-    private final List<SimulationEvent> events ;
+    private final EventLog events ;
     private final long timestamp ;
+    private SimulationTopology topology;
+
+    /**
+     * Takes ownership of the log, which must not be modified afterwards
+     */
+    public SimulationMemento(EventLog events) {
+        this(events, System.currentTimeMillis());
+    }
 
-    public SimulationMemento(List<SimulationEvent> simulationEvents) {
-        this.timestamp = System.currentTimeMillis();
-        this.events = new ArrayList<>(simulationEvents) ;
-        // Debug: Print creation of memento and event count
-        System.out.println("[DEBUG] SimulationMemento created at timestamp: " + this.timestamp + ", event count: " + simulationEvents.size());
+    /**
+     * Memento of a recording saved at the given time, used when loading recordings
+     */
+    public SimulationMemento(EventLog events, long timestamp) {
+        this.timestamp = timestamp;
+        this.events = events ;
     }
 
+    /**
+     * Read-only list of flyweight views over the recorded events
+     */
     public List<SimulationEvent> getEvents() {
-        // Debug: Print when events are accessed
-        System.out.println("[DEBUG] getEvents called, returning " + events.size() + " events");
+        return new EventList(events);
+    }
+
+    EventLog getEventLog() {
         return events;
     }
 
+    /**
+     * File the recording is stored in, or null if it's held in memory
+     */
+    public Path getFile() {
+        return events instanceof MappedEventLog mapped ? mapped.getFile() : null;
+    }
+
+    /**
+     * Topology the recording was made with, or null if unknown
+     */
+    public SimulationTopology getTopology() {
+        return topology;
+    }
+
+    public void setTopology(SimulationTopology topology) {
+        this.topology = topology;
+    }
+
     public long getTimestamp() {
-        // Debug: Print when timestamp is accessed
-        System.out.println("[DEBUG] getTimestamp called: " + timestamp);
         return timestamp;
     }
 
     public int getEventCount() {
-        // Debug: Print when event count is accessed
-        System.out.println("[DEBUG] getEventCount called: " + events.size());
         return events.size();
     }
+
+    private static final class EventList extends AbstractList<SimulationEvent> implements RandomAccess {
+        private final EventLog table;
+
+        EventList(EventLog table) {
+            this.table = table;
+        }
+
+        @Override
+        public SimulationEvent get(int index) {
+            return new SimulationEvent(table, index);
+        }
+
+        @Override
+        public int size() {
+            return table.size();
+        }
+    }
 }
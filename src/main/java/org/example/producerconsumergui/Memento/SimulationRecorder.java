@@ -1,14 +1,118 @@
 package org.example.producerconsumergui.Memento;
 
+import org.example.producerconsumergui.Model.Color;
+import org.example.producerconsumergui.Model.Product;
+import org.example.producerconsumergui.Model.SimulationClock;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Records simulation events without a shared lock.
+ * Every writer thread appends to its own EventTable, which only it writes; a global
+ * sequence number taken at record time orders the events across threads, and
+ * createMemento merges the per-thread tables back into that order.
+ * Once a writer thread has ended its table is trimmed and set aside, and the set-aside
+ * tables are merged into one as they pile up, so the buffers stay bounded by the
+ * threads still running, however many (virtual) threads come and go.
+ * With a log directory set, events go straight to a memory-mapped file log
+ * instead and the memento only keeps a handle to the file.
+ */
 public class SimulationRecorder {
-    private final List<SimulationEvent> simulationEvents = new ArrayList<>();
-    private boolean isRecording = false;
+    private static final int THREAD_BUFFER_CAPACITY = 256;
+    // Buffers registered before the first look for ended threads
+    private static final int MIN_SWEEP_THRESHOLD = 64;
+    // Tables of ended threads kept apart before they are merged into one
+    private static final int MAX_RETIRED_TABLES = 64;
+
+    /**
+     * Events of one writer thread. Only the owner appends; readers see the
+     * rows up to the last published count.
+     */
+    private static final class ThreadBuffer {
+        // Not the recording itself, so a thread that outlives it doesn't keep its events alive
+        final int generation;
+        final Thread owner;
+        final EventTable table = new EventTable(THREAD_BUFFER_CAPACITY);
+        volatile int published = 0;
+
+        ThreadBuffer(int generation, Thread owner) {
+            this.generation = generation;
+            this.owner = owner;
+        }
+    }
+
+    /**
+     * Buffers of one recording. Replaced by startRecording, so writers still holding
+     * an older one can't add to the new recording.
+     */
+    private static final class Recording {
+        final int generation;
+        final AtomicLong nextSequence = new AtomicLong();
+        final Queue<ThreadBuffer> buffers = new ConcurrentLinkedQueue<>();
+        final AtomicInteger bufferCount = new AtomicInteger();
+        // Guards retired and the sweep, only taken when a thread records for the first time or by the merge
+        final ReentrantLock lock = new ReentrantLock();
+        final List<EventTable> retired = new ArrayList<>();
+        volatile int sweepThreshold = MIN_SWEEP_THRESHOLD;
+
+        Recording(int generation) {
+            this.generation = generation;
+        }
+    }
+
+    private final ThreadLocal<ThreadBuffer> localBuffer = new ThreadLocal<>();
+    private volatile Recording recording = new Recording(0);
+    private volatile boolean isRecording = false;
+    private volatile SimulationClock clock = SimulationClock.SYSTEM;
+
+    private Path logDirectory;
+    private boolean deleteLogsOnExit;
+    private volatile MappedEventLog log;
+
+    /**
+     * Sets the time source used to stamp events (virtual time for discrete-event runs)
+     */
+    public void setClock(SimulationClock clock) {
+        if (clock == null) throw new NullPointerException("clock can't be null");
+        this.clock = clock;
+    }
+
+    public SimulationClock getClock() {
+        return clock;
+    }
+
+    /**
+     * Records to memory-mapped log files in the directory, or in memory if it's null.
+     * Files are deleted when the JVM exits if deleteOnExit is set.
+     */
+    public void setLogDirectory(Path logDirectory, boolean deleteOnExit) {
+        this.logDirectory = logDirectory;
+        this.deleteLogsOnExit = deleteOnExit;
+    }
+
+    public Path getLogDirectory() {
+        return logDirectory;
+    }
 
+    /**
+     * Starts a new recording
+     * Throws UncheckedIOException if the log file can't be created
+     */
     public void startRecording() {
-        simulationEvents.clear();
+        log = logDirectory == null ? null : createLog();
+        recording = new Recording(recording.generation + 1);
         isRecording = true;
     }
 
@@ -16,13 +120,192 @@ public class SimulationRecorder {
         isRecording = false;
     }
 
-    public synchronized void recordEvent(SimulationEvent event) {
+    public boolean isRecording() {
+        return isRecording;
+    }
+
+    /**
+     * Records an event stamped with the recorder's clock
+     */
+    public void recordEvent(Event event, int entityId, Product product, Color color) {
+        recordEvent(event, entityId, product == null ? EventTable.NO_PRODUCT : product.getId(), color);
+    }
+
+    /**
+     * Records an event stamped with the recorder's clock, without locking.
+     * Only a thread's first event of a recording, or a buffer growing, allocates.
+     */
+    public void recordEvent(Event event, int entityId, int productId, Color color) {
         if (!isRecording) return;
-        simulationEvents.add(event);
+        MappedEventLog currentLog = log;
+        if (currentLog != null) {
+            currentLog.append(event, entityId, productId, color, clock);
+            return;
+        }
+        Recording current = recording;
+        ThreadBuffer buffer = localBuffer.get();
+        if (buffer == null || buffer.generation != current.generation) {
+            buffer = register(current);
+        }
+        // The sequence is taken at the moment of the action, so it follows causal order
+        long sequence = current.nextSequence.getAndIncrement();
+        buffer.table.append(event, entityId, productId, color, clock.currentTimeMillis(), sequence);
+        buffer.published = buffer.table.size();
     }
 
+    private ThreadBuffer register(Recording current) {
+        ThreadBuffer buffer = new ThreadBuffer(current.generation, Thread.currentThread());
+        localBuffer.set(buffer);
+        current.buffers.add(buffer);
+        // Look for ended threads each time the buffers double, so registering stays cheap on average
+        if (current.bufferCount.incrementAndGet() >= current.sweepThreshold && current.lock.tryLock()) {
+            try {
+                retireEnded(current);
+            } finally {
+                current.lock.unlock();
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * Sets aside the trimmed tables of threads that have ended, merging them once there are too many.
+     * Called with the recording's lock held
+     */
+    private static void retireEnded(Recording current) {
+        Iterator<ThreadBuffer> iterator = current.buffers.iterator();
+        while (iterator.hasNext()) {
+            ThreadBuffer buffer = iterator.next();
+            // Seeing the owner ended also makes all of its rows visible
+            if (buffer.owner.isAlive()) continue;
+            iterator.remove();
+            current.bufferCount.decrementAndGet();
+            if (buffer.published > 0) current.retired.add(buffer.table.copy());
+        }
+        if (current.retired.size() > MAX_RETIRED_TABLES) {
+            List<EventTable> tables = new ArrayList<>(current.retired);
+            List<Integer> counts = new ArrayList<>(tables.size());
+            tables.forEach(table -> counts.add(table.size()));
+            current.retired.clear();
+            current.retired.add(merge(tables, counts));
+        }
+        current.sweepThreshold = Math.max(MIN_SWEEP_THRESHOLD, 2 * current.bufferCount.get());
+    }
+
+    /**
+     * Memento of the events recorded since startRecording.
+     * A file log is sealed first, so it can't be written to afterwards.
+     * Throws UncheckedIOException if the log file can't be finished
+     */
     public SimulationMemento createMemento() {
-        return new SimulationMemento(simulationEvents) ;
+        MappedEventLog currentLog = log;
+        if (currentLog == null) {
+            return new SimulationMemento(mergeBuffers()) ;
+        }
+        log = null;
+        try {
+            currentLog.seal();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't finish recording " + currentLog.getFile(), e);
+        }
+        return new SimulationMemento(currentLog);
+    }
+
+    /**
+     * Loads a saved recording into the same storage new recordings use (a file log or memory)
+     * Throws IOException if the recording can't be read or stored
+     */
+    public SimulationMemento loadRecording(RecordingReader reader) throws IOException {
+        if (isRecording) throw new IllegalStateException("Can't load a recording while recording");
+        if (logDirectory == null) {
+            EventTable table = new EventTable();
+            while (reader.next()) {
+                table.append(reader.getEvent(), reader.getEntityId(), reader.getProductId(),
+                        reader.getColor(), reader.getTimestamp());
+            }
+            return new SimulationMemento(table, reader.getMementoTimestamp());
+        }
+        MappedEventLog loaded;
+        try {
+            loaded = createLog();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        try {
+            while (reader.next()) {
+                loaded.append(reader.getEvent(), reader.getEntityId(), reader.getProductId(),
+                        reader.getColor(), reader.getTimestamp());
+            }
+        } catch (IOException | RuntimeException e) {
+            loaded.seal();
+            Files.deleteIfExists(loaded.getFile());
+            throw e;
+        }
+        loaded.seal();
+        return new SimulationMemento(loaded, reader.getMementoTimestamp());
+    }
+
+    private MappedEventLog createLog() {
+        try {
+            Files.createDirectories(logDirectory);
+            Path file = Files.createTempFile(logDirectory, "recording-", ".evlog");
+            Files.delete(file); // the log creates the file itself
+            if (deleteLogsOnExit) file.toFile().deleteOnExit();
+            return MappedEventLog.create(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't create recording in " + logDirectory, e);
+        }
+    }
+
+    /**
+     * Set-aside tables and the per-thread tables merged by sequence number
+     */
+    private EventTable mergeBuffers() {
+        Recording current = recording;
+        List<EventTable> tables = new ArrayList<>();
+        List<Integer> counts = new ArrayList<>();
+        current.lock.lock();
+        try {
+            for (EventTable table : current.retired) {
+                tables.add(table);
+                counts.add(table.size());
+            }
+            for (ThreadBuffer buffer : current.buffers) {
+                int count = buffer.published;
+                if (count == 0) continue;
+                tables.add(buffer.table);
+                counts.add(count);
+            }
+        } finally {
+            current.lock.unlock();
+        }
+        return merge(tables, counts);
+    }
+
+    /**
+     * K-way merge of tables already sorted by sequence, the first counts[i] rows of each
+     */
+    private static EventTable merge(List<EventTable> tables, List<Integer> counts) {
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+
+        EventTable merged = new EventTable(total);
+        // Each cursor is {table index, row}; tables are already sorted by sequence
+        PriorityQueue<int[]> cursors = new PriorityQueue<>(Math.max(1, tables.size()),
+                (a, b) -> Long.compare(tables.get(a[0]).getSequence(a[1]), tables.get(b[0]).getSequence(b[1])));
+        for (int i = 0; i < tables.size(); i++) {
+            cursors.add(new int[]{i, 0});
+        }
+        while (!cursors.isEmpty()) {
+            int[] cursor = cursors.poll();
+            merged.appendRow(tables.get(cursor[0]), cursor[1]);
+            if (++cursor[1] < counts.get(cursor[0])) {
+                cursors.add(cursor);
+            }
+        }
+        return merged;
     }
 
 }
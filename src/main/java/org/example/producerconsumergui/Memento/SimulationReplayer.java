@@ -1,45 +1,66 @@
 package org.example.producerconsumergui.Memento;
 
+import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Replays a recording against the wall clock. Recording timestamps are in
+ * milliseconds; replay time is kept in nanoseconds so a whole batch of due
+ * events can be released at once and the caller can sleep until the next one.
+ * Timing methods are synchronized, pause and speed changes come from another thread.
+ */
 public class SimulationReplayer {
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 4096;
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
     private final SimulationMemento simulationMemento;
-    private final List<SimulationEvent> simulationEvents;
-    private int currentEvent;
-    private long replayStartTime;
+    // Events are read from the recording (in memory or mapped from its file)
+    // and only materialized as views when handed out
+    private final EventLog simulationEvents;
+    private volatile int currentEvent;
     private long recordingstartTime;
-    private long replayEndTime;
+    // Wall clock (System.nanoTime) at which replay time 0 would have played at the current speed,
+    // pauses shift it forward
+    private long replayStartNanos;
     private boolean isPaused = false;
-    private long pauseStartTime;
-    private long totalPausedTime = 0;
+    private long pauseStartNanos;
+
+    private volatile double replaySpeed = 1.0;
 
-    private double replaySpeed = 1.0;
+    // State every checkpointInterval events, taken as the replay or a seek first passes them
+    private final int checkpointInterval;
+    private final List<ReplayState.Checkpoint> checkpoints = new ArrayList<>();
+    // State after the events before frontierIndex, the furthest the replay has been
+    private final ReplayState frontier = new ReplayState();
+    private int frontierIndex = 0;
 
     public SimulationReplayer(SimulationMemento simulationMemento) {
+        this(simulationMemento, DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    public SimulationReplayer(SimulationMemento simulationMemento, int checkpointInterval) {
         if (simulationMemento == null) throw new NullPointerException("simulationMemento can't be null");
+        if (checkpointInterval <= 0) throw new IllegalArgumentException("checkpointInterval must be positive");
         this.simulationMemento = simulationMemento;
-        this.simulationEvents = simulationMemento.getEvents();
+        this.simulationEvents = simulationMemento.getEventLog();
+        this.checkpointInterval = checkpointInterval;
+        this.checkpoints.add(new ReplayState().checkpoint(0));
         if (!simulationEvents.isEmpty())
-            this.recordingstartTime = simulationEvents.getFirst().getTimestamp();
+            this.recordingstartTime = simulationEvents.getTimestamp(0);
     }
 
-    public void startReplay() {
+    public synchronized void startReplay() {
         currentEvent = 0;
-        replayStartTime = System.currentTimeMillis();
-        totalPausedTime = 0;
+        replayStartNanos = System.nanoTime();
         isPaused = false;
     }
 
-    public SimulationEvent getNextEvent() {
+    public synchronized SimulationEvent getNextEvent() {
         if (isPaused || currentEvent >= simulationEvents.size())
             return null;
-        SimulationEvent event = simulationEvents.get(currentEvent);
-        long eventOriginalTime = event.getTimestamp() - recordingstartTime;
-        long adjustedTime = (long) (eventOriginalTime / replaySpeed);
-
-        long currentTime = System.currentTimeMillis() - replayStartTime - totalPausedTime;
-        if (currentTime >= adjustedTime) {
-            currentEvent++;
+        if (nanosUntil(currentEvent, System.nanoTime()) <= 0) {
+            SimulationEvent event = new SimulationEvent(simulationEvents, currentEvent++);
+            advanceFrontier(currentEvent);
             return event;
         }
 
@@ -47,28 +68,115 @@ public class SimulationReplayer {
 
     }
 
+    /**
+     * Moves past every event that is due now and returns the index after the last one,
+     * the released events are those from the previous getCurrentEventIndex() up to it
+     */
+    public synchronized int takeDueEvents() {
+        if (isPaused) return currentEvent;
+        long now = System.nanoTime();
+        int index = currentEvent;
+        int size = simulationEvents.size();
+        while (index < size && nanosUntil(index, now) <= 0) {
+            index++;
+        }
+        currentEvent = index;
+        advanceFrontier(index);
+        return index;
+    }
+
+    /**
+     * Applies the events up to index to the frontier state, checkpointing it every
+     * checkpointInterval events, so seeking back never applies more than that
+     */
+    private void advanceFrontier(int index) {
+        for (; frontierIndex < index; frontierIndex++) {
+            frontier.apply(simulationEvents, frontierIndex);
+            int applied = frontierIndex + 1;
+            if (applied % checkpointInterval == 0) {
+                checkpoints.add(frontier.checkpoint(applied));
+            }
+        }
+    }
+
+    /**
+     * Wall-clock nanoseconds until the next event is due, 0 if it's due already,
+     * Long.MAX_VALUE while paused or when no events are left
+     */
+    public synchronized long nanosUntilNextEvent() {
+        if (isPaused || currentEvent >= simulationEvents.size()) return Long.MAX_VALUE;
+        return Math.max(0, nanosUntil(currentEvent, System.nanoTime()));
+    }
+
+    private long nanosUntil(int index, long now) {
+        long eventOriginalTime = simulationEvents.getTimestamp(index) - recordingstartTime;
+        long dueAt = replayStartNanos + (long) (eventOriginalTime * NANOS_PER_MILLI / replaySpeed);
+        return dueAt - now;
+    }
+
+    /**
+     * Event of the replayed recording at index
+     */
+    public SimulationEvent getEvent(int index) {
+        return new SimulationEvent(simulationEvents, index);
+    }
+
     public SimulationEvent peekNext(){
         if (currentEvent >= simulationEvents.size())
             return null;
-        return simulationEvents.get(currentEvent);
+        return new SimulationEvent(simulationEvents, currentEvent);
     }
 
+    /**
+     * Same as seekTo, for callers that only need the replay position moved
+     */
     public void skipToEvent(int index){
         if (index < 0 || index >= simulationEvents.size()) return;
-        long targetEventTime = simulationEvents.get(index).getTimestamp() - recordingstartTime;
-        replayStartTime = System.currentTimeMillis() - targetEventTime;
+        seekTo(index);
+    }
+
+    /**
+     * Moves the replay so the event at index is the next one and returns the state
+     * after all events before it. The state is rebuilt from the nearest checkpoint,
+     * applying fewer than checkpointInterval events. Only a seek past everything
+     * replayed so far first walks the events in between once, checkpointing them.
+     */
+    public synchronized ReplayState seekTo(int index) {
+        index = Math.max(0, Math.min(index, simulationEvents.size()));
+        advanceFrontier(index);
+
+        ReplayState.Checkpoint checkpoint = checkpoints.get(index / checkpointInterval);
+        ReplayState state = ReplayState.restore(checkpoint);
+        for (int i = checkpoint.eventIndex; i < index; i++) {
+            state.apply(simulationEvents, i);
+        }
+
+        currentEvent = index;
+        // Replay time continues from the new position
+        long targetTime = 0;
+        if (!simulationEvents.isEmpty()) {
+            int timedEvent = Math.min(index, simulationEvents.size() - 1);
+            targetTime = simulationEvents.getTimestamp(timedEvent) - recordingstartTime;
+        }
+        long now = isPaused ? pauseStartNanos : System.nanoTime();
+        replayStartNanos = now - (long) (targetTime * NANOS_PER_MILLI / replaySpeed);
+        return state;
     }
 
-    public void pauseReplay() {
+    public synchronized int getCheckpointCount() {
+        return checkpoints.size();
+    }
+
+    public synchronized void pauseReplay() {
         if (!isPaused) {
             isPaused = true;
-            pauseStartTime = System.currentTimeMillis();
+            pauseStartNanos = System.nanoTime();
         }
     }
-    public void resumeReplay() {
+    public synchronized void resumeReplay() {
         if (isPaused) {
             isPaused = false;
-            totalPausedTime += System.currentTimeMillis() - pauseStartTime;
+            replayStartNanos += System.nanoTime() - pauseStartNanos;
         }
     }
 
@@ -80,18 +188,15 @@ public class SimulationReplayer {
         startReplay();
     }
 
-    public void setReplaySpeed(double speed) {
+    public synchronized void setReplaySpeed(double speed) {
         if (speed <= 0) {
             throw new IllegalArgumentException("Speed must be positive");
         }
 
-        if (currentEvent > 0 && currentEvent < simulationEvents.size()) {
-            long currentEventTime = simulationEvents.get(currentEvent).getTimestamp() - recordingstartTime;
-            long adjustedTime = (long) (currentEventTime / this.replaySpeed);
-            long elapsed = System.currentTimeMillis() - replayStartTime - totalPausedTime;
-            long newAdjustedTime = (long) (currentEventTime / speed);
-            replayStartTime += (adjustedTime - newAdjustedTime);
-        }
+        // Keep the replay at the same point of the recording, only later events speed up or slow down
+        long now = isPaused ? pauseStartNanos : System.nanoTime();
+        double position = (now - replayStartNanos) * replaySpeed;
+        replayStartNanos = now - (long) (position / speed);
 
         this.replaySpeed = speed;
     }
@@ -119,7 +224,7 @@ public class SimulationReplayer {
         return replaySpeed;
     }
 
-    public boolean isPaused() {
+    public synchronized boolean isPaused() {
         return isPaused;
     }
 
@@ -128,9 +233,9 @@ public class SimulationReplayer {
             return 0;
         }
 
-        long lastEventTime = simulationEvents.get(simulationEvents.size() - 1).getTimestamp() - recordingstartTime;
+        long lastEventTime = simulationEvents.getTimestamp(simulationEvents.size() - 1) - recordingstartTime;
         long currentEventTime = currentEvent < simulationEvents.size()
-                ? simulationEvents.get(currentEvent).getTimestamp() - recordingstartTime
+                ? simulationEvents.getTimestamp(currentEvent) - recordingstartTime
                 : lastEventTime;
 
         long remainingOriginalTime = lastEventTime - currentEventTime;
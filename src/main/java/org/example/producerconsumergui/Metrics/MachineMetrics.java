@@ -0,0 +1,100 @@
+package org.example.producerconsumergui.Metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Time a machine spent in each status and the products it finished.
+ * Status changes come from whichever thread drives the machine, one at a time,
+ * so the totals are plain volatile fields with a single writer.
+ */
+public class MachineMetrics implements MachineMetricsMBean {
+    private final MetricsRegistry registry;
+    private final LongAdder processed = new LongAdder();
+    private volatile String status = "IDLE";
+    private volatile long statusSince;
+    private volatile long busyNanos;
+    private volatile long idleNanos;
+    private volatile long waitingNanos;
+
+    MachineMetrics(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void onStatusChanged(String newStatus) {
+        long now = registry.now();
+        long spent = now - statusSince;
+        switch (category(status)) {
+            case "PROCESSING" -> busyNanos += spent;
+            case "WAITING" -> waitingNanos += spent;
+            default -> idleNanos += spent;
+        }
+        status = newStatus;
+        statusSince = now;
+    }
+
+    public void onProcessed() {
+        processed.increment();
+    }
+
+    void reset(long nowNanos) {
+        // The run starts with every machine idle, the time in the last run's status is discarded
+        status = "IDLE";
+        statusSince = nowNanos;
+        busyNanos = 0;
+        idleNanos = 0;
+        waitingNanos = 0;
+        processed.reset();
+    }
+
+    /**
+     * Total time in the status, including the time since the machine last changed into it
+     */
+    private long nanosIn(String wanted, long total) {
+        return wanted.equals(category(status)) ? total + Math.max(0, registry.now() - statusSince) : total;
+    }
+
+    /**
+     * Any status other than processing or waiting counts as idle
+     */
+    private static String category(String status) {
+        return "PROCESSING".equals(status) || "WAITING".equals(status) ? status : "IDLE";
+    }
+
+    public long getBusyNanos() {
+        return nanosIn("PROCESSING", busyNanos);
+    }
+
+    @Override
+    public String getStatus() {
+        return status;
+    }
+
+    @Override
+    public long getProcessed() {
+        return processed.sum();
+    }
+
+    @Override
+    public double getBusyMillis() {
+        return getBusyNanos() / MetricsRegistry.NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getIdleMillis() {
+        return nanosIn("IDLE", idleNanos) / MetricsRegistry.NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getWaitingMillis() {
+        return nanosIn("WAITING", waitingNanos) / MetricsRegistry.NANOS_PER_MILLI;
+    }
+
+    /**
+     * Share of the run spent processing, 0 to 1
+     */
+    @Override
+    public double getUtilization() {
+        long elapsed = registry.getElapsedNanos();
+        return elapsed <= 0 ? 0 : Math.min(1.0, (double) getBusyNanos() / elapsed);
+    }
+}
@@ -0,0 +1,13 @@
+package org.example.producerconsumergui.Metrics;
+
+/**
+ * JMX view of a machine's metrics, times in milliseconds of simulated time
+ */
+public interface MachineMetricsMBean {
+    String getStatus();
+    long getProcessed();
+    double getBusyMillis();
+    double getIdleMillis();
+    double getWaitingMillis();
+    double getUtilization();
+}
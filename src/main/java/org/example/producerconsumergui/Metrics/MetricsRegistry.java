@@ -0,0 +1,175 @@
+package org.example.producerconsumergui.Metrics;
+
+import org.example.producerconsumergui.Model.SimulationClock;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Metrics of one simulation manager's queues and machines, registered as MBeans under
+ * org.example.producerconsumergui:type=Queue|Machine|System,simulation=N so a run can be
+ * watched with JConsole or any JMX client.
+ * Times come from the clock the run was started with, so discrete event runs report
+ * simulated time. Between runs the values stay frozen at the end of the last one.
+ */
+public final class MetricsRegistry {
+    static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final String DOMAIN = "org.example.producerconsumergui";
+    private static final AtomicInteger nextRegistryId = new AtomicInteger(1);
+
+    private final String simulation = String.valueOf(nextRegistryId.getAndIncrement());
+    private final Map<Integer, QueueMetrics> queues = new ConcurrentHashMap<>();
+    private final Map<Integer, MachineMetrics> machines = new ConcurrentHashMap<>();
+    private final SystemMetrics system;
+
+    private volatile SimulationClock clock = SimulationClock.SYSTEM;
+    private volatile boolean running = false;
+    private volatile long startNanos;
+    private volatile long stopNanos;
+
+    public MetricsRegistry() {
+        // Created once every other field is set, it reads the registry's clock
+        system = new SystemMetrics(this);
+        register(objectName("System", "line"), system);
+    }
+
+    /**
+     * Metrics of the queue, created and registered the first time
+     */
+    public QueueMetrics queue(int queueId) {
+        return queues.computeIfAbsent(queueId, id -> {
+            QueueMetrics metrics = new QueueMetrics(this);
+            register(objectName("Queue", "Q" + id), metrics);
+            return metrics;
+        });
+    }
+
+    /**
+     * Metrics of the machine, created and registered the first time
+     */
+    public MachineMetrics machine(int machineId) {
+        return machines.computeIfAbsent(machineId, id -> {
+            MachineMetrics metrics = new MachineMetrics(this);
+            register(objectName("Machine", "M" + id), metrics);
+            return metrics;
+        });
+    }
+
+    public SystemMetrics getSystem() {
+        return system;
+    }
+
+    public Map<Integer, QueueMetrics> getQueues() {
+        return Collections.unmodifiableMap(queues);
+    }
+
+    public Map<Integer, MachineMetrics> getMachines() {
+        return Collections.unmodifiableMap(machines);
+    }
+
+    /**
+     * Resets every metric and starts timing on the clock.
+     * Products reaching one of the sink queues count as completed.
+     */
+    public void start(SimulationClock clock, Set<Integer> sinkQueueIds) {
+        this.clock = clock;
+        long now = clock.nanoTime();
+        startNanos = now;
+        queues.forEach((id, metrics) -> metrics.reset(now, sinkQueueIds.contains(id)));
+        machines.values().forEach(metrics -> metrics.reset(now));
+        system.reset();
+        running = true;
+    }
+
+    /**
+     * Freezes the metrics at the current time
+     */
+    public void stop() {
+        if (!running) return;
+        stopNanos = clock.nanoTime();
+        running = false;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Current time of the run, the end of the last run while stopped
+     */
+    public long now() {
+        return running ? clock.nanoTime() : stopNanos;
+    }
+
+    public long getElapsedNanos() {
+        return now() - startNanos;
+    }
+
+    /**
+     * Reads every metric at once, safe to call from any thread
+     */
+    public MetricsSnapshot snapshot() {
+        return new MetricsSnapshot(this);
+    }
+
+    /**
+     * Drops the queue and machine metrics, for when the topology is rebuilt
+     */
+    public void clear() {
+        for (Integer id : queues.keySet()) {
+            unregister(objectName("Queue", "Q" + id));
+        }
+        for (Integer id : machines.keySet()) {
+            unregister(objectName("Machine", "M" + id));
+        }
+        queues.clear();
+        machines.clear();
+    }
+
+    /**
+     * Unregisters every MBean, the registry isn't used afterwards
+     */
+    public void close() {
+        clear();
+        unregister(objectName("System", "line"));
+    }
+
+    // ============================================
+    // JMX
+    // ============================================
+
+    private ObjectName objectName(String type, String name) {
+        try {
+            return new ObjectName(DOMAIN + ":type=" + type + ",simulation=" + simulation + ",name=" + name);
+        } catch (JMException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    // Metrics keep working without JMX, a failed registration only hides them from JMX clients
+    private static void register(ObjectName name, Object mbean) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(name)) server.unregisterMBean(name);
+            server.registerMBean(mbean, name);
+        } catch (JMException | SecurityException e) {
+            System.out.println("MetricsRegistry: Couldn't register " + name + ": " + e.getMessage());
+        }
+    }
+
+    private static void unregister(ObjectName name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(name)) server.unregisterMBean(name);
+        } catch (JMException | SecurityException e) {
+            System.out.println("MetricsRegistry: Couldn't unregister " + name + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package org.example.producerconsumergui.Metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Values of a registry's metrics read at one moment, for displays that refresh
+ * periodically. Immutable, so it can be taken on one thread and shown on another.
+ * Times are milliseconds of the run's clock.
+ */
+public class MetricsSnapshot {
+
+    public static class QueueSnapshot {
+        private final int id;
+        private final long length;
+        private final double meanLength;
+        private final long maxLength;
+        private final long dropped;
+        private final double meanWaitMillis;
+
+        QueueSnapshot(int id, QueueMetrics metrics) {
+            this.id = id;
+            this.length = metrics.getLength();
+            this.meanLength = metrics.getMeanLength();
+            this.maxLength = metrics.getMaxLength();
+            this.dropped = metrics.getDropped();
+            this.meanWaitMillis = metrics.getMeanWaitMillis();
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        public double getMeanLength() {
+            return meanLength;
+        }
+
+        public long getMaxLength() {
+            return maxLength;
+        }
+
+        public long getDropped() {
+            return dropped;
+        }
+
+        public double getMeanWaitMillis() {
+            return meanWaitMillis;
+        }
+    }
+
+    public static class MachineSnapshot {
+        private final int id;
+        private final String status;
+        private final long processed;
+        private final double utilization;
+
+        MachineSnapshot(int id, MachineMetrics metrics) {
+            this.id = id;
+            this.status = metrics.getStatus();
+            this.processed = metrics.getProcessed();
+            this.utilization = metrics.getUtilization();
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public long getProcessed() {
+            return processed;
+        }
+
+        public double getUtilization() {
+            return utilization;
+        }
+    }
+
+    private final boolean running;
+    private final double elapsedMillis;
+    private final long arrived;
+    private final long completed;
+    private final double meanLatencyMillis;
+    private final double latencyMillisP50;
+    private final double latencyMillisP90;
+    private final double latencyMillisP99;
+    private final double maxLatencyMillis;
+    private final List<QueueSnapshot> queues;
+    private final List<MachineSnapshot> machines;
+
+    MetricsSnapshot(MetricsRegistry registry) {
+        SystemMetrics system = registry.getSystem();
+        this.running = registry.isRunning();
+        this.elapsedMillis = system.getElapsedMillis();
+        this.arrived = system.getArrived();
+        this.completed = system.getCompleted();
+        this.meanLatencyMillis = system.getMeanLatencyMillis();
+        this.latencyMillisP50 = system.getLatencyMillisP50();
+        this.latencyMillisP90 = system.getLatencyMillisP90();
+        this.latencyMillisP99 = system.getLatencyMillisP99();
+        this.maxLatencyMillis = system.getMaxLatencyMillis();
+
+        List<QueueSnapshot> queueList = new ArrayList<>(registry.getQueues().size());
+        registry.getQueues().forEach((id, metrics) -> queueList.add(new QueueSnapshot(id, metrics)));
+        this.queues = Collections.unmodifiableList(queueList);
+        List<MachineSnapshot> machineList = new ArrayList<>(registry.getMachines().size());
+        registry.getMachines().forEach((id, metrics) -> machineList.add(new MachineSnapshot(id, metrics)));
+        this.machines = Collections.unmodifiableList(machineList);
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public double getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public long getArrived() {
+        return arrived;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    /**
+     * Completions per second over the whole run
+     */
+    public double getThroughputPerSecond() {
+        return elapsedMillis <= 0 ? 0 : completed * 1000.0 / elapsedMillis;
+    }
+
+    public double getMeanLatencyMillis() {
+        return meanLatencyMillis;
+    }
+
+    public double getLatencyMillisP50() {
+        return latencyMillisP50;
+    }
+
+    public double getLatencyMillisP90() {
+        return latencyMillisP90;
+    }
+
+    public double getLatencyMillisP99() {
+        return latencyMillisP99;
+    }
+
+    public double getMaxLatencyMillis() {
+        return maxLatencyMillis;
+    }
+
+    public List<QueueSnapshot> getQueues() {
+        return queues;
+    }
+
+    public List<MachineSnapshot> getMachines() {
+        return machines;
+    }
+}
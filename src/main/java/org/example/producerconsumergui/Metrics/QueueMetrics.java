@@ -0,0 +1,122 @@
+package org.example.producerconsumergui.Metrics;
+
+import org.example.producerconsumergui.Model.Product;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters, time-weighted length and wait times of one queue.
+ * Called by the queue on every product it takes in, hands out or drops, from any thread.
+ */
+public class QueueMetrics implements QueueMetricsMBean {
+    private final MetricsRegistry registry;
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder dequeued = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final TimeWeightedGauge length = new TimeWeightedGauge();
+    private final Histogram waitNanos = new Histogram();
+    // Products reaching a queue no machine takes from have left the line
+    private volatile boolean sink;
+
+    QueueMetrics(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Stamps a product going into the queue, before it is published
+     */
+    public void onEnqueued(Product product) {
+        long now = registry.now();
+        product.setEnqueuedNanos(now);
+        enqueued.increment();
+        length.add(1, now);
+        if (sink) registry.getSystem().onCompleted(product, now);
+    }
+
+    public void onDequeued(Product product) {
+        long now = registry.now();
+        dequeued.increment();
+        length.add(-1, now);
+        waitNanos.record(now - product.getEnqueuedNanos());
+    }
+
+    /**
+     * A product the queue discarded, queued if it was taken out of the queue to make room
+     */
+    public void onDropped(Product product, boolean queued) {
+        dropped.increment();
+        if (queued) length.add(-1, registry.now());
+    }
+
+    void reset(long nowNanos, boolean sink) {
+        this.sink = sink;
+        enqueued.reset();
+        dequeued.reset();
+        dropped.reset();
+        length.reset(nowNanos, 0);
+        waitNanos.reset();
+    }
+
+    public boolean isSink() {
+        return sink;
+    }
+
+    public Histogram getWaitHistogram() {
+        return waitNanos;
+    }
+
+    @Override
+    public long getEnqueued() {
+        return enqueued.sum();
+    }
+
+    @Override
+    public long getDequeued() {
+        return dequeued.sum();
+    }
+
+    @Override
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    @Override
+    public long getLength() {
+        return length.getLevel();
+    }
+
+    @Override
+    public double getMeanLength() {
+        return length.getMean(registry.now());
+    }
+
+    @Override
+    public long getMaxLength() {
+        return length.getMax();
+    }
+
+    @Override
+    public double getMeanWaitMillis() {
+        return waitNanos.getMean() / MetricsRegistry.NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getWaitMillisP50() {
+        return waitNanos.getPercentile(50) / MetricsRegistry.NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getWaitMillisP90() {
+        return waitNanos.getPercentile(90) / MetricsRegistry.NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getWaitMillisP99() {
+        return waitNanos.getPercentile(99) / MetricsRegistry.NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getMaxWaitMillis() {
+        return waitNanos.getMax() / MetricsRegistry.NANOS_PER_MILLI;
+    }
+}
@@ -0,0 +1,18 @@
+package org.example.producerconsumergui.Metrics;
+
+/**
+ * JMX view of a queue's metrics, times in milliseconds of simulated time
+ */
+public interface QueueMetricsMBean {
+    long getEnqueued();
+    long getDequeued();
+    long getDropped();
+    long getLength();
+    double getMeanLength();
+    long getMaxLength();
+    double getMeanWaitMillis();
+    double getWaitMillisP50();
+    double getWaitMillisP90();
+    double getWaitMillisP99();
+    double getMaxWaitMillis();
+}
@@ -0,0 +1,94 @@
+package org.example.producerconsumergui.Metrics;
+
+import org.example.producerconsumergui.Model.Product;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Arrivals, completions and end-to-end latency of the whole line.
+ * A product completes when it reaches a queue no machine takes from.
+ */
+public class SystemMetrics implements SystemMetricsMBean {
+    private final MetricsRegistry registry;
+    private final LongAdder arrived = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final Histogram latencyNanos = new Histogram();
+
+    SystemMetrics(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Stamps a product entering the line
+     */
+    public void onArrived(Product product) {
+        product.setArrivalNanos(registry.now());
+        arrived.increment();
+    }
+
+    void onCompleted(Product product, long nowNanos) {
+        completed.increment();
+        latencyNanos.record(nowNanos - product.getArrivalNanos());
+    }
+
+    void reset() {
+        arrived.reset();
+        completed.reset();
+        latencyNanos.reset();
+    }
+
+    public Histogram getLatencyHistogram() {
+        return latencyNanos;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return registry.isRunning();
+    }
+
+    @Override
+    public double getElapsedMillis() {
+        return registry.getElapsedNanos() / MetricsRegistry.NANOS_PER_MILLI;
+    }
+
+    @Override
+    public long getArrived() {
+        return arrived.sum();
+    }
+
+    @Override
+    public long getCompleted() {
+        return completed.sum();
+    }
+
+    @Override
+    public double getThroughputPerSecond() {
+        long elapsed = registry.getElapsedNanos();
+        return elapsed <= 0 ? 0 : completed.sum() * 1e9 / elapsed;
+    }
+
+    @Override
+    public double getMeanLatencyMillis() {
+        return latencyNanos.getMean() / MetricsRegistry.NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getLatencyMillisP50() {
+        return latencyNanos.getPercentile(50) / MetricsRegistry.NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getLatencyMillisP90() {
+        return latencyNanos.getPercentile(90) / MetricsRegistry.NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getLatencyMillisP99() {
+        return latencyNanos.getPercentile(99) / MetricsRegistry.NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getMaxLatencyMillis() {
+        return latencyNanos.getMax() / MetricsRegistry.NANOS_PER_MILLI;
+    }
+}
@@ -0,0 +1,17 @@
+package org.example.producerconsumergui.Metrics;
+
+/**
+ * JMX view of the whole line, times in milliseconds of simulated time
+ */
+public interface SystemMetricsMBean {
+    boolean isRunning();
+    double getElapsedMillis();
+    long getArrived();
+    long getCompleted();
+    double getThroughputPerSecond();
+    double getMeanLatencyMillis();
+    double getLatencyMillisP50();
+    double getLatencyMillisP90();
+    double getLatencyMillisP99();
+    double getMaxLatencyMillis();
+}
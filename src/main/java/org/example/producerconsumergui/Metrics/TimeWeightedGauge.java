@@ -0,0 +1,57 @@
+package org.example.producerconsumergui.Metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Integer level, such as a queue length, averaged over the time it held each value.
+ * The area under the level up to time T is T * level - sum(change * time of change),
+ * so every change is two striped additions and nothing ever locks.
+ * Times are nanoseconds on the registry's clock.
+ */
+public class TimeWeightedGauge {
+    private final LongAdder level = new LongAdder();
+    // Sum of change * (time of change - start)
+    private final LongAdder weightedChanges = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+    private volatile long startNanos;
+
+    /**
+     * Changes the level by delta at nowNanos
+     */
+    public void add(long delta, long nowNanos) {
+        level.add(delta);
+        weightedChanges.add(delta * (nowNanos - startNanos));
+        if (delta > 0) max.accumulate(level.sum());
+    }
+
+    public long getLevel() {
+        return level.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Mean level from the last reset up to nowNanos
+     */
+    public double getMean(long nowNanos) {
+        long elapsed = nowNanos - startNanos;
+        long current = level.sum();
+        if (elapsed <= 0) return current;
+        return (double) (current * elapsed - weightedChanges.sum()) / elapsed;
+    }
+
+    /**
+     * Starts averaging again at nowNanos from the given level
+     */
+    public void reset(long nowNanos, long currentLevel) {
+        startNanos = nowNanos;
+        level.reset();
+        level.add(currentLevel);
+        weightedChanges.reset();
+        max.reset();
+        max.accumulate(currentLevel);
+    }
+}
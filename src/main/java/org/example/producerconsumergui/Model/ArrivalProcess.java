@@ -0,0 +1,394 @@
+package org.example.producerconsumergui.Model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * When products arrive at the input queues. Immutable; every run opens its own
+ * ArrivalStream from it, drawing from the stream of random numbers it is given,
+ * and gets the gaps between arrivals in nanoseconds.
+ */
+public class ArrivalProcess {
+    // A trace is read this much at a time, however long it is
+    static final int TRACE_BUFFER_BYTES = 64 * 1024;
+
+    private final ArrivalType type;
+    // UNIFORM: interval bounds
+    private final double minMillis;
+    private final double maxMillis;
+    // POISSON and DETERMINISTIC: one rate; MMPP: the rate of each state
+    private final double[] ratesPerSecond;
+    // MMPP: mean time spent in each state
+    private final double[] meanStateMillis;
+    // TRACE: CSV of arrival timestamps
+    private final Path traceFile;
+
+    private ArrivalProcess(ArrivalType type, double minMillis, double maxMillis,
+                           double[] ratesPerSecond, double[] meanStateMillis, Path traceFile) {
+        this.type = type;
+        this.minMillis = minMillis;
+        this.maxMillis = maxMillis;
+        this.ratesPerSecond = ratesPerSecond;
+        this.meanStateMillis = meanStateMillis;
+        this.traceFile = traceFile;
+    }
+
+    // ============================================
+    // FACTORIES
+    // ============================================
+
+    /**
+     * Uniformly random intervals between min and max milliseconds
+     */
+    public static ArrivalProcess uniform(double minMillis, double maxMillis) {
+        if (!(minMillis >= 0) || !(maxMillis >= minMillis) || maxMillis == 0 || Double.isInfinite(maxMillis)) {
+            throw new IllegalArgumentException("Arrival interval must satisfy 0 <= min <= max, max > 0");
+        }
+        return new ArrivalProcess(ArrivalType.UNIFORM, minMillis, maxMillis, null, null, null);
+    }
+
+    public static ArrivalProcess poisson(double ratePerSecond) {
+        return new ArrivalProcess(ArrivalType.POISSON, 0, 0, new double[]{checkRate(ratePerSecond)}, null, null);
+    }
+
+    public static ArrivalProcess deterministic(double ratePerSecond) {
+        return new ArrivalProcess(ArrivalType.DETERMINISTIC, 0, 0, new double[]{checkRate(ratePerSecond)}, null, null);
+    }
+
+    /**
+     * Markov-modulated Poisson process: Poisson arrivals at the rate of the current state,
+     * which lasts an exponential time of the state's mean and then hands over to the
+     * next one, cycling. Two states, a quiet one and a burst, give bursty traffic;
+     * a rate of 0 is an off period.
+     */
+    public static ArrivalProcess mmpp(double[] ratesPerSecond, double[] meanStateMillis) {
+        if (ratesPerSecond.length == 0) throw new IllegalArgumentException("MMPP needs at least one state");
+        if (ratesPerSecond.length != meanStateMillis.length) {
+            throw new IllegalArgumentException("One mean time per state");
+        }
+        boolean arrives = false;
+        for (int i = 0; i < ratesPerSecond.length; i++) {
+            if (!(ratesPerSecond[i] >= 0) || Double.isInfinite(ratesPerSecond[i])) {
+                throw new IllegalArgumentException("Rates must be finite and at least 0");
+            }
+            if (!(meanStateMillis[i] > 0) || Double.isInfinite(meanStateMillis[i])) {
+                throw new IllegalArgumentException("Mean times in a state must be finite and positive");
+            }
+            arrives |= ratesPerSecond[i] > 0;
+        }
+        if (!arrives) throw new IllegalArgumentException("At least one state needs a positive rate");
+        return new ArrivalProcess(ArrivalType.MMPP, 0, 0, ratesPerSecond.clone(), meanStateMillis.clone(), null);
+    }
+
+    /**
+     * Replays the timestamps in the first column of a CSV file, in milliseconds with a
+     * fraction down to the nanosecond. The first timestamp is the start of the run, they
+     * must not decrease; a header, blank lines and lines starting with '#' are skipped.
+     * The file is streamed while the run goes, so it can be longer than the heap.
+     */
+    public static ArrivalProcess trace(Path csvFile) {
+        if (csvFile == null) throw new IllegalArgumentException("Trace file can't be null");
+        return new ArrivalProcess(ArrivalType.TRACE, 0, 0, null, null, csvFile);
+    }
+
+    private static double checkRate(double ratePerSecond) {
+        if (!(ratePerSecond > 0) || Double.isInfinite(ratePerSecond)) {
+            throw new IllegalArgumentException("Rate must be finite and positive");
+        }
+        return ratePerSecond;
+    }
+
+    /**
+     * Starts the arrivals of a run
+     *
+     * @throws IOException if the trace can't be opened
+     */
+    public ArrivalStream open(SplittableRandom random) throws IOException {
+        return switch (type) {
+            case UNIFORM -> {
+                long min = (long) (minMillis * 1_000_000);
+                long spread = (long) (maxMillis * 1_000_000) - min;
+                yield () -> min + random.nextLong(spread + 1);
+            }
+            case POISSON -> {
+                TimeDistribution interval = TimeDistribution.exponential(1000 / ratesPerSecond[0]);
+                yield () -> interval.sampleNanos(random);
+            }
+            case DETERMINISTIC -> new DeterministicStream(1e9 / ratesPerSecond[0]);
+            case MMPP -> new MmppStream(ratesPerSecond, meanStateMillis, random);
+            case TRACE -> new TraceStream(traceFile);
+        };
+    }
+
+    // ============================================
+    // STREAMS
+    // ============================================
+
+    /**
+     * Gaps are the differences of the rounded arrival times, so fractional intervals
+     * don't drift over millions of arrivals
+     */
+    private static final class DeterministicStream implements ArrivalStream {
+        private final double intervalNanos;
+        private long arrivals = 0;
+
+        DeterministicStream(double intervalNanos) {
+            this.intervalNanos = intervalNanos;
+        }
+
+        @Override
+        public long nextGapNanos() {
+            long previous = (long) (arrivals * intervalNanos);
+            return (long) (++arrivals * intervalNanos) - previous;
+        }
+    }
+
+    /**
+     * Both the time to the next arrival and the time left in the state are exponential,
+     * so whichever comes first wins and, being memoryless, the other can be drawn again
+     */
+    private static final class MmppStream implements ArrivalStream {
+        private final TimeDistribution[] intervals;
+        private final TimeDistribution[] stays;
+        private final SplittableRandom random;
+        private int state;
+        private long stateLeftNanos;
+
+        MmppStream(double[] ratesPerSecond, double[] meanStateMillis, SplittableRandom random) {
+            int states = ratesPerSecond.length;
+            this.intervals = new TimeDistribution[states];
+            this.stays = new TimeDistribution[states];
+            this.random = random;
+            double totalMillis = 0;
+            for (int i = 0; i < states; i++) {
+                intervals[i] = ratesPerSecond[i] > 0 ? TimeDistribution.exponential(1000 / ratesPerSecond[i]) : null;
+                stays[i] = TimeDistribution.exponential(meanStateMillis[i]);
+                totalMillis += meanStateMillis[i];
+            }
+            // Starts in each state for the share of the time spent in it
+            double pick = random.nextDouble() * totalMillis;
+            state = 0;
+            while (state < states - 1 && (pick -= meanStateMillis[state]) >= 0) state++;
+            stateLeftNanos = stays[state].sampleNanos(random);
+        }
+
+        @Override
+        public long nextGapNanos() {
+            long gap = 0;
+            while (true) {
+                TimeDistribution interval = intervals[state];
+                long untilArrival = interval == null ? Long.MAX_VALUE : interval.sampleNanos(random);
+                if (untilArrival < stateLeftNanos) {
+                    stateLeftNanos -= untilArrival;
+                    return gap + untilArrival;
+                }
+                gap += stateLeftNanos;
+                state = (state + 1) % stays.length;
+                stateLeftNanos = stays[state].sampleNanos(random);
+            }
+        }
+    }
+
+    /**
+     * Parses the timestamps straight out of a direct buffer refilled from the file
+     * channel, without a String or a boxed value per line
+     */
+    private static final class TraceStream implements ArrivalStream {
+        private final Path file;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(TRACE_BUFFER_BYTES).flip();
+        private long lineNumber = 0;
+        private long previousNanos = -1;
+
+        TraceStream(Path file) throws IOException {
+            this.file = file;
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        }
+
+        @Override
+        public long nextGapNanos() {
+            try {
+                long timestamp = nextTimestampNanos();
+                if (timestamp < 0) return -1;
+                if (previousNanos < 0) {
+                    previousNanos = timestamp;
+                    return 0;
+                }
+                if (timestamp < previousNanos) throw error("timestamps go back");
+                long gap = timestamp - previousNanos;
+                previousNanos = timestamp;
+                return gap;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Timestamp of the next line holding one, -1 at the end of the file
+         */
+        private long nextTimestampNanos() throws IOException {
+            while (true) {
+                lineNumber++;
+                int c = read();
+                while (c == ' ' || c == '\t') c = read();
+                if (c < 0) return -1;
+                if (c == '\n') continue;
+                if (c == '\r' || c == '#') {
+                    skipLine();
+                    continue;
+                }
+
+                long millis = 0;
+                long fraction = 0;
+                int integerDigits = 0;
+                int fractionDigits = 0;
+                boolean dot = false;
+                for (; ; c = read()) {
+                    if (c >= '0' && c <= '9') {
+                        if (dot) {
+                            // Digits past the nanosecond are dropped
+                            if (fractionDigits < 6) fraction = fraction * 10 + (c - '0');
+                            fractionDigits++;
+                        } else {
+                            if (millis > (Long.MAX_VALUE / 1_000_000 - 9) / 10) throw error("timestamp too large");
+                            millis = millis * 10 + (c - '0');
+                            integerDigits++;
+                        }
+                    } else if (c == '.' && !dot) {
+                        dot = true;
+                    } else {
+                        break;
+                    }
+                }
+                boolean endOfField = c < 0 || c == '\n' || c == '\r' || c == ',' || c == ';' || c == '\t' || c == ' ';
+                if (!endOfField || integerDigits + fractionDigits == 0) {
+                    // A header before the first timestamp
+                    if (previousNanos >= 0) throw error("not a timestamp");
+                    if (c >= 0 && c != '\n') skipLine();
+                    continue;
+                }
+                if (c >= 0 && c != '\n') skipLine();
+                for (int i = Math.min(fractionDigits, 6); i < 6; i++) fraction *= 10;
+                return millis * 1_000_000 + fraction;
+            }
+        }
+
+        private void skipLine() throws IOException {
+            int c;
+            do {
+                c = read();
+            } while (c >= 0 && c != '\n');
+        }
+
+        private int read() throws IOException {
+            if (!buffer.hasRemaining()) {
+                buffer.clear();
+                int read;
+                do {
+                    read = channel.read(buffer);
+                } while (read == 0);
+                buffer.flip();
+                if (read < 0) return -1;
+            }
+            return buffer.get() & 0xFF;
+        }
+
+        private IOException error(String message) {
+            return new IOException(file.getFileName() + " line " + lineNumber + ": " + message);
+        }
+
+        @Override
+        public void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.out.println("Can't close arrival trace: " + e.getMessage());
+            }
+        }
+    }
+
+    // ============================================
+    // ACCESSORS
+    // ============================================
+
+    public ArrivalType getType() {
+        return type;
+    }
+
+    /**
+     * Interval bounds of a UNIFORM process, 0 for the others
+     */
+    public double getMinMillis() {
+        return minMillis;
+    }
+
+    public double getMaxMillis() {
+        return maxMillis;
+    }
+
+    /**
+     * Rate of a POISSON or DETERMINISTIC process, the rate of each state of an MMPP,
+     * empty for the others
+     */
+    public double[] getRatesPerSecond() {
+        return ratesPerSecond == null ? new double[0] : ratesPerSecond.clone();
+    }
+
+    /**
+     * Mean time spent in each state of an MMPP, empty for the others
+     */
+    public double[] getMeanStateMillis() {
+        return meanStateMillis == null ? new double[0] : meanStateMillis.clone();
+    }
+
+    /**
+     * CSV replayed by a TRACE process, null for the others
+     */
+    public Path getTraceFile() {
+        return traceFile;
+    }
+
+    /**
+     * Long run arrival rate, NaN for a trace
+     */
+    public double getMeanRatePerSecond() {
+        return switch (type) {
+            case UNIFORM -> 2000 / (minMillis + maxMillis);
+            case POISSON, DETERMINISTIC -> ratesPerSecond[0];
+            case MMPP -> {
+                double arrivals = 0;
+                double millis = 0;
+                for (int i = 0; i < ratesPerSecond.length; i++) {
+                    arrivals += ratesPerSecond[i] * meanStateMillis[i];
+                    millis += meanStateMillis[i];
+                }
+                yield arrivals / millis;
+            }
+            case TRACE -> Double.NaN;
+        };
+    }
+
+    /**
+     * Short description for menus and tooltips
+     */
+    public String getLabel() {
+        return switch (type) {
+            case UNIFORM -> String.format(Locale.ROOT, "%s, %.0f-%.0f ms", type.getLabel(), minMillis, maxMillis);
+            case POISSON, DETERMINISTIC -> String.format(Locale.ROOT, "%s, %.0f/s", type.getLabel(), ratesPerSecond[0]);
+            case MMPP -> String.format(Locale.ROOT, "%s, %d states, mean %.0f/s",
+                    type.getLabel(), ratesPerSecond.length, getMeanRatePerSecond());
+            case TRACE -> type.getLabel() + ", " + traceFile.getFileName();
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "ArrivalProcess{" + getLabel() + "}";
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.producerconsumergui.Model;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * How arriving products are spread over the input queues that share the session's arrivals.
+ * All but BROADCAST send each product to one input, so more inputs split the load
+ * instead of multiplying it; most pick with the machines' routing strategies.
+ */
+public enum ArrivalRouting {
+    BROADCAST("Broadcast (copies)", null),                   // every input gets its own copy of each product
+    ROUND_ROBIN("Round robin", RoutingPolicy.ROUND_ROBIN),   // inputs take turns
+    WEIGHTED("Weighted", RoutingPolicy.WEIGHTED),            // split by the inputs' arrival weights
+    RANDOM("Random", RoutingPolicy.RANDOM),                  // uniformly random input
+    LEAST_LOADED("Least loaded", null);                      // input with the fewest products, in turn on ties
+
+    private final String label;
+    private final RoutingPolicy policy;
+
+    ArrivalRouting(String label, RoutingPolicy policy) {
+        this.label = label;
+        this.policy = policy;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Strategy picking the input of each product, null for BROADCAST
+     */
+    RoutingStrategy createStrategy(SplittableRandom random) {
+        if (this == LEAST_LOADED) return new LeastLoaded();
+        return policy == null ? null : policy.createStrategy(random);
+    }
+
+    /**
+     * Like RoutingPolicy.SHORTEST_QUEUE, but the scan starts after the last pick: inputs
+     * are mostly empty under light load, and the first one would get every product
+     */
+    private static final class LeastLoaded implements RoutingStrategy {
+        private int start = 0;
+
+        @Override
+        public SimulationQueue select(List<SimulationQueue> inputs, int[] weights) {
+            int count = inputs.size();
+            if (start >= count) start = 0;
+            int best = start;
+            int bestDepth = inputs.get(best).getDepth();
+            for (int i = 1; i < count && bestDepth > 0; i++) {
+                int index = (start + i) % count;
+                int depth = inputs.get(index).getDepth();
+                if (depth < bestDepth) {
+                    best = index;
+                    bestDepth = depth;
+                }
+            }
+            start = best + 1;
+            return inputs.get(best);
+        }
+    }
+}
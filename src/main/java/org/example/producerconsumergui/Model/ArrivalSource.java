@@ -0,0 +1,51 @@
+package org.example.producerconsumergui.Model;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * One stream of arrivals of a run and the input queues its products go to: the session's
+ * arrivals shared by the inputs without their own, or the own arrivals of one input
+ */
+final class ArrivalSource implements AutoCloseable {
+    private final ArrivalStream stream;
+    private final List<SimulationQueue> inputs;
+    private final int[] weights;
+    // Null when every input gets a copy
+    private final RoutingStrategy router;
+
+    ArrivalSource(ArrivalStream stream, List<SimulationQueue> inputs, int[] weights,
+                  ArrivalRouting routing, SplittableRandom random) {
+        this.stream = stream;
+        this.inputs = List.copyOf(inputs);
+        this.weights = weights.clone();
+        this.router = routing.createStrategy(random);
+    }
+
+    /**
+     * Nanoseconds to the next arrival, -1 once there are no more
+     */
+    long nextGapNanos() {
+        return stream.nextGapNanos();
+    }
+
+    boolean isBroadcast() {
+        return router == null && inputs.size() > 1;
+    }
+
+    List<SimulationQueue> getInputs() {
+        return inputs;
+    }
+
+    /**
+     * Input queue of the next product, unless broadcasting
+     */
+    SimulationQueue route() {
+        return inputs.size() == 1 ? inputs.getFirst() : router.select(inputs, weights);
+    }
+
+    @Override
+    public void close() {
+        stream.close();
+    }
+}
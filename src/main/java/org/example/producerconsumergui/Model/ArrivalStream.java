@@ -0,0 +1,20 @@
+package org.example.producerconsumergui.Model;
+
+/**
+ * The arrivals of one run, opened from an ArrivalProcess. Stateful, only used by
+ * the thread generating the products.
+ */
+public interface ArrivalStream extends AutoCloseable {
+
+    /**
+     * Nanoseconds from the previous arrival (or the start of the run) to the next one,
+     * -1 once there are no more arrivals
+     *
+     * @throws java.io.UncheckedIOException if a trace can't be read
+     */
+    long nextGapNanos();
+
+    @Override
+    default void close() {
+    }
+}
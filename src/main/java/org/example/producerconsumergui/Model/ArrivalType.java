@@ -0,0 +1,22 @@
+package org.example.producerconsumergui.Model;
+
+/**
+ * Kind of ArrivalProcess
+ */
+public enum ArrivalType {
+    UNIFORM("Uniform"),              // uniformly random intervals between a min and a max (original behaviour)
+    POISSON("Poisson"),              // exponential intervals, memoryless
+    DETERMINISTIC("Deterministic"),  // one product every 1/rate
+    MMPP("Bursty (MMPP)"),           // Poisson whose rate switches between states, e.g. quiet and burst
+    TRACE("Trace");                  // replays the timestamps of a recorded trace
+
+    private final String label;
+
+    ArrivalType(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
@@ -0,0 +1,168 @@
+package org.example.producerconsumergui.Model;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+/**
+ * Drives a machine/queue topology from a priority event list on a virtual clock.
+ * Nothing sleeps: the clock jumps from one scheduled event to the next, so the
+ * run takes as long as the work it does, not as long as the simulated time.
+ * Machines and queues record through their usual recorder, stamped with the virtual clock.
+ * A full blocking queue holds what is put in it instead of waiting: the machine stays
+ * busy, or the source stops producing, until the queue takes the product in.
+ * The same goes for a queue whose lock-free ring is full, so products are only ever
+ * put in through SimulationQueue.enqueueOrHold and no step waits or spins.
+ */
+class DiscreteEventEngine {
+
+    private enum Kind { ARRIVAL, SERVICE_DONE }
+
+    private static final class Scheduled {
+        final long time;
+        final long sequence; // keeps events scheduled for the same instant in FIFO order
+        final Kind kind;
+        final Machine machine;
+        final Product product;
+        final ArrivalSource source;
+
+        Scheduled(long time, long sequence, Kind kind, Machine machine, Product product, ArrivalSource source) {
+            this.time = time;
+            this.sequence = sequence;
+            this.kind = kind;
+            this.machine = machine;
+            this.product = product;
+            this.source = source;
+        }
+    }
+
+    private final VirtualClock clock;
+    private final List<ArrivalSource> arrivals;
+    private final BiFunction<ArrivalSource, Runnable, List<SimulationQueue>> injectArrival;
+
+    private final PriorityQueue<Scheduled> agenda = new PriorityQueue<>(
+            Comparator.<Scheduled>comparingLong(e -> e.time).thenComparingLong(e -> e.sequence));
+    private final Map<SimulationQueue, List<Machine>> consumers = new HashMap<>();
+    private final Set<Machine> busy = new HashSet<>();
+    // Work released by queues taking in held products, run between agenda events
+    private final ArrayDeque<Runnable> released = new ArrayDeque<>();
+    private long nextSequence = 0;
+    private long processedEvents = 0;
+
+    /**
+     * @param arrivals      sources of the arrivals, each scheduling its own
+     * @param injectArrival creates a source's next products, puts them in its input queues,
+     *                      runs the callback once every input has taken them in and returns
+     *                      the queues they went to, overflow queues included
+     */
+    DiscreteEventEngine(VirtualClock clock, Collection<Machine> machines, List<ArrivalSource> arrivals,
+                        BiFunction<ArrivalSource, Runnable, List<SimulationQueue>> injectArrival) {
+        this.clock = clock;
+        this.arrivals = arrivals;
+        this.injectArrival = injectArrival;
+        for (Machine machine : machines) {
+            for (SimulationQueue input : machine.getInputQueues()) {
+                consumers.computeIfAbsent(input, q -> new ArrayList<>()).add(machine);
+            }
+        }
+    }
+
+    /**
+     * Runs until the virtual clock has advanced by the given duration
+     */
+    void run(long durationNanos) throws InterruptedException {
+        long end = clock.nanoTime() + durationNanos;
+        for (ArrivalSource source : arrivals) {
+            scheduleArrival(source);
+        }
+
+        while (!agenda.isEmpty() && agenda.peek().time <= end) {
+            if ((++processedEvents & 0xFFF) == 0 && Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            Scheduled next = agenda.poll();
+            clock.advanceTo(next.time);
+
+            switch (next.kind) {
+                case ARRIVAL -> {
+                    // The source's next arrival is scheduled once a blocking input has room for this one
+                    ArrivalSource source = next.source;
+                    for (SimulationQueue queue : injectArrival.apply(source, () -> released.add(() -> scheduleArrival(source)))) {
+                        dispatch(queue);
+                    }
+                }
+                case SERVICE_DONE -> {
+                    Machine machine = next.machine;
+                    Product product = next.product;
+                    SimulationQueue output = machine.getOutputQueue();
+                    // A rerouted product wakes the consumers of the queue that took it
+                    SimulationQueue landed = output.enqueueOrHold(product, () -> released.add(() -> complete(machine, product, output)));
+                    if (landed != null) {
+                        complete(machine, product, landed);
+                    }
+                }
+            }
+
+            Runnable work;
+            while ((work = released.poll()) != null) {
+                work.run();
+            }
+        }
+        clock.advanceTo(end);
+    }
+
+    long getProcessedEvents() {
+        return processedEvents;
+    }
+
+    /**
+     * Ends a service once its product is in the output queue, or the overflow queue that took it
+     */
+    private void complete(Machine machine, Product product, SimulationQueue output) {
+        machine.completeProcessing(product);
+        busy.remove(machine);
+        dispatch(output);
+        tryStart(machine);
+    }
+
+    /**
+     * Offers a queue's products to its idle consumers
+     */
+    private void dispatch(SimulationQueue queue) {
+        List<Machine> machines = consumers.get(queue);
+        if (machines == null) return;
+        for (Machine machine : machines) {
+            if (queue.isEmpty()) return;
+            tryStart(machine);
+        }
+    }
+
+    private void tryStart(Machine machine) {
+        if (busy.contains(machine)) return;
+        Product product = machine.pollInput();
+        if (product == null) return;
+
+        machine.beginProcessing(product);
+        busy.add(machine);
+        long serviceNanos = machine.sampleServiceTimeNanos();
+        schedule(clock.nanoTime() + serviceNanos, Kind.SERVICE_DONE, machine, product, null);
+    }
+
+    private void scheduleArrival(ArrivalSource source) {
+        long delay = source.nextGapNanos();
+        if (delay < 0) return; // no more arrivals from this source
+        schedule(clock.nanoTime() + delay, Kind.ARRIVAL, null, null, source);
+    }
+
+    private void schedule(long time, Kind kind, Machine machine, Product product, ArrivalSource source) {
+        agenda.add(new Scheduled(time, nextSequence++, kind, machine, product, source));
+    }
+}
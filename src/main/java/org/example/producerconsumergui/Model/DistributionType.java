@@ -0,0 +1,30 @@
+package org.example.producerconsumergui.Model;
+
+/**
+ * Shape of a TimeDistribution
+ */
+public enum DistributionType {
+    UNIFORM("Uniform"),           // between 0 and twice the mean (original behaviour)
+    EXPONENTIAL("Exponential"),   // memoryless, as in an M/M/1 station
+    LOGNORMAL("Lognormal"),       // skewed with a long tail, shape is the sigma of the log
+    ERLANG("Erlang"),             // sum of shape exponential phases, less variable than exponential
+    CONSTANT("Constant"),         // always the mean
+    EMPIRICAL("Empirical");       // resampled from observed times
+
+    private final String label;
+
+    DistributionType(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Whether the type has a shape parameter besides the mean
+     */
+    public boolean hasShape() {
+        return this == LOGNORMAL || this == ERLANG;
+    }
+}
@@ -0,0 +1,90 @@
+package org.example.producerconsumergui.Model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Runs a SimulationManager topology without the JavaFX toolkit.
+ * Build the topology on the manager (addMachine, addQueue, addInputQueue,
+ * connectMachineToQueues) and then call runFor (real time) or runSimulated
+ * (virtual clock).
+ * Callbacks, if any, are delivered through the manager's callback executor.
+ */
+public class HeadlessSimulationRunner {
+    private final SimulationManager manager;
+
+    public HeadlessSimulationRunner(SimulationManager manager) {
+        if (manager == null) throw new NullPointerException("manager can't be null");
+        this.manager = manager;
+    }
+
+    public SimulationManager getManager() {
+        return manager;
+    }
+
+    /**
+     * Runs the simulation in real time for the given wall-clock duration and
+     * blocks until it has been stopped and recorded
+     */
+    public SimulationSummary runFor(long durationMillis) throws InterruptedException {
+        if (durationMillis < 0) {
+            throw new IllegalArgumentException("Duration must not be negative");
+        }
+        String error = manager.validateTopology();
+        if (error != null) {
+            throw new IllegalStateException(error);
+        }
+
+        long start = System.currentTimeMillis();
+        if (!manager.startSimulation()) {
+            throw new IllegalStateException("Simulation could not be started");
+        }
+        try {
+            Thread.sleep(durationMillis);
+        } finally {
+            manager.stopSimulation();
+        }
+        return summarize(System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Runs the simulation on a virtual clock for the given simulated duration.
+     * Returns as soon as the simulated time has elapsed, usually much faster than real time.
+     */
+    public SimulationSummary runSimulated(long simulatedMillis) throws InterruptedException {
+        if (simulatedMillis < 0) {
+            throw new IllegalArgumentException("Duration must not be negative");
+        }
+        String error = manager.validateTopology();
+        if (error != null) {
+            throw new IllegalStateException(error);
+        }
+
+        if (!manager.runDiscreteEvent(simulatedMillis)) {
+            if (Thread.interrupted()) throw new InterruptedException();
+            throw new IllegalStateException("Simulation could not be started");
+        }
+        return summarize(simulatedMillis);
+    }
+
+    private SimulationSummary summarize(long durationMillis) {
+        long processed = 0;
+        for (Machine machine : manager.getMachines().values()) {
+            processed += machine.getProcessedCount();
+        }
+
+        Map<Integer, Integer> queueSizes = new LinkedHashMap<>();
+        for (Map.Entry<Integer, SimulationQueue> entry : new TreeMap<>(manager.getQueues()).entrySet()) {
+            queueSizes.put(entry.getKey(), entry.getValue().size());
+        }
+
+        return new SimulationSummary(
+                durationMillis,
+                manager.getGeneratedProductCount(),
+                processed,
+                queueSizes,
+                manager.getLastMemento()
+        );
+    }
+}
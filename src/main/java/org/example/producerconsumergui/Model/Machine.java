@@ -1,12 +1,20 @@
 package org.example.producerconsumergui.Model;
 
 import org.example.producerconsumergui.Memento.Event;
-import org.example.producerconsumergui.Memento.SimulationEvent;
 import org.example.producerconsumergui.Memento.SimulationRecorder;
+import org.example.producerconsumergui.Metrics.MachineMetrics;
 
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class Machine implements Runnable, MachineObserver {
     private int id;
@@ -14,12 +22,36 @@ public class Machine implements Runnable, MachineObserver {
     private Color currentColor;
     private List<SimulationQueue> inputQueues = new ArrayList<>();
     private List<SimulationQueue> outputQueues = new ArrayList<>();
+    // Weight of each output queue, in the same order, used by RoutingPolicy.WEIGHTED
+    private int[] outputWeights = new int[0];
+    private RoutingPolicy routingPolicy = RoutingPolicy.SHORTEST_QUEUE;
+    // Random streams of this machine, only used by the thread driving it
+    private SplittableRandom serviceRandom = new SplittableRandom();
+    private SplittableRandom routingRandom = new SplittableRandom();
+    private RoutingStrategy router = routingPolicy.createStrategy(routingRandom);
     private SimulationRecorder recorder;
+    private MachineMetrics metrics;
 
     private volatile String status = "IDLE";
-    private final Object lock = new Object();
-    private boolean hasBeenNotified = false;
-    private SimulationQueue notifiedQueue = null;
+    private volatile long processedCount = 0;
+    // True while the machine is working or about to look at its inputs, false while idle.
+    // A queue that flips it to true owns the wakeup, so a product is never missed
+    // and an active machine is never woken twice.
+    private final AtomicBoolean active = new AtomicBoolean(false);
+    // ReentrantLock instead of a monitor so waiting virtual threads unmount from their carrier
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notified = lock.newCondition();
+    // Input to look at first next time, inputs take turns
+    private int nextInput = 0;
+
+    // Set while the machine runs as a task on a pool instead of its own thread
+    private Executor pool;
+    private ScheduledExecutorService timer;
+    private volatile boolean stopped = false;
+
+    public static final double DEFAULT_MEAN_SERVICE_TIME_MILLIS = 1500;
+    public static final TimeDistribution DEFAULT_SERVICE_TIME = TimeDistribution.uniform(DEFAULT_MEAN_SERVICE_TIME_MILLIS);
+    private volatile TimeDistribution serviceTime = DEFAULT_SERVICE_TIME;
 
     public Machine(int id) {
         this.id = id;
@@ -55,6 +87,9 @@ public class Machine implements Runnable, MachineObserver {
 
     public void setInputQueues(List<SimulationQueue> inputQueues) {
         this.inputQueues = inputQueues;
+        for (SimulationQueue inputQueue : inputQueues) {
+            inputQueue.registerMachine(this);
+        }
     }
 
     public List<SimulationQueue> getOutputQueues() {
@@ -63,90 +98,87 @@ public class Machine implements Runnable, MachineObserver {
 
     public void setOutputQueues(List<SimulationQueue> outputQueues) {
         this.outputQueues = outputQueues;
+        this.outputWeights = new int[0];
     }
 
     public void addInputQueue(SimulationQueue inputQueue) {
         inputQueues.add(inputQueue);
+        inputQueue.registerMachine(this);
     }
 
     public void addOutputQueue(SimulationQueue outputQueue) {
+        addOutputQueue(outputQueue, 1);
+    }
+
+    /**
+     * Adds an output queue with its weight for RoutingPolicy.WEIGHTED
+     */
+    public void addOutputQueue(SimulationQueue outputQueue, int weight) {
+        if (weight <= 0) throw new IllegalArgumentException("Weight must be positive");
         outputQueues.add(outputQueue);
+        int[] weights = getOutputWeights();
+        weights[weights.length - 1] = weight;
+    }
+
+    /**
+     * Weights of the output queues in the order they were added, outputs added without one weigh 1
+     */
+    public int[] getOutputWeights() {
+        if (outputWeights.length != outputQueues.size()) {
+            int known = Math.min(outputWeights.length, outputQueues.size());
+            outputWeights = Arrays.copyOf(outputWeights, outputQueues.size());
+            Arrays.fill(outputWeights, known, outputWeights.length, 1);
+        }
+        return outputWeights;
+    }
+
+    public RoutingPolicy getRoutingPolicy() {
+        return routingPolicy;
+    }
+
+    /**
+     * Selects how finished products are spread over the output queues
+     */
+    public void setRoutingPolicy(RoutingPolicy routingPolicy) {
+        if (routingPolicy == null) throw new NullPointerException("routingPolicy can't be null");
+        this.routingPolicy = routingPolicy;
+        this.router = routingPolicy.createStrategy(routingRandom);
     }
 
 
     @Override
-    public void notifyProduct(SimulationQueue queue) {
-        synchronized (lock) {
-            this.hasBeenNotified = true;
-            this.notifiedQueue = queue;
-            this.lock.notify();
+    public boolean notifyProduct(SimulationQueue queue) {
+        if (!active.compareAndSet(false, true)) return false;
+        if (pool != null) {
+            submitStep();
+            return true;
+        }
+        lock.lock();
+        try {
+            this.notified.signal();
+        } finally {
+            lock.unlock();
         }
+        return true;
     }
 
+    /**
+     * Runs the machine on its own thread until interrupted
+     */
     @Override
     public void run() {
+        active.set(true);
         while (!Thread.currentThread().isInterrupted()) {
             try {
-                SimulationQueue sourceQueue = null;
-                for (SimulationQueue inputQueue : inputQueues) {
-                    inputQueue.registerMachine(this);
+                Product product = pollInput();
+                if (product == null) {
+                    awaitProduct();
+                    continue;
                 }
-                synchronized (lock) {
-                    while (!hasBeenNotified) {
-                        status = "WAITING";
-                        lock.wait(); // Spurious Wakeup protection
-                    }
-                    hasBeenNotified = false;
-                    sourceQueue = notifiedQueue;
-                }
-
-                Product product = sourceQueue.dequeue();
-                if (product == null) continue;
-
-                if (recorder != null) {
-                    recorder.recordEvent(new SimulationEvent(
-                            Event.MACHINE_STARTED_PROCESSING,
-                            id,
-                            product,
-                            product.getProductColor()
-                    ));
-                }
-
-                currentColor = product.getProductColor();
-                if (recorder != null) {
-                    recorder.recordEvent(new SimulationEvent(
-                            Event.MACHINE_COLOR_CHANGED,
-                            id,
-                            product,
-                            product.getProductColor()
-                    ));
-                }
-
-                status = "PROCESSING";
-                Thread.sleep((int) (Math.random() * 3000));
-
-                var outputQueue = getOutputQueue();
-                outputQueue.enqueue(product);
 
-                if (recorder != null) {
-                    recorder.recordEvent(new SimulationEvent(
-                            Event.MACHINE_FINISHED_PROCESSING,
-                            id,
-                            product,
-                            product.getProductColor()
-                    ));
-                }
-                currentColor = originalColor;
-
-                if (recorder != null) {
-                    recorder.recordEvent(new SimulationEvent(
-                            Event.MACHINE_COLOR_CHANGED,
-                            id,
-                            null,
-                            currentColor
-                    ));
-                }
-                status = "IDLE" ;
+                beginProcessing(product);
+                TimeUnit.NANOSECONDS.sleep(sampleServiceTimeNanos());
+                finishProcessing(product);
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
                 break;
@@ -154,24 +186,260 @@ public class Machine implements Runnable, MachineObserver {
         }
     }
 
-    private SimulationQueue getAvailableQueue() {
+    private void awaitProduct() throws InterruptedException {
+        if (!goIdle()) return;
+        lock.lock();
+        try {
+            while (!active.get()) {
+                setStatus("WAITING");
+                notified.await(); // Spurious Wakeup protection
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Marks the machine idle, then checks the inputs again for products that arrived meanwhile.
+     * The inputs know the machine from when it was connected, they offer products to it
+     * and only one whose offer flips it back to active wakes it.
+     * Returns false if the machine is still active and should poll again.
+     */
+    private boolean goIdle() {
+        active.set(false);
         for (SimulationQueue inputQueue : inputQueues) {
-            if (!inputQueue.isEmpty()) return inputQueue;
+            if (!inputQueue.isEmpty()) {
+                // Whoever flips it back owns the wakeup, a queue's notify or us
+                return !active.compareAndSet(false, true);
+            }
+        }
+        return true;
+    }
+
+    // ============================================
+    // POOLED EXECUTION
+    // ============================================
+
+    /**
+     * Runs the machine as short tasks on the pool instead of a thread of its own.
+     * Service times are waited out on the timer, so no pool thread ever sleeps.
+     */
+    void startPooled(Executor pool, ScheduledExecutorService timer) {
+        this.pool = pool;
+        this.timer = timer;
+        this.stopped = false;
+        active.set(true);
+        submitStep();
+    }
+
+    /**
+     * Stops taking new products, the pool and timer are shut down by the caller
+     */
+    void stopPooled() {
+        stopped = true;
+        pool = null;
+        timer = null;
+    }
+
+    private void submitStep() {
+        Executor executor = pool;
+        if (executor == null) return;
+        try {
+            executor.execute(this::step);
+        } catch (RejectedExecutionException e) {
+            // The pool was shut down, the simulation is stopping
+        }
+    }
+
+    /**
+     * Takes the next product and schedules its completion, or goes idle
+     */
+    private void step() {
+        if (stopped) return;
+        Product product = pollInput();
+        if (product == null) {
+            setStatus("WAITING");
+            if (!goIdle()) submitStep();
+            return;
+        }
+
+        beginProcessing(product);
+        ScheduledExecutorService scheduler = timer;
+        if (scheduler == null) return;
+        try {
+            scheduler.schedule(() -> {
+                Executor executor = pool;
+                if (executor == null) return;
+                executor.execute(() -> {
+                    if (stopped) return;
+                    deliver(product);
+                });
+            }, sampleServiceTimeNanos(), TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            // The timer was shut down, the simulation is stopping
+        }
+    }
+
+    /**
+     * Hands a finished product on and takes the next one. A full blocking output holds
+     * the product, the machine stays busy with it and carries on once the output takes it.
+     */
+    private void deliver(Product product) {
+        if (getOutputQueue().enqueueOrHold(product, () -> resume(product)) != null) {
+            completeProcessing(product);
+            step();
+        }
+    }
+
+    private void resume(Product product) {
+        Executor executor = pool;
+        if (executor == null) return;
+        try {
+            executor.execute(() -> {
+                if (stopped) return;
+                completeProcessing(product);
+                step();
+            });
+        } catch (RejectedExecutionException e) {
+            // The pool was shut down, the simulation is stopping
+        }
+    }
+
+    /**
+     * Puts the machine back to idle with nothing processed, before a new run
+     */
+    void resetForRun() {
+        processedCount = 0;
+        currentColor = originalColor;
+        status = "IDLE";
+    }
+
+    /**
+     * Records the start of processing and takes the product's color
+     */
+    void beginProcessing(Product product) {
+        if (recorder != null) {
+            recorder.recordEvent(Event.MACHINE_STARTED_PROCESSING, id, product, product.getProductColor());
+        }
+
+        currentColor = product.getProductColor();
+        if (recorder != null) {
+            recorder.recordEvent(Event.MACHINE_COLOR_CHANGED, id, product, product.getProductColor());
+        }
+
+        setStatus("PROCESSING");
+    }
+
+    /**
+     * Hands the product to an output queue and returns to the original color,
+     * waiting for a slot if the output is full and blocks.
+     * Returns the output queue the product was put in
+     */
+    SimulationQueue finishProcessing(Product product) {
+        var outputQueue = getOutputQueue();
+        outputQueue.enqueue(product);
+        completeProcessing(product);
+        return outputQueue;
+    }
+
+    /**
+     * Records the end of processing once the product was handed on and returns to the original color
+     */
+    void completeProcessing(Product product) {
+        processedCount++; // only written by the thread driving this machine
+        if (metrics != null) metrics.onProcessed();
+
+        if (recorder != null) {
+            recorder.recordEvent(Event.MACHINE_FINISHED_PROCESSING, id, product, product.getProductColor());
+        }
+        currentColor = originalColor;
+
+        if (recorder != null) {
+            recorder.recordEvent(Event.MACHINE_COLOR_CHANGED, id, null, currentColor);
+        }
+        setStatus("IDLE");
+    }
+
+    /**
+     * Takes the service time and routing streams from the random, for reproducible runs.
+     * Call before the machine starts.
+     */
+    public void setRandom(SplittableRandom random) {
+        serviceRandom = random.split();
+        routingRandom = random.split();
+        router = routingPolicy.createStrategy(routingRandom);
+    }
+
+    public void setServiceTime(TimeDistribution serviceTime) {
+        if (serviceTime == null) throw new NullPointerException("serviceTime can't be null");
+        this.serviceTime = serviceTime;
+    }
+
+    public TimeDistribution getServiceTime() {
+        return serviceTime;
+    }
+
+    /**
+     * Keeps the shape of the service time distribution with another mean
+     */
+    public void setMeanServiceTimeMillis(double meanServiceTimeMillis) {
+        serviceTime = serviceTime.withMean(meanServiceTimeMillis);
+    }
+
+    public double getMeanServiceTimeMillis() {
+        return serviceTime.getMeanMillis();
+    }
+
+    /**
+     * Service time for the next product
+     */
+    long sampleServiceTimeNanos() {
+        return serviceTime.sampleNanos(serviceRandom);
+    }
+
+    /**
+     * Dequeues from the input queues in turn, starting after the one last taken from,
+     * so a busy input can't starve the others. Returns null if all are empty.
+     */
+    Product pollInput() {
+        int count = inputQueues.size();
+        for (int i = 0; i < count; i++) {
+            int index = (nextInput + i) % count;
+            Product product = inputQueues.get(index).dequeue();
+            if (product != null) {
+                nextInput = (index + 1) % count;
+                return product;
+            }
         }
         return null;
     }
 
-    private SimulationQueue getOutputQueue() {
-        return outputQueues.stream()
-                .min(Comparator.comparingInt(SimulationQueue::size))
-                .orElse(outputQueues.getFirst());
+    /**
+     * Picks the output queue for the next finished product with the routing policy
+     */
+    public SimulationQueue getOutputQueue() {
+        if (outputQueues.isEmpty()) throw new IllegalStateException("Machine M" + id + " has no output queue");
+        return router.select(outputQueues, getOutputWeights());
     }
 
     public void setRecorder(SimulationRecorder recorder) {
         this.recorder = recorder;
     }
 
+    public void setMetrics(MachineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    private void setStatus(String status) {
+        if (metrics != null && !status.equals(this.status)) metrics.onStatusChanged(status);
+        this.status = status;
+    }
+
     public String getStatus() {
         return this.status;
     }
+
+    public long getProcessedCount() {
+        return processedCount;
+    }
 }
@@ -1,5 +1,10 @@
 package org.example.producerconsumergui.Model;
 
 public interface MachineObserver {
-    void notifyProduct(SimulationQueue queue) ;
+    /**
+     * Tells an idle observer that the queue has a product.
+     * Returns false if the observer is already active, the queue should then wake another one;
+     * an active observer looks at all its inputs before going idle again.
+     */
+    boolean notifyProduct(SimulationQueue queue);
 }
@@ -0,0 +1,22 @@
+package org.example.producerconsumergui.Model;
+
+/**
+ * What a bounded queue does with a product that arrives while it is full.
+ * Unbounded queues never overflow.
+ */
+public enum OverflowPolicy {
+    BLOCK("Block upstream"),       // the producer waits until a consumer frees a slot
+    DROP_NEWEST("Drop newest"),    // the arriving product is discarded
+    DROP_OLDEST("Drop oldest"),    // the product at the front is discarded to make room
+    REROUTE("Reroute");            // the product goes to the overflow queue, dropped if there is none or it is full
+
+    private final String label;
+
+    OverflowPolicy(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
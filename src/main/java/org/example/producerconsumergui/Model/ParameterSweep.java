@@ -0,0 +1,404 @@
+package org.example.producerconsumergui.Model;
+
+import org.example.producerconsumergui.Metrics.MetricsSnapshot;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a topology once for every point of a parameter grid (arrival rate, machine
+ * copies, mean service time) on the virtual clock, without the UI, and writes one CSV
+ * row per run as soon as it finishes. Every run has its own SimulationManager and
+ * runs on its own thread, so the grid spreads over all cores.
+ * Runs don't record, only their metrics are kept. Every run uses the same seed, so the
+ * points differ only by their parameters and a sweep can be repeated exactly.
+ */
+public class ParameterSweep {
+    public static final String CSV_HEADER = "run,seed,arrivalRatePerSecond,machineCopies,meanServiceMillis,machines,"
+            + "arrived,completed,throughputPerSecond,meanLatencyMillis,p99LatencyMillis,"
+            + "maxQueueLength,maxQueueId,meanUtilization,maxUtilization,error";
+
+    // Share of the mean arrival interval at its ends, the default 500-2000 ms has the same shape
+    private static final double MIN_INTERVAL_SHARE = 0.4;
+    private static final double MAX_INTERVAL_SHARE = 1.6;
+
+    /**
+     * One grid point
+     */
+    public static class Point {
+        private final int index;
+        private final double arrivalRatePerSecond;
+        private final int machineCopies;
+        private final double meanServiceMillis;
+
+        Point(int index, double arrivalRatePerSecond, int machineCopies, double meanServiceMillis) {
+            this.index = index;
+            this.arrivalRatePerSecond = arrivalRatePerSecond;
+            this.machineCopies = machineCopies;
+            this.meanServiceMillis = meanServiceMillis;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public double getArrivalRatePerSecond() {
+            return arrivalRatePerSecond;
+        }
+
+        public int getMachineCopies() {
+            return machineCopies;
+        }
+
+        /**
+         * NaN if the machines keep their own service times
+         */
+        public double getMeanServiceMillis() {
+            return meanServiceMillis;
+        }
+    }
+
+    private final SimulationTopology topology;
+    private final long simulatedMillis;
+    private double[] arrivalRates = {
+            2000.0 / (SimulationManager.MIN_ARRIVAL_TIME + SimulationManager.MAX_ARRIVAL_TIME)
+    };
+    private ArrivalType arrivalType = ArrivalType.UNIFORM;
+    private ArrivalRouting arrivalRouting = ArrivalRouting.ROUND_ROBIN;
+    private int[] machineCopies = {1};
+    // NaN keeps the service times of the topology's machines
+    private double[] meanServiceTimes = {Double.NaN};
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private long seed = new SplittableRandom().nextLong();
+
+    public ParameterSweep(SimulationTopology topology, long simulatedMillis) {
+        if (topology == null) throw new NullPointerException("topology can't be null");
+        if (simulatedMillis <= 0) throw new IllegalArgumentException("Simulated duration must be positive");
+        this.topology = topology;
+        this.simulatedMillis = simulatedMillis;
+    }
+
+    /**
+     * Arrival rates to try, in products per second
+     */
+    public void setArrivalRates(double... arrivalRates) {
+        for (double rate : arrivalRates) {
+            if (!(rate > 0)) throw new IllegalArgumentException("Arrival rates must be positive");
+        }
+        this.arrivalRates = nonEmpty(arrivalRates.clone());
+    }
+
+    /**
+     * How products arrive at each rate: uniform intervals (the default), Poisson or deterministic
+     */
+    public void setArrivalType(ArrivalType arrivalType) {
+        if (arrivalType != ArrivalType.UNIFORM && arrivalType != ArrivalType.POISSON
+                && arrivalType != ArrivalType.DETERMINISTIC) {
+            throw new IllegalArgumentException("Sweeps can't set the rate of " + arrivalType.getLabel() + " arrivals");
+        }
+        this.arrivalType = arrivalType;
+    }
+
+    /**
+     * How the arrivals are spread over the topology's input queues, round robin by default
+     */
+    public void setArrivalRouting(ArrivalRouting arrivalRouting) {
+        if (arrivalRouting == null) throw new NullPointerException("arrivalRouting can't be null");
+        this.arrivalRouting = arrivalRouting;
+    }
+
+    /**
+     * How many copies of every machine to try, each copy has the original's connections
+     */
+    public void setMachineCopies(int... machineCopies) {
+        for (int copies : machineCopies) {
+            if (copies < 1) throw new IllegalArgumentException("Machine copies must be at least 1");
+        }
+        if (machineCopies.length == 0) throw new IllegalArgumentException("The grid needs at least one value");
+        this.machineCopies = machineCopies.clone();
+    }
+
+    /**
+     * Mean service times to try, in milliseconds. Every machine's distribution is
+     * rescaled to the mean and keeps its shape. Without any, the topology's own are used.
+     */
+    public void setMeanServiceTimes(double... meanServiceTimes) {
+        for (double mean : meanServiceTimes) {
+            if (!(mean >= 0)) throw new IllegalArgumentException("Mean service times can't be negative");
+        }
+        this.meanServiceTimes = nonEmpty(meanServiceTimes.clone());
+    }
+
+    /**
+     * Runs at the same time, the number of cores by default
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) throw new IllegalArgumentException("Parallelism must be at least 1");
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Seed of every run, a random one by default
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    private static double[] nonEmpty(double[] values) {
+        if (values.length == 0) throw new IllegalArgumentException("The grid needs at least one value");
+        return values;
+    }
+
+    /**
+     * Every combination of the parameters, in the order of the run column
+     */
+    public List<Point> getPoints() {
+        List<Point> points = new ArrayList<>();
+        for (double rate : arrivalRates) {
+            for (int copies : machineCopies) {
+                for (double service : meanServiceTimes) {
+                    points.add(new Point(points.size(), rate, copies, service));
+                }
+            }
+        }
+        return points;
+    }
+
+    // ============================================
+    // RUNNING
+    // ============================================
+
+    /**
+     * Runs every grid point and writes the header and one row per run to out,
+     * in the order the runs finish. A run that fails gets a row with its error.
+     * Returns the number of runs.
+     */
+    public int run(Appendable out) throws IOException, InterruptedException {
+        List<Point> points = getPoints();
+        AtomicInteger nextThread = new AtomicInteger(1);
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(parallelism, points.size()), r -> {
+            Thread t = new Thread(r, "Sweep-" + nextThread.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            CompletionService<String> rows = new ExecutorCompletionService<>(pool);
+            for (Point point : points) {
+                rows.submit(() -> runPoint(point));
+            }
+
+            out.append(CSV_HEADER).append('\n');
+            for (int i = 0; i < points.size(); i++) {
+                String row;
+                try {
+                    row = rows.take().get();
+                } catch (ExecutionException e) {
+                    // runPoint reports its own failures, only an Error gets here
+                    throw new IllegalStateException("Sweep run failed", e.getCause());
+                }
+                out.append(row).append('\n');
+                if (out instanceof Flushable flushable) flushable.flush();
+            }
+            return points.size();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs and writes to a CSV file, replacing it
+     */
+    public int run(Path csvFile) throws IOException, InterruptedException {
+        try (Writer out = Files.newBufferedWriter(csvFile)) {
+            return run(out);
+        }
+    }
+
+    private ArrivalProcess arrivalProcess(double ratePerSecond) {
+        return switch (arrivalType) {
+            case POISSON -> ArrivalProcess.poisson(ratePerSecond);
+            case DETERMINISTIC -> ArrivalProcess.deterministic(ratePerSecond);
+            default -> {
+                double meanInterval = 1000.0 / ratePerSecond;
+                yield ArrivalProcess.uniform(meanInterval * MIN_INTERVAL_SHARE, meanInterval * MAX_INTERVAL_SHARE);
+            }
+        };
+    }
+
+    private String runPoint(Point point) throws InterruptedException {
+        SimulationManager manager = new SimulationManager();
+        try {
+            manager.setRecordingEnabled(false);
+            manager.setSeed(seed);
+            SimulationTopology runTopology = withMachineCopies(topology, point.getMachineCopies());
+            manager.applyTopology(runTopology);
+            if (!Double.isNaN(point.getMeanServiceMillis())) {
+                manager.setMeanServiceTimeMillis(point.getMeanServiceMillis());
+            }
+            manager.setArrivalProcess(arrivalProcess(point.getArrivalRatePerSecond()));
+            manager.setArrivalRouting(arrivalRouting);
+
+            new HeadlessSimulationRunner(manager).runSimulated(simulatedMillis);
+            return row(point, seed, manager.getMachines().size(), manager.getMetrics().snapshot(),
+                    machineInputs(runTopology), "");
+        } catch (RuntimeException e) {
+            return row(point, seed, manager.getMachines().size(), null, Set.of(), String.valueOf(e.getMessage()));
+        } finally {
+            manager.shutdown();
+        }
+    }
+
+    /**
+     * Queues some machine takes from, the others collect finished products and never drain
+     */
+    private static Set<Integer> machineInputs(SimulationTopology topology) {
+        Set<Integer> inputs = new HashSet<>();
+        for (SimulationTopology.ConnectionSpec connection : topology.getConnections()) {
+            inputs.add(connection.getInputQueueId());
+        }
+        return inputs;
+    }
+
+    private static String row(Point point, long seed, int machines, MetricsSnapshot snapshot, Set<Integer> machineInputs,
+                              String error) {
+        StringBuilder row = new StringBuilder()
+                .append(point.getIndex()).append(',')
+                .append(seed).append(',')
+                .append(number(point.getArrivalRatePerSecond())).append(',')
+                .append(point.getMachineCopies()).append(',')
+                .append(Double.isNaN(point.getMeanServiceMillis()) ? "" : number(point.getMeanServiceMillis()))
+                .append(',')
+                .append(machines).append(',');
+        if (snapshot == null) {
+            row.append(",,,,,,,,");
+        } else {
+            MetricsSnapshot.QueueSnapshot longest = null;
+            for (MetricsSnapshot.QueueSnapshot queue : snapshot.getQueues()) {
+                if (!machineInputs.contains(queue.getId())) continue;
+                if (longest == null || queue.getMaxLength() > longest.getMaxLength()) longest = queue;
+            }
+            double utilizationSum = 0;
+            double maxUtilization = 0;
+            for (MetricsSnapshot.MachineSnapshot machine : snapshot.getMachines()) {
+                utilizationSum += machine.getUtilization();
+                maxUtilization = Math.max(maxUtilization, machine.getUtilization());
+            }
+            int machineCount = snapshot.getMachines().size();
+            row.append(snapshot.getArrived()).append(',')
+                    .append(snapshot.getCompleted()).append(',')
+                    .append(number(snapshot.getThroughputPerSecond())).append(',')
+                    .append(number(snapshot.getMeanLatencyMillis())).append(',')
+                    .append(number(snapshot.getLatencyMillisP99())).append(',')
+                    .append(longest == null ? "" : longest.getMaxLength()).append(',')
+                    .append(longest == null ? "" : longest.getId()).append(',')
+                    .append(number(machineCount == 0 ? 0 : utilizationSum / machineCount)).append(',')
+                    .append(number(maxUtilization));
+        }
+        // Messages are quoted, CSV escapes quotes by doubling them
+        row.append(',');
+        if (!error.isEmpty()) row.append('"').append(error.replace("\"", "\"\"")).append('"');
+        return row.toString();
+    }
+
+    private static String number(double value) {
+        return String.format(Locale.ROOT, "%.4f", value);
+    }
+
+    /**
+     * The topology with copies of every machine, connected like the original.
+     * Copy k of machine m gets id m + k * (largest machine id + 1).
+     */
+    static SimulationTopology withMachineCopies(SimulationTopology topology, int copies) {
+        if (copies == 1) return topology;
+        int stride = 1;
+        for (SimulationTopology.MachineSpec machine : topology.getMachines()) {
+            stride = Math.max(stride, machine.getId() + 1);
+        }
+
+        SimulationTopology copy = new SimulationTopology();
+        for (SimulationTopology.QueueSpec queue : topology.getQueues()) {
+            copy.addQueue(queue.getId(), queue.isInput(), queue.getCapacity(), queue.getOverflowPolicy(),
+                    queue.getOverflowQueueId(), queue.getArrivalWeight(), queue.getArrivals(), queue.getX(), queue.getY());
+        }
+        for (int k = 0; k < copies; k++) {
+            for (SimulationTopology.MachineSpec machine : topology.getMachines()) {
+                copy.addMachine(machine.getId() + k * stride, machine.getColor(), machine.getRoutingPolicy(),
+                        machine.getServiceTime(), Double.NaN, Double.NaN);
+            }
+            for (SimulationTopology.ConnectionSpec connection : topology.getConnections()) {
+                copy.addConnection(connection.getMachineId() + k * stride, connection.getInputQueueId(),
+                        connection.getOutputQueueId(), connection.getWeight());
+            }
+        }
+        return copy;
+    }
+
+    // ============================================
+    // COMMAND LINE
+    // ============================================
+
+    /**
+     * Sweeps the topology of a saved recording:
+     * ParameterSweep recording.pcrec results.csv
+     * The grid comes from -Dsweep.rates (products/s), -Dsweep.copies and -Dsweep.service (ms),
+     * comma separated; -Dsweep.arrivals is uniform, poisson or deterministic and
+     * -Dsweep.routing how they are spread over the inputs (an ArrivalRouting name); -Dsweep.duration is the simulated time of each run in ms (default an hour),
+     * -Dsweep.seed the seed of every run (default random) and -Dsweep.threads the parallelism
+     * (default all cores).
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length != 2) {
+            System.err.println("Usage: ParameterSweep <recording.pcrec> <results.csv>");
+            System.exit(2);
+        }
+        SimulationManager loader = new SimulationManager();
+        SimulationTopology topology = loader.importRecording(Path.of(args[0]));
+        loader.shutdown();
+        if (topology == null) {
+            System.exit(1);
+        }
+
+        ParameterSweep sweep = new ParameterSweep(topology, Long.getLong("sweep.duration", 3_600_000L));
+        String rates = System.getProperty("sweep.rates");
+        if (rates != null) sweep.setArrivalRates(doubles(rates));
+        String arrivals = System.getProperty("sweep.arrivals");
+        if (arrivals != null) sweep.setArrivalType(ArrivalType.valueOf(arrivals.trim().toUpperCase(Locale.ROOT)));
+        String routing = System.getProperty("sweep.routing");
+        if (routing != null) sweep.setArrivalRouting(ArrivalRouting.valueOf(routing.trim().toUpperCase(Locale.ROOT)));
+        String copies = System.getProperty("sweep.copies");
+        if (copies != null) sweep.setMachineCopies(Arrays.stream(doubles(copies)).mapToInt(v -> (int) v).toArray());
+        String service = System.getProperty("sweep.service");
+        if (service != null) sweep.setMeanServiceTimes(doubles(service));
+        Long seed = Long.getLong("sweep.seed");
+        if (seed != null) sweep.setSeed(seed);
+        sweep.setParallelism(Integer.getInteger("sweep.threads", Runtime.getRuntime().availableProcessors()));
+
+        long start = System.nanoTime();
+        int runs = sweep.run(Path.of(args[1]));
+        System.out.printf("ParameterSweep: %d runs in %.1f s%n", runs, (System.nanoTime() - start) / 1e9);
+    }
+
+    private static double[] doubles(String list) {
+        return Arrays.stream(list.split(",")).map(String::trim).mapToDouble(Double::parseDouble).toArray();
+    }
+}
@@ -3,6 +3,9 @@ package org.example.producerconsumergui.Model;
 public class Product {
     private int id ;
     private Color productColor;
+    // Set by the metrics, on the clock of the run
+    private long arrivalNanos;
+    private long enqueuedNanos;
 
     public Product(int id, Color productColor) {
         this.id = id;
@@ -24,4 +27,42 @@ public class Product {
     public void setProductColor(Color productColor) {
         this.productColor = productColor;
     }
+
+    /**
+     * When the product entered the line
+     */
+    public long getArrivalNanos() {
+        return arrivalNanos;
+    }
+
+    public void setArrivalNanos(long arrivalNanos) {
+        this.arrivalNanos = arrivalNanos;
+    }
+
+    /**
+     * When the product went into the queue it is in
+     */
+    public long getEnqueuedNanos() {
+        return enqueuedNanos;
+    }
+
+    public void setEnqueuedNanos(long enqueuedNanos) {
+        this.enqueuedNanos = enqueuedNanos;
+    }
+
+    /**
+     * Products are identified by id, so a product rebuilt from a recording
+     * equals the original
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Product)) return false;
+        return id == ((Product) o).id;
+    }
+
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(id);
+    }
 }
@@ -0,0 +1,36 @@
+package org.example.producerconsumergui.Model;
+
+/**
+ * Storage behind a SimulationQueue. Implementations must be safe for
+ * multiple producers and multiple consumers.
+ */
+public interface ProductBuffer {
+
+    /**
+     * Adds a product at the tail, returns false if the buffer is full
+     */
+    boolean offer(Product product);
+
+    /**
+     * Removes the head product, or returns null if the buffer is empty
+     */
+    Product poll();
+
+    /**
+     * Removes a specific product. Only used by replay, while no machine is running.
+     */
+    boolean remove(Product product);
+
+    int size();
+
+    /**
+     * Most products the buffer can hold, Integer.MAX_VALUE if it grows as needed
+     */
+    default int capacity() {
+        return Integer.MAX_VALUE;
+    }
+
+    boolean isEmpty();
+
+    void clear();
+}
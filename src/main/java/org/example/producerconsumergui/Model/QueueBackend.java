@@ -0,0 +1,16 @@
+package org.example.producerconsumergui.Model;
+
+/**
+ * Storage implementation used for the queues of a simulation session
+ */
+public enum QueueBackend {
+    SYNCHRONIZED,   // LinkedList guarded by a monitor (original behaviour)
+    LOCK_FREE;      // bounded lock-free ring buffer, a full ring holds products back
+
+    public ProductBuffer createBuffer() {
+        return switch (this) {
+            case SYNCHRONIZED -> new SynchronizedProductBuffer();
+            case LOCK_FREE -> new RingBufferProductBuffer();
+        };
+    }
+}
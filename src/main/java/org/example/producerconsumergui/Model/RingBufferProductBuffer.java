@@ -0,0 +1,132 @@
+package org.example.producerconsumergui.Model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free multi-producer/multi-consumer ring buffer.
+ * Every slot carries a sequence number that tells producers and consumers
+ * whether it is free for the current lap, so offer and poll never lock and
+ * never allocate. size() is derived from the head and tail counters.
+ */
+public class RingBufferProductBuffer implements ProductBuffer {
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private final int mask;
+    private final AtomicReferenceArray<Product> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong head = new AtomicLong(); // next slot to poll
+    private final AtomicLong tail = new AtomicLong(); // next slot to offer
+
+    public RingBufferProductBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Capacity is rounded up to the next power of two
+     */
+    public RingBufferProductBuffer(int capacity) {
+        if (capacity < 2 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Capacity must be between 2 and 2^30");
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    @Override
+    public boolean offer(Product product) {
+        long pos = tail.get();
+        while (true) {
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                // Slot is free for this lap, try to claim it
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    slots.set(index, product);
+                    sequences.set(index, pos + 1); // publish to consumers
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                return false; // consumer has not freed the slot yet, buffer is full
+            } else {
+                pos = tail.get(); // another producer got here first
+            }
+        }
+    }
+
+    @Override
+    public Product poll() {
+        long pos = head.get();
+        while (true) {
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - (pos + 1);
+            if (diff == 0) {
+                // Slot holds a published product, try to claim it
+                if (head.compareAndSet(pos, pos + 1)) {
+                    Product product = slots.get(index);
+                    slots.set(index, null);
+                    sequences.set(index, pos + mask + 1); // free the slot for the next lap
+                    return product;
+                }
+                pos = head.get();
+            } else if (diff < 0) {
+                return null; // nothing published yet, buffer is empty
+            } else {
+                pos = head.get(); // another consumer got here first
+            }
+        }
+    }
+
+    @Override
+    public boolean remove(Product product) {
+        // Not lock-free: drains and refills, so it is only valid while quiescent (replay)
+        List<Product> kept = new ArrayList<>();
+        boolean removed = false;
+        Product next;
+        while ((next = poll()) != null) {
+            if (!removed && next.equals(product)) {
+                removed = true;
+            } else {
+                kept.add(next);
+            }
+        }
+        for (Product p : kept) {
+            offer(p);
+        }
+        return removed;
+    }
+
+    @Override
+    public int size() {
+        // Read head first: tail only grows, so the difference can't go negative
+        long h = head.get();
+        long t = tail.get();
+        return (int) Math.min(t - h, mask + 1L);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public void clear() {
+        while (poll() != null) {
+            // drain
+        }
+    }
+
+    @Override
+    public int capacity() {
+        return mask + 1;
+    }
+}
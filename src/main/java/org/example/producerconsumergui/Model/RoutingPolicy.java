@@ -0,0 +1,102 @@
+package org.example.producerconsumergui.Model;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * How a machine spreads its finished products over its output queues.
+ * Policies that look at queue lengths read SimulationQueue.getDepth, which doesn't lock.
+ */
+public enum RoutingPolicy {
+    ROUND_ROBIN("Round robin"),             // outputs take turns
+    WEIGHTED("Weighted"),                   // smooth weighted round robin over the output weights
+    RANDOM("Random"),                       // uniformly random output
+    POWER_OF_TWO("Power of two choices"),   // shorter of two random outputs
+    SHORTEST_QUEUE("Shortest queue");       // shortest output, first one on ties (original behaviour)
+
+    private final String label;
+
+    RoutingPolicy(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Strategy with an unseeded random stream
+     */
+    public RoutingStrategy createStrategy() {
+        return createStrategy(new SplittableRandom());
+    }
+
+    /**
+     * Strategy drawing its random picks from the stream, which becomes its own
+     */
+    public RoutingStrategy createStrategy(SplittableRandom random) {
+        return switch (this) {
+            case ROUND_ROBIN -> new RoundRobin();
+            case WEIGHTED -> new Weighted();
+            case RANDOM -> (outputs, weights) -> outputs.get(random.nextInt(outputs.size()));
+            case POWER_OF_TWO -> (outputs, weights) -> powerOfTwo(outputs, random);
+            case SHORTEST_QUEUE -> RoutingPolicy::shortest;
+        };
+    }
+
+    private static final class RoundRobin implements RoutingStrategy {
+        private int next = 0;
+
+        @Override
+        public SimulationQueue select(List<SimulationQueue> outputs, int[] weights) {
+            if (next >= outputs.size()) next = 0;
+            return outputs.get(next++);
+        }
+    }
+
+    /**
+     * Each pick adds every output's weight to its credit and takes the output with the most,
+     * which then pays the total weight back. Spreads the picks evenly instead of in runs.
+     */
+    private static final class Weighted implements RoutingStrategy {
+        private long[] credit = new long[0];
+
+        @Override
+        public SimulationQueue select(List<SimulationQueue> outputs, int[] weights) {
+            if (credit.length != weights.length) credit = new long[weights.length];
+            long total = 0;
+            int best = 0;
+            for (int i = 0; i < weights.length; i++) {
+                credit[i] += weights[i];
+                total += weights[i];
+                if (credit[i] > credit[best]) best = i;
+            }
+            credit[best] -= total;
+            return outputs.get(best);
+        }
+    }
+
+    private static SimulationQueue powerOfTwo(List<SimulationQueue> outputs, SplittableRandom random) {
+        int count = outputs.size();
+        if (count == 1) return outputs.getFirst();
+        int first = random.nextInt(count);
+        // Second pick is different from the first
+        int second = (first + 1 + random.nextInt(count - 1)) % count;
+        SimulationQueue a = outputs.get(first);
+        SimulationQueue b = outputs.get(second);
+        return b.getDepth() < a.getDepth() ? b : a;
+    }
+
+    private static SimulationQueue shortest(List<SimulationQueue> outputs, int[] weights) {
+        SimulationQueue best = outputs.getFirst();
+        int bestDepth = best.getDepth();
+        for (int i = 1; i < outputs.size(); i++) {
+            int depth = outputs.get(i).getDepth();
+            if (depth < bestDepth) {
+                best = outputs.get(i);
+                bestDepth = depth;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,17 @@
+package org.example.producerconsumergui.Model;
+
+import java.util.List;
+
+/**
+ * Picks the output queue for a machine's finished product.
+ * A strategy belongs to one machine and is only called by the thread driving it,
+ * so implementations may keep unsynchronized state.
+ */
+public interface RoutingStrategy {
+
+    /**
+     * Picks one of the outputs, which are never empty.
+     * weights has a positive weight per output, in the same order.
+     */
+    SimulationQueue select(List<SimulationQueue> outputs, int[] weights);
+}
@@ -21,6 +21,7 @@ public interface SimulationCallback {
 
     // Queue updates
     void onQueueSizeChanged(int queueId, int size);
+    void onQueueOverflowChanged(int queueId, long droppedCount, int blockedCount);
 
     // Machine events
     void onMachineStartedProcessing(int machineId, Product product);
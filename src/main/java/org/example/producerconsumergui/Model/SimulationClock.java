@@ -0,0 +1,29 @@
+package org.example.producerconsumergui.Model;
+
+/**
+ * Time source used to stamp recorded events
+ */
+public interface SimulationClock {
+
+    /**
+     * Wall-clock time, used by real-time simulations
+     */
+    SimulationClock SYSTEM = new SimulationClock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+    };
+
+    long currentTimeMillis();
+
+    /**
+     * Monotonic time in nanoseconds, only meaningful as a difference
+     */
+    long nanoTime();
+}
@@ -1,12 +1,21 @@
 package org.example.producerconsumergui.Model;
 import org.example.producerconsumergui.Model.*;
 import org.example.producerconsumergui.Memento.*;
-import javafx.application.Platform;
+import org.example.producerconsumergui.Metrics.MetricsRegistry;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 public class SimulationManager {
 
@@ -15,33 +24,80 @@ public class SimulationManager {
     private Map<Integer, SimulationQueue> queues = new HashMap<>();
     // private SimulationQueue inputQueue;
     private List<SimulationQueue> inputQueues = new ArrayList<>();
+    // Topology (with layout) last applied with applyTopology, null once it's changed piecemeal
+    private SimulationTopology appliedTopology;
+    private QueueBackend queueBackend = QueueBackend.SYNCHRONIZED;
+    private ThreadingMode threadingMode = ThreadingMode.PLATFORM;
 
     // Memento pattern components
     private SimulationRecorder recorder = new SimulationRecorder();
     private SimulationCareTaker caretaker = new SimulationCareTaker();
     private SimulationReplayer replayer;
+    private boolean recordingEnabled = true;
+    private final MetricsRegistry metrics = new MetricsRegistry();
 
     // Threading
     private List<Thread> machineThreads = new ArrayList<>();
+    // Pool and service timer of ThreadingMode.POOLED
+    private ForkJoinPool machinePool;
+    private ScheduledExecutorService machineTimer;
     private Thread productGeneratorThread;
     private ScheduledExecutorService uiUpdater;
+    // Last values sent by updateUI
+    private final Map<Integer, Integer> reportedQueueSizes = new HashMap<>();
+    private final Map<Integer, Long> reportedQueueDrops = new HashMap<>();
+    private final Map<Integer, Integer> reportedQueueBlocks = new HashMap<>();
+    private final Map<Integer, Color> reportedMachineColors = new HashMap<>();
+    private final Map<Integer, String> reportedMachineStatuses = new HashMap<>();
     private Thread replayThread;
 
     // State flags
     private volatile boolean isRunning = false;
     private volatile boolean isReplaying = false;
     private volatile boolean isPaused = false;
+    // Event index the replay thread should seek to, -1 if none
+    private volatile int pendingSeek = -1;
 
     // UI callback interface
     private SimulationCallback callback;
+    private final Executor callbackExecutor;
 
     // Product generation
     private int nextProductId = 0;
-    private static final int MIN_ARRIVAL_TIME = 500;  // ms
-    private static final int MAX_ARRIVAL_TIME = 2000; // ms
+    static final int MIN_ARRIVAL_TIME = 500;  // ms
+    static final int MAX_ARRIVAL_TIME = 2000; // ms
+    private volatile ArrivalProcess arrivalProcess = ArrivalProcess.uniform(MIN_ARRIVAL_TIME, MAX_ARRIVAL_TIME);
+    // A live generator further behind its schedule than this (held up by a full blocking
+    // input, or asked for more than it can make) starts again from now instead of catching up
+    private static final long MAX_ARRIVAL_LAG_NANOS = 1_000_000_000L;
+    private volatile ArrivalRouting arrivalRouting = ArrivalRouting.ROUND_ROBIN;
+    // Input queue id to its share of the session's arrivals under WEIGHTED, and to arrivals of its own
+    private final Map<Integer, Integer> inputWeights = new HashMap<>();
+    private final Map<Integer, ArrivalProcess> inputArrivals = new HashMap<>();
+
+    // Every run draws from streams split off this seed, so runs with the same seed
+    // (discrete event ones exactly) can be repeated
+    private volatile long seed = new SplittableRandom().nextLong();
+    // Intervals and colors of the products, only used by the thread generating them
+    private SplittableRandom productRandom = new SplittableRandom();
+    // Replay releases due events at most once per frame
+    private static final long REPLAY_FRAME_NANOS = 16_666_667L; // 60 fps
 
+    /**
+     * Creates a manager that invokes callbacks directly on the simulation threads
+     */
     public SimulationManager() {
-        // Constructor
+        this(Runnable::run);
+    }
+
+    /**
+     * Creates a manager that hands every callback to the given executor
+     * (e.g. Platform::runLater for the JavaFX UI)
+     */
+    public SimulationManager(Executor callbackExecutor) {
+        this.callbackExecutor = Objects.requireNonNull(callbackExecutor, "callbackExecutor can't be null");
+        // Recordings go to memory-mapped files so long runs don't fill the heap
+        recorder.setLogDirectory(Path.of(System.getProperty("java.io.tmpdir"), "producer-consumer-recordings"), true);
     }
 
     // ============================================
@@ -55,13 +111,187 @@ public class SimulationManager {
         this.callback = callback;
     }
 
+    /**
+     * Selects the queue storage used by queues added from now on
+     */
+    public void setQueueBackend(QueueBackend queueBackend) {
+        this.queueBackend = Objects.requireNonNull(queueBackend, "queueBackend can't be null");
+    }
+
+    public QueueBackend getQueueBackend() {
+        return queueBackend;
+    }
+
+    /**
+     * Selects platform threads, virtual threads or the shared pool for the next simulation or replay
+     */
+    public void setThreadingMode(ThreadingMode threadingMode) {
+        this.threadingMode = Objects.requireNonNull(threadingMode, "threadingMode can't be null");
+    }
+
+    public ThreadingMode getThreadingMode() {
+        return threadingMode;
+    }
+
+    /**
+     * Directory recordings are written to and kept in, or null to record in memory
+     */
+    public void setRecordingDirectory(Path directory) {
+        recorder.setLogDirectory(directory, false);
+    }
+
+    public Path getRecordingDirectory() {
+        return recorder.getLogDirectory();
+    }
+
+    /**
+     * Runs record by default so they can be replayed. Experiments that only want
+     * the metrics turn it off, their runs then save no recording.
+     */
+    public void setRecordingEnabled(boolean recordingEnabled) {
+        this.recordingEnabled = recordingEnabled;
+    }
+
+    public boolean isRecordingEnabled() {
+        return recordingEnabled;
+    }
+
+    /**
+     * Products arrive at uniformly random intervals between min and max milliseconds
+     */
+    public void setArrivalIntervalMillis(int min, int max) {
+        setArrivalProcess(ArrivalProcess.uniform(min, max));
+    }
+
+    /**
+     * When products arrive in the next runs, uniformly every 500 to 2000 ms by default
+     */
+    public void setArrivalProcess(ArrivalProcess arrivalProcess) {
+        this.arrivalProcess = Objects.requireNonNull(arrivalProcess, "arrivalProcess can't be null");
+    }
+
+    public ArrivalProcess getArrivalProcess() {
+        return arrivalProcess;
+    }
+
+    /**
+     * Selects how the session's arrivals are spread over the input queues sharing them,
+     * each product going to one of them in turn by default
+     */
+    public void setArrivalRouting(ArrivalRouting arrivalRouting) {
+        this.arrivalRouting = Objects.requireNonNull(arrivalRouting, "arrivalRouting can't be null");
+    }
+
+    public ArrivalRouting getArrivalRouting() {
+        return arrivalRouting;
+    }
+
+    /**
+     * Seed of the random streams of the next runs, a random one by default
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Splits the generator's and every machine's streams off the seed, by machine id
+     * so they don't depend on the order machines were added in
+     */
+    private void seedRandomStreams() {
+        SplittableRandom root = new SplittableRandom(seed);
+        productRandom = root.split();
+        for (Machine machine : new TreeMap<>(machines).values()) {
+            machine.setRandom(root.split());
+        }
+    }
+
+    /**
+     * Opens the arrival sources of a run on streams split off the generator's, after
+     * seedRandomStreams: the session's arrivals for the inputs sharing them, then the
+     * inputs with their own by queue id
+     */
+    private List<ArrivalSource> openArrivals() {
+        List<ArrivalSource> sources = new ArrayList<>();
+        try {
+            List<SimulationQueue> shared = new ArrayList<>();
+            for (SimulationQueue input : inputQueues) {
+                if (!inputArrivals.containsKey(input.getId())) shared.add(input);
+            }
+            if (!shared.isEmpty()) {
+                int[] weights = new int[shared.size()];
+                for (int i = 0; i < weights.length; i++) {
+                    weights[i] = getInputArrivalWeight(shared.get(i).getId());
+                }
+                ArrivalStream stream = arrivalProcess.open(productRandom.split());
+                sources.add(new ArrivalSource(stream, shared, weights, arrivalRouting, productRandom.split()));
+            }
+            for (SimulationQueue input : inputQueues.stream().sorted(Comparator.comparingInt(SimulationQueue::getId)).toList()) {
+                ArrivalProcess own = inputArrivals.get(input.getId());
+                if (own == null) continue;
+                ArrivalStream stream = own.open(productRandom.split());
+                sources.add(new ArrivalSource(stream, List.of(input), new int[]{1}, arrivalRouting, productRandom.split()));
+            }
+            return sources;
+        } catch (IOException | UncheckedIOException e) {
+            sources.forEach(ArrivalSource::close);
+            notifyError("Can't open arrivals: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Sets an input queue's share of the session's arrivals under ArrivalRouting.WEIGHTED,
+     * and gives it arrivals of its own instead of a share, or null to share them again
+     */
+    public void setInputArrivals(int queueId, int weight, ArrivalProcess arrivals) {
+        if (!queues.containsKey(queueId)) return;
+        if (weight < 1) {
+            notifyError("Arrival weight must be at least 1");
+            return;
+        }
+        appliedTopology = null;
+        inputWeights.put(queueId, weight);
+        if (arrivals == null) {
+            inputArrivals.remove(queueId);
+        } else {
+            inputArrivals.put(queueId, arrivals);
+        }
+    }
+
+    public int getInputArrivalWeight(int queueId) {
+        return inputWeights.getOrDefault(queueId, 1);
+    }
+
+    /**
+     * The input queue's own arrivals, null if it shares the session's
+     */
+    public ArrivalProcess getInputArrivals(int queueId) {
+        return inputArrivals.get(queueId);
+    }
+
+    /**
+     * Rescales every machine's service time distribution to the mean, keeping its shape
+     */
+    public void setMeanServiceTimeMillis(double meanServiceTimeMillis) {
+        for (Machine machine : machines.values()) {
+            machine.setMeanServiceTimeMillis(meanServiceTimeMillis);
+        }
+        appliedTopology = null;
+    }
+
     /**
      * Adds a machine to the simulation
      */
     public void addMachine(int machineId, Color defaultColor) {
+        appliedTopology = null;
         Machine machine = new Machine(machineId);
         machine.setOriginalColor(defaultColor);
         machine.setRecorder(recorder);
+        machine.setMetrics(metrics.machine(machineId));
         machines.put(machineId, machine);
     }
 
@@ -69,8 +299,10 @@ public class SimulationManager {
      * Adds a queue to the simulation
      */
     public void addQueue(int queueId) {
-        SimulationQueue queue = new SimulationQueue(queueId);
+        appliedTopology = null;
+        SimulationQueue queue = new SimulationQueue(queueId, queueBackend.createBuffer());
         queue.setRecorder(recorder);
+        queue.setMetrics(metrics.queue(queueId));
         queues.put(queueId, queue);
     }
 
@@ -78,6 +310,7 @@ public class SimulationManager {
      * Adds a queue to the list of input queues (where products arrive)
      */
     public void addInputQueue(int queueId) {
+        appliedTopology = null;
         SimulationQueue queue = queues.get(queueId);
         if (queue != null && !inputQueues.contains(queue)) {
             inputQueues.add(queue);
@@ -88,22 +321,143 @@ public class SimulationManager {
      * Removes a queue from the list of input queues
      */
     public void removeInputQueue(int queueId) {
+        appliedTopology = null;
         SimulationQueue queue = queues.get(queueId);
         inputQueues.remove(queue);
+        inputWeights.remove(queueId);
+        inputArrivals.remove(queueId);
     }
 
     /**
      * Connects a machine to its input and output queues
      */
     public void connectMachineToQueues(int machineId, int inputQueueId, int outputQueueId) {
+        connectMachineToQueues(machineId, inputQueueId, outputQueueId, 1);
+    }
+
+    /**
+     * Connects a machine, weight is the output queue's share under RoutingPolicy.WEIGHTED
+     */
+    public void connectMachineToQueues(int machineId, int inputQueueId, int outputQueueId, int weight) {
+        appliedTopology = null;
         Machine machine = machines.get(machineId);
         SimulationQueue inQueue = queues.get(inputQueueId);
         SimulationQueue outQueue = queues.get(outputQueueId);
 
         if (machine != null && inQueue != null && outQueue != null) {
             machine.addInputQueue(inQueue);
-            machine.addOutputQueue(outQueue);
+            machine.addOutputQueue(outQueue, weight);
+        }
+    }
+
+    /**
+     * Selects how a machine spreads its products over its output queues
+     */
+    public void setRoutingPolicy(int machineId, RoutingPolicy routingPolicy) {
+        Machine machine = machines.get(machineId);
+        if (machine == null) return;
+        appliedTopology = null;
+        machine.setRoutingPolicy(routingPolicy);
+    }
+
+    /**
+     * Sets the distribution a machine's service times are drawn from
+     */
+    public void setServiceTime(int machineId, TimeDistribution serviceTime) {
+        Machine machine = machines.get(machineId);
+        if (machine == null) return;
+        appliedTopology = null;
+        machine.setServiceTime(serviceTime);
+    }
+
+    /**
+     * Bounds a queue to capacity products, 0 for unbounded, with the policy for products
+     * arriving while it is full. Under OverflowPolicy.REROUTE the overflow goes to
+     * overflowQueueId, or is dropped if that queue doesn't exist.
+     */
+    public void setQueueCapacity(int queueId, int capacity, OverflowPolicy policy, int overflowQueueId) {
+        SimulationQueue queue = queues.get(queueId);
+        if (queue == null) return;
+        if (capacity < 0) {
+            notifyError("Queue capacity can't be negative");
+            return;
+        }
+        appliedTopology = null;
+        queue.setCapacity(capacity, policy);
+        queue.setOverflowQueue(policy == OverflowPolicy.REROUTE ? queues.get(overflowQueueId) : null);
+    }
+
+    /**
+     * Removes all machines, queues and input queues so the topology can be rebuilt
+     */
+    public void clearTopology() {
+        if (isRunning || isReplaying) {
+            throw new IllegalStateException("Can't change the topology while running or replaying");
+        }
+        machines.clear();
+        queues.clear();
+        inputQueues.clear();
+        inputWeights.clear();
+        inputArrivals.clear();
+        metrics.clear();
+        appliedTopology = null;
+    }
+
+    /**
+     * Replaces the current machines, queues and connections with the topology
+     */
+    public void applyTopology(SimulationTopology topology) {
+        clearTopology();
+        for (SimulationTopology.MachineSpec machine : topology.getMachines()) {
+            addMachine(machine.getId(), machine.getColor());
+            setRoutingPolicy(machine.getId(), machine.getRoutingPolicy());
+            setServiceTime(machine.getId(), machine.getServiceTime());
+        }
+        for (SimulationTopology.QueueSpec queue : topology.getQueues()) {
+            addQueue(queue.getId());
+        }
+        for (SimulationTopology.QueueSpec queue : topology.getQueues()) {
+            if (queue.isInput()) {
+                addInputQueue(queue.getId());
+                setInputArrivals(queue.getId(), queue.getArrivalWeight(), queue.getArrivals());
+            }
+            if (queue.getCapacity() > 0) {
+                setQueueCapacity(queue.getId(), queue.getCapacity(), queue.getOverflowPolicy(),
+                        queue.getOverflowQueueId());
+            }
+        }
+        for (SimulationTopology.ConnectionSpec connection : topology.getConnections()) {
+            connectMachineToQueues(connection.getMachineId(), connection.getInputQueueId(),
+                    connection.getOutputQueueId(), connection.getWeight());
         }
+        appliedTopology = topology;
+    }
+
+    /**
+     * The current topology, with the layout it was applied with if any
+     */
+    public SimulationTopology getTopology() {
+        if (appliedTopology != null) return appliedTopology;
+
+        SimulationTopology topology = new SimulationTopology();
+        for (SimulationQueue queue : queues.values()) {
+            SimulationQueue overflow = queue.getOverflowQueue();
+            topology.addQueue(queue.getId(), inputQueues.contains(queue), queue.getCapacity(),
+                    queue.getOverflowPolicy(), overflow == null ? -1 : overflow.getId(),
+                    getInputArrivalWeight(queue.getId()), getInputArrivals(queue.getId()), Double.NaN, Double.NaN);
+        }
+        for (Machine machine : machines.values()) {
+            topology.addMachine(machine.getId(), machine.getOriginalColor(), machine.getRoutingPolicy(),
+                    machine.getServiceTime(), Double.NaN, Double.NaN);
+            // Every connection added one input and one output queue
+            List<SimulationQueue> inputs = machine.getInputQueues();
+            List<SimulationQueue> outputs = machine.getOutputQueues();
+            int[] weights = machine.getOutputWeights();
+            for (int i = 0; i < Math.min(inputs.size(), outputs.size()); i++) {
+                topology.addConnection(machine.getId(), inputs.get(i).getId(), outputs.get(i).getId(), weights[i]);
+            }
+        }
+        return topology;
     }
 
     // ============================================
@@ -121,62 +475,92 @@ public class SimulationManager {
         }
 
         // Validation
-        if (inputQueues.isEmpty()) {
-            notifyError("No input queue set. Right-click a queue to set it as input.");
+        String error = validateTopology();
+        if (error != null) {
+            notifyError(error);
             return false;
         }
 
-        if (machines.isEmpty()) {
-            notifyError("No machines added. Add at least one machine.");
+        seedRandomStreams();
+        List<ArrivalSource> arrivals = openArrivals();
+        if (arrivals == null) {
             return false;
         }
 
-        // Validate all machines have proper connections
-        for (Machine machine : machines.values()) {
-            if (machine.getInputQueues().isEmpty()) {
-                notifyError("Machine M" + machine.getId() + " has no input queue connected.");
-                return false;
-            }
-            if (machine.getOutputQueues().isEmpty()) {
-                notifyError("Machine M" + machine.getId() + " has no output queue connected.");
-                return false;
-            }
+        if (!startRecording()) {
+            arrivals.forEach(ArrivalSource::close);
+            return false;
         }
 
         // Start simulation
         isRunning = true;
         nextProductId = 0;
-        recorder.startRecording();
 
         // Clear all queues before starting
         clearAllQueues();
+        resetMachines();
+        metrics.start(SimulationClock.SYSTEM, sinkQueueIds());
 
         // Start machine threads
         machineThreads.clear();
-        for (Machine machine : machines.values()) {
-            Thread thread = new Thread(machine, "Machine-" + machine.getId());
-            thread.setDaemon(true);
-            machineThreads.add(thread);
-            thread.start();
+        if (threadingMode == ThreadingMode.POOLED) {
+            startMachinePool();
+        } else {
+            for (Machine machine : machines.values()) {
+                Thread thread = newThread(machine, "Machine-" + machine.getId());
+                machineThreads.add(thread);
+                thread.start();
+            }
         }
 
         // Start product generator thread
-        productGeneratorThread = new Thread(this::generateProducts, "ProductGenerator");
-        productGeneratorThread.setDaemon(true);
+        productGeneratorThread = newThread(() -> generateProducts(arrivals), "ProductGenerator");
         productGeneratorThread.start();
 
-        // Start UI updater (updates UI every 100ms)
-        uiUpdater = Executors.newSingleThreadScheduledExecutor(r -> {
-            Thread t = new Thread(r, "UI-Updater");
-            t.setDaemon(true);
-            return t;
-        });
-        uiUpdater.scheduleAtFixedRate(this::updateUI, 0, 100, TimeUnit.MILLISECONDS);
+        // Start UI updater (updates UI every 100ms), headless runs have nothing to update
+        if (callback != null) {
+            reportedQueueSizes.clear();
+            reportedQueueDrops.clear();
+            reportedQueueBlocks.clear();
+            reportedMachineColors.clear();
+            reportedMachineStatuses.clear();
+            uiUpdater = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "UI-Updater");
+                t.setDaemon(true);
+                return t;
+            });
+            uiUpdater.scheduleAtFixedRate(this::updateUI, 0, 100, TimeUnit.MILLISECONDS);
+        }
 
         notifySimulationStarted();
         return true;
     }
 
+    /**
+     * Checks that the topology can be simulated
+     * Returns an error message, or null if the topology is valid
+     */
+    String validateTopology() {
+        if (inputQueues.isEmpty()) {
+            return "No input queue set. Right-click a queue to set it as input.";
+        }
+
+        if (machines.isEmpty()) {
+            return "No machines added. Add at least one machine.";
+        }
+
+        // Validate all machines have proper connections
+        for (Machine machine : machines.values()) {
+            if (machine.getInputQueues().isEmpty()) {
+                return "Machine M" + machine.getId() + " has no input queue connected.";
+            }
+            if (machine.getOutputQueues().isEmpty()) {
+                return "Machine M" + machine.getId() + " has no output queue connected.";
+            }
+        }
+        return null;
+    }
+
     /**
      * Stops the running simulation
      */
@@ -214,6 +598,8 @@ public class SimulationManager {
             }
         }
         machineThreads.clear();
+        stopMachinePool();
+        metrics.stop();
 
         // Stop UI updater
         if (uiUpdater != null) {
@@ -223,17 +609,173 @@ public class SimulationManager {
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             }
+            uiUpdater = null;
+        }
+
+        if (!recordingEnabled) {
+            notifySimulationStopped(0);
+            return;
         }
 
         // Save the simulation to memento
-        SimulationMemento memento = recorder.createMemento();
+        SimulationMemento memento = saveRecording();
+        if (memento == null) return;
         System.out.println("stopSimulation: Memento created with event count: " + memento.getEventCount());
-        caretaker.addMemento(memento);
         System.out.println("stopSimulation: Memento added to caretaker. Total mementos: " + caretaker.getMementoCount());
 
         notifySimulationStopped(memento.getEventCount());
     }
 
+    /**
+     * Starts recording, returns false if the recording file can't be created
+     */
+    private boolean startRecording() {
+        if (!recordingEnabled) return true;
+        try {
+            recorder.startRecording();
+            return true;
+        } catch (UncheckedIOException e) {
+            notifyError("Can't start recording: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Adds the recording to the saved simulations and returns it, or null if it couldn't be saved
+     */
+    private SimulationMemento saveRecording() {
+        try {
+            SimulationMemento memento = recorder.createMemento();
+            memento.setTopology(getTopology());
+            caretaker.addMemento(memento);
+            return memento;
+        } catch (UncheckedIOException e) {
+            notifyError("Can't save recording: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // ============================================
+    // SAVING AND LOADING RECORDINGS
+    // ============================================
+
+    /**
+     * Saves the last recorded simulation with its topology to a file
+     * Returns true if saved successfully, false if there's an error
+     */
+    public boolean exportRecording(Path file, boolean compress) {
+        SimulationMemento memento = caretaker.getLastMemento();
+        if (memento == null) {
+            notifyError("No simulation to save. Run a simulation first.");
+            return false;
+        }
+        SimulationTopology topology = memento.getTopology() != null ? memento.getTopology() : getTopology();
+        try (OutputStream out = Files.newOutputStream(file)) {
+            RecordingWriter.write(memento, topology, out, compress);
+            return true;
+        } catch (IOException | UncheckedIOException e) {
+            notifyError("Can't save recording: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Loads a recording saved with exportRecording and applies its topology,
+     * the recording is then the one replayed.
+     * Returns the topology, or null if there's an error
+     */
+    public SimulationTopology importRecording(Path file) {
+        if (isRunning || isReplaying) {
+            notifyError("Stop the simulation or replay before loading a recording");
+            return null;
+        }
+        try (RecordingReader reader = new RecordingReader(Files.newInputStream(file))) {
+            SimulationMemento memento = recorder.loadRecording(reader);
+            memento.setTopology(reader.getTopology());
+            applyTopology(reader.getTopology());
+            caretaker.addMemento(memento);
+            return reader.getTopology();
+        } catch (IOException | UncheckedIOException e) {
+            notifyError("Can't load recording: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // ============================================
+    // DISCRETE-EVENT SIMULATION
+    // ============================================
+
+    /**
+     * Runs the simulation on a virtual clock for the given simulated duration.
+     * Blocks until done; the recording is saved like a real-time run and can be replayed.
+     * With the LOCK_FREE backend every queue is bounded by its ring, products past it are held.
+     * Returns true if the run completed, false if there's an error
+     */
+    public boolean runDiscreteEvent(long simulatedMillis) {
+        if (isRunning) {
+            notifyError("Simulation is already running");
+            return false;
+        }
+
+        String error = validateTopology();
+        if (error != null) {
+            notifyError(error);
+            return false;
+        }
+
+        seedRandomStreams();
+        List<ArrivalSource> arrivals = openArrivals();
+        if (arrivals == null) {
+            return false;
+        }
+
+        VirtualClock clock = new VirtualClock();
+        recorder.setClock(clock);
+        if (!startRecording()) {
+            recorder.setClock(SimulationClock.SYSTEM);
+            arrivals.forEach(ArrivalSource::close);
+            return false;
+        }
+        isRunning = true;
+        nextProductId = 0;
+        clearAllQueues();
+        resetMachines();
+        metrics.start(clock, sinkQueueIds());
+        notifySimulationStarted();
+
+        DiscreteEventEngine engine = new DiscreteEventEngine(
+                clock,
+                machines.values(),
+                arrivals,
+                this::injectProduct
+        );
+        boolean completed = true;
+        try {
+            engine.run(simulatedMillis * 1_000_000L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            completed = false;
+        } catch (UncheckedIOException e) {
+            notifyError("Can't read arrivals: " + e.getMessage());
+            completed = false;
+        } finally {
+            arrivals.forEach(ArrivalSource::close);
+            metrics.stop();
+            recorder.stopRecording();
+            recorder.setClock(SimulationClock.SYSTEM);
+            isRunning = false;
+        }
+
+        if (!recordingEnabled) {
+            notifySimulationStopped(0);
+            return completed;
+        }
+        SimulationMemento memento = saveRecording();
+        if (memento == null) return false;
+        notifySimulationStopped(memento.getEventCount());
+        return completed;
+    }
+
     // ============================================
     // REPLAY CONTROL
     // ============================================
@@ -270,10 +812,10 @@ public class SimulationManager {
 
         replayer = new SimulationReplayer(memento);
         replayer.startReplay();
+        pendingSeek = -1;
 
         // Start replay thread
-        replayThread = new Thread(this::runReplay, "ReplayThread");
-        replayThread.setDaemon(true);
+        replayThread = newThread(this::runReplay, "ReplayThread");
         replayThread.start();
 
         notifyReplayStarted(memento.getEventCount());
@@ -281,38 +823,95 @@ public class SimulationManager {
     }
 
     /**
-     * The main replay loop - processes events with timing
+     * The main replay loop - releases every due event in one batch, then parks
+     * until the next event is due, but at least until the next frame.
+     * While paused it parks until woken; pause, speed changes, seeks and stop unpark it.
      */
     private void runReplay() {
-        long lastEventTimestamp = -1;
-        while (isReplaying && replayer.hasMoreEvents()) {
-            if (!isPaused) {
-                SimulationEvent event = replayer.peekNext();
-                if (event != null) {
-                    long eventTimestamp = event.getTimestamp();
-                    if (lastEventTimestamp != -1) {
-                        long delay = (long) ((eventTimestamp - lastEventTimestamp) / replayer.getReplaySpeed());
-                        if (delay > 0) {
-                            try {
-                                Thread.sleep(delay);
-                            } catch (InterruptedException e) {
-                                break;
-                            }
-                        }
-                    }
-                    event = replayer.getNextEvent();
-                    if (event != null) {
-                        // Process event on JavaFX thread
-                        SimulationEvent finalEvent = event;
-                        Platform.runLater(() -> processReplayEvent(finalEvent));
-                    }
-                    lastEventTimestamp = eventTimestamp;
-                }
+        while (isReplaying && (replayer.hasMoreEvents() || pendingSeek >= 0)) {
+            int seek = pendingSeek;
+            if (seek >= 0) {
+                pendingSeek = -1;
+                ReplayState state = replayer.seekTo(seek);
+                callbackExecutor.execute(() -> applyReplayState(state));
+                continue;
+            }
+
+            int from = replayer.getCurrentEventIndex();
+            int to = replayer.takeDueEvents();
+            if (to > from) {
+                // Process the batch on the callback executor
+                callbackExecutor.execute(() -> processReplayEvents(from, to));
+            }
+
+            long wait = replayer.nanosUntilNextEvent();
+            if (wait == Long.MAX_VALUE) {
+                // Paused or done, a spurious wakeup just goes round the loop again
+                if (replayer.hasMoreEvents()) LockSupport.park(this);
+            } else {
+                LockSupport.parkNanos(this, Math.max(wait, REPLAY_FRAME_NANOS));
             }
         }
 
         isReplaying = false;
-        Platform.runLater(this::notifyReplayFinished);
+        callbackExecutor.execute(this::notifyReplayFinished);
+    }
+
+    /**
+     * Wakes the replay thread to look at the replay state again
+     */
+    private void wakeReplay() {
+        Thread thread = replayThread;
+        if (thread != null) LockSupport.unpark(thread);
+    }
+
+    /**
+     * Moves the running replay to the event at eventIndex,
+     * queues and machines are restored to their state at that point
+     */
+    public void seekReplay(int eventIndex) {
+        if (!isReplaying || replayThread == null) return;
+        pendingSeek = Math.max(0, eventIndex);
+        // Wake the replay thread if it's waiting for the next event
+        wakeReplay();
+    }
+
+    /**
+     * Replaces queue contents and machine colors with a state rebuilt by the replayer
+     */
+    private void applyReplayState(ReplayState state) {
+        Map<Integer, List<Product>> contents = state.getQueueContents();
+        for (SimulationQueue queue : queues.values()) {
+            queue.clear();
+            for (Product product : contents.getOrDefault(queue.getId(), List.of())) {
+                queue.enqueueWithoutRecord(product);
+            }
+            queue.setOverflowCountsWithoutRecord(state.getDroppedCounts().getOrDefault(queue.getId(), 0L),
+                    state.getBlockedCounts().getOrDefault(queue.getId(), 0));
+        }
+        if (callback == null) return;
+
+        for (SimulationQueue queue : queues.values()) {
+            callback.onQueueSizeChanged(queue.getId(), queue.size());
+            callback.onQueueOverflowChanged(queue.getId(), queue.getDroppedCount(), queue.getBlockedCount());
+        }
+        for (Machine machine : machines.values()) {
+            callback.onMachineColorChanged(machine.getId(),
+                    state.getMachineColors().getOrDefault(machine.getId(), machine.getOriginalColor()));
+            callback.onMachineStatusChanged(machine.getId(),
+                    state.getMachineStatuses().getOrDefault(machine.getId(), "IDLE"));
+        }
+        callback.onReplayProgress(replayer.getProgress());
+    }
+
+    /**
+     * Processes the replay events from index from up to to, then reports progress once
+     */
+    private void processReplayEvents(int from, int to) {
+        for (int i = from; i < to; i++) {
+            processReplayEvent(replayer.getEvent(i));
+        }
+        if (callback != null) callback.onReplayProgress((double) to / replayer.getTotalEvents());
     }
 
     /**
@@ -350,19 +949,41 @@ public class SimulationManager {
 
             case MACHINE_STARTED_PROCESSING:
                 callback.onMachineStartedProcessing(event.getEntityId(), event.getProduct());
+                callback.onMachineStatusChanged(event.getEntityId(), "PROCESSING");
                 break;
 
             case MACHINE_FINISHED_PROCESSING:
                 callback.onMachineFinishedProcessing(event.getEntityId(), event.getProduct());
+                callback.onMachineStatusChanged(event.getEntityId(), "IDLE");
                 break;
 
             case MACHINE_COLOR_CHANGED:
                 callback.onMachineColorChanged(event.getEntityId(), event.getColor());
                 break;
-        }
 
-        // Update replay progress
-        callback.onReplayProgress(replayer.getProgress());
+            case QUEUE_BLOCKED:
+            case QUEUE_UNBLOCKED:
+            case PRODUCT_DROPPED: {
+                SimulationQueue queue = queues.get(event.getEntityId());
+                if (queue != null) {
+                    long dropped = queue.getDroppedCount();
+                    int blocked = queue.getBlockedCount();
+                    switch (event.getEvent()) {
+                        case QUEUE_BLOCKED -> blocked++;
+                        case QUEUE_UNBLOCKED -> blocked--;
+                        default -> {
+                            // Drop oldest discards a product that is in the queue
+                            dropped++;
+                            queue.dequeueWithoutRecord(event.getProduct());
+                            callback.onQueueSizeChanged(event.getEntityId(), queue.size());
+                        }
+                    }
+                    queue.setOverflowCountsWithoutRecord(dropped, blocked);
+                    callback.onQueueOverflowChanged(event.getEntityId(), dropped, blocked);
+                }
+                break;
+            }
+        }
     }
 
     /**
@@ -377,18 +998,16 @@ public class SimulationManager {
                 replayer.pauseReplay();
                 isPaused = true;
             }
+            wakeReplay();
         }
     }
 
     /**
-     * Stops the current replay
+     * Stops the current replay, the replay thread reports it finished as it exits
      */
     public void stopReplay() {
         isReplaying = false;
-        if (replayThread != null) {
-            replayThread.interrupt();
-        }
-        notifyReplayFinished();
+        wakeReplay();
     }
 
     /**
@@ -397,6 +1016,7 @@ public class SimulationManager {
     public void setReplaySpeed(double speed) {
         if (replayer != null) {
             replayer.setReplaySpeed(speed);
+            wakeReplay();
         }
     }
 
@@ -405,47 +1025,136 @@ public class SimulationManager {
     // ============================================
 
     /**
-     * Generates products at random intervals and adds them to the input queue
+     * Generates products on the schedule of the arrival sources and adds them to the input queues.
+     * Arrival times are kept in nanoseconds on the schedule, not as sleeps after each product:
+     * the generator parks until the earliest source's next arrival is due, then injects every
+     * arrival due by then back to back as one batch, reading the clock again only when it has
+     * caught up. A batch costs one wake-up however many products it holds, so high rates don't
+     * lose arrivals to timer granularity.
      */
-    private void generateProducts() {
-        Random rand = new Random();
-        while (isRunning) {
-            try {
-                int arrivalTime = MIN_ARRIVAL_TIME + rand.nextInt(MAX_ARRIVAL_TIME - MIN_ARRIVAL_TIME + 1);
-                Thread.sleep(arrivalTime);
-
-                // Generate random color
-                Color[] colors = Color.values();
-                Color randomColor = colors[(int)(Math.random() * colors.length)];
-
-                // Create product
-                Product product = new Product(nextProductId++, randomColor);
-
-                // Pick a random input queue to inject the product into (or inject into all)
-                if (!inputQueues.isEmpty()) {
-                    // Option 1: Inject into all input queues
-                    for (SimulationQueue inputQueue : inputQueues) {
-                        recorder.recordEvent(new SimulationEvent(
-                                Event.PRODUCT_ARRIVED,
-                                inputQueue.getId(),
-                                product,
-                                randomColor
-                        ));
-                        inputQueue.enqueue(product);
-                        if (callback != null) {
-                            Platform.runLater(() -> {
-                                callback.onProductArrived(product);
-                                callback.onQueueSizeChanged(inputQueue.getId(), inputQueue.size());
-                            });
-                        }
+    private void generateProducts(List<ArrivalSource> sources) {
+        try {
+            long now = System.nanoTime();
+            // Next arrival of each source, Long.MAX_VALUE once a trace ran out
+            long[] due = new long[sources.size()];
+            for (int i = 0; i < due.length; i++) {
+                long gap = sources.get(i).nextGapNanos();
+                due[i] = gap < 0 ? Long.MAX_VALUE : now + gap;
+            }
+            while (isRunning) {
+                // A source per input at most, few enough to scan
+                int next = 0;
+                for (int i = 1; i < due.length; i++) {
+                    if (due[i] < due[next]) next = i;
+                }
+                if (due[next] == Long.MAX_VALUE) break;
+                if (due[next] > now) {
+                    now = System.nanoTime();
+                    if (now - due[next] > MAX_ARRIVAL_LAG_NANOS) {
+                        due[next] = now;
+                    }
+                    while (due[next] > now) {
+                        LockSupport.parkNanos(due[next] - now);
+                        if (Thread.currentThread().isInterrupted()) return;
+                        now = System.nanoTime();
                     }
                 }
+                ArrivalSource source = sources.get(next);
+                injectProduct(source);
+                long gap = source.nextGapNanos();
+                due[next] = gap < 0 ? Long.MAX_VALUE : due[next] + gap;
+            }
+        } catch (UncheckedIOException e) {
+            // Stopping interrupts a trace read, closing its channel
+            if (isRunning) notifyError("Can't read arrivals: " + e.getMessage());
+        } finally {
+            sources.forEach(ArrivalSource::close);
+        }
+    }
 
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
+    /**
+     * Creates the source's next product and injects it into the input queue it is routed to,
+     * or a copy into each of its inputs when broadcasting. Live runs report the arrivals to the UI.
+     */
+    private void injectProduct(ArrivalSource source) {
+        if (!source.isBroadcast()) {
+            injectProduct(nextProduct(), source.route());
+            return;
+        }
+        // Every input gets a product of its own, so each is timed and completed on its own
+        Product original = null;
+        for (SimulationQueue inputQueue : source.getInputs()) {
+            Product product = original == null ? (original = nextProduct()) : copyOf(original);
+            injectProduct(product, inputQueue);
+        }
+    }
+
+    private void injectProduct(Product product, SimulationQueue inputQueue) {
+        metrics.getSystem().onArrived(product);
+        recorder.recordEvent(Event.PRODUCT_ARRIVED, inputQueue.getId(), product, product.getProductColor());
+        // A full blocking input, or a full lock-free ring, holds the generator up until there's room
+        inputQueue.enqueue(product);
+        if (callback != null) {
+            callbackExecutor.execute(() -> {
+                callback.onProductArrived(product);
+                callback.onQueueSizeChanged(inputQueue.getId(), inputQueue.size());
+            });
+        }
+    }
+
+    /**
+     * Creates the source's next products like injectProduct without ever waiting, for
+     * discrete event runs. A full blocking input holds its product, onAdmitted runs once
+     * every input has taken its product in. Returns the queues the products went to.
+     */
+    private List<SimulationQueue> injectProduct(ArrivalSource source, Runnable onAdmitted) {
+        // One for each held product, and one for the loop so a product taken in early can't finish it
+        AtomicInteger pending = new AtomicInteger(1);
+        Runnable admitted = () -> {
+            if (pending.decrementAndGet() == 0) onAdmitted.run();
+        };
+        List<SimulationQueue> landed;
+        if (!source.isBroadcast()) {
+            landed = List.of(holdProduct(nextProduct(), source.route(), pending, admitted));
+        } else {
+            landed = new ArrayList<>(source.getInputs().size());
+            Product original = null;
+            for (SimulationQueue inputQueue : source.getInputs()) {
+                Product product = original == null ? (original = nextProduct()) : copyOf(original);
+                landed.add(holdProduct(product, inputQueue, pending, admitted));
             }
         }
+        admitted.run();
+        return landed;
+    }
+
+    /**
+     * Returns the queue the product went to, the input itself while it holds the product
+     */
+    private SimulationQueue holdProduct(Product product, SimulationQueue inputQueue, AtomicInteger pending, Runnable admitted) {
+        metrics.getSystem().onArrived(product);
+        recorder.recordEvent(Event.PRODUCT_ARRIVED, inputQueue.getId(), product, product.getProductColor());
+        pending.incrementAndGet();
+        SimulationQueue landed = inputQueue.enqueueOrHold(product, admitted);
+        if (landed == null) return inputQueue;
+        admitted.run();
+        return landed;
+    }
+
+    private Product nextProduct() {
+        // Generate random color
+        Color[] colors = Color.values();
+        Color randomColor = colors[productRandom.nextInt(colors.length)];
+
+        // Create product
+        return new Product(nextProductId++, randomColor);
+    }
+
+    /**
+     * A broadcast copy: same color, but an id of its own
+     */
+    private Product copyOf(Product product) {
+        return new Product(nextProductId++, product.getProductColor());
     }
 
     // ============================================
@@ -453,25 +1162,53 @@ public class SimulationManager {
     // ============================================
 
     /**
-     * Periodically updates the UI with current simulation state
+     * Periodically reports the queue sizes, overflow counts and machine colors and statuses that changed
+     * since the last report. Only called from the UI updater thread.
      */
     private void updateUI() {
         if (!isRunning || callback == null) {
             return;
         }
 
-        Platform.runLater(() -> {
-            // Update all queue sizes
-            for (Map.Entry<Integer, SimulationQueue> entry : queues.entrySet()) {
-                callback.onQueueSizeChanged(entry.getKey(), entry.getValue().size());
+        Map<Integer, Integer> sizes = new HashMap<>();
+        Map<Integer, Color> colors = new HashMap<>();
+        Map<Integer, String> statuses = new HashMap<>();
+        Map<Integer, Long> drops = new HashMap<>();
+        Map<Integer, Integer> blocks = new HashMap<>();
+        for (SimulationQueue queue : queues.values()) {
+            int size = queue.size();
+            if (!Objects.equals(reportedQueueSizes.put(queue.getId(), size), size)) {
+                sizes.put(queue.getId(), size);
             }
-
-            // Update all machine colors and status
-            for (Map.Entry<Integer, Machine> entry : machines.entrySet()) {
-                Machine machine = entry.getValue();
-                callback.onMachineColorChanged(machine.getId(), machine.getCurrentColor());
-                callback.onMachineStatusChanged(machine.getId(), machine.getStatus());
+            long dropped = queue.getDroppedCount();
+            int blocked = queue.getBlockedCount();
+            boolean dropsChanged = !Objects.equals(reportedQueueDrops.put(queue.getId(), dropped), dropped);
+            boolean blocksChanged = !Objects.equals(reportedQueueBlocks.put(queue.getId(), blocked), blocked);
+            if (dropsChanged || blocksChanged) {
+                drops.put(queue.getId(), dropped);
+                blocks.put(queue.getId(), blocked);
+            }
+        }
+        for (Machine machine : machines.values()) {
+            Color color = machine.getCurrentColor();
+            if (color != null && reportedMachineColors.put(machine.getId(), color) != color) {
+                colors.put(machine.getId(), color);
             }
+            String status = machine.getStatus();
+            if (!Objects.equals(reportedMachineStatuses.put(machine.getId(), status), status)) {
+                statuses.put(machine.getId(), status);
+            }
+        }
+        if (sizes.isEmpty() && colors.isEmpty() && statuses.isEmpty() && drops.isEmpty()) {
+            return;
+        }
+
+        callbackExecutor.execute(() -> {
+            sizes.forEach(callback::onQueueSizeChanged);
+            drops.forEach((queueId, dropped) ->
+                    callback.onQueueOverflowChanged(queueId, dropped, blocks.get(queueId)));
+            colors.forEach(callback::onMachineColorChanged);
+            statuses.forEach(callback::onMachineStatusChanged);
         });
     }
 
@@ -479,14 +1216,76 @@ public class SimulationManager {
     // HELPER METHODS
     // ============================================
 
+    /**
+     * Runs the machines as tasks on a work-stealing pool, with one timer thread for service times
+     */
+    private void startMachinePool() {
+        machinePool = new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+                ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        machineTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "Machine-Timer");
+            t.setDaemon(true);
+            return t;
+        });
+        for (Machine machine : machines.values()) {
+            machine.startPooled(machinePool, machineTimer);
+        }
+    }
+
+    private void stopMachinePool() {
+        if (machinePool == null) return;
+        for (Machine machine : machines.values()) {
+            machine.stopPooled();
+        }
+        machineTimer.shutdownNow();
+        machinePool.shutdownNow();
+        try {
+            machinePool.awaitTermination(1000, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        machinePool = null;
+        machineTimer = null;
+    }
+
+    /**
+     * Creates an unstarted daemon thread of the session's threading mode
+     */
+    private Thread newThread(Runnable task, String name) {
+        if (threadingMode == ThreadingMode.VIRTUAL) {
+            return Thread.ofVirtual().name(name).unstarted(task);
+        }
+        return Thread.ofPlatform().name(name).daemon(true).unstarted(task);
+    }
+
+    /**
+     * Queues no machine takes from, products reaching them have left the line
+     */
+    private Set<Integer> sinkQueueIds() {
+        Set<Integer> sinks = new HashSet<>(queues.keySet());
+        for (Machine machine : machines.values()) {
+            for (SimulationQueue input : machine.getInputQueues()) {
+                sinks.remove(input.getId());
+            }
+        }
+        return sinks;
+    }
+
     /**
      * Clears all queues
      */
     private void clearAllQueues() {
         for (SimulationQueue queue : queues.values()) {
-            while (!queue.isEmpty()) {
-                queue.dequeue();
-            }
+            queue.clear();
+        }
+    }
+
+    /**
+     * Clears what the machines kept from the previous run, so counts start from zero
+     */
+    private void resetMachines() {
+        for (Machine machine : machines.values()) {
+            machine.resetForRun();
         }
     }
 
@@ -496,19 +1295,19 @@ public class SimulationManager {
 
     private void notifySimulationStarted() {
         if (callback != null) {
-            Platform.runLater(() -> callback.onSimulationStarted());
+            callbackExecutor.execute(() -> callback.onSimulationStarted());
         }
     }
 
     private void notifySimulationStopped(int eventCount) {
         if (callback != null) {
-            Platform.runLater(() -> callback.onSimulationStopped(eventCount));
+            callbackExecutor.execute(() -> callback.onSimulationStopped(eventCount));
         }
     }
 
     private void notifyReplayStarted(int totalEvents) {
         if (callback != null) {
-            Platform.runLater(() -> callback.onReplayStarted(totalEvents));
+            callbackExecutor.execute(() -> callback.onReplayStarted(totalEvents));
         }
     }
 
@@ -521,7 +1320,7 @@ public class SimulationManager {
     private void notifyError(String message) {
         System.out.println("SimulationManager.notifyError: " + message);
         if (callback != null) {
-            Platform.runLater(() -> callback.onError(message));
+            callbackExecutor.execute(() -> callback.onError(message));
         }
     }
 
@@ -553,6 +1352,29 @@ public class SimulationManager {
         caretaker.clear();
     }
 
+    public SimulationMemento getLastMemento() {
+        return caretaker.getLastMemento();
+    }
+
+    public int getGeneratedProductCount() {
+        return nextProductId;
+    }
+
+    /**
+     * Metrics of the current or last run, also registered as MBeans
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    public Map<Integer, Machine> getMachines() {
+        return Collections.unmodifiableMap(machines);
+    }
+
+    public Map<Integer, SimulationQueue> getQueues() {
+        return Collections.unmodifiableMap(queues);
+    }
+
     // ============================================
     // CLEANUP
     // ============================================
@@ -569,6 +1391,7 @@ public class SimulationManager {
         }
         machines.clear();
         queues.clear();
+        metrics.close();
     }
 }
 
@@ -1,82 +1,342 @@
 package org.example.producerconsumergui.Model;
 
 import org.example.producerconsumergui.Memento.Event;
-import org.example.producerconsumergui.Memento.SimulationEvent;
 import org.example.producerconsumergui.Memento.SimulationRecorder;
+import org.example.producerconsumergui.Metrics.QueueMetrics;
 
-import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 
 public class SimulationQueue {
+    // Overflow queues followed at most, so a cycle of full rerouting queues ends in a drop
+    private static final int MAX_REROUTES = 8;
+
     private int id;
-    private final Queue<Product> queue = new LinkedList<>();
-    private final List<MachineObserver> observerList = new ArrayList<>();
+    private final ProductBuffer buffer;
+    // Products the buffer itself can take, Integer.MAX_VALUE if it grows
+    private final int bufferCapacity;
+    // Consumers of the queue, registered once and replaced as a whole so publishing reads it without locking
+    private volatile MachineObserver[] observers = new MachineObserver[0];
+    // Products in the buffer, kept next to it so routing can read the length without locking.
+    // Products reserve a slot here before publishing, so it never passes the capacity or the buffer's size.
+    private final AtomicInteger depth = new AtomicInteger();
     private SimulationRecorder recorder;
+    private QueueMetrics metrics;
+
+    // 0 means unbounded
+    private volatile int capacity = 0;
+    private volatile OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+    private volatile SimulationQueue overflowQueue;
+    // Products waiting for a slot under OverflowPolicy.BLOCK, taken in arrival order
+    private final Queue<Held> held = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger blockedCount = new AtomicInteger();
+    private final LongAdder droppedCount = new LongAdder();
+
+    private static final class Held {
+        final Product product;
+        final Runnable onAdmitted;
+
+        Held(Product product, Runnable onAdmitted) {
+            this.product = product;
+            this.onAdmitted = onAdmitted;
+        }
+    }
 
     public SimulationQueue(int id) {
+        this(id, QueueBackend.SYNCHRONIZED.createBuffer());
+    }
+
+    public SimulationQueue(int id, ProductBuffer buffer) {
         this.id = id;
+        this.buffer = buffer;
+        this.bufferCapacity = buffer.capacity();
     }
 
     public void setRecorder(SimulationRecorder recorder) {
         this.recorder = recorder;
     }
 
+    public void setMetrics(QueueMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    // ============================================
+    // CAPACITY
+    // ============================================
+
+    /**
+     * Bounds the queue to capacity products, 0 for unbounded.
+     * The policy decides what happens to products arriving while it is full.
+     * A buffer with a fixed size of its own also bounds the queue; products that find
+     * it full wait for a slot as under OverflowPolicy.BLOCK, whatever the policy.
+     */
+    public void setCapacity(int capacity, OverflowPolicy overflowPolicy) {
+        if (capacity < 0) throw new IllegalArgumentException("Capacity can't be negative");
+        if (overflowPolicy == null) throw new NullPointerException("overflowPolicy can't be null");
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        // A larger capacity may have room for products already waiting
+        admitHeld();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Queue that takes the overflow under OverflowPolicy.REROUTE, null to drop it
+     */
+    public void setOverflowQueue(SimulationQueue overflowQueue) {
+        this.overflowQueue = overflowQueue == this ? null : overflowQueue;
+    }
+
+    public SimulationQueue getOverflowQueue() {
+        return overflowQueue;
+    }
+
+    public boolean isFull() {
+        return depth.get() >= bound(capacity);
+    }
+
+    /**
+     * Most products the queue takes in for the given capacity, the buffer's own size if smaller
+     */
+    private int bound(int limit) {
+        return limit > 0 && limit < bufferCapacity ? limit : bufferCapacity;
+    }
+
+    /**
+     * Products discarded because the queue was full
+     */
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    /**
+     * Producers currently waiting for a slot
+     */
+    public int getBlockedCount() {
+        return blockedCount.get();
+    }
+
+    // ============================================
+    // PRODUCTS
+    // ============================================
+
+    /**
+     * Adds a product, a full queue applies its overflow policy.
+     * Under OverflowPolicy.BLOCK the calling thread waits for a free slot;
+     * if it is interrupted meanwhile the product is dropped and the interrupt kept.
+     */
     public void enqueue(Product product) {
-        MachineObserver machine = null;
-        synchronized (this) {
-            queue.add(product);
-            // Record product enqueue
-            if (recorder != null) {
-                recorder.recordEvent(new SimulationEvent(
-                        Event.PRODUCT_ENQUEUED,
-                        id,
-                        product,
-                        product.getProductColor()
-                ));
+        if (offer(product, 0) != null) return;
+
+        Thread waiter = Thread.currentThread();
+        AtomicBoolean admitted = new AtomicBoolean();
+        Held ticket = new Held(product, () -> {
+            admitted.set(true);
+            LockSupport.unpark(waiter);
+        });
+        hold(ticket);
+
+        boolean interrupted = false;
+        while (!admitted.get()) {
+            LockSupport.park(this);
+            if (Thread.interrupted()) {
+                interrupted = true;
+                if (held.remove(ticket)) {
+                    blockedCount.decrementAndGet();
+                    record(Event.QUEUE_UNBLOCKED, product);
+                    drop(product, false);
+                    break;
+                }
+                // Taken in meanwhile, the flag is about to be set
             }
-            if (!observerList.isEmpty()) {
-                machine = observerList.removeFirst();
+        }
+        if (interrupted) waiter.interrupt();
+    }
+
+    /**
+     * Adds a product without ever waiting. Under OverflowPolicy.BLOCK a full queue
+     * holds the product and runs onAdmitted once it is taken in, on the thread that
+     * freed the slot, possibly before this returns.
+     * Returns null if the product is held, otherwise the queue it went to: this one, or the
+     * overflow queue that took it under OverflowPolicy.REROUTE, the last one tried if it was dropped.
+     */
+    public SimulationQueue enqueueOrHold(Product product, Runnable onAdmitted) {
+        SimulationQueue landed = offer(product, 0);
+        if (landed != null) return landed;
+        hold(new Held(product, onAdmitted));
+        return null;
+    }
+
+    /**
+     * Returns the queue that took the product in or dropped it, null if this one is full
+     */
+    private SimulationQueue offer(Product product, int reroutes) {
+        int limit = capacity;
+        int bound = bound(limit);
+        // Products don't overtake the ones already waiting for a slot
+        if (held.isEmpty() && tryReserve(bound)) {
+            publish(product);
+            return this;
+        }
+        // The policy only applies to the capacity, a full buffer always holds the product back
+        if (limit <= 0 || limit > bufferCapacity) return null;
+
+        switch (overflowPolicy) {
+            case DROP_OLDEST: {
+                Product oldest;
+                while ((oldest = buffer.poll()) == null) {
+                    // Emptied meanwhile, or the slots are reserved by products still being published
+                    if (tryReserve(bound)) {
+                        publish(product);
+                        return this;
+                    }
+                    Thread.onSpinWait();
+                }
+                // The product takes over the dropped one's slot
+                drop(oldest, true);
+                publish(product);
+                return this;
             }
+            case REROUTE: {
+                SimulationQueue target = overflowQueue;
+                if (target != null && reroutes < MAX_REROUTES) {
+                    SimulationQueue landed = target.offer(product, reroutes + 1);
+                    if (landed != null) return landed;
+                }
+                drop(product, false);
+                return this;
+            }
+            case DROP_NEWEST:
+                drop(product, false);
+                return this;
+            default:
+                return null;
+        }
+    }
+
+    private boolean tryReserve(int limit) {
+        if (limit == Integer.MAX_VALUE) {
+            depth.incrementAndGet();
+            return true;
         }
-        if (machine != null) {
-            machine.notifyProduct(this);
+        while (true) {
+            int current = depth.get();
+            if (current >= limit) return false;
+            if (depth.compareAndSet(current, current + 1)) return true;
         }
     }
 
-    public synchronized Product dequeue() {
-        Product product =  queue.poll();
-        if (product != null&& recorder != null) {
-            recorder.recordEvent(new SimulationEvent(
-                    Event.PRODUCT_DEQUEUED,
-                    id,
-                    product,
-                    product.getProductColor()
-            ));
+    /**
+     * Puts a product with a reserved slot in the buffer and wakes an idle consumer
+     */
+    private void publish(Product product) {
+        // Record before publishing so the enqueue is always recorded before its dequeue
+        record(Event.PRODUCT_ENQUEUED, product);
+        if (metrics != null) metrics.onEnqueued(product);
+        // The reservation keeps depth within the buffer's size, so a slot is only briefly
+        // taken by a consumer that has claimed it and is still reading it out
+        while (!buffer.offer(product)) {
+            Thread.onSpinWait();
+        }
+        // Publishing before waking an observer pairs with the machine marking itself idle
+        // before it rechecks its inputs, so either we see it idle or the machine sees the product.
+        // Active machines decline, the next one is asked.
+        for (MachineObserver machine : observers) {
+            if (machine.notifyProduct(this)) break;
         }
-        return product;
     }
 
-    public void registerMachine(MachineObserver observer) {
-        MachineObserver machine = null;
-        synchronized (this) {
-            if (!observerList.contains(observer)) {
-                observerList.add(observer);
-            }
-            if (!queue.isEmpty()) {
-                machine = observerList.removeFirst();
+    private void hold(Held ticket) {
+        blockedCount.incrementAndGet();
+        record(Event.QUEUE_BLOCKED, ticket.product);
+        held.add(ticket);
+        // A slot may have been freed before we were added, a consumer only looks at held products after freeing one
+        admitHeld();
+    }
+
+    /**
+     * Takes in waiting products while there are free slots
+     */
+    private void admitHeld() {
+        while (!held.isEmpty()) {
+            if (!tryReserve(bound(capacity))) return;
+            Held next = held.poll();
+            if (next == null) {
+                // Someone else took the last one, give the slot back and look again
+                depth.decrementAndGet();
+                continue;
             }
+            blockedCount.decrementAndGet();
+            record(Event.QUEUE_UNBLOCKED, next.product);
+            publish(next.product);
+            next.onAdmitted.run();
         }
-        if (machine != null) machine.notifyProduct(this);
     }
 
-    public synchronized boolean isEmpty() {
-        return queue.isEmpty();
+    /**
+     * Counts a discarded product, queued if it was taken out of the buffer to make room
+     */
+    private void drop(Product product, boolean queued) {
+        droppedCount.increment();
+        record(Event.PRODUCT_DROPPED, product);
+        if (metrics != null) metrics.onDropped(product, queued);
     }
 
-    public synchronized int size() {
-        return queue.size();
+    private void record(Event event, Product product) {
+        if (recorder != null) {
+            recorder.recordEvent(event, id, product, product.getProductColor());
+        }
+    }
+
+    public Product dequeue() {
+        Product product = buffer.poll();
+        if (product == null) return null;
+        depth.decrementAndGet();
+        record(Event.PRODUCT_DEQUEUED, product);
+        if (metrics != null) metrics.onDequeued(product);
+        if (!held.isEmpty()) admitHeld();
+        return product;
+    }
+
+    /**
+     * Registers a consumer to be offered new products, once for as long as it takes from the queue.
+     * Only an idle one takes the offer; it must check the queue again after marking itself idle.
+     */
+    public synchronized void registerMachine(MachineObserver observer) {
+        MachineObserver[] current = observers;
+        for (MachineObserver registered : current) {
+            if (registered == observer) return;
+        }
+        MachineObserver[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = observer;
+        observers = updated;
+    }
+
+    public boolean isEmpty() {
+        return buffer.isEmpty();
+    }
+
+    public int size() {
+        return buffer.size();
+    }
+
+    /**
+     * Lock-free product count, may briefly lag size() while a product is added or taken
+     */
+    public int getDepth() {
+        return depth.get();
     }
 
 
@@ -85,14 +345,27 @@ public class SimulationQueue {
     }
 
     public void enqueueWithoutRecord(Product product) {
-        synchronized (this) {
-            queue.add(product);
-        }
+        if (buffer.offer(product)) depth.incrementAndGet();
     }
 
     public void dequeueWithoutRecord(Product product) {
-        synchronized (this) {
-            queue.remove(product);
-        }
+        if (buffer.remove(product)) depth.decrementAndGet();
+    }
+
+    /**
+     * Sets the overflow counters to recorded values, for replays
+     */
+    public void setOverflowCountsWithoutRecord(long dropped, int blocked) {
+        droppedCount.reset();
+        droppedCount.add(dropped);
+        blockedCount.set(blocked);
+    }
+
+    public void clear() {
+        buffer.clear();
+        depth.set(0);
+        held.clear();
+        blockedCount.set(0);
+        droppedCount.reset();
     }
 }
@@ -0,0 +1,61 @@
+package org.example.producerconsumergui.Model;
+
+import org.example.producerconsumergui.Memento.SimulationMemento;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Result of a headless simulation run
+ */
+public class SimulationSummary {
+    private final long durationMillis;
+    private final int productsGenerated;
+    private final long productsProcessed;
+    private final Map<Integer, Integer> finalQueueSizes;
+    private final SimulationMemento memento;
+
+    public SimulationSummary(long durationMillis, int productsGenerated, long productsProcessed,
+                             Map<Integer, Integer> finalQueueSizes, SimulationMemento memento) {
+        this.durationMillis = durationMillis;
+        this.productsGenerated = productsGenerated;
+        this.productsProcessed = productsProcessed;
+        this.finalQueueSizes = Collections.unmodifiableMap(finalQueueSizes);
+        this.memento = memento;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public int getProductsGenerated() {
+        return productsGenerated;
+    }
+
+    /**
+     * Number of products that left a machine, summed over all machines
+     */
+    public long getProductsProcessed() {
+        return productsProcessed;
+    }
+
+    public Map<Integer, Integer> getFinalQueueSizes() {
+        return finalQueueSizes;
+    }
+
+    public SimulationMemento getMemento() {
+        return memento;
+    }
+
+    public int getEventCount() {
+        return memento == null ? 0 : memento.getEventCount();
+    }
+
+    @Override
+    public String toString() {
+        return "SimulationSummary{duration=" + durationMillis + "ms"
+                + ", generated=" + productsGenerated
+                + ", processed=" + productsProcessed
+                + ", queues=" + finalQueueSizes + "}";
+    }
+}
@@ -0,0 +1,233 @@
+package org.example.producerconsumergui.Model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Description of a production line: queues, machines and the connections between them.
+ * Used to build a simulation and saved with recordings so they can be replayed later.
+ * Positions are layout hints for the UI and are NaN when unknown.
+ */
+public class SimulationTopology {
+
+    /**
+     * A queue; capacity 0 is unbounded. The overflow queue takes what doesn't fit
+     * under OverflowPolicy.REROUTE and is -1 when there is none.
+     */
+    public static class QueueSpec {
+        private final int id;
+        private final boolean input;
+        private final int capacity;
+        private final OverflowPolicy overflowPolicy;
+        private final int overflowQueueId;
+        private final int arrivalWeight;
+        private final ArrivalProcess arrivals;
+        private final double x;
+        private final double y;
+
+        public QueueSpec(int id, boolean input, double x, double y) {
+            this(id, input, 0, OverflowPolicy.BLOCK, -1, x, y);
+        }
+
+        public QueueSpec(int id, boolean input, int capacity, OverflowPolicy overflowPolicy, int overflowQueueId,
+                         double x, double y) {
+            this(id, input, capacity, overflowPolicy, overflowQueueId, 1, null, x, y);
+        }
+
+        public QueueSpec(int id, boolean input, int capacity, OverflowPolicy overflowPolicy, int overflowQueueId,
+                         int arrivalWeight, ArrivalProcess arrivals, double x, double y) {
+            this.id = id;
+            this.input = input;
+            this.capacity = capacity;
+            this.overflowPolicy = overflowPolicy;
+            this.overflowQueueId = overflowQueueId;
+            this.arrivalWeight = arrivalWeight;
+            this.arrivals = arrivals;
+            this.x = x;
+            this.y = y;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public boolean isInput() {
+            return input;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public OverflowPolicy getOverflowPolicy() {
+            return overflowPolicy;
+        }
+
+        public int getOverflowQueueId() {
+            return overflowQueueId;
+        }
+
+        /**
+         * Share of the session's arrivals an input gets under ArrivalRouting.WEIGHTED
+         */
+        public int getArrivalWeight() {
+            return arrivalWeight;
+        }
+
+        /**
+         * Arrivals of an input of its own instead of a share of the session's, null if none
+         */
+        public ArrivalProcess getArrivals() {
+            return arrivals;
+        }
+
+        public double getX() {
+            return x;
+        }
+
+        public double getY() {
+            return y;
+        }
+    }
+
+    public static class MachineSpec {
+        private final int id;
+        private final Color color;
+        private final RoutingPolicy routingPolicy;
+        private final TimeDistribution serviceTime;
+        private final double x;
+        private final double y;
+
+        public MachineSpec(int id, Color color, double x, double y) {
+            this(id, color, RoutingPolicy.SHORTEST_QUEUE, x, y);
+        }
+
+        public MachineSpec(int id, Color color, RoutingPolicy routingPolicy, double x, double y) {
+            this(id, color, routingPolicy, Machine.DEFAULT_SERVICE_TIME, x, y);
+        }
+
+        public MachineSpec(int id, Color color, RoutingPolicy routingPolicy, TimeDistribution serviceTime,
+                           double x, double y) {
+            this.id = id;
+            this.color = color;
+            this.routingPolicy = routingPolicy;
+            this.serviceTime = serviceTime;
+            this.x = x;
+            this.y = y;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public Color getColor() {
+            return color;
+        }
+
+        public RoutingPolicy getRoutingPolicy() {
+            return routingPolicy;
+        }
+
+        public TimeDistribution getServiceTime() {
+            return serviceTime;
+        }
+
+        public double getX() {
+            return x;
+        }
+
+        public double getY() {
+            return y;
+        }
+    }
+
+    /**
+     * A machine taking products from one queue and putting them in another.
+     * The weight is the output's share under RoutingPolicy.WEIGHTED.
+     */
+    public static class ConnectionSpec {
+        private final int machineId;
+        private final int inputQueueId;
+        private final int outputQueueId;
+        private final int weight;
+
+        public ConnectionSpec(int machineId, int inputQueueId, int outputQueueId) {
+            this(machineId, inputQueueId, outputQueueId, 1);
+        }
+
+        public ConnectionSpec(int machineId, int inputQueueId, int outputQueueId, int weight) {
+            this.machineId = machineId;
+            this.inputQueueId = inputQueueId;
+            this.outputQueueId = outputQueueId;
+            this.weight = weight;
+        }
+
+        public int getMachineId() {
+            return machineId;
+        }
+
+        public int getInputQueueId() {
+            return inputQueueId;
+        }
+
+        public int getOutputQueueId() {
+            return outputQueueId;
+        }
+
+        public int getWeight() {
+            return weight;
+        }
+    }
+
+    private final List<QueueSpec> queues = new ArrayList<>();
+    private final List<MachineSpec> machines = new ArrayList<>();
+    private final List<ConnectionSpec> connections = new ArrayList<>();
+
+    public void addQueue(int id, boolean input, double x, double y) {
+        queues.add(new QueueSpec(id, input, x, y));
+    }
+
+    public void addQueue(int id, boolean input, int capacity, OverflowPolicy overflowPolicy, int overflowQueueId,
+                         double x, double y) {
+        queues.add(new QueueSpec(id, input, capacity, overflowPolicy, overflowQueueId, x, y));
+    }
+
+    public void addQueue(int id, boolean input, int capacity, OverflowPolicy overflowPolicy, int overflowQueueId,
+                         int arrivalWeight, ArrivalProcess arrivals, double x, double y) {
+        queues.add(new QueueSpec(id, input, capacity, overflowPolicy, overflowQueueId, arrivalWeight, arrivals, x, y));
+    }
+
+    public void addMachine(int id, Color color, double x, double y) {
+        machines.add(new MachineSpec(id, color, x, y));
+    }
+
+    public void addMachine(int id, Color color, RoutingPolicy routingPolicy, double x, double y) {
+        machines.add(new MachineSpec(id, color, routingPolicy, x, y));
+    }
+
+    public void addMachine(int id, Color color, RoutingPolicy routingPolicy, TimeDistribution serviceTime,
+                           double x, double y) {
+        machines.add(new MachineSpec(id, color, routingPolicy, serviceTime, x, y));
+    }
+
+    public void addConnection(int machineId, int inputQueueId, int outputQueueId) {
+        connections.add(new ConnectionSpec(machineId, inputQueueId, outputQueueId));
+    }
+
+    public void addConnection(int machineId, int inputQueueId, int outputQueueId, int weight) {
+        connections.add(new ConnectionSpec(machineId, inputQueueId, outputQueueId, weight));
+    }
+
+    public List<QueueSpec> getQueues() {
+        return Collections.unmodifiableList(queues);
+    }
+
+    public List<MachineSpec> getMachines() {
+        return Collections.unmodifiableList(machines);
+    }
+
+    public List<ConnectionSpec> getConnections() {
+        return Collections.unmodifiableList(connections);
+    }
+}
@@ -0,0 +1,41 @@
+package org.example.producerconsumergui.Model;
+
+import java.util.LinkedList;
+import java.util.Queue;
+
+/**
+ * Unbounded buffer guarded by the object monitor
+ */
+public class SynchronizedProductBuffer implements ProductBuffer {
+    private final Queue<Product> queue = new LinkedList<>();
+
+    @Override
+    public synchronized boolean offer(Product product) {
+        return queue.add(product);
+    }
+
+    @Override
+    public synchronized Product poll() {
+        return queue.poll();
+    }
+
+    @Override
+    public synchronized boolean remove(Product product) {
+        return queue.remove(product);
+    }
+
+    @Override
+    public synchronized int size() {
+        return queue.size();
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    @Override
+    public synchronized void clear() {
+        queue.clear();
+    }
+}
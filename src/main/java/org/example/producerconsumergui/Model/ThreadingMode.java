@@ -0,0 +1,10 @@
+package org.example.producerconsumergui.Model;
+
+/**
+ * How the machines of a simulation session are run
+ */
+public enum ThreadingMode {
+    PLATFORM,   // one daemon platform thread per machine
+    VIRTUAL,    // one virtual thread per machine, for very large topologies
+    POOLED      // machines are tasks on a shared work-stealing pool, activated when an input has work
+}
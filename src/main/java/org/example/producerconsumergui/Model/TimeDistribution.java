@@ -0,0 +1,407 @@
+package org.example.producerconsumergui.Model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+/**
+ * Distribution of a duration in milliseconds, such as a machine's service time.
+ * Immutable, so one instance can be shared by any number of machines and threads.
+ *
+ * Sampling is table driven and never allocates: the continuous types precompute
+ * their inverse CDF at TABLE_SIZE points and interpolate between them, only the
+ * top cell falls back to the exact quantile for the tail; empirical distributions
+ * use an alias table over the observed values. Either way a sample is one random
+ * draw and a few array reads.
+ */
+public class TimeDistribution {
+    public static final int TABLE_SIZE = 4096;
+    public static final int MAX_ERLANG_PHASES = 100;
+
+    private final DistributionType type;
+    private final double meanMillis;
+    // Sigma of the log for LOGNORMAL, phases for ERLANG, unused otherwise
+    private final double shape;
+    // EMPIRICAL: observed values, ascending, with how often each was seen
+    private final double[] values;
+    private final long[] counts;
+
+    // Inverse CDF at i / TABLE_SIZE for the continuous types
+    private final double[] quantiles;
+    // Alias table of EMPIRICAL: value i is kept with probability keep[i], else alias[i] is used
+    private final double[] keep;
+    private final int[] alias;
+
+    private TimeDistribution(DistributionType type, double meanMillis, double shape, double[] values, long[] counts) {
+        this.type = type;
+        this.meanMillis = meanMillis;
+        this.shape = shape;
+        this.values = values;
+        this.counts = counts;
+        if (type == DistributionType.EMPIRICAL) {
+            this.quantiles = null;
+            this.keep = new double[values.length];
+            this.alias = new int[values.length];
+            buildAliasTable();
+        } else if (type == DistributionType.CONSTANT) {
+            this.quantiles = null;
+            this.keep = null;
+            this.alias = null;
+        } else {
+            this.quantiles = new double[TABLE_SIZE + 1];
+            for (int i = 0; i < TABLE_SIZE; i++) {
+                quantiles[i] = quantile((double) i / TABLE_SIZE);
+            }
+            // Only the uniform one is bounded, the others use the exact tail in the top cell
+            quantiles[TABLE_SIZE] = type == DistributionType.UNIFORM ? 2 * meanMillis : Double.NaN;
+            this.keep = null;
+            this.alias = null;
+        }
+    }
+
+    // ============================================
+    // FACTORIES
+    // ============================================
+
+    public static TimeDistribution uniform(double meanMillis) {
+        return new TimeDistribution(DistributionType.UNIFORM, checkMean(meanMillis), 0, null, null);
+    }
+
+    public static TimeDistribution exponential(double meanMillis) {
+        return new TimeDistribution(DistributionType.EXPONENTIAL, checkMean(meanMillis), 0, null, null);
+    }
+
+    /**
+     * Lognormal with the given mean, sigma is the standard deviation of the log
+     */
+    public static TimeDistribution lognormal(double meanMillis, double sigma) {
+        if (!(sigma > 0) || Double.isInfinite(sigma)) throw new IllegalArgumentException("Sigma must be positive");
+        return new TimeDistribution(DistributionType.LOGNORMAL, checkMean(meanMillis), sigma, null, null);
+    }
+
+    /**
+     * Sum of phases exponential stages with the given overall mean
+     */
+    public static TimeDistribution erlang(int phases, double meanMillis) {
+        if (phases < 1 || phases > MAX_ERLANG_PHASES) {
+            throw new IllegalArgumentException("Erlang phases must be between 1 and " + MAX_ERLANG_PHASES);
+        }
+        return new TimeDistribution(DistributionType.ERLANG, checkMean(meanMillis), phases, null, null);
+    }
+
+    public static TimeDistribution constant(double millis) {
+        return new TimeDistribution(DistributionType.CONSTANT, checkMean(millis), 0, null, null);
+    }
+
+    /**
+     * Resamples the observed times, each as often as it was observed
+     */
+    public static TimeDistribution empirical(double[] observedMillis) {
+        TreeMap<Double, Long> histogram = new TreeMap<>();
+        for (double value : observedMillis) {
+            histogram.merge(checkObservation(value), 1L, Long::sum);
+        }
+        double[] values = new double[histogram.size()];
+        long[] counts = new long[histogram.size()];
+        int i = 0;
+        for (var entry : histogram.entrySet()) {
+            values[i] = entry.getKey();
+            counts[i++] = entry.getValue();
+        }
+        return empirical(values, counts);
+    }
+
+    /**
+     * Resamples the values, each in proportion to its count
+     */
+    public static TimeDistribution empirical(double[] values, long[] counts) {
+        if (values.length == 0) throw new IllegalArgumentException("Empirical distribution needs observations");
+        if (values.length != counts.length) throw new IllegalArgumentException("One count per value");
+        double total = 0;
+        double sum = 0;
+        for (int i = 0; i < values.length; i++) {
+            checkObservation(values[i]);
+            if (counts[i] < 1) throw new IllegalArgumentException("Counts must be positive");
+            total += counts[i];
+            sum += values[i] * counts[i];
+        }
+        return new TimeDistribution(DistributionType.EMPIRICAL, sum / total, 0, values.clone(), counts.clone());
+    }
+
+    /**
+     * Empirical distribution of the times in the first column of a CSV file, in milliseconds.
+     * A header line, blank lines and lines starting with # are skipped.
+     * Throws IOException if the file can't be read or a line isn't a time
+     */
+    public static TimeDistribution loadEmpirical(Path csvFile) throws IOException {
+        double[] observed = new double[1024];
+        int count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(csvFile)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.strip();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String field = line.split("[,;\t ]", 2)[0].strip();
+                double value;
+                try {
+                    value = Double.parseDouble(field);
+                } catch (NumberFormatException e) {
+                    if (count == 0) continue; // header
+                    throw new IOException(csvFile.getFileName() + " line " + lineNumber + ": not a time: " + field);
+                }
+                if (!(value >= 0) || Double.isInfinite(value)) {
+                    throw new IOException(csvFile.getFileName() + " line " + lineNumber + ": bad time: " + field);
+                }
+                if (count == observed.length) observed = Arrays.copyOf(observed, count * 2);
+                observed[count++] = value;
+            }
+        }
+        if (count == 0) throw new IOException(csvFile.getFileName() + " has no times");
+        return empirical(Arrays.copyOf(observed, count));
+    }
+
+    private static double checkMean(double meanMillis) {
+        if (!(meanMillis >= 0) || Double.isInfinite(meanMillis)) {
+            throw new IllegalArgumentException("Mean must be a finite time of at least 0");
+        }
+        return meanMillis;
+    }
+
+    private static double checkObservation(double value) {
+        if (!(value >= 0) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("Observed times must be finite and at least 0");
+        }
+        return value;
+    }
+
+    /**
+     * Same shape with another mean, empirical values are scaled
+     */
+    public TimeDistribution withMean(double meanMillis) {
+        checkMean(meanMillis);
+        if (type == DistributionType.EMPIRICAL) {
+            double scale = this.meanMillis == 0 ? 0 : meanMillis / this.meanMillis;
+            double[] scaled = new double[values.length];
+            for (int i = 0; i < values.length; i++) {
+                scaled[i] = values[i] * scale;
+            }
+            return new TimeDistribution(DistributionType.EMPIRICAL, this.meanMillis == 0 ? 0 : meanMillis,
+                    0, scaled, counts.clone());
+        }
+        return new TimeDistribution(type, meanMillis, shape, null, null);
+    }
+
+    // ============================================
+    // SAMPLING
+    // ============================================
+
+    /**
+     * Draws a time in milliseconds from the stream
+     */
+    public double sampleMillis(SplittableRandom random) {
+        switch (type) {
+            case CONSTANT:
+                return meanMillis;
+            case EMPIRICAL: {
+                double u = random.nextDouble() * values.length;
+                // Rounding can reach the length when it isn't a power of two
+                int i = Math.min((int) u, values.length - 1);
+                return u - i < keep[i] ? values[i] : values[alias[i]];
+            }
+            default: {
+                double u = random.nextDouble() * TABLE_SIZE;
+                int i = (int) u;
+                double upper = quantiles[i + 1];
+                // Top cell of an unbounded distribution, 1 draw in TABLE_SIZE
+                if (Double.isNaN(upper)) return quantile(u / TABLE_SIZE);
+                double lower = quantiles[i];
+                return lower + (u - i) * (upper - lower);
+            }
+        }
+    }
+
+    public long sampleNanos(SplittableRandom random) {
+        return (long) (sampleMillis(random) * 1_000_000);
+    }
+
+    /**
+     * Vose's alias method: splits the probabilities into equal columns holding at most
+     * two values each, so a sample is one column pick and one comparison
+     */
+    private void buildAliasTable() {
+        int n = values.length;
+        double total = 0;
+        for (long count : counts) total += count;
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < n; i++) {
+            scaled[i] = counts[i] * n / total;
+            if (scaled[i] < 1) small[smallCount++] = i;
+            else large[largeCount++] = i;
+        }
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            keep[less] = scaled[less];
+            alias[less] = more;
+            scaled[more] -= 1 - scaled[less];
+            if (scaled[more] < 1) small[smallCount++] = more;
+            else large[largeCount++] = more;
+        }
+        // What's left is 1 up to rounding
+        while (largeCount > 0) {
+            int i = large[--largeCount];
+            keep[i] = 1;
+            alias[i] = i;
+        }
+        while (smallCount > 0) {
+            int i = small[--smallCount];
+            keep[i] = 1;
+            alias[i] = i;
+        }
+    }
+
+    /**
+     * Exact inverse CDF of the continuous types, p in [0, 1)
+     */
+    private double quantile(double p) {
+        switch (type) {
+            case UNIFORM:
+                return 2 * meanMillis * p;
+            case EXPONENTIAL:
+                return -meanMillis * Math.log1p(-p);
+            case LOGNORMAL: {
+                if (p == 0) return 0;
+                double mu = Math.log(meanMillis) - shape * shape / 2;
+                return Math.exp(mu + shape * inverseNormal(p));
+            }
+            case ERLANG:
+                return erlangQuantile(p);
+            default:
+                throw new IllegalStateException("No quantile for " + type);
+        }
+    }
+
+    /**
+     * Erlang has no closed form quantile, bisects its CDF
+     */
+    private double erlangQuantile(double p) {
+        if (p == 0 || meanMillis == 0) return 0;
+        int phases = (int) shape;
+        double rate = phases / meanMillis;
+        double low = 0;
+        double high = meanMillis;
+        while (erlangCdf(high, phases, rate) < p) {
+            low = high;
+            high *= 2;
+        }
+        for (int i = 0; i < 64 && high - low > 1e-9 * high; i++) {
+            double middle = (low + high) / 2;
+            if (erlangCdf(middle, phases, rate) < p) low = middle;
+            else high = middle;
+        }
+        return (low + high) / 2;
+    }
+
+    private static double erlangCdf(double x, int phases, double rate) {
+        double lx = rate * x;
+        double term = 1;
+        double sum = 1;
+        for (int n = 1; n < phases; n++) {
+            term *= lx / n;
+            sum += term;
+        }
+        return 1 - Math.exp(-lx) * sum;
+    }
+
+    /**
+     * Acklam's rational approximation of the standard normal quantile,
+     * relative error below 1.2e-9
+     */
+    private static double inverseNormal(double p) {
+        final double[] a = {-3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02,
+                1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00};
+        final double[] b = {-5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02,
+                6.680131188771972e+01, -1.328068155288572e+01};
+        final double[] c = {-7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00,
+                -2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00};
+        final double[] d = {7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00,
+                3.754408661907416e+00};
+        double low = 0.02425;
+        if (p < low) {
+            double q = Math.sqrt(-2 * Math.log(p));
+            return (((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5])
+                    / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+        }
+        if (p > 1 - low) {
+            double q = Math.sqrt(-2 * Math.log1p(-p));
+            return -(((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5])
+                    / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+        }
+        double q = p - 0.5;
+        double r = q * q;
+        return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r + a[4]) * r + a[5]) * q
+                / (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r + b[4]) * r + 1);
+    }
+
+    // ============================================
+    // ACCESSORS
+    // ============================================
+
+    public DistributionType getType() {
+        return type;
+    }
+
+    public double getMeanMillis() {
+        return meanMillis;
+    }
+
+    /**
+     * Sigma of the log for LOGNORMAL, phases for ERLANG, 0 otherwise
+     */
+    public double getShape() {
+        return shape;
+    }
+
+    /**
+     * Observed values of an EMPIRICAL distribution, ascending; empty for the others
+     */
+    public double[] getValues() {
+        return values == null ? new double[0] : values.clone();
+    }
+
+    /**
+     * How often each of getValues was observed
+     */
+    public long[] getCounts() {
+        return counts == null ? new long[0] : counts.clone();
+    }
+
+    /**
+     * Short description for menus and tooltips
+     */
+    public String getLabel() {
+        String label = String.format(Locale.ROOT, "%s, mean %.0f ms", type.getLabel(), meanMillis);
+        return switch (type) {
+            case LOGNORMAL -> label + String.format(Locale.ROOT, ", sigma %.2f", shape);
+            case ERLANG -> label + ", " + (int) shape + " phases";
+            case EMPIRICAL -> label + ", " + values.length + " values";
+            default -> label;
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "TimeDistribution{" + getLabel() + "}";
+    }
+}
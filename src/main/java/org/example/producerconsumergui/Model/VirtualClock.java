@@ -0,0 +1,26 @@
+package org.example.producerconsumergui.Model;
+
+/**
+ * Simulated time that only moves when the discrete-event engine advances it.
+ * Starts at zero, so recorded timestamps are offsets from the start of the run.
+ */
+public class VirtualClock implements SimulationClock {
+    private volatile long nanos = 0;
+
+    public void advanceTo(long nanos) {
+        if (nanos < this.nanos) {
+            throw new IllegalArgumentException("Virtual time can't go backwards");
+        }
+        this.nanos = nanos;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return nanos / 1_000_000L;
+    }
+
+    @Override
+    public long nanoTime() {
+        return nanos;
+    }
+}
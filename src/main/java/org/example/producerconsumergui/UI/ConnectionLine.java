@@ -10,6 +10,8 @@ public class ConnectionLine extends Group {
     public final MachineNode source;
     public final QueueNode inputQueue;
     public final QueueNode outputQueue;
+    // Share of the machine's products for the output queue under weighted routing
+    public int weight = 1;
 
     private Line line1; // Machine to input queue
     private Line line2; // Output queue to machine
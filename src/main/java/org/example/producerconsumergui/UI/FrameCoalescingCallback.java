@@ -0,0 +1,284 @@
+package org.example.producerconsumergui.UI;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import org.example.producerconsumergui.Model.Color;
+import org.example.producerconsumergui.Model.Product;
+import org.example.producerconsumergui.Model.SimulationCallback;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SimulationCallback that can be called from any thread and hands updates to
+ * the FX thread once per frame. Updates of the same queue or machine replace
+ * each other until the next frame, so the FX event queue never floods however
+ * fast the simulation reports. Lifecycle notifications and errors are delivered
+ * with Platform.runLater after the updates before them.
+ */
+public class FrameCoalescingCallback implements SimulationCallback {
+    private final SimulationCallback delegate;
+
+    // Latest value per queue or machine since the last frame
+    private final Map<Integer, Integer> queueSizes = new ConcurrentHashMap<>();
+    private final Map<Integer, long[]> queueOverflows = new ConcurrentHashMap<>(); // dropped, blocked
+    private final Map<Integer, Color> machineColors = new ConcurrentHashMap<>();
+    private final Map<Integer, String> machineStatuses = new ConcurrentHashMap<>();
+    private final Map<Integer, Product> enqueued = new ConcurrentHashMap<>();
+    private final Map<Integer, Product> dequeued = new ConcurrentHashMap<>();
+    private final Map<Integer, Product> startedProcessing = new ConcurrentHashMap<>();
+    private final Map<Integer, Product> finishedProcessing = new ConcurrentHashMap<>();
+    private volatile Product lastArrived;
+    private volatile double progress = -1;
+
+    // Backlog metrics
+    private final LongAdder received = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final AtomicLong oldestPendingNanos = new AtomicLong();
+    private volatile long lastFrameLatencyNanos;
+    private volatile long lastFrameDrainNanos;
+    private volatile int lastFrameUpdates;
+
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            drain();
+        }
+    };
+
+    public FrameCoalescingCallback(SimulationCallback delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Starts delivering updates on every frame, call on the FX thread
+     */
+    public void start() {
+        timer.start();
+    }
+
+    public void stop() {
+        timer.stop();
+    }
+
+    private void changed() {
+        received.increment();
+        oldestPendingNanos.compareAndSet(0, System.nanoTime());
+    }
+
+    /**
+     * Delivers the latest values to the delegate, on the FX thread
+     */
+    private void drain() {
+        long started = System.nanoTime();
+        long pendingSince = oldestPendingNanos.getAndSet(0);
+        int count = 0;
+
+        Product arrived = lastArrived;
+        if (arrived != null) {
+            lastArrived = null;
+            delegate.onProductArrived(arrived);
+            count++;
+        }
+        count += drain(enqueued, delegate::onProductEnqueued);
+        count += drain(dequeued, delegate::onProductDequeued);
+        count += drain(queueSizes, delegate::onQueueSizeChanged);
+        count += drain(queueOverflows, (queueId, overflow) ->
+                delegate.onQueueOverflowChanged(queueId, overflow[0], (int) overflow[1]));
+        count += drain(startedProcessing, delegate::onMachineStartedProcessing);
+        count += drain(finishedProcessing, delegate::onMachineFinishedProcessing);
+        count += drain(machineColors, delegate::onMachineColorChanged);
+        count += drain(machineStatuses, delegate::onMachineStatusChanged);
+
+        double latestProgress = progress;
+        if (latestProgress >= 0) {
+            progress = -1;
+            delegate.onReplayProgress(latestProgress);
+            count++;
+        }
+
+        delivered.add(count);
+        lastFrameUpdates = count;
+        lastFrameDrainNanos = System.nanoTime() - started;
+        if (pendingSince != 0) {
+            lastFrameLatencyNanos = started - pendingSince;
+        }
+    }
+
+    private interface Update<V> {
+        void deliver(int id, V value);
+    }
+
+    private static <V> int drain(Map<Integer, V> pending, Update<V> update) {
+        int count = 0;
+        Iterator<Map.Entry<Integer, V>> it = pending.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, V> entry = it.next();
+            V value = entry.getValue();
+            // Only remove the value we deliver, a newer one stays for the next frame
+            if (pending.remove(entry.getKey(), value)) {
+                update.deliver(entry.getKey(), value);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Runs a notification on the FX thread after delivering everything before it
+     */
+    private void later(Runnable notification) {
+        Platform.runLater(() -> {
+            drain();
+            notification.run();
+        });
+    }
+
+    // ============================================
+    // BACKLOG METRICS
+    // ============================================
+
+    /**
+     * Updates received from the simulation so far
+     */
+    public long getReceivedUpdates() {
+        return received.sum();
+    }
+
+    /**
+     * Updates handed to the UI so far, the rest were merged into later values
+     */
+    public long getDeliveredUpdates() {
+        return delivered.sum();
+    }
+
+    public long getCoalescedUpdates() {
+        return Math.max(0, getReceivedUpdates() - getDeliveredUpdates() - getPendingUpdates());
+    }
+
+    /**
+     * Queues and machines waiting for the next frame
+     */
+    public int getPendingUpdates() {
+        return queueSizes.size() + queueOverflows.size() + machineColors.size() + machineStatuses.size()
+                + enqueued.size() + dequeued.size() + startedProcessing.size() + finishedProcessing.size()
+                + (lastArrived != null ? 1 : 0) + (progress >= 0 ? 1 : 0);
+    }
+
+    /**
+     * How long the oldest update of the last frame waited for it
+     */
+    public long getLastFrameLatencyNanos() {
+        return lastFrameLatencyNanos;
+    }
+
+    /**
+     * Time the last frame spent delivering updates on the FX thread
+     */
+    public long getLastFrameDrainNanos() {
+        return lastFrameDrainNanos;
+    }
+
+    public int getLastFrameUpdates() {
+        return lastFrameUpdates;
+    }
+
+    // ============================================
+    // SIMULATION CALLBACK
+    // ============================================
+
+    @Override
+    public void onSimulationStarted() {
+        later(delegate::onSimulationStarted);
+    }
+
+    @Override
+    public void onSimulationStopped(int eventCount) {
+        later(() -> delegate.onSimulationStopped(eventCount));
+    }
+
+    @Override
+    public void onReplayStarted(int totalEvents) {
+        later(() -> delegate.onReplayStarted(totalEvents));
+    }
+
+    @Override
+    public void onReplayFinished() {
+        later(delegate::onReplayFinished);
+    }
+
+    @Override
+    public void onReplayProgress(double progress) {
+        this.progress = progress;
+        changed();
+    }
+
+    @Override
+    public void onProductArrived(Product product) {
+        if (product == null) return;
+        lastArrived = product;
+        changed();
+    }
+
+    @Override
+    public void onProductEnqueued(int queueId, Product product) {
+        if (product == null) return;
+        enqueued.put(queueId, product);
+        changed();
+    }
+
+    @Override
+    public void onProductDequeued(int queueId, Product product) {
+        if (product == null) return;
+        dequeued.put(queueId, product);
+        changed();
+    }
+
+    @Override
+    public void onQueueSizeChanged(int queueId, int size) {
+        queueSizes.put(queueId, size);
+        changed();
+    }
+
+    @Override
+    public void onQueueOverflowChanged(int queueId, long droppedCount, int blockedCount) {
+        queueOverflows.put(queueId, new long[]{droppedCount, blockedCount});
+        changed();
+    }
+
+    @Override
+    public void onMachineStartedProcessing(int machineId, Product product) {
+        if (product == null) return;
+        startedProcessing.put(machineId, product);
+        changed();
+    }
+
+    @Override
+    public void onMachineFinishedProcessing(int machineId, Product product) {
+        if (product == null) return;
+        finishedProcessing.put(machineId, product);
+        changed();
+    }
+
+    @Override
+    public void onMachineColorChanged(int machineId, Color color) {
+        if (color == null) return;
+        machineColors.put(machineId, color);
+        changed();
+    }
+
+    @Override
+    public void onMachineStatusChanged(int machineId, String status) {
+        if (status == null) return;
+        machineStatuses.put(machineId, status);
+        changed();
+    }
+
+    @Override
+    public void onError(String message) {
+        later(() -> delegate.onError(message));
+    }
+}
@@ -1,7 +1,11 @@
 package org.example.producerconsumergui.UI;
 
 import org.example.producerconsumergui.Model.Color;
+import org.example.producerconsumergui.Model.Machine;
+import org.example.producerconsumergui.Model.RoutingPolicy;
+import org.example.producerconsumergui.Model.TimeDistribution;
 import javafx.animation.*;
+import javafx.beans.property.StringProperty;
 import javafx.geometry.Pos;
 import javafx.scene.control.Label;
 import javafx.scene.layout.StackPane;
@@ -21,6 +25,8 @@ public class MachineNode extends StackPane {
 
     public Color originalColor = Color.BLUE;
     public Color currentColor = Color.BLUE;
+    public RoutingPolicy routingPolicy = RoutingPolicy.SHORTEST_QUEUE;
+    public TimeDistribution serviceTime = Machine.DEFAULT_SERVICE_TIME;
 
     public MachineNode(int id, double x, double y) {
         this.machineId = id;
@@ -47,15 +53,13 @@ public class MachineNode extends StackPane {
         setLayoutY(y);
 
         // Hover effect
-        setOnMouseEntered(e -> {
-            circle.setStrokeWidth(3);
-            circle.setStroke(javafx.scene.paint.Color.ORANGE);
-        });
-
-        setOnMouseExited(e -> {
-            circle.setStrokeWidth(2);
-            circle.setStroke(javafx.scene.paint.Color.BLACK);
-        });
+        setOnMouseEntered(e -> setHovered(true));
+        setOnMouseExited(e -> setHovered(false));
+    }
+
+    void setHovered(boolean hovered) {
+        circle.setStrokeWidth(hovered ? 3 : 2);
+        circle.setStroke(hovered ? javafx.scene.paint.Color.ORANGE : javafx.scene.paint.Color.BLACK);
     }
 
     public void setOriginalColor(Color color) {
@@ -65,6 +69,8 @@ public class MachineNode extends StackPane {
     }
 
     public void setCurrentColor(Color color) {
+        // Skip the repaint if nothing changed
+        if (color == null || color == currentColor) return;
         this.currentColor = color;
         updateColor();
     }
@@ -73,7 +79,15 @@ public class MachineNode extends StackPane {
         circle.setFill(Paint.valueOf(currentColor.getHexCode()));
     }
 
+    /**
+     * Status text shown under the id, observed by the canvas renderer
+     */
+    StringProperty statusProperty() {
+        return statusLabel.textProperty();
+    }
+
     public void setStatus(String status) {
+        if (status == null || status.equals(statusLabel.getText())) return;
         statusLabel.setText(status);
     }
 
@@ -0,0 +1,398 @@
+package org.example.producerconsumergui.UI;
+
+import javafx.animation.AnimationTimer;
+import javafx.beans.InvalidationListener;
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.TextAlignment;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Draws the whole network onto one Canvas instead of a scene graph node per element.
+ * MachineNode and QueueNode objects stay the source of truth but are not in the scene;
+ * the renderer listens to the properties it draws and repaints only the regions of
+ * what changed, once per frame. Hit-testing is done here in code.
+ * The canvas covers the viewport and draws the workspace through the current pan
+ * and zoom, on a transparent background so the grid below shows through.
+ */
+class NetworkCanvas extends Canvas {
+    private static final String WATCHED_KEY = "networkCanvas.watched";
+    private static final double PADDING = 6;
+    // Beyond this many dirty regions a full repaint is cheaper
+    private static final int MAX_DIRTY_REGIONS = 64;
+
+    private static final Font MACHINE_FONT = Font.font("System", FontWeight.BOLD, 16);
+    private static final Font STATUS_FONT = Font.font("System", 10);
+    private static final Font QUEUE_FONT = Font.font("System", FontWeight.BOLD, 14);
+    private static final Font SIZE_FONT = Font.font("System", 11);
+    private static final Font CONNECTION_FONT = Font.font("System", 10);
+
+    private final Collection<MachineNode> machines;
+    private final Collection<QueueNode> queues;
+    private final Collection<ConnectionLine> connections;
+    // Workspace to canvas transform, canvas = pan + zoom * workspace
+    private double panX = 0;
+    private double panY = 0;
+    private double zoom = 1;
+
+    // Last painted bounds of every element, so moves repaint where it was as well
+    private final Map<Object, Bounds> paintedBounds = new IdentityHashMap<>();
+    private final List<Bounds> dirty = new ArrayList<>();
+    private boolean fullRepaint = true;
+    private boolean active = false;
+
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            paintDirty();
+        }
+    };
+
+    NetworkCanvas(Collection<MachineNode> machines, Collection<QueueNode> queues,
+                  Collection<ConnectionLine> connections) {
+        this.machines = machines;
+        this.queues = queues;
+        this.connections = connections;
+        widthProperty().addListener(obs -> markAllDirty());
+        heightProperty().addListener(obs -> markAllDirty());
+    }
+
+    /**
+     * Shows the workspace with the given pan and zoom
+     */
+    void setView(double panX, double panY, double zoom) {
+        this.panX = panX;
+        this.panY = panY;
+        this.zoom = zoom;
+        markAllDirty();
+    }
+
+    /**
+     * Starts or stops painting, the canvas is only active while it's shown
+     */
+    void setActive(boolean active) {
+        this.active = active;
+        setVisible(active);
+        if (active) {
+            markAllDirty();
+            timer.start();
+        } else {
+            timer.stop();
+            paintedBounds.clear();
+        }
+    }
+
+    boolean isActive() {
+        return active;
+    }
+
+    // ============================================
+    // CHANGE TRACKING
+    // ============================================
+
+    /**
+     * Repaints the machine whenever something the renderer draws changes
+     */
+    void watch(MachineNode node) {
+        if (node.getProperties().put(WATCHED_KEY, Boolean.TRUE) != null) return;
+        InvalidationListener changed = obs -> markDirty(node);
+        node.layoutXProperty().addListener(changed);
+        node.layoutYProperty().addListener(changed);
+        node.circle.fillProperty().addListener(changed);
+        node.circle.strokeProperty().addListener(changed);
+        node.circle.strokeWidthProperty().addListener(changed);
+        node.circle.opacityProperty().addListener(changed);
+        node.statusProperty().addListener(changed);
+    }
+
+    void watch(QueueNode node) {
+        if (node.getProperties().put(WATCHED_KEY, Boolean.TRUE) != null) return;
+        InvalidationListener changed = obs -> markDirty(node);
+        node.layoutXProperty().addListener(changed);
+        node.layoutYProperty().addListener(changed);
+        node.rect.strokeProperty().addListener(changed);
+        node.rect.strokeWidthProperty().addListener(changed);
+        node.titleProperty().addListener(changed);
+        node.sizeTextProperty().addListener(changed);
+    }
+
+    /**
+     * Marks the node and its connections for repainting at their old and new places
+     */
+    void markDirty(Object node) {
+        if (!active || fullRepaint) return;
+        markElementDirty(node, boundsOf(node));
+        for (ConnectionLine conn : connections) {
+            if (conn.source == node || conn.inputQueue == node || conn.outputQueue == node) {
+                markElementDirty(conn, boundsOf(conn));
+            }
+        }
+    }
+
+    private void markElementDirty(Object element, Bounds bounds) {
+        Bounds old = paintedBounds.put(element, bounds);
+        if (old != null) addDirty(old);
+        addDirty(bounds);
+    }
+
+    private void addDirty(Bounds bounds) {
+        if (dirty.size() >= MAX_DIRTY_REGIONS) {
+            fullRepaint = true;
+            dirty.clear();
+        } else {
+            dirty.add(bounds);
+        }
+    }
+
+    /**
+     * Repaints everything on the next frame, e.g. after elements were removed
+     */
+    void markAllDirty() {
+        fullRepaint = true;
+        dirty.clear();
+    }
+
+    // ============================================
+    // PAINTING
+    // ============================================
+
+    private void paintDirty() {
+        if (fullRepaint) {
+            fullRepaint = false;
+            paintedBounds.clear();
+            paint(visibleRegion());
+            return;
+        }
+        if (dirty.isEmpty()) return;
+        List<Bounds> regions = new ArrayList<>(dirty);
+        dirty.clear();
+        for (Bounds region : regions) {
+            paint(region);
+        }
+    }
+
+    /**
+     * Part of the workspace the canvas currently shows
+     */
+    private Bounds visibleRegion() {
+        return new BoundingBox(-panX / zoom, -panY / zoom, getWidth() / zoom, getHeight() / zoom);
+    }
+
+    /**
+     * Paints everything that intersects the workspace region, clipped to it
+     */
+    private void paint(Bounds region) {
+        // Region on the canvas, nothing to do if it's out of view
+        double x0 = Math.max(0, Math.floor(panX + region.getMinX() * zoom));
+        double y0 = Math.max(0, Math.floor(panY + region.getMinY() * zoom));
+        double x1 = Math.min(getWidth(), Math.ceil(panX + region.getMaxX() * zoom));
+        double y1 = Math.min(getHeight(), Math.ceil(panY + region.getMaxY() * zoom));
+        if (x1 <= x0 || y1 <= y0) return;
+
+        GraphicsContext gc = getGraphicsContext2D();
+        gc.save();
+        gc.beginPath();
+        gc.rect(x0, y0, x1 - x0, y1 - y0);
+        gc.closePath();
+        gc.clip();
+        gc.clearRect(x0, y0, x1 - x0, y1 - y0);
+        gc.transform(zoom, 0, 0, zoom, panX, panY);
+
+        for (ConnectionLine conn : connections) {
+            Bounds bounds = boundsOf(conn);
+            paintedBounds.put(conn, bounds);
+            if (bounds.intersects(region)) paintConnection(gc, conn);
+        }
+        for (QueueNode node : queues) {
+            Bounds bounds = boundsOf(node);
+            paintedBounds.put(node, bounds);
+            if (bounds.intersects(region)) paintQueue(gc, node);
+        }
+        for (MachineNode node : machines) {
+            Bounds bounds = boundsOf(node);
+            paintedBounds.put(node, bounds);
+            if (bounds.intersects(region)) paintMachine(gc, node);
+        }
+        gc.restore();
+    }
+
+    private void paintMachine(GraphicsContext gc, MachineNode node) {
+        double r = MachineNode.RADIUS;
+        double cx = machineCenterX(node);
+        double cy = machineCenterY(node);
+
+        gc.setGlobalAlpha(node.circle.getOpacity());
+        gc.setFill(node.circle.getFill());
+        gc.fillOval(cx - r, cy - r, 2 * r, 2 * r);
+        gc.setGlobalAlpha(1.0);
+        gc.setStroke(node.circle.getStroke());
+        gc.setLineWidth(node.circle.getStrokeWidth());
+        gc.strokeOval(cx - r, cy - r, 2 * r, 2 * r);
+
+        gc.setFill(Color.WHITE);
+        gc.setTextAlign(TextAlignment.CENTER);
+        gc.setTextBaseline(VPos.CENTER);
+        gc.setFont(MACHINE_FONT);
+        gc.fillText("M" + node.machineId, cx, cy);
+        gc.setFont(STATUS_FONT);
+        gc.fillText(node.statusProperty().get(), cx, cy + 15);
+    }
+
+    private void paintQueue(GraphicsContext gc, QueueNode node) {
+        double x = node.getLayoutX();
+        double y = node.getLayoutY();
+        double w = QueueNode.WIDTH;
+        double h = QueueNode.HEIGHT;
+
+        gc.setFill(Color.WHITE);
+        gc.fillRoundRect(x, y, w, h, 10, 10);
+        gc.setStroke(node.rect.getStroke());
+        gc.setLineWidth(node.rect.getStrokeWidth());
+        gc.strokeRoundRect(x, y, w, h, 10, 10);
+
+        gc.setTextAlign(TextAlignment.CENTER);
+        gc.setTextBaseline(VPos.CENTER);
+        gc.setFill(node.isInputQueue() ? Color.GREEN : Color.BLACK);
+        gc.setFont(QUEUE_FONT);
+        gc.fillText(node.titleProperty().get(), x + w / 2, y + 17);
+        gc.setFill(Color.BLACK);
+        gc.setFont(SIZE_FONT);
+        gc.fillText(node.sizeTextProperty().get(), x + w / 2, y + 38);
+
+        // Same fullness bar as the QueueNode's ProgressBar
+        double progress = node.getFill();
+        double barX = x + (w - 100) / 2;
+        double barY = y + 54;
+        gc.setFill(Color.gray(0.85));
+        gc.fillRoundRect(barX, barY, 100, 15, 4, 4);
+        gc.setFill(progress > 0.8 ? Color.web("#f44336") : progress > 0.5 ? Color.web("#FF9800") : Color.web("#2196F3"));
+        gc.fillRoundRect(barX, barY, 100 * progress, 15, 4, 4);
+    }
+
+    private void paintConnection(GraphicsContext gc, ConnectionLine conn) {
+        double sx = machineCenterX(conn.source);
+        double sy = machineCenterY(conn.source);
+        double ix = queueCenterX(conn.inputQueue);
+        double iy = queueCenterY(conn.inputQueue);
+        double ox = queueCenterX(conn.outputQueue);
+        double oy = queueCenterY(conn.outputQueue);
+        double r = MachineNode.RADIUS;
+
+        // Input queue to machine, dashed
+        double angle1 = Math.atan2(sy - iy, sx - ix);
+        double qx1 = ix + Math.cos(angle1) * (QueueNode.WIDTH / 2);
+        double qy1 = iy + Math.sin(angle1) * (QueueNode.HEIGHT / 2);
+        double mx1 = sx - Math.cos(angle1) * r;
+        double my1 = sy - Math.sin(angle1) * r;
+        gc.setStroke(Color.DARKBLUE);
+        gc.setFill(Color.DARKBLUE);
+        gc.setLineWidth(2);
+        gc.setLineDashes(5, 5);
+        gc.strokeLine(qx1, qy1, mx1, my1);
+        gc.setLineDashes(null);
+        paintArrow(gc, mx1, my1, angle1);
+
+        // Machine to output queue
+        double angle2 = Math.atan2(oy - sy, ox - sx);
+        double mx2 = sx + Math.cos(angle2) * r;
+        double my2 = sy + Math.sin(angle2) * r;
+        double qx2 = ox - Math.cos(angle2) * (QueueNode.WIDTH / 2);
+        double qy2 = oy - Math.sin(angle2) * (QueueNode.HEIGHT / 2);
+        gc.setStroke(Color.DARKGREEN);
+        gc.setFill(Color.DARKGREEN);
+        gc.strokeLine(mx2, my2, qx2, qy2);
+        paintArrow(gc, qx2, qy2, angle2);
+
+        gc.setFill(Color.GRAY);
+        gc.setFont(CONNECTION_FONT);
+        gc.setTextAlign(TextAlignment.LEFT);
+        gc.setTextBaseline(VPos.BASELINE);
+        gc.fillText("M" + conn.source.machineId, sx - 20, sy - r - 10);
+    }
+
+    private void paintArrow(GraphicsContext gc, double x, double y, double angle) {
+        double cos = Math.cos(angle);
+        double sin = Math.sin(angle);
+        gc.fillPolygon(
+                new double[]{x, x - 10 * cos + 5 * sin, x - 10 * cos - 5 * sin},
+                new double[]{y, y - 10 * sin - 5 * cos, y - 10 * sin + 5 * cos},
+                3);
+    }
+
+    // ============================================
+    // GEOMETRY AND HIT-TESTING
+    // ============================================
+
+    private static double machineCenterX(MachineNode node) {
+        return node.getLayoutX() + MachineNode.RADIUS;
+    }
+
+    private static double machineCenterY(MachineNode node) {
+        return node.getLayoutY() + MachineNode.RADIUS;
+    }
+
+    private static double queueCenterX(QueueNode node) {
+        return node.getLayoutX() + QueueNode.WIDTH / 2;
+    }
+
+    private static double queueCenterY(QueueNode node) {
+        return node.getLayoutY() + QueueNode.HEIGHT / 2;
+    }
+
+    private Bounds boundsOf(Object element) {
+        if (element instanceof MachineNode machine) {
+            double size = 2 * MachineNode.RADIUS;
+            return padded(machine.getLayoutX(), machine.getLayoutY(), size, size);
+        }
+        if (element instanceof QueueNode queue) {
+            return padded(queue.getLayoutX(), queue.getLayoutY(), QueueNode.WIDTH, QueueNode.HEIGHT);
+        }
+        ConnectionLine conn = (ConnectionLine) element;
+        double minX = Math.min(machineCenterX(conn.source), Math.min(queueCenterX(conn.inputQueue), queueCenterX(conn.outputQueue)));
+        double maxX = Math.max(machineCenterX(conn.source), Math.max(queueCenterX(conn.inputQueue), queueCenterX(conn.outputQueue)));
+        // The label sits above the machine
+        double minY = Math.min(machineCenterY(conn.source) - MachineNode.RADIUS - 22,
+                Math.min(queueCenterY(conn.inputQueue), queueCenterY(conn.outputQueue)));
+        double maxY = Math.max(machineCenterY(conn.source), Math.max(queueCenterY(conn.inputQueue), queueCenterY(conn.outputQueue)));
+        return padded(minX - 20, minY, maxX - minX + 40, maxY - minY);
+    }
+
+    private static Bounds padded(double x, double y, double w, double h) {
+        return new BoundingBox(x - PADDING, y - PADDING, w + 2 * PADDING, h + 2 * PADDING);
+    }
+
+    /**
+     * The machine or queue drawn at the point in canvas coordinates, topmost first, or null
+     */
+    Object hitTest(double canvasX, double canvasY) {
+        double x = (canvasX - panX) / zoom;
+        double y = (canvasY - panY) / zoom;
+        MachineNode hitMachine = null;
+        for (MachineNode node : machines) {
+            double dx = x - machineCenterX(node);
+            double dy = y - machineCenterY(node);
+            if (dx * dx + dy * dy <= MachineNode.RADIUS * MachineNode.RADIUS) hitMachine = node;
+        }
+        if (hitMachine != null) return hitMachine;
+
+        QueueNode hitQueue = null;
+        for (QueueNode node : queues) {
+            if (x >= node.getLayoutX() && x <= node.getLayoutX() + QueueNode.WIDTH
+                    && y >= node.getLayoutY() && y <= node.getLayoutY() + QueueNode.HEIGHT) {
+                hitQueue = node;
+            }
+        }
+        return hitQueue;
+    }
+}
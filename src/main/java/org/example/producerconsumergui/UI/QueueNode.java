@@ -1,5 +1,6 @@
 package org.example.producerconsumergui.UI;
 
+import javafx.beans.property.StringProperty;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.Label;
@@ -9,6 +10,8 @@ import javafx.scene.paint.Color;
 import javafx.scene.shape.Rectangle;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
+import org.example.producerconsumergui.Model.ArrivalProcess;
+import org.example.producerconsumergui.Model.OverflowPolicy;
 
 public class QueueNode extends StackPane {
     public static final double WIDTH = 120;
@@ -21,6 +24,17 @@ public class QueueNode extends StackPane {
     private ProgressBar visualBar;
     private VBox contentBox;
     private boolean isInputQueue = false;
+    private int queueSize = 0;
+    private String barStyle = "-fx-accent: #2196F3;";
+    // Bound of the queue, 0 is unbounded; the overflow queue is -1 when there is none
+    public int capacity = 0;
+    public OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+    public int overflowQueueId = -1;
+    // Share of the session's arrivals while an input queue, or arrivals of its own (null to share them)
+    public int arrivalWeight = 1;
+    public ArrivalProcess arrivals = null;
+    private long droppedCount = 0;
+    private int blockedCount = 0;
 
     public QueueNode(int id, double x, double y) {
         this.queueId = id;
@@ -56,34 +70,102 @@ public class QueueNode extends StackPane {
         setLayoutY(y);
 
         // Hover effect
-        setOnMouseEntered(e -> {
+        setOnMouseEntered(e -> setHovered(true));
+        setOnMouseExited(e -> setHovered(false));
+    }
+
+    void setHovered(boolean hovered) {
+        if (hovered) {
             rect.setStrokeWidth(3);
             rect.setStroke(Color.ORANGE);
-        });
-
-        setOnMouseExited(e -> {
+        } else {
             rect.setStrokeWidth(2);
             rect.setStroke(isInputQueue ? Color.GREEN : Color.BLACK);
-        });
+        }
     }
 
     public void setQueueSize(int size) {
-        sizeLabel.setText("Size: " + size);
+        // Skip label, bar and style updates if nothing changed
+        if (size == queueSize) return;
+        queueSize = size;
+        updateBar();
+    }
+
+    /**
+     * Shows how many products the queue dropped and how many producers wait for it
+     */
+    public void setOverflow(long droppedCount, int blockedCount) {
+        if (droppedCount == this.droppedCount && blockedCount == this.blockedCount) return;
+        this.droppedCount = droppedCount;
+        this.blockedCount = blockedCount;
+        updateSizeText();
+    }
+
+    /**
+     * Bounds the queue, 0 for unbounded
+     */
+    public void setCapacity(int capacity, OverflowPolicy overflowPolicy, int overflowQueueId) {
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.overflowQueueId = overflowQueueId;
+        updateBar();
+    }
+
+    /**
+     * How full the bar is, against the capacity or 20 products for unbounded queues
+     */
+    double getFill() {
+        return Math.min(queueSize / (capacity > 0 ? (double) capacity : 20.0), 1.0);
+    }
 
-        // Update visual bar (assuming max size of 20 for visualization)
-        double progress = Math.min(size / 20.0, 1.0);
+    private void updateSizeText() {
+        StringBuilder text = new StringBuilder("Size: ").append(queueSize);
+        if (capacity > 0) text.append('/').append(capacity);
+        if (droppedCount > 0) text.append(", ").append(droppedCount).append(" dropped");
+        if (blockedCount > 0) text.append(", blocked");
+        sizeLabel.setText(text.toString());
+    }
+
+    private void updateBar() {
+        updateSizeText();
+        double progress = getFill();
         visualBar.setProgress(progress);
 
         // Change color based on fullness
+        String style;
         if (progress > 0.8) {
-            visualBar.setStyle("-fx-accent: #f44336;"); // Red when nearly full
+            style = "-fx-accent: #f44336;"; // Red when nearly full
         } else if (progress > 0.5) {
-            visualBar.setStyle("-fx-accent: #FF9800;"); // Orange when half full
+            style = "-fx-accent: #FF9800;"; // Orange when half full
         } else {
-            visualBar.setStyle("-fx-accent: #2196F3;"); // Blue when empty/low
+            style = "-fx-accent: #2196F3;"; // Blue when empty/low
+        }
+        // Restyling makes JavaFX reapply CSS, only do it when the band changes
+        if (!style.equals(barStyle)) {
+            barStyle = style;
+            visualBar.setStyle(style);
         }
     }
 
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public boolean isInputQueue() {
+        return isInputQueue;
+    }
+
+    /**
+     * Title and size texts, observed by the canvas renderer
+     */
+    StringProperty titleProperty() {
+        return idLabel.textProperty();
+    }
+
+    StringProperty sizeTextProperty() {
+        return sizeLabel.textProperty();
+    }
+
     public void setInputQueue(boolean isInput) {
         this.isInputQueue = isInput;
         if (isInput) {
@@ -1,32 +1,69 @@
 package org.example.producerconsumergui.UI;
 
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
+import javafx.geometry.Point2D;
 import javafx.geometry.Pos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
-import javafx.scene.shape.Line;
+import javafx.scene.input.MouseButton;
+import javafx.scene.shape.Rectangle;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
+import javafx.scene.transform.Scale;
+import javafx.scene.transform.Translate;
+import javafx.stage.FileChooser;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+import org.example.producerconsumergui.Model.ArrivalProcess;
+import org.example.producerconsumergui.Model.ArrivalRouting;
+import org.example.producerconsumergui.Model.ArrivalType;
+import org.example.producerconsumergui.Model.DistributionType;
+import org.example.producerconsumergui.Model.OverflowPolicy;
 import org.example.producerconsumergui.Model.Product;
+import org.example.producerconsumergui.Model.RoutingPolicy;
 import org.example.producerconsumergui.Model.SimulationCallback;
 import org.example.producerconsumergui.Model.SimulationManager;
+import org.example.producerconsumergui.Model.SimulationTopology;
+import org.example.producerconsumergui.Model.TimeDistribution;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public class SimulationCanvas extends BorderPane {
 
     // Canvas and drawing area
+    // The drawing pane holds the workspace, the viewport shows it through pan and zoom
+    private Pane viewport;
     private Pane drawingPane;
-    private ScrollPane scrollPane;
+    private Canvas gridCanvas;
+    private final Translate pan = new Translate();
+    private final Scale zoom = new Scale(1, 1);
+    // Draws everything on one canvas instead of the nodes, for large topologies
+    private NetworkCanvas networkCanvas;
+    // Drawing area and docked statistics side by side
+    private SplitPane centerSplit;
+    private StatisticsPanel statisticsPanel;
+    // Window of the floating statistics, null while docked
+    private Stage statisticsStage;
 
     // Components
-    private List<MachineNode> machineNodes = new ArrayList<>();
-    private List<QueueNode> queueNodes = new ArrayList<>();
+    // Indexed by id so simulation updates find their node in O(1), in insertion order
+    private Map<Integer, MachineNode> machineNodes = new LinkedHashMap<>();
+    private Map<Integer, QueueNode> queueNodes = new LinkedHashMap<>();
 //    private List<ConnectionLine> connections = new ArrayList<>();
 
     // State
@@ -36,18 +73,30 @@ public class SimulationCanvas extends BorderPane {
     private List<QueueNode> inputQueues = new ArrayList<>();
 
     // UI Controls
-    private ToggleButton selectBtn, machineBtn, queueBtn, connectBtn, deleteBtn;
-    private Button startBtn, stopBtn, replayBtn, pauseBtn, clearBtn;
-    private Label statusLabel, modeLabel, queueCountLabel, machineCountLabel;
+    private ToggleButton selectBtn, machineBtn, queueBtn, connectBtn, deleteBtn, canvasRendererBtn, statisticsBtn;
+    private Button startBtn, fastBtn, stopBtn, replayBtn, pauseBtn, clearBtn, saveBtn, loadBtn, seedBtn, zoomBtn;
+    private MenuButton arrivalsBtn;
+    private Label statusLabel, modeLabel, queueCountLabel, machineCountLabel, backlogLabel;
     private Slider speedSlider;
     private ProgressBar replayProgress;
+    private Slider timelineSlider;
+    private int replayTotalEvents = 0;
 
     // Simulation manager
     private SimulationManager manager;
+    private FrameCoalescingCallback uiUpdates;
+
+    private static final String RECORDING_EXTENSION = ".pcrec";
 
     // Grid settings
     private static final int GRID_SIZE = 20;
     private static final boolean SNAP_TO_GRID = true;
+    // Grid lines closer than this on screen are thinned out
+    private static final double MIN_GRID_SPACING = 8;
+
+    // Zoom limits
+    private static final double MIN_ZOOM = 0.1;
+    private static final double MAX_ZOOM = 4.0;
 
     // ID counters
     private int nextMachineId = 1;
@@ -61,18 +110,43 @@ public class SimulationCanvas extends BorderPane {
     }
 
     private void setupUI() {
+        // Sampled from the manager's metrics while shown, the manager exists by then
+        statisticsPanel = new StatisticsPanel(() -> manager.getMetrics().snapshot());
+        statisticsPanel.setOnFloat(this::toggleStatisticsFloating);
+
         // Top toolbar
         setTop(createToolbar());
 
         // Center drawing area
+        // Unmanaged and transformed, so moving nodes, panning and zooming never re-lay out the viewport
         drawingPane = new Pane();
-        drawingPane.setPrefSize(2000, 1500);
-        drawingPane.setStyle("-fx-background-color: #f5f5f5;");
-        drawGridBackground();
-
-        scrollPane = new ScrollPane(drawingPane);
-        scrollPane.setPannable(true);
-        setCenter(scrollPane);
+        drawingPane.setManaged(false);
+        drawingPane.setPickOnBounds(false);
+        drawingPane.getTransforms().setAll(pan, zoom);
+
+        // Grid and canvas renderer cover the viewport only
+        gridCanvas = new Canvas();
+        gridCanvas.setMouseTransparent(true);
+        networkCanvas = new NetworkCanvas(machineNodes.values(), queueNodes.values(), connections);
+        networkCanvas.setVisible(false);
+
+        viewport = new Pane(gridCanvas, networkCanvas, drawingPane);
+        viewport.setMinSize(0, 0);
+        Rectangle clip = new Rectangle();
+        clip.widthProperty().bind(viewport.widthProperty());
+        clip.heightProperty().bind(viewport.heightProperty());
+        viewport.setClip(clip);
+        gridCanvas.widthProperty().bind(viewport.widthProperty());
+        gridCanvas.heightProperty().bind(viewport.heightProperty());
+        networkCanvas.widthProperty().bind(viewport.widthProperty());
+        networkCanvas.heightProperty().bind(viewport.heightProperty());
+        gridCanvas.widthProperty().addListener(obs -> drawGridBackground());
+        gridCanvas.heightProperty().addListener(obs -> drawGridBackground());
+        centerSplit = new SplitPane(viewport);
+        setCenter(centerSplit);
+
+        setupViewportMouseHandlers();
+        setupCanvasMouseHandlers();
 
         // Bottom control panel
         setBottom(createControlPanel());
@@ -81,21 +155,108 @@ public class SimulationCanvas extends BorderPane {
         setRight(createSidePanel());
     }
 
+    /**
+     * Paints the grid for the visible part of the workspace only
+     */
     private void drawGridBackground() {
-        for (int x = 0; x < 2000; x += GRID_SIZE) {
-            Line line = new Line(x, 0, x, 1500);
-            line.setStroke(Color.gray(0.9));
-            line.setStrokeWidth(0.5);
-            drawingPane.getChildren().add(line);
+        GraphicsContext gc = gridCanvas.getGraphicsContext2D();
+        double width = gridCanvas.getWidth();
+        double height = gridCanvas.getHeight();
+        gc.setFill(Color.web("#f5f5f5"));
+        gc.fillRect(0, 0, width, height);
+
+        // Zoomed far out, draw every fifth line instead of a solid gray
+        double step = GRID_SIZE * zoom.getX();
+        while (step < MIN_GRID_SPACING) {
+            step *= 5;
         }
-        for (int y = 0; y < 1500; y += GRID_SIZE) {
-            Line line = new Line(0, y, 2000, y);
-            line.setStroke(Color.gray(0.9));
-            line.setStrokeWidth(0.5);
-            drawingPane.getChildren().add(line);
+
+        gc.setStroke(Color.gray(0.9));
+        gc.setLineWidth(0.5);
+        // First line at or after the viewport's edge
+        for (double x = ((pan.getX() % step) + step) % step; x < width; x += step) {
+            gc.strokeLine(x, 0, x, height);
+        }
+        for (double y = ((pan.getY() % step) + step) % step; y < height; y += step) {
+            gc.strokeLine(0, y, width, y);
         }
     }
 
+    // ============================================
+    // VIEWPORT
+    // ============================================
+
+    /**
+     * Shows the workspace with the given offset and zoom
+     */
+    private void setView(double panX, double panY, double scale) {
+        pan.setX(panX);
+        pan.setY(panY);
+        zoom.setX(scale);
+        zoom.setY(scale);
+        networkCanvas.setView(panX, panY, scale);
+        zoomBtn.setText(String.format("🔍 %d%%", Math.round(scale * 100)));
+        drawGridBackground();
+    }
+
+    /**
+     * Zooms by the factor, keeping the workspace point under the viewport point in place
+     */
+    private void zoomAt(double viewX, double viewY, double factor) {
+        double scale = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, zoom.getX() * factor));
+        double applied = scale / zoom.getX();
+        setView(viewX - (viewX - pan.getX()) * applied, viewY - (viewY - pan.getY()) * applied, scale);
+    }
+
+    /**
+     * Pans on drags over empty space, zooms on scroll, and adds elements on clicks
+     */
+    private void setupViewportMouseHandlers() {
+        final double[] panAnchor = new double[2];
+        final boolean[] panning = new boolean[1];
+
+        viewport.setOnMousePressed(e -> {
+            // Elements consume their own presses, so this is empty space
+            if (e.getButton() == MouseButton.MIDDLE
+                    || (e.getButton() == MouseButton.PRIMARY && currentMode == DrawMode.SELECT)) {
+                panAnchor[0] = e.getX() - pan.getX();
+                panAnchor[1] = e.getY() - pan.getY();
+                panning[0] = true;
+            }
+        });
+
+        viewport.setOnMouseDragged(e -> {
+            if (panning[0]) {
+                setView(e.getX() - panAnchor[0], e.getY() - panAnchor[1], zoom.getX());
+            }
+        });
+
+        viewport.setOnMouseReleased(e -> panning[0] = false);
+
+        viewport.setOnScroll(e -> {
+            if (e.getDeltaY() == 0) return;
+            zoomAt(e.getX(), e.getY(), Math.pow(1.001, e.getDeltaY()));
+            e.consume();
+        });
+
+        viewport.setOnMouseClicked(e -> {
+            // Ignore the click that ends a pan
+            if (e.getButton() != MouseButton.PRIMARY || !e.isStillSincePress()) return;
+            Point2D point = drawingPane.parentToLocal(e.getX(), e.getY());
+            double x = SNAP_TO_GRID ? snapToGrid(point.getX()) : point.getX();
+            double y = SNAP_TO_GRID ? snapToGrid(point.getY()) : point.getY();
+
+            switch (currentMode) {
+                case ADD_MACHINE:
+                    addMachine(x, y);
+                    break;
+                case ADD_QUEUE:
+                    addQueue(x, y);
+                    break;
+            }
+        });
+    }
+
     private ToolBar createToolbar() {
         ToolBar toolbar = new ToolBar();
         toolbar.setPadding(new Insets(10));
@@ -132,16 +293,28 @@ public class SimulationCanvas extends BorderPane {
         clearBtn = new Button("🧹 Clear All");
         clearBtn.setOnAction(e -> clearCanvas());
 
+        canvasRendererBtn = new ToggleButton("🖼 Canvas Renderer");
+        canvasRendererBtn.setTooltip(new Tooltip("Draw the network on a single canvas, faster for large topologies"));
+        canvasRendererBtn.setOnAction(e -> switchRenderer(canvasRendererBtn.isSelected()));
+
+        zoomBtn = new Button("🔍 100%");
+        zoomBtn.setTooltip(new Tooltip("Scroll to zoom, drag empty space to pan. Click to reset the view"));
+        zoomBtn.setOnAction(e -> setView(0, 0, 1));
+
         modeLabel = new Label("Mode: Select");
         modeLabel.setFont(Font.font("System", FontWeight.BOLD, 12));
         modeLabel.setStyle("-fx-text-fill: #2196F3;");
 
+        statisticsBtn = new ToggleButton("📊 Statistics");
+        statisticsBtn.setTooltip(new Tooltip("Live throughput, queue lengths, utilization and latency"));
+        statisticsBtn.setOnAction(e -> showStatistics(statisticsBtn.isSelected()));
+
         Region spacer = new Region();
         HBox.setHgrow(spacer, Priority.ALWAYS);
 
         toolbar.getItems().addAll(
                 selectBtn, machineBtn, queueBtn, connectBtn, deleteBtn,
-                sep1, clearBtn, spacer, modeLabel
+                sep1, clearBtn, canvasRendererBtn, zoomBtn, statisticsBtn, spacer, modeLabel
         );
 
         return toolbar;
@@ -157,6 +330,10 @@ public class SimulationCanvas extends BorderPane {
         startBtn.setStyle("-fx-background-color: #4CAF50; -fx-text-fill: white; -fx-font-weight: bold;");
         startBtn.setOnAction(e -> startSimulation());
 
+        fastBtn = new Button("⏩ Fast Simulate");
+        fastBtn.setStyle("-fx-background-color: #009688; -fx-text-fill: white; -fx-font-weight: bold;");
+        fastBtn.setOnAction(e -> fastSimulate());
+
         stopBtn = new Button("⏹ Stop");
         stopBtn.setStyle("-fx-background-color: #f44336; -fx-text-fill: white; -fx-font-weight: bold;");
         stopBtn.setDisable(true);
@@ -172,6 +349,26 @@ public class SimulationCanvas extends BorderPane {
         pauseBtn.setDisable(true);
         pauseBtn.setOnAction(e -> togglePause());
 
+        saveBtn = new Button("💾 Save");
+        saveBtn.setStyle("-fx-background-color: #607D8B; -fx-text-fill: white; -fx-font-weight: bold;");
+        saveBtn.setDisable(true);
+        saveBtn.setOnAction(e -> saveRecording());
+
+        loadBtn = new Button("📂 Load");
+        loadBtn.setStyle("-fx-background-color: #607D8B; -fx-text-fill: white; -fx-font-weight: bold;");
+        loadBtn.setOnAction(e -> loadRecording());
+
+        seedBtn = new Button("🎲 Seed");
+        seedBtn.setStyle("-fx-background-color: #607D8B; -fx-text-fill: white; -fx-font-weight: bold;");
+        seedBtn.setTooltip(new Tooltip("Runs with the same seed draw the same random numbers"));
+        seedBtn.setOnAction(e -> editSeed());
+
+        // Arrival process of the next runs, the menu shows the current one when opened
+        arrivalsBtn = new MenuButton("📈 Arrivals");
+        arrivalsBtn.setStyle("-fx-background-color: #607D8B; -fx-text-fill: white; -fx-font-weight: bold;");
+        arrivalsBtn.setTooltip(new Tooltip("How products arrive at the input queues"));
+        arrivalsBtn.setOnShowing(e -> fillArrivalsMenu());
+
         Separator sep = new Separator();
         sep.setOrientation(javafx.geometry.Orientation.VERTICAL);
 
@@ -198,6 +395,14 @@ public class SimulationCanvas extends BorderPane {
         replayProgress.setPrefWidth(200);
         replayProgress.setVisible(false);
 
+        // Timeline scrubber, seeks when released
+        timelineSlider = new Slider(0, 1, 0);
+        timelineSlider.setPrefWidth(250);
+        timelineSlider.setVisible(false);
+        timelineSlider.setTooltip(new Tooltip("Drag to jump to a point of the replay"));
+        timelineSlider.setOnMouseReleased(e ->
+                manager.seekReplay((int) Math.round(timelineSlider.getValue() * replayTotalEvents)));
+
         Region spacer = new Region();
         HBox.setHgrow(spacer, Priority.ALWAYS);
 
@@ -205,9 +410,9 @@ public class SimulationCanvas extends BorderPane {
         statusLabel.setStyle("-fx-text-fill: #4CAF50; -fx-font-weight: bold; -fx-font-size: 14;");
 
         controlPanel.getChildren().addAll(
-                startBtn, stopBtn, replayBtn, pauseBtn,
+                startBtn, fastBtn, stopBtn, replayBtn, pauseBtn, saveBtn, loadBtn, seedBtn, arrivalsBtn,
                 sep, speedLabel, speedSlider, speedValue,
-                replayProgress, spacer, statusLabel
+                replayProgress, timelineSlider, spacer, statusLabel
         );
 
         return controlPanel;
@@ -237,6 +442,10 @@ public class SimulationCanvas extends BorderPane {
                 )
         );
 
+        backlogLabel = new Label("UI updates: 0 pending");
+        backlogLabel.setFont(Font.font("System", 12));
+        backlogLabel.setStyle("-fx-text-fill: #757575;");
+
         Separator sep1 = new Separator();
 
         Label infoTitle = new Label("Instructions");
@@ -257,7 +466,7 @@ public class SimulationCanvas extends BorderPane {
         instructions.setStyle("-fx-font-size: 11;");
 
         sidePanel.getChildren().addAll(
-                title, machineCountLabel, queueCountLabel, connectionsLabel,
+                title, machineCountLabel, queueCountLabel, connectionsLabel, backlogLabel,
                 sep1, infoTitle, instructions
         );
 
@@ -265,10 +474,11 @@ public class SimulationCanvas extends BorderPane {
     }
 
     private void setupManager() {
+        // Callbacks come straight from the simulation threads and are handed to the UI once per frame
         manager = new SimulationManager();
 
         // Setup callback for simulation events
-        manager.setCallback(new SimulationCallback() {
+        uiUpdates = new FrameCoalescingCallback(new SimulationCallback() {
             @Override
             public void onSimulationStarted() {
                 statusLabel.setText("Simulation running...");
@@ -286,6 +496,8 @@ public class SimulationCanvas extends BorderPane {
                 statusLabel.setText("Replaying " + totalEvents + " events...");
                 statusLabel.setStyle("-fx-text-fill: #2196F3;");
                 replayProgress.setProgress(0);
+                replayTotalEvents = totalEvents;
+                timelineSlider.setValue(0);
             }
 
             @Override
@@ -293,16 +505,23 @@ public class SimulationCanvas extends BorderPane {
                 statusLabel.setText("Replay finished");
                 statusLabel.setStyle("-fx-text-fill: #4CAF50;");
                 replayProgress.setProgress(1.0);
+                timelineSlider.setVisible(false);
 
                 pauseBtn.setDisable(true);
                 speedSlider.setDisable(true);
                 replayBtn.setDisable(false);
+                saveBtn.setDisable(false);
+                loadBtn.setDisable(false);
                 enableDrawingTools();
             }
 
             @Override
             public void onReplayProgress(double progress) {
                 replayProgress.setProgress(progress);
+                // Don't move the scrubber under the user's mouse
+                if (!timelineSlider.isPressed() && !timelineSlider.isValueChanging()) {
+                    timelineSlider.setValue(progress);
+                }
             }
 
             @Override
@@ -323,12 +542,14 @@ public class SimulationCanvas extends BorderPane {
             @Override
             public void onQueueSizeChanged(int queueId, int size) {
                 // Update queue display
-                for (QueueNode node : queueNodes) {
-                    if (node.queueId == queueId) {
-                        node.setQueueSize(size);
-                        break;
-                    }
-                }
+                QueueNode node = queueNodes.get(queueId);
+                if (node != null) node.setQueueSize(size);
+            }
+
+            @Override
+            public void onQueueOverflowChanged(int queueId, long droppedCount, int blockedCount) {
+                QueueNode node = queueNodes.get(queueId);
+                if (node != null) node.setOverflow(droppedCount, blockedCount);
             }
 
             @Override
@@ -339,34 +560,22 @@ public class SimulationCanvas extends BorderPane {
             @Override
             public void onMachineFinishedProcessing(int machineId, Product product) {
                 // Flash the machine
-                for (MachineNode node : machineNodes) {
-                    if (node.machineId == machineId) {
-                        node.flash();
-                        break;
-                    }
-                }
+                MachineNode node = machineNodes.get(machineId);
+                if (node != null) node.flash();
             }
 
             @Override
             public void onMachineColorChanged(int machineId, org.example.producerconsumergui.Model.Color color) {
                 // Update machine color
-                for (MachineNode node : machineNodes) {
-                    if (node.machineId == machineId) {
-                        node.setCurrentColor(color);
-                        break;
-                    }
-                }
+                MachineNode node = machineNodes.get(machineId);
+                if (node != null) node.setCurrentColor(color);
             }
 
             @Override
             public void onMachineStatusChanged(int machineId, String status) {
                 // Update machine status
-                for (MachineNode node : machineNodes) {
-                    if (node.machineId == machineId) {
-                        node.setStatus(status);
-                        break;
-                    }
-                }
+                MachineNode node = machineNodes.get(machineId);
+                if (node != null) node.setStatus(status);
             }
 
             @Override
@@ -374,21 +583,14 @@ public class SimulationCanvas extends BorderPane {
                 showError(message);
             }
         });
-
-        // Setup mouse handlers for drawing
-        drawingPane.setOnMouseClicked(e -> {
-            double x = SNAP_TO_GRID ? snapToGrid(e.getX()) : e.getX();
-            double y = SNAP_TO_GRID ? snapToGrid(e.getY()) : e.getY();
-
-            switch (currentMode) {
-                case ADD_MACHINE:
-                    addMachine(x, y);
-                    break;
-                case ADD_QUEUE:
-                    addQueue(x, y);
-                    break;
-            }
-        });
+        manager.setCallback(uiUpdates);
+        uiUpdates.start();
+        fillArrivalsMenu();
+
+        // Show how far the UI is behind the simulation
+        Timeline backlogRefresh = new Timeline(new KeyFrame(Duration.seconds(1), e -> updateBacklogLabel()));
+        backlogRefresh.setCycleCount(Animation.INDEFINITE);
+        backlogRefresh.play();
     }
 
     private void handleMachineClick(MachineNode node) {
@@ -422,7 +624,7 @@ public class SimulationCanvas extends BorderPane {
                 // Create connection
                 ConnectionLine conn = new ConnectionLine(connectionSource, tempInputQueue, outputQueue);
                 connections.add(conn);
-                drawingPane.getChildren().add(0, conn); // Add behind nodes
+                showElement(conn);
 
                 // Reset styles
                 connectionSource.circle.setStroke(Color.BLACK);
@@ -451,9 +653,17 @@ public class SimulationCanvas extends BorderPane {
     private void addMachine(double x, double y) {
         double centerX = x - MachineNode.RADIUS;
         double centerY = y - MachineNode.RADIUS;
-        MachineNode node = new MachineNode(nextMachineId++, centerX, centerY);
-        machineNodes.add(node);
-        drawingPane.getChildren().add(node);
+        MachineNode node = createMachineNode(nextMachineId++, centerX, centerY);
+
+        updateStatistics();
+        statusLabel.setText("Machine M" + node.machineId + " added");
+    }
+
+    private MachineNode createMachineNode(int id, double layoutX, double layoutY) {
+        MachineNode node = new MachineNode(id, layoutX, layoutY);
+        machineNodes.put(id, node);
+        networkCanvas.watch(node);
+        showElement(node);
 
         // Make draggable
         makeDraggable(node);
@@ -470,17 +680,23 @@ public class SimulationCanvas extends BorderPane {
         node.setOnContextMenuRequested(e -> {
             showMachineContextMenu(node, e.getScreenX(), e.getScreenY());
         });
-
-        updateStatistics();
-        statusLabel.setText("Machine M" + node.machineId + " added");
+        return node;
     }
 
     private void addQueue(double x, double y) {
         double centerX = x - QueueNode.WIDTH / 2.0;
         double centerY = y - QueueNode.HEIGHT / 2.0;
-        QueueNode node = new QueueNode(nextQueueId++, centerX, centerY);
-        queueNodes.add(node);
-        drawingPane.getChildren().add(node);
+        QueueNode node = createQueueNode(nextQueueId++, centerX, centerY);
+
+        updateStatistics();
+        statusLabel.setText("Queue Q" + node.queueId + " added");
+    }
+
+    private QueueNode createQueueNode(int id, double layoutX, double layoutY) {
+        QueueNode node = new QueueNode(id, layoutX, layoutY);
+        queueNodes.put(id, node);
+        networkCanvas.watch(node);
+        showElement(node);
 
         // Make draggable
         makeDraggable(node);
@@ -497,9 +713,7 @@ public class SimulationCanvas extends BorderPane {
         node.setOnContextMenuRequested(e -> {
             showQueueContextMenu(node, e.getScreenX(), e.getScreenY());
         });
-
-        updateStatistics();
-        statusLabel.setText("Queue Q" + node.queueId + " added");
+        return node;
     }
 
     private void makeDraggable(Region node) {
@@ -514,8 +728,6 @@ public class SimulationCanvas extends BorderPane {
                 dragDelta[0] = node.getLayoutX() - paneX;
                 dragDelta[1] = node.getLayoutY() - paneY;
                 node.setStyle(node.getStyle() + "-fx-effect: dropshadow(gaussian, rgba(0,0,0,0.5), 10, 0, 0, 0);");
-                // Disable canvas panning while dragging
-                scrollPane.setPannable(false);
                 e.consume();
             }
         });
@@ -544,8 +756,6 @@ public class SimulationCanvas extends BorderPane {
 
         node.setOnMouseReleased(e -> {
             node.setStyle(node.getStyle().replace("-fx-effect: dropshadow(gaussian, rgba(0,0,0,0.5), 10, 0, 0, 0);", ""));
-            // Re-enable canvas panning after drag
-            scrollPane.setPannable(true);
             e.consume();
         });
     }
@@ -559,8 +769,40 @@ public class SimulationCanvas extends BorderPane {
         MenuItem changeColor = new MenuItem("Change Color");
         changeColor.setOnAction(e -> changeMachineColor(node));
 
-        menu.getItems().addAll(changeColor, delete);
-        menu.show(node, x, y);
+        // Output routing, one policy per machine
+        Menu routing = new Menu("Routing");
+        ToggleGroup routingGroup = new ToggleGroup();
+        for (RoutingPolicy policy : RoutingPolicy.values()) {
+            RadioMenuItem item = new RadioMenuItem(policy.getLabel());
+            item.setToggleGroup(routingGroup);
+            item.setSelected(policy == node.routingPolicy);
+            item.setOnAction(e -> {
+                node.routingPolicy = policy;
+                statusLabel.setText("Machine M" + node.machineId + " routes by " + policy.getLabel().toLowerCase());
+            });
+            routing.getItems().add(item);
+        }
+        MenuItem weights = new MenuItem("Output Weights...");
+        weights.setOnAction(e -> editOutputWeights(node));
+        routing.getItems().addAll(new SeparatorMenuItem(), weights);
+
+        // Service time distribution, parameters are asked for when one is picked
+        Menu serviceTime = new Menu("Service Time");
+        MenuItem current = new MenuItem(node.serviceTime.getLabel());
+        current.setDisable(true);
+        serviceTime.getItems().addAll(current, new SeparatorMenuItem());
+        ToggleGroup serviceGroup = new ToggleGroup();
+        for (DistributionType type : DistributionType.values()) {
+            RadioMenuItem item = new RadioMenuItem(type.getLabel() + "...");
+            item.setToggleGroup(serviceGroup);
+            item.setSelected(type == node.serviceTime.getType());
+            item.setOnAction(e -> editServiceTime(node, type));
+            serviceTime.getItems().add(item);
+        }
+
+        menu.getItems().addAll(changeColor, routing, serviceTime, delete);
+        // Anchored on the pane, the node isn't in the scene with the canvas renderer
+        menu.show(drawingPane, x, y);
     }
 
     private void showQueueContextMenu(QueueNode node, double x, double y) {
@@ -570,11 +812,285 @@ public class SimulationCanvas extends BorderPane {
         MenuItem toggleInput = new MenuItem(isInput ? "✓ Input Queue" : "Set as Input Queue");
         toggleInput.setOnAction(e -> toggleInputQueue(node));
 
+        // Bound and what happens to products arriving while full
+        Menu capacity = new Menu("Capacity");
+        MenuItem setCapacity = new MenuItem(node.capacity > 0 ? "Capacity: " + node.capacity + "..." : "Unbounded...");
+        setCapacity.setOnAction(e -> editQueueCapacity(node));
+        capacity.getItems().addAll(setCapacity, new SeparatorMenuItem());
+        ToggleGroup overflowGroup = new ToggleGroup();
+        for (OverflowPolicy policy : OverflowPolicy.values()) {
+            RadioMenuItem item = new RadioMenuItem(policy.getLabel());
+            item.setToggleGroup(overflowGroup);
+            item.setSelected(policy == node.overflowPolicy);
+            item.setOnAction(e -> setOverflowPolicy(node, policy));
+            capacity.getItems().add(item);
+        }
+
         MenuItem delete = new MenuItem("Delete Queue");
         delete.setOnAction(e -> deleteQueue(node));
 
-        menu.getItems().addAll(toggleInput, delete);
-        menu.show(node, x, y);
+        menu.getItems().addAll(toggleInput, capacity);
+        if (isInput) {
+            // A share of the session's arrivals, or arrivals of its own
+            Menu arrivals = new Menu("Arrivals");
+            MenuItem current = new MenuItem(node.arrivals == null ? "Shared" : node.arrivals.getLabel());
+            current.setDisable(true);
+            MenuItem weight = new MenuItem("Weight: " + node.arrivalWeight + "...");
+            weight.setOnAction(e -> editArrivalWeight(node));
+            arrivals.getItems().addAll(current, weight, new SeparatorMenuItem());
+            ToggleGroup arrivalsGroup = new ToggleGroup();
+            RadioMenuItem shared = new RadioMenuItem("Shared");
+            shared.setToggleGroup(arrivalsGroup);
+            shared.setSelected(node.arrivals == null);
+            shared.setOnAction(e -> {
+                node.arrivals = null;
+                statusLabel.setText("Queue Q" + node.queueId + " shares the arrivals");
+            });
+            arrivals.getItems().add(shared);
+            for (ArrivalType type : ArrivalType.values()) {
+                RadioMenuItem item = new RadioMenuItem(type.getLabel() + "...");
+                item.setToggleGroup(arrivalsGroup);
+                item.setSelected(node.arrivals != null && type == node.arrivals.getType());
+                item.setOnAction(e -> {
+                    ArrivalProcess own = askArrivals(type, node.arrivals == null ? manager.getArrivalProcess() : node.arrivals);
+                    if (own == null) return;
+                    node.arrivals = own;
+                    statusLabel.setText("Queue Q" + node.queueId + " arrivals: " + own.getLabel());
+                });
+                arrivals.getItems().add(item);
+            }
+            menu.getItems().add(arrivals);
+        }
+        menu.getItems().add(delete);
+        menu.show(drawingPane, x, y);
+    }
+
+    /**
+     * Sets the seed of the next runs, empty picks a new random one
+     */
+    private void editSeed() {
+        TextInputDialog dialog = new TextInputDialog(String.valueOf(manager.getSeed()));
+        dialog.setTitle("Random Seed");
+        dialog.setHeaderText("Fast simulations with the same seed and topology repeat exactly.\n"
+                + "Leave empty for a new random seed.");
+        dialog.setContentText("Seed:");
+        Optional<String> result = dialog.showAndWait();
+        if (result.isEmpty()) return;
+
+        long seed;
+        try {
+            seed = result.get().isBlank()
+                    ? new java.util.SplittableRandom().nextLong()
+                    : Long.parseLong(result.get().trim());
+        } catch (NumberFormatException ex) {
+            showError("Please enter a whole number");
+            return;
+        }
+        manager.setSeed(seed);
+        statusLabel.setText("Seed " + seed);
+    }
+
+    private void fillArrivalsMenu() {
+        ArrivalProcess arrivals = manager.getArrivalProcess();
+        MenuItem current = new MenuItem(arrivals.getLabel());
+        current.setDisable(true);
+        arrivalsBtn.getItems().setAll(current, new SeparatorMenuItem());
+        ToggleGroup arrivalsGroup = new ToggleGroup();
+        for (ArrivalType type : ArrivalType.values()) {
+            RadioMenuItem item = new RadioMenuItem(type.getLabel() + "...");
+            item.setToggleGroup(arrivalsGroup);
+            item.setSelected(type == arrivals.getType());
+            item.setOnAction(e -> {
+                ArrivalProcess chosen = askArrivals(type, manager.getArrivalProcess());
+                if (chosen == null) return;
+                manager.setArrivalProcess(chosen);
+                statusLabel.setText("Arrivals: " + chosen.getLabel());
+            });
+            arrivalsBtn.getItems().add(item);
+        }
+
+        // How the inputs without arrivals of their own share them
+        Menu routing = new Menu("Routing: " + manager.getArrivalRouting().getLabel());
+        ToggleGroup routingGroup = new ToggleGroup();
+        for (ArrivalRouting policy : ArrivalRouting.values()) {
+            RadioMenuItem item = new RadioMenuItem(policy.getLabel());
+            item.setToggleGroup(routingGroup);
+            item.setSelected(policy == manager.getArrivalRouting());
+            item.setOnAction(e -> {
+                manager.setArrivalRouting(policy);
+                statusLabel.setText("Arrival routing: " + policy.getLabel());
+            });
+            routing.getItems().add(item);
+        }
+        arrivalsBtn.getItems().addAll(new SeparatorMenuItem(), routing);
+    }
+
+    /**
+     * Asks for the parameters of an arrival process, or the CSV of timestamps for a trace,
+     * starting from the current one; null if cancelled or invalid (after telling the user)
+     */
+    private ArrivalProcess askArrivals(ArrivalType type, ArrivalProcess current) {
+        double rate = current.getMeanRatePerSecond();
+        if (Double.isNaN(rate)) rate = 1;
+        try {
+            switch (type) {
+                case UNIFORM -> {
+                    boolean sameType = type == current.getType();
+                    Double min = askNumber("Uniform Arrivals", "Shortest time between products in milliseconds",
+                            "Min (ms):", sameType ? current.getMinMillis() : 500);
+                    if (min == null) return null;
+                    Double max = askNumber("Uniform Arrivals", "Longest time between products in milliseconds",
+                            "Max (ms):", sameType ? current.getMaxMillis() : 2000);
+                    if (max == null) return null;
+                    return ArrivalProcess.uniform(min, max);
+                }
+                case POISSON, DETERMINISTIC -> {
+                    Double value = askNumber(type.getLabel() + " Arrivals", "Products arriving per second",
+                            "Rate (/s):", rate);
+                    if (value == null) return null;
+                    return type == ArrivalType.POISSON
+                            ? ArrivalProcess.poisson(value)
+                            : ArrivalProcess.deterministic(value);
+                }
+                case MMPP -> {
+                    boolean sameType = type == current.getType();
+                    double[] rates = askNumbers("Bursty Arrivals",
+                            "Products per second in each state, e.g. quiet and burst",
+                            "Rates (/s):", sameType ? current.getRatesPerSecond() : new double[]{rate, rate * 20});
+                    if (rates == null) return null;
+                    double[] stays = askNumbers("Bursty Arrivals",
+                            "Mean time spent in each state in milliseconds",
+                            "Times (ms):", sameType ? current.getMeanStateMillis() : new double[]{5000, 500});
+                    if (stays == null) return null;
+                    return ArrivalProcess.mmpp(rates, stays);
+                }
+                default -> {
+                    FileChooser chooser = new FileChooser();
+                    chooser.setTitle("Arrival Timestamps");
+                    chooser.getExtensionFilters().addAll(
+                            new FileChooser.ExtensionFilter("CSV files", "*.csv", "*.txt"),
+                            new FileChooser.ExtensionFilter("All files", "*.*"));
+                    File file = chooser.showOpenDialog(getScene().getWindow());
+                    if (file == null) return null;
+                    return ArrivalProcess.trace(file.toPath());
+                }
+            }
+        } catch (IllegalArgumentException ex) {
+            showError(ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Asks for a comma separated list of numbers, null if cancelled or not numbers
+     */
+    private double[] askNumbers(String title, String header, String content, double[] initial) {
+        StringBuilder text = new StringBuilder();
+        for (double value : initial) {
+            if (!text.isEmpty()) text.append(", ");
+            text.append(value == Math.rint(value) ? String.valueOf((long) value) : String.valueOf(value));
+        }
+        TextInputDialog dialog = new TextInputDialog(text.toString());
+        dialog.setTitle(title);
+        dialog.setHeaderText(header);
+        dialog.setContentText(content);
+        Optional<String> result = dialog.showAndWait();
+        if (result.isEmpty()) return null;
+
+        String[] parts = result.get().split(",");
+        double[] parsed = new double[parts.length];
+        try {
+            for (int i = 0; i < parts.length; i++) {
+                parsed[i] = Double.parseDouble(parts[i].trim());
+            }
+        } catch (NumberFormatException ex) {
+            showError("Please enter numbers separated by commas");
+            return null;
+        }
+        return parsed;
+    }
+
+    /**
+     * Asks for the queue's capacity, empty or 0 for unbounded
+     */
+    private void editQueueCapacity(QueueNode node) {
+        TextInputDialog dialog = new TextInputDialog(node.capacity > 0 ? String.valueOf(node.capacity) : "");
+        dialog.setTitle("Queue Capacity");
+        dialog.setHeaderText("Products Q" + node.queueId + " can hold, empty for unbounded");
+        dialog.setContentText("Capacity:");
+        Optional<String> result = dialog.showAndWait();
+        if (result.isEmpty()) return;
+
+        int capacity;
+        try {
+            capacity = result.get().isBlank() ? 0 : Integer.parseInt(result.get().trim());
+        } catch (NumberFormatException ex) {
+            showError("Please enter a whole number");
+            return;
+        }
+        if (capacity < 0) {
+            showError("Capacity can't be negative");
+            return;
+        }
+        node.setCapacity(capacity, node.overflowPolicy, node.overflowQueueId);
+        statusLabel.setText(capacity > 0
+                ? "Queue Q" + node.queueId + " holds up to " + capacity + " products"
+                : "Queue Q" + node.queueId + " is unbounded");
+    }
+
+    /**
+     * Asks for the input queue's share of the arrivals under weighted arrival routing
+     */
+    private void editArrivalWeight(QueueNode node) {
+        TextInputDialog dialog = new TextInputDialog(String.valueOf(node.arrivalWeight));
+        dialog.setTitle("Arrival Weight");
+        dialog.setHeaderText("Share of the arrivals Q" + node.queueId + " gets under weighted arrival routing");
+        dialog.setContentText("Weight:");
+        Optional<String> result = dialog.showAndWait();
+        if (result.isEmpty()) return;
+
+        int weight;
+        try {
+            weight = Integer.parseInt(result.get().trim());
+        } catch (NumberFormatException ex) {
+            showError("Please enter a whole number");
+            return;
+        }
+        if (weight <= 0) {
+            showError("Weights must be positive");
+            return;
+        }
+        node.arrivalWeight = weight;
+        statusLabel.setText("Arrival weight of Q" + node.queueId + " set to " + weight);
+    }
+
+    /**
+     * Sets what a full queue does, rerouting asks for the queue that takes the overflow
+     */
+    private void setOverflowPolicy(QueueNode node, OverflowPolicy policy) {
+        int overflowQueueId = -1;
+        if (policy == OverflowPolicy.REROUTE) {
+            List<String> choices = new ArrayList<>();
+            for (QueueNode other : queueNodes.values()) {
+                if (other != node) choices.add("Q" + other.queueId);
+            }
+            if (choices.isEmpty()) {
+                showError("Add another queue to reroute to first");
+                return;
+            }
+            QueueNode current = queueNodes.get(node.overflowQueueId);
+            ChoiceDialog<String> dialog = new ChoiceDialog<>(
+                    current != null && current != node ? "Q" + current.queueId : choices.get(0), choices);
+            dialog.setTitle("Reroute Overflow");
+            dialog.setHeaderText("Queue that takes what doesn't fit in Q" + node.queueId);
+            dialog.setContentText("Queue:");
+            Optional<String> result = dialog.showAndWait();
+            if (result.isEmpty()) return;
+            overflowQueueId = Integer.parseInt(result.get().substring(1));
+        }
+        node.setCapacity(node.capacity, policy, overflowQueueId);
+        statusLabel.setText("Queue Q" + node.queueId + " overflow: " + policy.getLabel().toLowerCase()
+                + (overflowQueueId >= 0 ? " to Q" + overflowQueueId : ""));
     }
 
     private void toggleInputQueue(QueueNode node) {
@@ -603,30 +1119,159 @@ public class SimulationCanvas extends BorderPane {
         node.setOriginalColor(colors[(currentIndex + 1) % colors.length]);
     }
 
+    /**
+     * Asks for the parameters of a service time distribution, or the CSV of observed
+     * times for an empirical one, and gives it to the machine
+     */
+    private void editServiceTime(MachineNode node, DistributionType type) {
+        TimeDistribution serviceTime;
+        try {
+            if (type == DistributionType.EMPIRICAL) {
+                FileChooser chooser = new FileChooser();
+                chooser.setTitle("Observed Service Times of M" + node.machineId);
+                chooser.getExtensionFilters().addAll(
+                        new FileChooser.ExtensionFilter("CSV files", "*.csv", "*.txt"),
+                        new FileChooser.ExtensionFilter("All files", "*.*"));
+                File file = chooser.showOpenDialog(getScene().getWindow());
+                if (file == null) return;
+                serviceTime = TimeDistribution.loadEmpirical(file.toPath());
+            } else {
+                Double mean = askNumber(type.getLabel() + " Service Time",
+                        "Mean service time of M" + node.machineId + " in milliseconds",
+                        "Mean (ms):", node.serviceTime.getMeanMillis());
+                if (mean == null) return;
+                double shape = 0;
+                if (type.hasShape()) {
+                    boolean sameType = type == node.serviceTime.getType();
+                    Double value = type == DistributionType.LOGNORMAL
+                            ? askNumber("Lognormal Service Time", "Standard deviation of the log, larger is more skewed",
+                                    "Sigma:", sameType ? node.serviceTime.getShape() : 0.5)
+                            : askNumber("Erlang Service Time", "Number of exponential phases, more is less variable",
+                                    "Phases:", sameType ? node.serviceTime.getShape() : 2);
+                    if (value == null) return;
+                    shape = value;
+                }
+                serviceTime = switch (type) {
+                    case UNIFORM -> TimeDistribution.uniform(mean);
+                    case EXPONENTIAL -> TimeDistribution.exponential(mean);
+                    case LOGNORMAL -> TimeDistribution.lognormal(mean, shape);
+                    case ERLANG -> {
+                        if (shape != Math.rint(shape)) throw new IllegalArgumentException("Phases must be a whole number");
+                        yield TimeDistribution.erlang((int) shape, mean);
+                    }
+                    default -> TimeDistribution.constant(mean);
+                };
+            }
+        } catch (IOException | IllegalArgumentException ex) {
+            showError(ex.getMessage());
+            return;
+        }
+        node.serviceTime = serviceTime;
+        statusLabel.setText("Machine M" + node.machineId + " service time: " + serviceTime.getLabel());
+    }
+
+    /**
+     * Asks for a number, null if cancelled or not a number (after telling the user)
+     */
+    private Double askNumber(String title, String header, String content, double initial) {
+        TextInputDialog dialog = new TextInputDialog(
+                initial == Math.rint(initial) ? String.valueOf((long) initial) : String.valueOf(initial));
+        dialog.setTitle(title);
+        dialog.setHeaderText(header);
+        dialog.setContentText(content);
+        Optional<String> result = dialog.showAndWait();
+        if (result.isEmpty()) return null;
+        try {
+            return Double.parseDouble(result.get().trim());
+        } catch (NumberFormatException ex) {
+            showError("Please enter a number");
+            return null;
+        }
+    }
+
+    /**
+     * Asks for the weight of each of the machine's outputs, used by weighted routing
+     */
+    private void editOutputWeights(MachineNode node) {
+        List<ConnectionLine> outputs = connections.stream().filter(conn -> conn.source == node).toList();
+        if (outputs.isEmpty()) {
+            showError("Machine M" + node.machineId + " has no output queues yet");
+            return;
+        }
+
+        StringBuilder current = new StringBuilder();
+        for (ConnectionLine conn : outputs) {
+            if (!current.isEmpty()) current.append(", ");
+            current.append(conn.weight);
+        }
+        StringBuilder queues = new StringBuilder();
+        for (ConnectionLine conn : outputs) {
+            if (!queues.isEmpty()) queues.append(", ");
+            queues.append("Q").append(conn.outputQueue.queueId);
+        }
+
+        TextInputDialog dialog = new TextInputDialog(current.toString());
+        dialog.setTitle("Output Weights");
+        dialog.setHeaderText("Weights of M" + node.machineId + "'s outputs " + queues + " for weighted routing");
+        dialog.setContentText("Weights:");
+        Optional<String> result = dialog.showAndWait();
+        if (result.isEmpty()) return;
+
+        String[] parts = result.get().split(",");
+        if (parts.length != outputs.size()) {
+            showError("Please enter one weight per output queue");
+            return;
+        }
+        int[] parsed = new int[parts.length];
+        try {
+            for (int i = 0; i < parts.length; i++) {
+                parsed[i] = Integer.parseInt(parts[i].trim());
+            }
+        } catch (NumberFormatException ex) {
+            showError("Please enter whole numbers");
+            return;
+        }
+        for (int weight : parsed) {
+            if (weight <= 0) {
+                showError("Weights must be positive");
+                return;
+            }
+        }
+        for (int i = 0; i < parsed.length; i++) {
+            outputs.get(i).weight = parsed[i];
+        }
+        statusLabel.setText("Output weights of M" + node.machineId + " set");
+    }
+
     private void deleteMachine(MachineNode node) {
-        machineNodes.remove(node);
+        machineNodes.remove(node.machineId);
         drawingPane.getChildren().remove(node);
 
-        // Remove associated connections
-        connections.removeIf(conn -> conn.source == node);
-        drawingPane.getChildren().removeAll(
-                connections.stream()
-                        .filter(conn -> conn.source == node)
-                        .toList()
-        );
+        // Remove associated connections, from the pane too
+        List<ConnectionLine> removed = connections.stream()
+                .filter(conn -> conn.source == node)
+                .toList();
+        connections.removeAll(removed);
+        drawingPane.getChildren().removeAll(removed);
 
+        if (networkCanvas.isActive()) networkCanvas.markAllDirty();
         updateConnections();
         updateStatistics();
     }
 
     private void deleteQueue(QueueNode node) {
         inputQueues.remove(node);
-        queueNodes.remove(node);
+        queueNodes.remove(node.queueId);
         drawingPane.getChildren().remove(node);
 
-        // Remove associated connections
-        connections.removeIf(conn -> conn.inputQueue == node || conn.outputQueue == node);
+        // Remove associated connections, from the pane too
+        List<ConnectionLine> removed = connections.stream()
+                .filter(conn -> conn.inputQueue == node || conn.outputQueue == node)
+                .toList();
+        connections.removeAll(removed);
+        drawingPane.getChildren().removeAll(removed);
 
+        if (networkCanvas.isActive()) networkCanvas.markAllDirty();
         updateConnections();
         updateStatistics();
     }
@@ -637,6 +1282,13 @@ public class SimulationCanvas extends BorderPane {
         }
     }
 
+    private void updateBacklogLabel() {
+        backlogLabel.setText(String.format("UI updates: %d pending, %d merged, %.1f ms behind",
+                uiUpdates.getPendingUpdates(),
+                uiUpdates.getCoalescedUpdates(),
+                uiUpdates.getLastFrameLatencyNanos() / 1_000_000.0));
+    }
+
     private void updateStatistics() {
         machineCountLabel.setText("Machines: " + machineNodes.size());
         queueCountLabel.setText("Queues: " + queueNodes.size());
@@ -650,71 +1302,439 @@ public class SimulationCanvas extends BorderPane {
 
         Optional<ButtonType> result = alert.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            machineNodes.clear();
-            queueNodes.clear();
-            connections.clear();
-            inputQueues.clear();
-            drawingPane.getChildren().clear();
-            drawGridBackground();
-            updateStatistics();
+            removeAllNodes();
             statusLabel.setText("Canvas cleared");
         }
     }
 
-    private void startSimulation() {
-        if (inputQueues.isEmpty()) {
-            showError("Please set at least one input queue first (right-click a queue)");
-            return;
+    private void removeAllNodes() {
+        machineNodes.clear();
+        queueNodes.clear();
+        connections.clear();
+        inputQueues.clear();
+        drawingPane.getChildren().clear();
+        if (networkCanvas.isActive()) networkCanvas.markAllDirty();
+        updateStatistics();
+    }
+
+    // ============================================
+    // CANVAS RENDERER
+    // ============================================
+
+    /**
+     * Switches between a scene graph node per element and drawing them all on one canvas
+     */
+    private void switchRenderer(boolean useCanvas) {
+        if (useCanvas == networkCanvas.isActive()) return;
+        if (useCanvas) {
+            drawingPane.getChildren().clear();
+            networkCanvas.setActive(true);
+            statusLabel.setText("Drawing on a single canvas");
+        } else {
+            networkCanvas.setActive(false);
+            drawingPane.getChildren().addAll(connections);
+            drawingPane.getChildren().addAll(queueNodes.values());
+            drawingPane.getChildren().addAll(machineNodes.values());
+            // Nodes may have moved while they were drawn on the canvas
+            Platform.runLater(this::updateConnections);
+            statusLabel.setText("Drawing with scene graph nodes");
         }
+    }
 
-        if (machineNodes.isEmpty()) {
-            showError("Please add at least one machine");
-            return;
+    // ============================================
+    // STATISTICS PANEL
+    // ============================================
+
+    /**
+     * Shows the statistics docked beside the drawing area, or in their own window if floating
+     */
+    private void showStatistics(boolean show) {
+        if (show) {
+            if (statisticsStage != null) {
+                statisticsStage.show();
+            } else if (!centerSplit.getItems().contains(statisticsPanel)) {
+                centerSplit.getItems().add(statisticsPanel);
+                centerSplit.setDividerPositions(0.75);
+            }
+            statisticsPanel.start();
+        } else {
+            // Nothing is sampled while the panel is hidden
+            statisticsPanel.stop();
+            if (statisticsStage != null) {
+                statisticsStage.hide();
+            } else {
+                centerSplit.getItems().remove(statisticsPanel);
+            }
         }
+        statisticsBtn.setSelected(show);
+    }
 
-        // Build simulation - add all components to manager
-        for (MachineNode node : machineNodes) {
-            manager.addMachine(node.machineId, node.originalColor);
+    /**
+     * Moves the statistics between the split pane and a window of their own
+     */
+    private void toggleStatisticsFloating() {
+        if (statisticsStage == null) {
+            centerSplit.getItems().remove(statisticsPanel);
+            statisticsStage = new Stage();
+            statisticsStage.setTitle("Live Statistics");
+            statisticsStage.initOwner(getScene().getWindow());
+            ScrollPane scroll = new ScrollPane(statisticsPanel);
+            scroll.setFitToWidth(true);
+            statisticsStage.setScene(new javafx.scene.Scene(scroll, 320, 640));
+            // Closing the window docks the panel again
+            statisticsStage.setOnCloseRequest(e -> {
+                e.consume();
+                dockStatistics();
+            });
+            statisticsPanel.setFloating(true);
+            statisticsStage.show();
+        } else {
+            dockStatistics();
         }
+    }
+
+    private void dockStatistics() {
+        Stage stage = statisticsStage;
+        statisticsStage = null;
+        ((ScrollPane) stage.getScene().getRoot()).setContent(null);
+        stage.hide();
+        statisticsPanel.setFloating(false);
+        centerSplit.getItems().add(statisticsPanel);
+        centerSplit.setDividerPositions(0.75);
+    }
 
-        for (QueueNode node : queueNodes) {
-            manager.addQueue(node.queueId);
+    /**
+     * Shows a new element with the current renderer
+     */
+    private void showElement(javafx.scene.Node element) {
+        if (networkCanvas.isActive()) {
+            networkCanvas.markDirty(element);
+        } else if (element instanceof ConnectionLine) {
+            drawingPane.getChildren().add(0, element); // Add behind nodes
+        } else {
+            drawingPane.getChildren().add(element);
         }
+    }
+
+    /**
+     * Hit-tests canvas mouse events so editing works like on the nodes
+     */
+    private void setupCanvasMouseHandlers() {
+        final Region[] dragged = new Region[1];
+        final Region[] hovered = new Region[1];
+        final double[] dragDelta = new double[2];
+
+        networkCanvas.setOnMouseMoved(e -> {
+            Region hit = (Region) networkCanvas.hitTest(e.getX(), e.getY());
+            if (hit == hovered[0]) return;
+            setHovered(hovered[0], false);
+            setHovered(hit, true);
+            hovered[0] = hit;
+        });
+
+        networkCanvas.setOnMouseExited(e -> {
+            setHovered(hovered[0], false);
+            hovered[0] = null;
+        });
+
+        // Presses on empty space fall through to the viewport to pan
+        networkCanvas.setOnMousePressed(e -> {
+            if (currentMode != DrawMode.SELECT || e.getButton() != MouseButton.PRIMARY) return;
+            Region hit = (Region) networkCanvas.hitTest(e.getX(), e.getY());
+            if (hit == null) return;
+            Point2D point = drawingPane.sceneToLocal(e.getSceneX(), e.getSceneY());
+            dragged[0] = hit;
+            dragDelta[0] = hit.getLayoutX() - point.getX();
+            dragDelta[1] = hit.getLayoutY() - point.getY();
+            e.consume();
+        });
+
+        networkCanvas.setOnMouseDragged(e -> {
+            if (dragged[0] == null || currentMode != DrawMode.SELECT) return;
+            Point2D point = drawingPane.sceneToLocal(e.getSceneX(), e.getSceneY());
+            double newX = point.getX() + dragDelta[0];
+            double newY = point.getY() + dragDelta[1];
 
-        // Set all input queues in the manager
-        for (QueueNode node : inputQueues) {
-            manager.addInputQueue(node.queueId);
+            if (SNAP_TO_GRID) {
+                newX = snapToGrid(newX);
+                newY = snapToGrid(newY);
+            }
+
+            dragged[0].setLayoutX(newX);
+            dragged[0].setLayoutY(newY);
+            e.consume();
+        });
+
+        networkCanvas.setOnMouseReleased(e -> {
+            if (dragged[0] == null) return;
+            dragged[0] = null;
+            e.consume();
+        });
+
+        // Clicks on empty space fall through to the viewport to add elements
+        networkCanvas.setOnMouseClicked(e -> {
+            if (e.getButton() != MouseButton.PRIMARY) return;
+            Object hit = networkCanvas.hitTest(e.getX(), e.getY());
+            if (hit instanceof MachineNode machine) {
+                handleMachineClick(machine);
+                e.consume();
+            } else if (hit instanceof QueueNode queue) {
+                handleQueueClick(queue);
+                e.consume();
+            }
+        });
+
+        networkCanvas.setOnContextMenuRequested(e -> {
+            Object hit = networkCanvas.hitTest(e.getX(), e.getY());
+            if (hit instanceof MachineNode machine) {
+                showMachineContextMenu(machine, e.getScreenX(), e.getScreenY());
+            } else if (hit instanceof QueueNode queue) {
+                showQueueContextMenu(queue, e.getScreenX(), e.getScreenY());
+            }
+        });
+    }
+
+    private void setHovered(Region node, boolean hovered) {
+        if (node instanceof MachineNode machine) {
+            machine.setHovered(hovered);
+        } else if (node instanceof QueueNode queue) {
+            queue.setHovered(hovered);
         }
+    }
 
-        // Add all connections
+    /**
+     * Describes the drawing, with node positions, for the simulation manager
+     */
+    private SimulationTopology currentTopology() {
+        SimulationTopology topology = new SimulationTopology();
+        for (QueueNode node : queueNodes.values()) {
+            // The overflow queue may have been deleted since
+            int overflowQueueId = queueNodes.containsKey(node.overflowQueueId) ? node.overflowQueueId : -1;
+            topology.addQueue(node.queueId, inputQueues.contains(node), node.capacity, node.overflowPolicy,
+                    overflowQueueId, node.arrivalWeight, node.arrivals, node.getLayoutX(), node.getLayoutY());
+        }
+        for (MachineNode node : machineNodes.values()) {
+            topology.addMachine(node.machineId, node.originalColor, node.routingPolicy, node.serviceTime,
+                    node.getLayoutX(), node.getLayoutY());
+        }
         for (ConnectionLine conn : connections) {
-            manager.connectMachineToQueues(
-                    conn.source.machineId,
-                    conn.inputQueue.queueId,
-                    conn.outputQueue.queueId
-            );
+            topology.addConnection(conn.source.machineId, conn.inputQueue.queueId, conn.outputQueue.queueId, conn.weight);
+        }
+        return topology;
+    }
+
+    /**
+     * Replaces the drawing with the topology, nodes without a position are laid out in rows
+     */
+    private void showTopology(SimulationTopology topology) {
+        removeAllNodes();
+
+        int column = 0;
+        for (SimulationTopology.QueueSpec spec : topology.getQueues()) {
+            double x = Double.isNaN(spec.getX()) ? 40 + column * 200 : spec.getX();
+            double y = Double.isNaN(spec.getY()) ? 60 : spec.getY();
+            column++;
+            QueueNode node = createQueueNode(spec.getId(), x, y);
+            node.setCapacity(spec.getCapacity(), spec.getOverflowPolicy(), spec.getOverflowQueueId());
+            node.arrivalWeight = spec.getArrivalWeight();
+            node.arrivals = spec.getArrivals();
+            if (spec.isInput()) {
+                inputQueues.add(node);
+                node.setInputQueue(true);
+            }
+            nextQueueId = Math.max(nextQueueId, spec.getId() + 1);
+        }
+
+        column = 0;
+        for (SimulationTopology.MachineSpec spec : topology.getMachines()) {
+            double x = Double.isNaN(spec.getX()) ? 60 + column * 200 : spec.getX();
+            double y = Double.isNaN(spec.getY()) ? 260 : spec.getY();
+            column++;
+            MachineNode node = createMachineNode(spec.getId(), x, y);
+            if (spec.getColor() != null) node.setOriginalColor(spec.getColor());
+            node.routingPolicy = spec.getRoutingPolicy();
+            node.serviceTime = spec.getServiceTime();
+            nextMachineId = Math.max(nextMachineId, spec.getId() + 1);
+        }
+
+        for (SimulationTopology.ConnectionSpec spec : topology.getConnections()) {
+            MachineNode machine = machineNodes.get(spec.getMachineId());
+            QueueNode input = queueNodes.get(spec.getInputQueueId());
+            QueueNode output = queueNodes.get(spec.getOutputQueueId());
+            if (machine == null || input == null || output == null) continue;
+            ConnectionLine conn = new ConnectionLine(machine, input, output);
+            conn.weight = spec.getWeight();
+            connections.add(conn);
+            showElement(conn);
         }
 
+        updateStatistics();
+        // Node sizes are only known after the next layout pass
+        Platform.runLater(this::updateConnections);
+    }
+
+    private void saveRecording() {
+        FileChooser chooser = recordingChooser("Save Recording");
+        chooser.setInitialFileName("simulation" + RECORDING_EXTENSION);
+        File file = chooser.showSaveDialog(getScene().getWindow());
+        if (file == null) return;
+
+        saveBtn.setDisable(true);
+        loadBtn.setDisable(true);
+        statusLabel.setText("Saving recording...");
+        Thread worker = new Thread(() -> {
+            boolean saved = manager.exportRecording(file.toPath(), true);
+            Platform.runLater(() -> {
+                saveBtn.setDisable(false);
+                loadBtn.setDisable(false);
+                if (saved) statusLabel.setText("Recording saved to " + file.getName());
+            });
+        }, "SaveRecording");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void loadRecording() {
+        File file = recordingChooser("Load Recording").showOpenDialog(getScene().getWindow());
+        if (file == null) return;
+
+        if (manager.isReplaying()) {
+            manager.stopReplay();
+        }
+        startBtn.setDisable(true);
+        fastBtn.setDisable(true);
+        replayBtn.setDisable(true);
+        saveBtn.setDisable(true);
+        loadBtn.setDisable(true);
+        disableDrawingTools();
+        statusLabel.setText("Loading recording...");
+        Thread worker = new Thread(() -> {
+            SimulationTopology topology = manager.importRecording(file.toPath());
+            Platform.runLater(() -> {
+                if (topology != null) {
+                    showTopology(topology);
+                    statusLabel.setText("Loaded " + file.getName() + " - " + manager.getLastMemento().getEventCount() + " events");
+                }
+                startBtn.setDisable(false);
+                fastBtn.setDisable(false);
+                replayBtn.setDisable(!manager.hasSavedSimulations());
+                saveBtn.setDisable(!manager.hasSavedSimulations());
+                loadBtn.setDisable(false);
+                enableDrawingTools();
+            });
+        }, "LoadRecording");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private FileChooser recordingChooser(String title) {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle(title);
+        chooser.getExtensionFilters().add(
+                new FileChooser.ExtensionFilter("Simulation recordings", "*" + RECORDING_EXTENSION));
+        return chooser;
+    }
+
+    private void startSimulation() {
+        if (!buildSimulation()) return;
+
         // Start
         boolean started = manager.startSimulation();
 
         if (started) {
             startBtn.setDisable(true);
+            fastBtn.setDisable(true);
             stopBtn.setDisable(false);
             replayBtn.setDisable(true);
+            saveBtn.setDisable(true);
+            loadBtn.setDisable(true);
             disableDrawingTools();
         }
     }
 
+    /**
+     * Runs the simulation on a virtual clock in the background, the result can then be replayed
+     */
+    private void fastSimulate() {
+        TextInputDialog dialog = new TextInputDialog("60");
+        dialog.setTitle("Fast Simulate");
+        dialog.setHeaderText("Simulate without waiting in real time");
+        dialog.setContentText("Simulated minutes:");
+
+        Optional<String> result = dialog.showAndWait();
+        if (result.isEmpty()) return;
+
+        long minutes;
+        try {
+            minutes = Long.parseLong(result.get().trim());
+        } catch (NumberFormatException ex) {
+            showError("Please enter a whole number of minutes");
+            return;
+        }
+        if (minutes <= 0) {
+            showError("Please enter a positive number of minutes");
+            return;
+        }
+
+        if (!buildSimulation()) return;
+
+        startBtn.setDisable(true);
+        fastBtn.setDisable(true);
+        replayBtn.setDisable(true);
+        saveBtn.setDisable(true);
+        loadBtn.setDisable(true);
+        disableDrawingTools();
+
+        Thread worker = new Thread(() -> {
+            manager.runDiscreteEvent(minutes * 60_000L);
+            Platform.runLater(() -> {
+                startBtn.setDisable(false);
+                fastBtn.setDisable(false);
+                replayBtn.setDisable(!manager.hasSavedSimulations());
+                saveBtn.setDisable(!manager.hasSavedSimulations());
+                loadBtn.setDisable(false);
+                enableDrawingTools();
+            });
+        }, "FastSimulation");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Copies the drawn topology into the simulation manager
+     * Returns false if the drawing can't be simulated
+     */
+    private boolean buildSimulation() {
+        if (inputQueues.isEmpty()) {
+            showError("Please set at least one input queue first (right-click a queue)");
+            return false;
+        }
+
+        if (machineNodes.isEmpty()) {
+            showError("Please add at least one machine");
+            return false;
+        }
+
+        // Build simulation - hand the drawing to the manager
+        if (manager.isReplaying()) {
+            manager.stopReplay();
+        }
+        manager.applyTopology(currentTopology());
+        return true;
+    }
+
     private void stopSimulation() {
         System.out.println("SimulationCanvas.stopSimulation: Stopping simulation.");
         manager.stopSimulation();
 
         startBtn.setDisable(false);
+        fastBtn.setDisable(false);
         stopBtn.setDisable(true);
         boolean shouldDisableReplay = manager.hasSavedSimulations();
         System.out.println("[DEBUG] stopSimulation: Setting replayBtn.setDisable(" + shouldDisableReplay + ")");
         replayBtn.setDisable(!shouldDisableReplay);
+        saveBtn.setDisable(!shouldDisableReplay);
+        loadBtn.setDisable(false);
         enableDrawingTools();
     }
 
@@ -726,9 +1746,12 @@ public class SimulationCanvas extends BorderPane {
         if (started) {
             System.out.println("SimulationCanvas.replaySimulation: Replay started.");
             replayBtn.setDisable(true);
+            saveBtn.setDisable(true);
+            loadBtn.setDisable(true);
             pauseBtn.setDisable(false);
             speedSlider.setDisable(false);
             replayProgress.setVisible(true);
+            timelineSlider.setVisible(true);
             disableDrawingTools();
         } else {
             System.out.println("SimulationCanvas.replaySimulation: Replay could not be started.");
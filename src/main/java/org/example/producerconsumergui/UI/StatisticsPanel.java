@@ -0,0 +1,311 @@
+package org.example.producerconsumergui.UI;
+
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.geometry.Insets;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.Tooltip;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.Region;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.util.Duration;
+import org.example.producerconsumergui.Metrics.MetricsSnapshot;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Live statistics of the running simulation: throughput over time, queue length
+ * sparklines, machine utilization bars and end-to-end latency percentiles.
+ * Snapshots of the metrics are taken on a background thread; the FX thread only picks
+ * up the latest one twice a second and draws a few canvases, however large the run.
+ * Only the longest queues and busiest machines are drawn, so bottlenecks come first.
+ */
+class StatisticsPanel extends VBox {
+    private static final long SAMPLE_MILLIS = 500;
+    // Samples kept for the charts, one minute at the sample rate
+    private static final int HISTORY = 120;
+    private static final int SHOWN_ROWS = 8;
+    private static final double ROW_HEIGHT = 22;
+
+    private final Supplier<MetricsSnapshot> snapshots;
+    private final AtomicReference<MetricsSnapshot> latest = new AtomicReference<>();
+    private ScheduledExecutorService sampler;
+    private final Timeline refresh;
+
+    private final Button floatBtn = new Button("⇱");
+    private final Label summaryLabel = new Label("No run yet");
+    private final Label latencyLabel = new Label("Latency: -");
+    private final Canvas throughputChart = new Canvas(0, 80);
+    private final Canvas queueRows = new Canvas(0, SHOWN_ROWS * ROW_HEIGHT);
+    private final Canvas machineRows = new Canvas(0, SHOWN_ROWS * ROW_HEIGHT);
+
+    // History, only touched on the FX thread. Rings of HISTORY samples ending at historyEnd
+    private final double[] throughputHistory = new double[HISTORY];
+    private final Map<Integer, double[]> queueHistory = new HashMap<>();
+    private int historyEnd = 0;
+    private int historySize = 0;
+    private double lastElapsedMillis = 0;
+    private long lastCompleted = 0;
+    private MetricsSnapshot shown;
+
+    StatisticsPanel(Supplier<MetricsSnapshot> snapshots) {
+        super(8);
+        this.snapshots = snapshots;
+        setPadding(new Insets(15));
+        setPrefWidth(280);
+        setMinWidth(200);
+        setStyle("-fx-background-color: #FAFAFA;");
+
+        Label title = new Label("Live Statistics");
+        title.setFont(Font.font("System", FontWeight.BOLD, 16));
+        Region spacer = new Region();
+        HBox.setHgrow(spacer, Priority.ALWAYS);
+        setFloating(false);
+        HBox header = new HBox(title, spacer, floatBtn);
+        summaryLabel.setFont(Font.font("System", 12));
+        summaryLabel.setWrapText(true);
+        latencyLabel.setFont(Font.font("System", 12));
+        latencyLabel.setWrapText(true);
+
+        getChildren().addAll(
+                header, summaryLabel,
+                heading("Throughput (products/s)"), throughputChart,
+                latencyLabel,
+                heading("Queues, longest first"), queueRows,
+                heading("Machines, busiest first"), machineRows
+        );
+
+        for (Canvas canvas : List.of(throughputChart, queueRows, machineRows)) {
+            canvas.widthProperty().bind(widthProperty().subtract(30));
+            canvas.widthProperty().addListener(obs -> redraw());
+        }
+
+        refresh = new Timeline(new KeyFrame(Duration.millis(SAMPLE_MILLIS), e -> update()));
+        refresh.setCycleCount(Animation.INDEFINITE);
+    }
+
+    /**
+     * Action of the button moving the panel between the main window and its own
+     */
+    void setOnFloat(Runnable action) {
+        floatBtn.setOnAction(e -> action.run());
+    }
+
+    void setFloating(boolean floating) {
+        floatBtn.setText(floating ? "⇲" : "⇱");
+        floatBtn.setTooltip(new Tooltip(floating ? "Dock beside the drawing area" : "Open in its own window"));
+    }
+
+    private static Label heading(String text) {
+        Label label = new Label(text);
+        label.setFont(Font.font("System", FontWeight.BOLD, 12));
+        label.setPadding(new Insets(6, 0, 0, 0));
+        return label;
+    }
+
+    /**
+     * Starts sampling, call on the FX thread when the panel is shown
+     */
+    void start() {
+        if (sampler != null) return;
+        sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "Statistics-Sampler");
+            t.setDaemon(true);
+            return t;
+        });
+        sampler.scheduleAtFixedRate(() -> latest.set(snapshots.get()), 0, SAMPLE_MILLIS, TimeUnit.MILLISECONDS);
+        refresh.play();
+    }
+
+    /**
+     * Stops sampling while the panel is hidden
+     */
+    void stop() {
+        if (sampler == null) return;
+        sampler.shutdownNow();
+        sampler = null;
+        refresh.stop();
+    }
+
+    // ============================================
+    // SAMPLES
+    // ============================================
+
+    private void update() {
+        MetricsSnapshot snapshot = latest.getAndSet(null);
+        if (snapshot == null) return;
+
+        double elapsed = snapshot.getElapsedMillis();
+        if (elapsed < lastElapsedMillis) {
+            // A new run started
+            historySize = 0;
+            queueHistory.clear();
+            lastCompleted = 0;
+            lastElapsedMillis = 0;
+        }
+        if (elapsed > lastElapsedMillis) {
+            double seconds = (elapsed - lastElapsedMillis) / 1000.0;
+            record(throughputHistory, (snapshot.getCompleted() - lastCompleted) / seconds);
+            for (MetricsSnapshot.QueueSnapshot queue : snapshot.getQueues()) {
+                double[] history = queueHistory.computeIfAbsent(queue.getId(), id -> new double[HISTORY]);
+                record(history, queue.getLength());
+            }
+            historyEnd = (historyEnd + 1) % HISTORY;
+            historySize = Math.min(historySize + 1, HISTORY);
+            lastElapsedMillis = elapsed;
+            lastCompleted = snapshot.getCompleted();
+        }
+        shown = snapshot;
+        redraw();
+    }
+
+    private void record(double[] ring, double value) {
+        ring[historyEnd] = value;
+    }
+
+    /**
+     * Value of the ring i samples after the oldest one kept
+     */
+    private double sample(double[] ring, int i) {
+        return ring[Math.floorMod(historyEnd - historySize + i, HISTORY)];
+    }
+
+    // ============================================
+    // DRAWING
+    // ============================================
+
+    private void redraw() {
+        MetricsSnapshot snapshot = shown;
+        if (snapshot == null) return;
+
+        summaryLabel.setText(String.format("%s %.1f s · %d arrived · %d completed · %.2f/s overall",
+                snapshot.isRunning() ? "Running" : "Stopped at", snapshot.getElapsedMillis() / 1000.0,
+                snapshot.getArrived(), snapshot.getCompleted(), snapshot.getThroughputPerSecond()));
+        latencyLabel.setText(String.format("Latency p50 %s · p90 %s · p99 %s · max %s",
+                millis(snapshot.getLatencyMillisP50()), millis(snapshot.getLatencyMillisP90()),
+                millis(snapshot.getLatencyMillisP99()), millis(snapshot.getMaxLatencyMillis())));
+
+        drawThroughput();
+        drawQueues(snapshot);
+        drawMachines(snapshot);
+    }
+
+    private static String millis(double value) {
+        return value >= 10_000 ? String.format("%.1f s", value / 1000) : String.format("%.0f ms", value);
+    }
+
+    private void drawThroughput() {
+        GraphicsContext gc = throughputChart.getGraphicsContext2D();
+        double w = throughputChart.getWidth();
+        double h = throughputChart.getHeight();
+        gc.clearRect(0, 0, w, h);
+        gc.setFill(Color.WHITE);
+        gc.fillRect(0, 0, w, h);
+        gc.setStroke(Color.web("#E0E0E0"));
+        gc.strokeRect(0.5, 0.5, w - 1, h - 1);
+        if (historySize == 0) return;
+
+        double max = 0;
+        for (int i = 0; i < historySize; i++) {
+            max = Math.max(max, sample(throughputHistory, i));
+        }
+        drawLine(gc, throughputHistory, 2, 14, w - 4, h - 16, max, Color.web("#4CAF50"));
+        gc.setFill(Color.web("#757575"));
+        gc.setFont(Font.font("System", 10));
+        gc.fillText(String.format("max %.2f/s", max), 4, 11);
+    }
+
+    private void drawQueues(MetricsSnapshot snapshot) {
+        GraphicsContext gc = queueRows.getGraphicsContext2D();
+        double w = queueRows.getWidth();
+        gc.clearRect(0, 0, w, queueRows.getHeight());
+
+        List<MetricsSnapshot.QueueSnapshot> queues = new ArrayList<>(snapshot.getQueues());
+        queues.sort(Comparator.comparingLong(MetricsSnapshot.QueueSnapshot::getLength)
+                .thenComparingDouble(MetricsSnapshot.QueueSnapshot::getMeanLength).reversed());
+        gc.setFont(Font.font("System", 11));
+        double textWidth = Math.min(150, w * 0.55);
+        for (int row = 0; row < Math.min(SHOWN_ROWS, queues.size()); row++) {
+            MetricsSnapshot.QueueSnapshot queue = queues.get(row);
+            double y = row * ROW_HEIGHT;
+            gc.setFill(queue.getDropped() > 0 ? Color.web("#f44336") : Color.BLACK);
+            String text = String.format("Q%d  %d (avg %.1f)", queue.getId(), queue.getLength(), queue.getMeanLength());
+            if (queue.getDropped() > 0) text += " ✕" + queue.getDropped();
+            gc.fillText(text, 0, y + 15);
+
+            double[] history = queueHistory.get(queue.getId());
+            if (history == null || historySize == 0) continue;
+            double max = 1;
+            for (int i = 0; i < historySize; i++) {
+                max = Math.max(max, sample(history, i));
+            }
+            drawLine(gc, history, textWidth, y + 3, w - textWidth, ROW_HEIGHT - 6, max, Color.web("#2196F3"));
+        }
+    }
+
+    private void drawMachines(MetricsSnapshot snapshot) {
+        GraphicsContext gc = machineRows.getGraphicsContext2D();
+        double w = machineRows.getWidth();
+        gc.clearRect(0, 0, w, machineRows.getHeight());
+
+        List<MetricsSnapshot.MachineSnapshot> machines = new ArrayList<>(snapshot.getMachines());
+        machines.sort(Comparator.comparingDouble(MetricsSnapshot.MachineSnapshot::getUtilization).reversed());
+        gc.setFont(Font.font("System", 11));
+        double labelWidth = 40;
+        for (int row = 0; row < Math.min(SHOWN_ROWS, machines.size()); row++) {
+            MetricsSnapshot.MachineSnapshot machine = machines.get(row);
+            double y = row * ROW_HEIGHT;
+            double utilization = machine.getUtilization();
+            gc.setFill(Color.BLACK);
+            gc.fillText("M" + machine.getId(), 0, y + 15);
+
+            double barWidth = w - labelWidth - 40;
+            gc.setFill(Color.web("#EEEEEE"));
+            gc.fillRect(labelWidth, y + 4, barWidth, ROW_HEIGHT - 8);
+            // Same bands as the queue bars: red when saturated, orange when busy
+            gc.setFill(utilization > 0.9 ? Color.web("#f44336")
+                    : utilization > 0.7 ? Color.web("#FF9800") : Color.web("#2196F3"));
+            gc.fillRect(labelWidth, y + 4, barWidth * utilization, ROW_HEIGHT - 8);
+            gc.setFill(Color.BLACK);
+            gc.fillText(String.format("%.0f%%", utilization * 100), labelWidth + barWidth + 4, y + 15);
+        }
+    }
+
+    /**
+     * Polyline of the kept samples of a ring scaled into the box
+     */
+    private void drawLine(GraphicsContext gc, double[] ring, double x, double y, double w, double h,
+                          double max, Color color) {
+        if (historySize == 0 || w <= 0) return;
+        gc.setStroke(color);
+        gc.setLineWidth(1.5);
+        gc.beginPath();
+        double step = historySize > 1 ? w / (HISTORY - 1) : 0;
+        // Newest sample on the right edge
+        double startX = x + w - step * (historySize - 1);
+        for (int i = 0; i < historySize; i++) {
+            double px = startX + i * step;
+            double py = y + h - (max > 0 ? sample(ring, i) / max : 0) * h;
+            if (i == 0) gc.moveTo(px, py);
+            else gc.lineTo(px, py);
+        }
+        gc.stroke();
+    }
+}
@@ -0,0 +1,118 @@
+package org.example.producerconsumergui.Memento;
+
+import org.example.producerconsumergui.Model.Color;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedEventLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void sealedLogReadsBackWhatWasAppended() throws IOException {
+        Path file = directory.resolve("events.evlog");
+        MappedEventLog log = MappedEventLog.create(file);
+        for (int i = 0; i < 45; i++) {
+            assertEquals(i, log.append(Event.PRODUCT_ENQUEUED, i % 3, i, i % 2 == 0 ? Color.RED : null, 1000L + i));
+        }
+        log.seal();
+        assertEquals(-1, log.append(Event.PRODUCT_DEQUEUED, 0, 0, null, 0));
+
+        MappedEventLog read = MappedEventLog.open(file);
+        assertEquals(45, read.size());
+        for (int i = 0; i < 45; i++) {
+            assertEquals(Event.PRODUCT_ENQUEUED, read.getEvent(i));
+            assertEquals(i % 3, read.getEntityId(i));
+            assertEquals(i, read.getProductId(i));
+            assertEquals(i % 2 == 0 ? Color.RED : null, read.getColor(i));
+            assertEquals(1000L + i, read.getTimestamp(i));
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> read.getEvent(45));
+    }
+
+    @Test
+    void sealingTruncatesTheFileToItsEvents() throws IOException {
+        Path file = directory.resolve("events.evlog");
+        MappedEventLog log = MappedEventLog.create(file);
+        for (int i = 0; i < 45; i++) {
+            log.append(Event.PRODUCT_ENQUEUED, 1, i, Color.BLUE, i);
+        }
+        log.seal();
+        assertEquals(MappedEventLog.HEADER_SIZE + 45L * MappedEventLog.RECORD_SIZE, Files.size(file));
+    }
+
+    @Test
+    void concurrentWritersAllLandInTheLog() throws Exception {
+        Path file = directory.resolve("events.evlog");
+        MappedEventLog log = MappedEventLog.create(file);
+        int threads = 4;
+        int perThread = 10_000;
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int entity = t;
+            writers.add(new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    log.append(Event.PRODUCT_ENQUEUED, entity, i, Color.GREEN, i);
+                }
+            }));
+        }
+        writers.forEach(Thread::start);
+        for (Thread writer : writers) writer.join();
+        log.seal();
+
+        MappedEventLog read = MappedEventLog.open(file);
+        assertEquals(threads * perThread, read.size());
+        int[] next = new int[threads];
+        for (int i = 0; i < read.size(); i++) {
+            int entity = read.getEntityId(i);
+            assertEquals(next[entity]++, read.getProductId(i), "order of writer " + entity);
+        }
+    }
+
+    @Test
+    void writerThatNeverFinishesEndsTheLogBeforeItsSlot() throws Exception {
+        Path file = directory.resolve("events.evlog");
+        MappedEventLog log = MappedEventLog.create(file);
+        for (int i = 0; i < 10; i++) {
+            log.append(Event.PRODUCT_ENQUEUED, 1, i, Color.RED, i);
+        }
+        // Slot 10 is claimed by a writer that stalls for good
+        var nextSequence = MappedEventLog.class.getDeclaredField("nextSequence");
+        nextSequence.setAccessible(true);
+        ((java.util.concurrent.atomic.AtomicLong) nextSequence.get(log)).incrementAndGet();
+        for (int i = 11; i < 20; i++) {
+            log.append(Event.PRODUCT_ENQUEUED, 1, i, Color.RED, i);
+        }
+        log.seal();
+
+        MappedEventLog read = MappedEventLog.open(file);
+        assertEquals(10, read.size());
+        for (int i = 0; i < read.size(); i++) {
+            assertEquals(i, read.getProductId(i));
+        }
+    }
+
+    @Test
+    void unsealedOrForeignFilesAreRejected() throws IOException {
+        Path file = directory.resolve("events.evlog");
+        MappedEventLog log = MappedEventLog.create(file);
+        log.append(Event.PRODUCT_ENQUEUED, 1, 1, Color.RED, 1);
+        IOException error = assertThrows(IOException.class, () -> MappedEventLog.open(file));
+        assertTrue(error.getMessage().startsWith("Event log was not closed properly"), error.getMessage());
+        log.seal();
+
+        Path other = directory.resolve("other.evlog");
+        Files.write(other, new byte[MappedEventLog.HEADER_SIZE]);
+        error = assertThrows(IOException.class, () -> MappedEventLog.open(other));
+        assertTrue(error.getMessage().startsWith("Not an event log"), error.getMessage());
+    }
+}
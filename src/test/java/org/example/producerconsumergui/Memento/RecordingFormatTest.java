@@ -0,0 +1,309 @@
+package org.example.producerconsumergui.Memento;
+
+import org.example.producerconsumergui.Model.ArrivalProcess;
+import org.example.producerconsumergui.Model.ArrivalType;
+import org.example.producerconsumergui.Model.Color;
+import org.example.producerconsumergui.Model.DistributionType;
+import org.example.producerconsumergui.Model.Machine;
+import org.example.producerconsumergui.Model.OverflowPolicy;
+import org.example.producerconsumergui.Model.RoutingPolicy;
+import org.example.producerconsumergui.Model.SimulationTopology;
+import org.example.producerconsumergui.Model.TimeDistribution;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecordingFormatTest {
+    private static final Event[] EVENTS = Event.values();
+    private static final Color[] COLORS = Color.values();
+
+    private static SimulationTopology topology() {
+        SimulationTopology topology = new SimulationTopology();
+        topology.addQueue(0, true, 0, OverflowPolicy.BLOCK, -1, 3,
+                ArrivalProcess.mmpp(new double[]{0, 40}, new double[]{1000, 250}), 10.5, 20.25);
+        topology.addQueue(1, true, 0, OverflowPolicy.BLOCK, -1, 1, null, 30, 40);
+        topology.addQueue(2, false, 5, OverflowPolicy.REROUTE, 3, 1, ArrivalProcess.trace(Path.of("traces", "day one.csv")), 50, 60);
+        topology.addQueue(3, false, 2, OverflowPolicy.DROP_OLDEST, -1, 1, ArrivalProcess.uniform(10, 30), 70, 80);
+        topology.addMachine(1, Color.RED, RoutingPolicy.WEIGHTED, TimeDistribution.erlang(3, 200), 1, 2);
+        topology.addMachine(2, null, RoutingPolicy.POWER_OF_TWO,
+                TimeDistribution.empirical(new double[]{1.5, 4, 9}, new long[]{3, 1, 1_000_000_000_000L}), 3, 4);
+        topology.addConnection(1, 0, 2, 4);
+        topology.addConnection(1, 1, 3, 1);
+        topology.addConnection(2, 2, 3, 2);
+        return topology;
+    }
+
+    /**
+     * Events spanning several blocks, with timestamps and product ids going back and forth
+     */
+    private static EventTable events(int count) {
+        EventTable table = new EventTable();
+        SplittableRandom random = new SplittableRandom(9);
+        long timestamp = 1_700_000_000_000L;
+        for (int i = 0; i < count; i++) {
+            timestamp += random.nextInt(-5, 1000);
+            int productId = random.nextInt(10) == 0 ? EventTable.NO_PRODUCT : random.nextInt(100_000);
+            Color color = random.nextInt(8) == 0 ? null : COLORS[random.nextInt(COLORS.length)];
+            table.append(EVENTS[random.nextInt(EVENTS.length)], random.nextInt(-3, 50), productId, color, timestamp);
+        }
+        return table;
+    }
+
+    private static byte[] write(EventTable events, boolean compress) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RecordingWriter.write(new SimulationMemento(events, 123_456_789L), topology(), out, compress);
+        return out.toByteArray();
+    }
+
+    private static void assertEventsEqual(EventLog expected, RecordingReader reader) throws IOException {
+        for (int i = 0; i < expected.size(); i++) {
+            assertTrue(reader.next(), "recording ends at event " + i);
+            assertEquals(expected.getEvent(i), reader.getEvent(), "event " + i);
+            assertEquals(expected.getEntityId(i), reader.getEntityId(), "entity of event " + i);
+            assertEquals(expected.getProductId(i), reader.getProductId(), "product of event " + i);
+            assertEquals(expected.getColor(i), reader.getColor(), "color of event " + i);
+            assertEquals(expected.getTimestamp(i), reader.getTimestamp(), "timestamp of event " + i);
+        }
+        assertFalse(reader.next());
+    }
+
+    private static void assertTopologyEquals(SimulationTopology expected, SimulationTopology actual) {
+        assertEquals(expected.getQueues().size(), actual.getQueues().size());
+        for (int i = 0; i < expected.getQueues().size(); i++) {
+            SimulationTopology.QueueSpec want = expected.getQueues().get(i);
+            SimulationTopology.QueueSpec got = actual.getQueues().get(i);
+            assertEquals(want.getId(), got.getId());
+            assertEquals(want.isInput(), got.isInput());
+            assertEquals(want.getCapacity(), got.getCapacity());
+            assertEquals(want.getOverflowPolicy(), got.getOverflowPolicy());
+            assertEquals(want.getOverflowQueueId(), got.getOverflowQueueId());
+            assertEquals(want.getArrivalWeight(), got.getArrivalWeight());
+            assertArrivalsEqual(want.getArrivals(), got.getArrivals());
+            assertEquals(want.getX(), got.getX(), 0);
+            assertEquals(want.getY(), got.getY(), 0);
+        }
+        assertEquals(expected.getMachines().size(), actual.getMachines().size());
+        for (int i = 0; i < expected.getMachines().size(); i++) {
+            SimulationTopology.MachineSpec want = expected.getMachines().get(i);
+            SimulationTopology.MachineSpec got = actual.getMachines().get(i);
+            assertEquals(want.getId(), got.getId());
+            assertEquals(want.getColor(), got.getColor());
+            assertEquals(want.getRoutingPolicy(), got.getRoutingPolicy());
+            assertServiceTimeEquals(want.getServiceTime(), got.getServiceTime());
+            assertEquals(want.getX(), got.getX(), 0);
+            assertEquals(want.getY(), got.getY(), 0);
+        }
+        assertEquals(expected.getConnections().size(), actual.getConnections().size());
+        for (int i = 0; i < expected.getConnections().size(); i++) {
+            SimulationTopology.ConnectionSpec want = expected.getConnections().get(i);
+            SimulationTopology.ConnectionSpec got = actual.getConnections().get(i);
+            assertEquals(want.getMachineId(), got.getMachineId());
+            assertEquals(want.getInputQueueId(), got.getInputQueueId());
+            assertEquals(want.getOutputQueueId(), got.getOutputQueueId());
+            assertEquals(want.getWeight(), got.getWeight());
+        }
+    }
+
+    private static void assertArrivalsEqual(ArrivalProcess expected, ArrivalProcess actual) {
+        if (expected == null) {
+            assertNull(actual);
+            return;
+        }
+        assertEquals(expected.getType(), actual.getType());
+        assertEquals(expected.getMinMillis(), actual.getMinMillis(), 0);
+        assertEquals(expected.getMaxMillis(), actual.getMaxMillis(), 0);
+        assertEquals(Arrays.toString(expected.getRatesPerSecond()), Arrays.toString(actual.getRatesPerSecond()));
+        assertEquals(Arrays.toString(expected.getMeanStateMillis()), Arrays.toString(actual.getMeanStateMillis()));
+        assertEquals(expected.getTraceFile(), actual.getTraceFile());
+    }
+
+    private static void assertServiceTimeEquals(TimeDistribution expected, TimeDistribution actual) {
+        assertEquals(expected.getType(), actual.getType());
+        assertEquals(expected.getMeanMillis(), actual.getMeanMillis(), 0);
+        assertEquals(expected.getShape(), actual.getShape(), 0);
+        if (expected.getType() == DistributionType.EMPIRICAL) {
+            assertArrayEquals(expected.getValues(), actual.getValues());
+            assertArrayEquals(expected.getCounts(), actual.getCounts());
+        }
+    }
+
+    @Test
+    void roundTripKeepsTopologyAndEvents() throws IOException {
+        EventTable events = events(RecordingFormat.EVENTS_PER_BLOCK * 2 + 17);
+        for (boolean compress : new boolean[]{false, true}) {
+            try (RecordingReader reader = new RecordingReader(new ByteArrayInputStream(write(events, compress)))) {
+                assertEquals(123_456_789L, reader.getMementoTimestamp());
+                assertTopologyEquals(topology(), reader.getTopology());
+                assertEventsEqual(events, reader);
+            }
+        }
+    }
+
+    @Test
+    void compressionShrinksTheRecording() throws IOException {
+        EventTable events = events(RecordingFormat.EVENTS_PER_BLOCK);
+        assertTrue(write(events, true).length < write(events, false).length);
+    }
+
+    @Test
+    void emptyRecordingHasNoEvents() throws IOException {
+        try (RecordingReader reader = new RecordingReader(new ByteArrayInputStream(write(new EventTable(), true)))) {
+            assertFalse(reader.next());
+            assertFalse(reader.next());
+        }
+    }
+
+    // ============================================
+    // OLDER VERSIONS
+    // ============================================
+
+    /**
+     * Recording of one input queue, one bounded output queue and a machine between them,
+     * with only the fields the given version had
+     */
+    private static byte[] legacyRecording(int version, EventTable events) throws IOException {
+        RecordingWriter.VarintBuffer header = new RecordingWriter.VarintBuffer();
+        header.writeVarint(2);
+        for (int id = 0; id < 2; id++) {
+            header.writeSigned(id);
+            header.writeByte(id == 0 ? 1 : 0);
+            if (version >= 3) {
+                header.writeVarint(id == 0 ? 0 : 5);
+                header.writeByte(id == 0 ? OverflowPolicy.BLOCK.ordinal() : OverflowPolicy.DROP_NEWEST.ordinal());
+                header.writeSigned(-1);
+            }
+            header.writeDouble(id * 100);
+            header.writeDouble(id * 100 + 1);
+        }
+        header.writeVarint(1);
+        header.writeSigned(1);
+        header.writeByte(Color.GREEN.ordinal() + 1);
+        if (version >= 2) header.writeByte(RoutingPolicy.RANDOM.ordinal());
+        if (version >= 4) {
+            header.writeByte(DistributionType.ERLANG.ordinal());
+            header.writeDouble(200);
+            header.writeDouble(3);
+        }
+        header.writeDouble(50);
+        header.writeDouble(51);
+        header.writeVarint(1);
+        header.writeSigned(1);
+        header.writeSigned(0);
+        header.writeSigned(1);
+        if (version >= 2) header.writeVarint(2);
+
+        RecordingWriter.VarintBuffer block = new RecordingWriter.VarintBuffer();
+        long previousTimestamp = 0;
+        int previousProductId = 0;
+        for (int i = 0; i < events.size(); i++) {
+            block.writeByte(RecordingFormat.pack(events.getEvent(i), events.getColor(i)));
+            block.writeSigned(events.getTimestamp(i) - previousTimestamp);
+            block.writeSigned(events.getEntityId(i));
+            block.writeSigned((long) events.getProductId(i) - previousProductId);
+            previousTimestamp = events.getTimestamp(i);
+            previousProductId = events.getProductId(i);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(RecordingFormat.MAGIC);
+        out.writeByte(version);
+        out.writeByte(0);
+        out.writeLong(42L);
+        header.writeTo(out);
+        RecordingWriter.VarintBuffer blockHeader = new RecordingWriter.VarintBuffer();
+        blockHeader.writeVarint(events.size());
+        blockHeader.writeVarint(block.size());
+        blockHeader.writeVarint(block.size());
+        blockHeader.writeTo(out);
+        block.writeTo(out);
+        out.writeByte(0);
+        return bytes.toByteArray();
+    }
+
+    @Test
+    void olderVersionsAreReadWithDefaultsForMissingFields() throws IOException {
+        EventTable events = events(500);
+        for (int version = RecordingFormat.MIN_VERSION; version < RecordingFormat.VERSION; version++) {
+            try (RecordingReader reader = new RecordingReader(new ByteArrayInputStream(legacyRecording(version, events)))) {
+                SimulationTopology topology = reader.getTopology();
+                assertEquals(42L, reader.getMementoTimestamp());
+
+                SimulationTopology.QueueSpec output = topology.getQueues().get(1);
+                assertEquals(version >= 3 ? 5 : 0, output.getCapacity(), "capacity in version " + version);
+                assertEquals(version >= 3 ? OverflowPolicy.DROP_NEWEST : OverflowPolicy.BLOCK, output.getOverflowPolicy());
+                assertEquals(1, output.getArrivalWeight());
+                assertNull(output.getArrivals());
+                assertEquals(100, output.getX(), 0);
+
+                SimulationTopology.MachineSpec machine = topology.getMachines().get(0);
+                assertEquals(Color.GREEN, machine.getColor());
+                assertEquals(version >= 2 ? RoutingPolicy.RANDOM : RoutingPolicy.SHORTEST_QUEUE, machine.getRoutingPolicy());
+                assertServiceTimeEquals(version >= 4 ? TimeDistribution.erlang(3, 200) : Machine.DEFAULT_SERVICE_TIME,
+                        machine.getServiceTime());
+                assertEquals(version >= 2 ? 2 : 1, topology.getConnections().get(0).getWeight());
+
+                assertEventsEqual(events, reader);
+            }
+        }
+    }
+
+    // ============================================
+    // BAD INPUT
+    // ============================================
+
+    @Test
+    void unknownMagicOrVersionIsRejected() throws IOException {
+        byte[] recording = write(events(10), false);
+
+        byte[] notARecording = recording.clone();
+        notARecording[0] ^= 1;
+        IOException error = assertThrows(IOException.class, () -> new RecordingReader(new ByteArrayInputStream(notARecording)));
+        assertEquals("Not a recording", error.getMessage());
+
+        byte[] newer = recording.clone();
+        newer[4] = (byte) (RecordingFormat.VERSION + 1);
+        error = assertThrows(IOException.class, () -> new RecordingReader(new ByteArrayInputStream(newer)));
+        assertTrue(error.getMessage().startsWith("Unsupported recording version"), error.getMessage());
+    }
+
+    @Test
+    void truncatedRecordingFails() throws IOException {
+        byte[] recording = write(events(1000), false);
+        byte[] truncated = Arrays.copyOf(recording, recording.length - 100);
+        try (RecordingReader reader = new RecordingReader(new ByteArrayInputStream(truncated))) {
+            IOException error = assertThrows(IOException.class, () -> {
+                while (reader.next()) {
+                    // read to the end
+                }
+            });
+            assertEquals("Recording is truncated", error.getMessage());
+        }
+        byte[] headerOnly = Arrays.copyOf(recording, 20);
+        assertThrows(IOException.class, () -> new RecordingReader(new ByteArrayInputStream(headerOnly)));
+    }
+
+    @Test
+    void unknownArrivalTypeIsCorrupt() throws IOException {
+        SimulationTopology topology = new SimulationTopology();
+        topology.addQueue(0, true, 0, OverflowPolicy.BLOCK, -1, 1, ArrivalProcess.poisson(5), 0, 0);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RecordingWriter.write(new SimulationMemento(new EventTable(), 0), topology, out, false);
+        byte[] recording = out.toByteArray();
+        // Header (14 bytes), queue count, id, input flag, capacity, policy, overflow queue, weight, then arrivals
+        int arrivalsOffset = 14 + 7;
+        assertEquals(ArrivalType.POISSON.ordinal() + 1, recording[arrivalsOffset]);
+        recording[arrivalsOffset] = (byte) (ArrivalType.values().length + 1);
+
+        IOException error = assertThrows(IOException.class, () -> new RecordingReader(new ByteArrayInputStream(recording)));
+        assertTrue(error.getMessage().contains("unknown arrival type"), error.getMessage());
+    }
+}
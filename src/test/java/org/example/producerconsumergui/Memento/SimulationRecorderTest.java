@@ -0,0 +1,125 @@
+package org.example.producerconsumergui.Memento;
+
+import org.example.producerconsumergui.Model.Color;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulationRecorderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void manyThreadsMergeBackInRecordedOrder() throws InterruptedException {
+        SimulationRecorder recorder = new SimulationRecorder();
+        recorder.startRecording();
+        int threads = 2_000;
+        int perThread = 25;
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int entity = t;
+            writers.add(Thread.ofVirtual().start(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    recorder.recordEvent(Event.PRODUCT_ENQUEUED, entity, i, Color.RED);
+                }
+            }));
+        }
+        for (Thread writer : writers) writer.join();
+        recorder.stopRecording();
+
+        EventLog events = recorder.createMemento().getEventLog();
+        assertEquals(threads * perThread, events.size());
+        int[] next = new int[threads];
+        for (int i = 0; i < events.size(); i++) {
+            if (i > 0) assertTrue(events.getSequence(i - 1) < events.getSequence(i), "sequence at " + i);
+            int entity = events.getEntityId(i);
+            assertEquals(next[entity]++, events.getProductId(i), "order of thread " + entity);
+        }
+    }
+
+    @Test
+    void eventRecordedAfterAnotherOnOtherThreadComesLater() throws InterruptedException {
+        SimulationRecorder recorder = new SimulationRecorder();
+        recorder.startRecording();
+        for (int i = 0; i < 100; i++) {
+            int product = i;
+            Thread producer = new Thread(() -> recorder.recordEvent(Event.PRODUCT_ENQUEUED, 1, product, Color.RED));
+            producer.start();
+            producer.join();
+            Thread consumer = new Thread(() -> recorder.recordEvent(Event.PRODUCT_DEQUEUED, 1, product, Color.RED));
+            consumer.start();
+            consumer.join();
+        }
+        recorder.stopRecording();
+
+        EventLog events = recorder.createMemento().getEventLog();
+        assertEquals(200, events.size());
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals(i % 2 == 0 ? Event.PRODUCT_ENQUEUED : Event.PRODUCT_DEQUEUED, events.getEvent(i));
+            assertEquals(i / 2, events.getProductId(i));
+        }
+    }
+
+    @Test
+    void tablesOfEndedThreadsAreSetAsideInOrder() throws InterruptedException {
+        SimulationRecorder recorder = new SimulationRecorder();
+        recorder.startRecording();
+        // One thread after another, enough for the set-aside tables to be merged several times
+        int threads = 1_000;
+        for (int t = 0; t < threads; t++) {
+            int entity = t;
+            Thread.ofVirtual().start(() -> {
+                recorder.recordEvent(Event.PRODUCT_ENQUEUED, entity, 0, Color.RED);
+                recorder.recordEvent(Event.PRODUCT_DEQUEUED, entity, 0, Color.RED);
+            }).join();
+        }
+        recorder.recordEvent(Event.PRODUCT_DROPPED, -1, 0, Color.RED);
+        recorder.stopRecording();
+
+        EventLog events = recorder.createMemento().getEventLog();
+        assertEquals(2 * threads + 1, events.size());
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals(i, events.getSequence(i));
+        }
+        assertEquals(threads - 1, events.getEntityId(2 * threads - 1));
+        assertEquals(Event.PRODUCT_DROPPED, events.getEvent(2 * threads));
+    }
+
+    @Test
+    void newRecordingStartsEmpty() {
+        SimulationRecorder recorder = new SimulationRecorder();
+        recorder.startRecording();
+        recorder.recordEvent(Event.PRODUCT_ENQUEUED, 1, 1, Color.RED);
+        recorder.stopRecording();
+        recorder.startRecording();
+        recorder.recordEvent(Event.PRODUCT_DEQUEUED, 2, 2, Color.BLUE);
+        recorder.stopRecording();
+
+        EventLog events = recorder.createMemento().getEventLog();
+        assertEquals(1, events.size());
+        assertEquals(Event.PRODUCT_DEQUEUED, events.getEvent(0));
+        assertEquals(0, events.getSequence(0));
+    }
+
+    @Test
+    void recordingToADirectoryGoesThroughAFileLog() {
+        SimulationRecorder recorder = new SimulationRecorder();
+        recorder.setLogDirectory(directory, false);
+        recorder.startRecording();
+        for (int i = 0; i < 10; i++) {
+            recorder.recordEvent(Event.PRODUCT_ENQUEUED, 1, i, Color.RED);
+        }
+        recorder.stopRecording();
+
+        SimulationMemento memento = recorder.createMemento();
+        assertNotNull(memento.getFile());
+        assertTrue(memento.getFile().startsWith(directory));
+        assertEquals(10, memento.getEventCount());
+    }
+}
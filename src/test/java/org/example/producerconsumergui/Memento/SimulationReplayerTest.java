@@ -0,0 +1,160 @@
+package org.example.producerconsumergui.Memento;
+
+import org.example.producerconsumergui.Model.Color;
+import org.example.producerconsumergui.Model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulationReplayerTest {
+    private static final Color[] COLORS = Color.values();
+    private static final int QUEUES = 4;
+    private static final int MACHINES = 3;
+
+    /**
+     * A recording that only takes out products that are in the queue, like a real run
+     */
+    private static EventTable recording(int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<List<Integer>> queued = new ArrayList<>();
+        for (int q = 0; q < QUEUES; q++) queued.add(new ArrayList<>());
+        int[] blocked = new int[QUEUES];
+        EventTable table = new EventTable();
+        int nextProduct = 0;
+        long timestamp = 0;
+        while (table.size() < count) {
+            timestamp += random.nextInt(20);
+            int queue = random.nextInt(QUEUES);
+            int machine = 100 + random.nextInt(MACHINES);
+            Color color = COLORS[random.nextInt(COLORS.length)];
+            List<Integer> products = queued.get(queue);
+            switch (random.nextInt(8)) {
+                case 0, 1, 2 -> {
+                    products.add(nextProduct);
+                    table.append(Event.PRODUCT_ENQUEUED, queue, nextProduct++, color, timestamp);
+                }
+                case 3, 4 -> {
+                    if (products.isEmpty()) continue;
+                    table.append(Event.PRODUCT_DEQUEUED, queue, products.remove(0), null, timestamp);
+                }
+                case 5 -> table.append(random.nextBoolean() ? Event.MACHINE_STARTED_PROCESSING
+                        : Event.MACHINE_FINISHED_PROCESSING, machine, EventTable.NO_PRODUCT, null, timestamp);
+                case 6 -> table.append(Event.MACHINE_COLOR_CHANGED, machine, EventTable.NO_PRODUCT, color, timestamp);
+                default -> {
+                    if (blocked[queue] > 0 && random.nextBoolean()) {
+                        blocked[queue]--;
+                        table.append(Event.QUEUE_UNBLOCKED, queue, nextProduct, null, timestamp);
+                    } else if (random.nextBoolean()) {
+                        blocked[queue]++;
+                        table.append(Event.QUEUE_BLOCKED, queue, nextProduct, null, timestamp);
+                    } else if (!products.isEmpty() && random.nextBoolean()) {
+                        // Drop the oldest to make room
+                        table.append(Event.PRODUCT_DROPPED, queue, products.remove(0), null, timestamp);
+                    } else {
+                        table.append(Event.PRODUCT_DROPPED, queue, nextProduct++, color, timestamp);
+                    }
+                }
+            }
+        }
+        return table;
+    }
+
+    private static ReplayState linear(EventLog events, int index) {
+        ReplayState state = new ReplayState();
+        for (int i = 0; i < index; i++) {
+            state.apply(events, i);
+        }
+        return state;
+    }
+
+    /**
+     * The state in a comparable form. Entries that only say "nothing" (a zero count,
+     * no color) are left out, checkpoints don't keep them.
+     */
+    private static String describe(ReplayState state) {
+        Map<Integer, String> queues = new TreeMap<>();
+        state.getQueueContents().forEach((queue, products) -> {
+            if (products.isEmpty()) return;
+            StringBuilder contents = new StringBuilder();
+            for (Product product : products) {
+                contents.append(product.getId()).append(':').append(product.getProductColor()).append(' ');
+            }
+            queues.put(queue, contents.toString());
+        });
+        Map<Integer, Color> colors = new TreeMap<>();
+        state.getMachineColors().forEach((machine, color) -> {
+            if (color != null) colors.put(machine, color);
+        });
+        Map<Integer, Long> dropped = new TreeMap<>();
+        state.getDroppedCounts().forEach((queue, count) -> {
+            if (count != 0) dropped.put(queue, count);
+        });
+        Map<Integer, Integer> blocked = new TreeMap<>();
+        state.getBlockedCounts().forEach((queue, count) -> {
+            if (count != 0) blocked.put(queue, count);
+        });
+        return "queues " + queues + "\ncolors " + colors + "\nstatuses " + new TreeMap<>(state.getMachineStatuses())
+                + "\ndropped " + dropped + "\nblocked " + blocked;
+    }
+
+    @Test
+    void seekEndsInTheSameStateAsALinearReplay() {
+        EventTable events = recording(5_000, 3);
+        SimulationReplayer replayer = new SimulationReplayer(new SimulationMemento(events, 0), 64);
+
+        // Forward past several checkpoints, back before them, then onto and around checkpoint boundaries
+        int[] targets = {0, 1, 2_500, 100, 4_999, 5_000, 63, 64, 65, 1_280, 3_333, 17};
+        for (int target : targets) {
+            ReplayState sought = replayer.seekTo(target);
+            assertEquals(describe(linear(events, target)), describe(sought), "seeking to " + target);
+            assertEquals(target, replayer.getCurrentEventIndex());
+        }
+        assertTrue(replayer.getCheckpointCount() > 1);
+    }
+
+    @Test
+    void everyPositionMatchesWithCheckpointsTakenOnTheWay() {
+        EventTable events = recording(1_000, 8);
+        SimulationReplayer replayer = new SimulationReplayer(new SimulationMemento(events, 0), 16);
+        ReplayState state = new ReplayState();
+        for (int index = 0; index <= events.size(); index++) {
+            assertEquals(describe(state), describe(replayer.seekTo(index)), "seeking to " + index);
+            if (index < events.size()) state.apply(events, index);
+        }
+        assertEquals(events.size() / 16 + 1, replayer.getCheckpointCount());
+    }
+
+    @Test
+    void replayingTakesTheCheckpointsBeforeAnySeek() {
+        EventTable events = recording(2_000, 11);
+        SimulationReplayer replayer = new SimulationReplayer(new SimulationMemento(events, 0), 64);
+        replayer.setReplaySpeed(1e9);
+        replayer.startReplay();
+        // Every event is due at once
+        assertEquals(events.size(), replayer.takeDueEvents());
+        assertEquals(events.size() / 64 + 1, replayer.getCheckpointCount());
+
+        // Seeking back and to the end starts from the checkpoints the replay took
+        assertEquals(describe(linear(events, 1_000)), describe(replayer.seekTo(1_000)));
+        assertEquals(describe(linear(events, events.size())), describe(replayer.seekTo(events.size())));
+        assertEquals(events.size() / 64 + 1, replayer.getCheckpointCount());
+    }
+
+    @Test
+    void seekIsClampedToTheRecording() {
+        EventTable events = recording(200, 5);
+        SimulationReplayer replayer = new SimulationReplayer(new SimulationMemento(events, 0), 32);
+
+        assertEquals(describe(linear(events, events.size())), describe(replayer.seekTo(10_000)));
+        assertEquals(events.size(), replayer.getCurrentEventIndex());
+        assertFalse(replayer.hasMoreEvents());
+        assertEquals(describe(new ReplayState()), describe(replayer.seekTo(-5)));
+        assertEquals(0, replayer.getCurrentEventIndex());
+    }
+}
@@ -0,0 +1,96 @@
+package org.example.producerconsumergui.Model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArrivalProcessTest {
+
+    @TempDir
+    Path directory;
+
+    private Path trace(String content) throws IOException {
+        Path file = directory.resolve("trace.csv");
+        Files.writeString(file, content);
+        return file;
+    }
+
+    private static List<Long> gaps(Path file) throws IOException {
+        List<Long> gaps = new ArrayList<>();
+        try (ArrivalStream stream = ArrivalProcess.trace(file).open(null)) {
+            long gap;
+            while ((gap = stream.nextGapNanos()) >= 0) {
+                gaps.add(gap);
+            }
+        }
+        return gaps;
+    }
+
+    @Test
+    void traceSkipsHeaderCommentsAndBlankLines() throws IOException {
+        Path file = trace("timestamp,queue\r\n# recorded on the line\r\n\r\n1000.5,1\r\n1000.500001\n 1001 ;x\n\n1003.25\n");
+        assertEquals(List.of(0L, 1L, 499_999L, 2_250_000L), gaps(file));
+    }
+
+    @Test
+    void traceKeepsTheNanosecondAndDropsFinerDigits() throws IOException {
+        assertEquals(List.of(0L, 1L, 1_000_000L), gaps(trace("0\n0.0000019\n1.0000019")));
+    }
+
+    @Test
+    void traceWithoutTimestampsHasNoArrivals() throws IOException {
+        assertEquals(List.of(), gaps(trace("timestamp\n# nothing yet\n")));
+        assertEquals(List.of(), gaps(trace("")));
+    }
+
+    @Test
+    void malformedLineAfterTheFirstTimestampFails() throws IOException {
+        Path file = trace("t\n1\n2\nabc\n");
+        UncheckedIOException error = assertThrows(UncheckedIOException.class, () -> gaps(file));
+        assertTrue(error.getMessage().contains("line 4: not a timestamp"), error.getMessage());
+    }
+
+    @Test
+    void decreasingTimestampsFail() throws IOException {
+        Path file = trace("5\n4\n");
+        UncheckedIOException error = assertThrows(UncheckedIOException.class, () -> gaps(file));
+        assertTrue(error.getMessage().contains("line 2: timestamps go back"), error.getMessage());
+    }
+
+    @Test
+    void missingTraceFailsToOpen() {
+        assertThrows(IOException.class, () -> ArrivalProcess.trace(directory.resolve("missing.csv")).open(null));
+    }
+
+    @Test
+    void randomProcessesArriveAtTheirMeanRate() throws IOException {
+        ArrivalProcess[] processes = {
+                ArrivalProcess.uniform(500, 2000),
+                ArrivalProcess.poisson(100_000),
+                ArrivalProcess.deterministic(300_000),
+                // Short states, so the run goes through enough bursts to settle at the mean
+                ArrivalProcess.mmpp(new double[]{100, 2000}, new double[]{50, 5}),
+        };
+        int arrivals = 2_000_000;
+        for (ArrivalProcess process : processes) {
+            double total = 0;
+            try (ArrivalStream stream = process.open(new SplittableRandom(5))) {
+                for (int i = 0; i < arrivals; i++) {
+                    total += stream.nextGapNanos();
+                }
+            }
+            double rate = arrivals / (total / 1e9);
+            assertEquals(process.getMeanRatePerSecond(), rate,
+                    process.getMeanRatePerSecond() * 0.02, process.getLabel());
+        }
+    }
+}
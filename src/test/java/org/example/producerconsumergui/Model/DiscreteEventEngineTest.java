@@ -0,0 +1,131 @@
+package org.example.producerconsumergui.Model;
+
+import org.example.producerconsumergui.Memento.SimulationEvent;
+import org.example.producerconsumergui.Memento.SimulationMemento;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiscreteEventEngineTest {
+
+    private static SimulationTopology line() {
+        SimulationTopology topology = new SimulationTopology();
+        topology.addQueue(0, true, 0, 0);
+        topology.addQueue(1, false, 0, 0);
+        topology.addQueue(2, false, 0, 0);
+        topology.addMachine(1, Color.RED, RoutingPolicy.RANDOM, TimeDistribution.exponential(800), 0, 0);
+        topology.addMachine(2, Color.BLUE, RoutingPolicy.SHORTEST_QUEUE, TimeDistribution.lognormal(600, 0.5), 0, 0);
+        topology.addConnection(1, 0, 1);
+        topology.addConnection(1, 0, 2);
+        topology.addConnection(2, 1, 2);
+        return topology;
+    }
+
+    private static SimulationManager manager(QueueBackend backend) {
+        SimulationManager manager = new SimulationManager();
+        manager.setRecordingDirectory(null);
+        manager.setQueueBackend(backend);
+        manager.applyTopology(line());
+        manager.setArrivalProcess(ArrivalProcess.poisson(2));
+        return manager;
+    }
+
+    /**
+     * Every recorded event as text, so two runs can be compared in full
+     */
+    private static List<String> run(SimulationManager manager, long seed) {
+        manager.setSeed(seed);
+        assertTrue(manager.runDiscreteEvent(600_000));
+        SimulationMemento memento = manager.getLastMemento();
+        List<String> events = new ArrayList<>(memento.getEventCount());
+        for (SimulationEvent event : memento.getEvents()) {
+            events.add(event.getTimestamp() + " " + event.getEvent() + " " + event.getEntityId()
+                    + " " + event.getProductId() + " " + event.getColor());
+        }
+        return events;
+    }
+
+    @Test
+    void sameSeedRecordsTheSameEventStream() {
+        SimulationManager manager = manager(QueueBackend.SYNCHRONIZED);
+        List<String> first = run(manager, 42);
+        List<String> second = run(manager, 42);
+
+        assertFalse(first.isEmpty());
+        assertEquals(first, second);
+        assertEquals(first, run(manager(QueueBackend.SYNCHRONIZED), 42), "a new session with the same seed");
+    }
+
+    @Test
+    void otherSeedRecordsAnotherEventStream() {
+        SimulationManager manager = manager(QueueBackend.SYNCHRONIZED);
+        assertNotEquals(run(manager, 42), run(manager, 43));
+    }
+
+    @Test
+    void simulatedHourRunsOnTheVirtualClock() {
+        SimulationManager manager = manager(QueueBackend.SYNCHRONIZED);
+        manager.setSeed(1);
+        long started = System.nanoTime();
+        assertTrue(manager.runDiscreteEvent(3_600_000));
+        assertTrue(System.nanoTime() - started < 30_000_000_000L, "an hour of simulated time took too long");
+
+        List<SimulationEvent> events = manager.getLastMemento().getEvents();
+        assertFalse(events.isEmpty());
+        long span = events.get(events.size() - 1).getTimestamp() - events.get(0).getTimestamp();
+        assertTrue(span > 3_000_000 && span <= 3_600_000, "recorded span " + span);
+        // About 2 arrivals a second for an hour
+        assertEquals(7200.0, manager.getMetrics().getSystem().getArrived(), 400.0);
+        assertTrue(manager.getMetrics().getSystem().getCompleted() > 0);
+    }
+
+    @Test
+    void fullLockFreeRingHoldsArrivalsInsteadOfHanging() {
+        // One machine much slower than the arrivals, its input outgrows the ring
+        SimulationTopology topology = new SimulationTopology();
+        topology.addQueue(0, true, 0, 0);
+        topology.addQueue(1, false, 0, 0);
+        topology.addMachine(1, Color.RED, 0, 0);
+        topology.addConnection(1, 0, 1);
+        SimulationManager manager = new SimulationManager();
+        manager.setRecordingEnabled(false);
+        manager.setQueueBackend(QueueBackend.LOCK_FREE);
+        manager.applyTopology(topology);
+        manager.setArrivalProcess(ArrivalProcess.deterministic(1000));
+        manager.setSeed(1);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> assertTrue(manager.runDiscreteEvent(60_000)));
+        assertEquals(RingBufferProductBuffer.DEFAULT_CAPACITY, manager.getQueues().get(0).getDepth());
+        assertEquals(0, manager.getQueues().get(0).getDroppedCount());
+    }
+
+    @Test
+    void reroutedArrivalsStartTheOverflowQueuesConsumer() {
+        // A slow machine behind a full rerouting input, its overflow has a machine of its own
+        SimulationTopology topology = new SimulationTopology();
+        topology.addQueue(0, true, 0, 0);
+        topology.addQueue(1, false, 0, 0);
+        topology.addQueue(2, false, 0, 0);
+        topology.addMachine(1, Color.RED, RoutingPolicy.RANDOM, TimeDistribution.constant(1000), 0, 0);
+        topology.addMachine(2, Color.BLUE, RoutingPolicy.RANDOM, TimeDistribution.constant(50), 0, 0);
+        topology.addConnection(1, 0, 1);
+        topology.addConnection(2, 2, 1);
+        SimulationManager manager = new SimulationManager();
+        manager.setRecordingEnabled(false);
+        manager.applyTopology(topology);
+        manager.setQueueCapacity(0, 1, OverflowPolicy.REROUTE, 2);
+        manager.setArrivalProcess(ArrivalProcess.deterministic(10));
+        manager.setSeed(1);
+
+        assertTrue(manager.runDiscreteEvent(60_000));
+        SimulationQueue overflow = manager.getQueues().get(2);
+        assertEquals(0, manager.getQueues().get(0).getDroppedCount());
+        assertTrue(manager.getMachines().get(2).getProcessedCount() > 400,
+                "overflow consumer processed " + manager.getMachines().get(2).getProcessedCount());
+        assertTrue(overflow.getDepth() <= 1, "overflow queue holds " + overflow.getDepth());
+    }
+}
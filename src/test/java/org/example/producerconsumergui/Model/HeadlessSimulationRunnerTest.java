@@ -0,0 +1,35 @@
+package org.example.producerconsumergui.Model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeadlessSimulationRunnerTest {
+
+    private static HeadlessSimulationRunner runner() {
+        SimulationTopology topology = new SimulationTopology();
+        topology.addQueue(0, true, 0, 0);
+        topology.addQueue(1, false, 0, 0);
+        topology.addMachine(1, Color.RED, RoutingPolicy.RANDOM, TimeDistribution.exponential(200), 0, 0);
+        topology.addConnection(1, 0, 1);
+        SimulationManager manager = new SimulationManager();
+        manager.setRecordingEnabled(false);
+        manager.applyTopology(topology);
+        manager.setArrivalProcess(ArrivalProcess.poisson(2));
+        manager.setSeed(1);
+        return new HeadlessSimulationRunner(manager);
+    }
+
+    @Test
+    void secondRunCountsOnlyItsOwnProducts() throws InterruptedException {
+        HeadlessSimulationRunner runner = runner();
+        SimulationSummary first = runner.runSimulated(600_000);
+        SimulationSummary second = runner.runSimulated(600_000);
+
+        assertTrue(first.getProductsProcessed() > 0);
+        assertTrue(second.getProductsProcessed() <= second.getProductsGenerated(),
+                second.getProductsProcessed() + " processed of " + second.getProductsGenerated());
+        // Same seed, same run
+        assertEquals(first.getProductsProcessed(), second.getProductsProcessed());
+    }
+}
@@ -0,0 +1,114 @@
+package org.example.producerconsumergui.Model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RingBufferProductBufferTest {
+
+    @Test
+    void capacityIsRoundedUpToAPowerOfTwo() {
+        assertEquals(8, new RingBufferProductBuffer(5).capacity());
+        assertEquals(8, new RingBufferProductBuffer(8).capacity());
+        assertThrows(IllegalArgumentException.class, () -> new RingBufferProductBuffer(1));
+    }
+
+    @Test
+    void offerFailsWhenFullAndPollKeepsFifoOrder() {
+        RingBufferProductBuffer buffer = new RingBufferProductBuffer(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(new Product(i, Color.RED)));
+        }
+        assertFalse(buffer.offer(new Product(4, Color.RED)));
+        assertEquals(4, buffer.size());
+
+        assertEquals(0, buffer.poll().getId());
+        assertTrue(buffer.offer(new Product(4, Color.RED)));
+        for (int i = 1; i <= 4; i++) {
+            assertEquals(i, buffer.poll().getId());
+        }
+        assertNull(buffer.poll());
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    void removeKeepsTheOtherProductsInOrder() {
+        RingBufferProductBuffer buffer = new RingBufferProductBuffer(8);
+        Product middle = new Product(1, Color.BLUE);
+        buffer.offer(new Product(0, Color.RED));
+        buffer.offer(middle);
+        buffer.offer(new Product(2, Color.RED));
+
+        assertTrue(buffer.remove(middle));
+        assertFalse(buffer.remove(middle));
+        assertEquals(0, buffer.poll().getId());
+        assertEquals(2, buffer.poll().getId());
+    }
+
+    @Test
+    void concurrentProducersAndConsumersNeitherLoseNorDuplicate() throws InterruptedException {
+        int producers = 4;
+        int consumers = 4;
+        int perProducer = 20_000;
+        int total = producers * perProducer;
+        // A small ring so producers keep running into a full buffer
+        RingBufferProductBuffer buffer = new RingBufferProductBuffer(64);
+        AtomicIntegerArray seen = new AtomicIntegerArray(total);
+        AtomicInteger taken = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int first = p * perProducer;
+            threads.add(new Thread(() -> {
+                await(start);
+                for (int id = first; id < first + perProducer; id++) {
+                    Product product = new Product(id, Color.RED);
+                    while (!buffer.offer(product)) {
+                        Thread.yield();
+                    }
+                }
+            }));
+        }
+        for (int c = 0; c < consumers; c++) {
+            threads.add(new Thread(() -> {
+                await(start);
+                while (taken.get() < total) {
+                    Product product = buffer.poll();
+                    if (product == null) {
+                        Thread.yield();
+                        continue;
+                    }
+                    seen.incrementAndGet(product.getId());
+                    taken.incrementAndGet();
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join(60_000);
+            assertFalse(thread.isAlive(), "producer or consumer never finished");
+        }
+
+        assertEquals(total, taken.get());
+        for (int id = 0; id < total; id++) {
+            assertEquals(1, seen.get(id), "product " + id);
+        }
+        assertTrue(buffer.isEmpty());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package org.example.producerconsumergui.Model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulationQueueTest {
+
+    @Test
+    void fullRingHoldsProductsOfAnUnboundedQueueUntilThereIsRoom() {
+        SimulationQueue queue = new SimulationQueue(1, new RingBufferProductBuffer(4));
+        List<Integer> admitted = new ArrayList<>();
+        for (int id = 0; id < 6; id++) {
+            int productId = id;
+            SimulationQueue landed = queue.enqueueOrHold(new Product(id, Color.RED), () -> admitted.add(productId));
+            assertEquals(id < 4 ? queue : null, landed, "product " + id);
+        }
+        assertEquals(4, queue.getDepth());
+        assertEquals(2, queue.getBlockedCount());
+        assertTrue(queue.isFull());
+
+        assertEquals(0, queue.dequeue().getId());
+        assertEquals(List.of(4), admitted);
+        for (int id = 1; id <= 5; id++) {
+            assertEquals(id, queue.dequeue().getId());
+        }
+        assertEquals(List.of(4, 5), admitted);
+        assertEquals(0, queue.getBlockedCount());
+        assertEquals(0, queue.getDroppedCount());
+    }
+
+    @Test
+    void capacityAboveTheRingStillStopsAtTheRing() {
+        SimulationQueue queue = new SimulationQueue(1, new RingBufferProductBuffer(4));
+        queue.setCapacity(100, OverflowPolicy.DROP_NEWEST);
+        for (int id = 0; id < 5; id++) {
+            queue.enqueueOrHold(new Product(id, Color.RED), () -> { });
+        }
+        // The ring holds the product back whatever the policy, nothing is lost
+        assertEquals(4, queue.getDepth());
+        assertEquals(1, queue.getBlockedCount());
+        assertEquals(0, queue.getDroppedCount());
+    }
+
+    @Test
+    void capacityBelowTheRingAppliesTheOverflowPolicy() {
+        SimulationQueue queue = new SimulationQueue(1, new RingBufferProductBuffer(8));
+        queue.setCapacity(2, OverflowPolicy.DROP_NEWEST);
+        for (int id = 0; id < 3; id++) {
+            assertEquals(queue, queue.enqueueOrHold(new Product(id, Color.RED), () -> { }));
+        }
+        assertEquals(2, queue.getDepth());
+        assertEquals(1, queue.getDroppedCount());
+    }
+
+    @Test
+    void dropOldestMakesRoomForTheNewProduct() {
+        SimulationQueue queue = new SimulationQueue(1);
+        queue.setCapacity(2, OverflowPolicy.DROP_OLDEST);
+        for (int id = 0; id < 4; id++) {
+            queue.enqueue(new Product(id, Color.RED));
+        }
+        assertEquals(2, queue.getDroppedCount());
+        assertEquals(2, queue.dequeue().getId());
+        assertEquals(3, queue.dequeue().getId());
+    }
+
+    @Test
+    void rerouteSendsTheOverflowOnAndDropsWhenEveryQueueIsFull() {
+        SimulationQueue first = new SimulationQueue(1);
+        SimulationQueue second = new SimulationQueue(2);
+        first.setCapacity(1, OverflowPolicy.REROUTE);
+        second.setCapacity(1, OverflowPolicy.REROUTE);
+        first.setOverflowQueue(second);
+        second.setOverflowQueue(first);
+
+        assertEquals(first, first.enqueueOrHold(new Product(0, Color.RED), () -> { }));
+        assertEquals(second, first.enqueueOrHold(new Product(1, Color.RED), () -> { }), "the queue that took it");
+        assertNotNull(first.enqueueOrHold(new Product(2, Color.RED), () -> { }));
+        assertEquals(0, first.dequeue().getId());
+        assertEquals(1, second.dequeue().getId());
+        // The cycle of full queues ends in a drop
+        assertEquals(1, first.getDroppedCount());
+    }
+
+    @Test
+    void blockHoldsProductsInArrivalOrder() {
+        SimulationQueue queue = new SimulationQueue(1);
+        queue.setCapacity(1, OverflowPolicy.BLOCK);
+        List<Integer> admitted = new ArrayList<>();
+        for (int id = 0; id < 3; id++) {
+            int productId = id;
+            queue.enqueueOrHold(new Product(id, Color.RED), () -> admitted.add(productId));
+        }
+        assertEquals(2, queue.getBlockedCount());
+        // A larger capacity takes the waiting products in at once
+        queue.setCapacity(3, OverflowPolicy.BLOCK);
+        assertEquals(List.of(1, 2), admitted);
+        assertEquals(0, queue.getBlockedCount());
+        assertEquals(3, queue.getDepth());
+    }
+
+    @Test
+    void blockedEnqueueOnAFullRingWaitsAndGivesUpOnInterrupt() throws InterruptedException {
+        SimulationQueue queue = new SimulationQueue(1, new RingBufferProductBuffer(2));
+        queue.enqueue(new Product(0, Color.RED));
+        queue.enqueue(new Product(1, Color.RED));
+
+        Thread producer = new Thread(() -> queue.enqueue(new Product(2, Color.RED)));
+        producer.start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (queue.getBlockedCount() == 0 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(1_000_000);
+        }
+        assertEquals(1, queue.getBlockedCount());
+
+        producer.interrupt();
+        producer.join(10_000);
+        assertFalse(producer.isAlive());
+        assertEquals(0, queue.getBlockedCount());
+        assertEquals(1, queue.getDroppedCount());
+        assertEquals(2, queue.getDepth());
+    }
+}
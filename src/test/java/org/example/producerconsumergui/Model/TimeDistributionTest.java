@@ -0,0 +1,96 @@
+package org.example.producerconsumergui.Model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeDistributionTest {
+    private static final int SAMPLES = 400_000;
+
+    private static double sampleMean(TimeDistribution distribution, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        double sum = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            double sample = distribution.sampleMillis(random);
+            assertTrue(sample >= 0, "negative sample " + sample);
+            sum += sample;
+        }
+        return sum / SAMPLES;
+    }
+
+    @Test
+    void continuousSamplersMatchTheirMean() {
+        TimeDistribution[] distributions = {
+                TimeDistribution.uniform(1000),
+                TimeDistribution.exponential(1000),
+                TimeDistribution.lognormal(1000, 0.75),
+                TimeDistribution.erlang(4, 1000),
+                TimeDistribution.erlang(1, 250),
+        };
+        for (TimeDistribution distribution : distributions) {
+            double mean = distribution.getMeanMillis();
+            // Well over four standard errors for the most spread out of them
+            assertEquals(mean, sampleMean(distribution, 7), mean * 0.01, distribution.getLabel());
+        }
+    }
+
+    @Test
+    void uniformStaysWithinTwiceItsMean() {
+        TimeDistribution uniform = TimeDistribution.uniform(50);
+        SplittableRandom random = new SplittableRandom(3);
+        for (int i = 0; i < SAMPLES; i++) {
+            double sample = uniform.sampleMillis(random);
+            assertTrue(sample >= 0 && sample <= 100, "out of range " + sample);
+        }
+    }
+
+    @Test
+    void constantAlwaysReturnsItsValue() {
+        TimeDistribution constant = TimeDistribution.constant(12.5);
+        SplittableRandom random = new SplittableRandom(1);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(12.5, constant.sampleMillis(random), 0);
+        }
+    }
+
+    @Test
+    void aliasTableReturnsValuesInProportionToTheirCounts() {
+        double[] values = {5, 10, 20, 40, 80};
+        long[] counts = {1, 7, 2, 30, 60};
+        TimeDistribution empirical = TimeDistribution.empirical(values, counts);
+        assertEquals((5 * 1 + 10 * 7 + 20 * 2 + 40 * 30 + 80 * 60) / 100.0, empirical.getMeanMillis(), 1e-9);
+
+        int[] seen = new int[values.length];
+        SplittableRandom random = new SplittableRandom(11);
+        for (int i = 0; i < SAMPLES; i++) {
+            double sample = empirical.sampleMillis(random);
+            int index = java.util.Arrays.binarySearch(values, sample);
+            assertTrue(index >= 0, "not an observed value " + sample);
+            seen[index]++;
+        }
+        for (int i = 0; i < values.length; i++) {
+            double expected = counts[i] / 100.0;
+            double standardError = Math.sqrt(expected * (1 - expected) / SAMPLES);
+            assertEquals(expected, (double) seen[i] / SAMPLES, 5 * standardError, "share of " + values[i]);
+        }
+    }
+
+    @Test
+    void empiricalFromObservationsCountsRepeats() {
+        TimeDistribution empirical = TimeDistribution.empirical(new double[]{3, 1, 3, 3, 2});
+        assertArrayEquals(new double[]{1, 2, 3}, empirical.getValues());
+        assertArrayEquals(new long[]{1, 1, 3}, empirical.getCounts());
+        assertEquals(2.4, empirical.getMeanMillis(), 1e-9);
+    }
+
+    @Test
+    void invalidParametersAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> TimeDistribution.lognormal(100, 0));
+        assertThrows(IllegalArgumentException.class, () -> TimeDistribution.erlang(0, 100));
+        assertThrows(IllegalArgumentException.class, () -> TimeDistribution.empirical(new double[0]));
+        assertThrows(IllegalArgumentException.class,
+                () -> TimeDistribution.empirical(new double[]{1, 2}, new long[]{1, 0}));
+    }
+}